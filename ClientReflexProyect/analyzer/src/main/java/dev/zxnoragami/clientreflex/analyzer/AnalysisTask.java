@@ -0,0 +1,66 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import dev.zxnoragami.clientreflex.recording.format.SessionReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Analiza un rango de sesiones con fork/join: divide por la mitad hasta quedarse con
+ * LEAF_SESSIONS sesiones, las recorre en secuencia y combina los agregados al volver.
+ *
+ * Cada segmento se mapea en solo lectura y se recorre registro a registro, así que la
+ * memoria no depende del tamaño de las grabaciones.
+ */
+final class AnalysisTask extends RecursiveTask<FleetStats> {
+    private static final long serialVersionUID = 1L;
+    // Las sesiones varían mucho de tamaño; hojas pequeñas reparten mejor el trabajo
+    private static final int LEAF_SESSIONS = 2;
+
+    private final transient List<SessionAnalyzer.Session> sessions;
+    private final long intervalMs;
+    private final int topCount;
+
+    AnalysisTask(List<SessionAnalyzer.Session> sessions, long intervalMs, int topCount) {
+        this.sessions = sessions;
+        this.intervalMs = intervalMs;
+        this.topCount = topCount;
+    }
+
+    @Override
+    protected FleetStats compute() {
+        if (sessions.size() <= LEAF_SESSIONS) {
+            FleetStats stats = new FleetStats(intervalMs, topCount);
+            for (SessionAnalyzer.Session session : sessions) {
+                analyze(session, stats);
+            }
+            return stats;
+        }
+        int middle = sessions.size() / 2;
+        AnalysisTask left = new AnalysisTask(sessions.subList(0, middle), intervalMs, topCount);
+        AnalysisTask right = new AnalysisTask(sessions.subList(middle, sessions.size()), intervalMs, topCount);
+        left.fork();
+        FleetStats rightStats = right.compute();
+        return left.join().merge(rightStats);
+    }
+
+    private static void analyze(SessionAnalyzer.Session session, FleetStats stats) {
+        SessionStatsVisitor visitor = new SessionStatsVisitor(session.name(), stats);
+        stats.sessions++;
+        for (Path segment : session.segments()) {
+            stats.files++;
+            try {
+                SessionReader.Result result = SessionReader.read(segment, visitor);
+                stats.records += result.records();
+                if (result.truncated()) {
+                    stats.truncatedFiles++;
+                }
+            } catch (IOException e) {
+                stats.errors.add(segment + ": " + e.getMessage());
+            }
+        }
+        visitor.finish();
+    }
+}
@@ -0,0 +1,97 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import dev.zxnoragami.clientreflex.ping.ChangePointDetector;
+import dev.zxnoragami.clientreflex.ping.PingMetrics;
+import dev.zxnoragami.clientreflex.ping.RollingLatencyHistogram;
+
+import java.util.Arrays;
+
+/**
+ * Entradas de las políticas para una traza y un percentil de decisión, tick a tick.
+ *
+ * Reproduce las muestras de RTT en un {@link PingMetrics} real con reloj virtual (el
+ * mismo que usa el cliente, con su historial y su detector de cambios), así que el ping
+ * de decisión y los cambios de régimen son los que el juego habría visto. Como no
+ * dependen de umbrales ni tiempos, se calculan una vez por percentil y se reutilizan
+ * para todas las configuraciones del barrido.
+ */
+final class DecisionInputs {
+    // Mismo tamaño de historial que pingMetricsHistorySize por defecto
+    private static final int HISTORY_SIZE = 60;
+
+    final double percentile;
+
+    // Ping de decisión como lista de cambios: desde changeTicks[i], vale changeValues[i]
+    int[] changeTicks = new int[256];
+    long[] changeValues = new long[256];
+    int changeCount = 0;
+
+    // Subidas confirmadas por el detector: tick, nivel nuevo redondeado y confianza
+    int[] upShiftTicks = new int[16];
+    long[] upShiftLevels = new long[16];
+    double[] upShiftConfidences = new double[16];
+    int upShiftCount = 0;
+
+    private DecisionInputs(double percentile) {
+        this.percentile = percentile;
+    }
+
+    static DecisionInputs compute(SessionTrace trace, double percentile) {
+        DecisionInputs inputs = new DecisionInputs(percentile);
+        long[] clock = {0};
+        PingMetrics metrics = new PingMetrics(HISTORY_SIZE, () -> clock[0]);
+        long lastShiftCount = 0;
+        int next = 0;
+        for (int interval = 0; interval < trace.connectedCount; interval++) {
+            int offset = trace.tickOffsets[interval];
+            int ticks = trace.ticks(interval);
+            for (int tick = 0; tick < ticks; tick++) {
+                long now = trace.connectedStarts[interval] + (tick + 1) * SessionTrace.TICK_MS;
+                while (next < trace.rttCount && trace.rttTimes[next] <= now) {
+                    clock[0] = trace.rttTimes[next];
+                    metrics.recordPing(trace.rttSources[next], trace.rttValues[next]);
+                    next++;
+                }
+                clock[0] = now;
+
+                long shiftCount = metrics.getRttShiftCount();
+                if (shiftCount != lastShiftCount) {
+                    lastShiftCount = shiftCount;
+                    ChangePointDetector detector = metrics.getRttChangeDetector();
+                    if (detector.getLastShift() == ChangePointDetector.Shift.UP) {
+                        inputs.addUpShift(offset + tick, Math.round(detector.getCurrentLevel()),
+                            detector.getLastShiftConfidence());
+                    }
+                }
+                inputs.addDecisionPing(offset + tick,
+                    metrics.getPingPercentileMs(RollingLatencyHistogram.Window.TEN_SECONDS, percentile));
+            }
+        }
+        return inputs;
+    }
+
+    private void addDecisionPing(int tick, long pingMs) {
+        if (changeCount > 0 && changeValues[changeCount - 1] == pingMs) {
+            return;
+        }
+        if (changeCount == changeTicks.length) {
+            changeTicks = Arrays.copyOf(changeTicks, changeCount * 2);
+            changeValues = Arrays.copyOf(changeValues, changeCount * 2);
+        }
+        changeTicks[changeCount] = tick;
+        changeValues[changeCount] = pingMs;
+        changeCount++;
+    }
+
+    private void addUpShift(int tick, long levelMs, double confidence) {
+        if (upShiftCount == upShiftTicks.length) {
+            upShiftTicks = Arrays.copyOf(upShiftTicks, upShiftCount * 2);
+            upShiftLevels = Arrays.copyOf(upShiftLevels, upShiftCount * 2);
+            upShiftConfidences = Arrays.copyOf(upShiftConfidences, upShiftCount * 2);
+        }
+        upShiftTicks[upShiftCount] = tick;
+        upShiftLevels[upShiftCount] = levelMs;
+        upShiftConfidences[upShiftCount] = confidence;
+        upShiftCount++;
+    }
+}
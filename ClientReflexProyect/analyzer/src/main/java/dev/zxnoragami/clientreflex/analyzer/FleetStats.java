@@ -0,0 +1,172 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Agregado de una o varias sesiones. Cada hoja del análisis llena el suyo y luego se
+ * combinan con {@link #merge}; todo son contadores, histogramas y Top-N acotados, así
+ * que el tamaño no crece con el número de registros.
+ */
+final class FleetStats {
+    /**
+     * Silencio registrado, para la lista de los más largos.
+     */
+    record Stall(long startMs, String session, String cause, long durationMs) {
+    }
+
+    /**
+     * Muestra de tasas por segundo, para la lista de picos.
+     */
+    record RatePeak(long timeMs, String session, long packetsPerSecond, long bytesInPerSecond, long bytesOutPerSecond) {
+    }
+
+    /**
+     * Métricas de un intervalo de tiempo de reloj.
+     */
+    static final class Interval {
+        final Histogram rtt = new Histogram();
+        final Histogram jitterMicros = new Histogram();
+        final Map<String, Long> stalledMsByCause = new TreeMap<>();
+        long stalls = 0;
+        long stalledMs = 0;
+        long maxPacketsPerSecond = 0;
+        long maxBytesInPerSecond = 0;
+
+        void merge(Interval other) {
+            rtt.merge(other.rtt);
+            jitterMicros.merge(other.jitterMicros);
+            other.stalledMsByCause.forEach((cause, ms) -> stalledMsByCause.merge(cause, ms, Long::sum));
+            stalls += other.stalls;
+            stalledMs += other.stalledMs;
+            maxPacketsPerSecond = Math.max(maxPacketsPerSecond, other.maxPacketsPerSecond);
+            maxBytesInPerSecond = Math.max(maxBytesInPerSecond, other.maxBytesInPerSecond);
+        }
+    }
+
+    /**
+     * Desenlaces de un tipo de predicción.
+     */
+    static final class Predictions {
+        final Histogram timeToConfirmMs = new Histogram();
+        long made = 0;
+        long confirmed = 0;
+        long rolledBack = 0;
+        long expired = 0;
+
+        /**
+         * Confirmadas sobre resueltas; las aún pendientes no cuentan. NaN sin resueltas.
+         */
+        double accuracy() {
+            long resolved = confirmed + rolledBack + expired;
+            return resolved == 0 ? Double.NaN : (double) confirmed / resolved;
+        }
+
+        void merge(Predictions other) {
+            timeToConfirmMs.merge(other.timeToConfirmMs);
+            made += other.made;
+            confirmed += other.confirmed;
+            rolledBack += other.rolledBack;
+            expired += other.expired;
+        }
+    }
+
+    /**
+     * Totales de una causa de silencio.
+     */
+    static final class StallCause {
+        long count = 0;
+        long totalMs = 0;
+        long maxMs = 0;
+
+        void merge(StallCause other) {
+            count += other.count;
+            totalMs += other.totalMs;
+            maxMs = Math.max(maxMs, other.maxMs);
+        }
+    }
+
+    final long intervalMs;
+    final int topCount;
+
+    int files = 0;
+    int truncatedFiles = 0;
+    int sessions = 0;
+    long records = 0;
+    long connectedMs = 0;
+    final List<String> errors = new ArrayList<>();
+
+    final TreeMap<Long, Interval> intervals = new TreeMap<>();
+    final Map<String, Histogram> rttBySource = new TreeMap<>();
+    final Histogram rtt = new Histogram();
+    final Histogram jitterMicros = new Histogram();
+    final Map<String, StallCause> stallsByCause = new TreeMap<>();
+    final TopN<Stall> longestStalls;
+    final TopN<RatePeak> ratePeaks;
+    final Map<String, Predictions> predictions = new TreeMap<>();
+
+    long reconnectEpisodes = 0;
+    long reconnectAttempts = 0;
+    long reconnectUnresolved = 0;
+    final Histogram reconnectSucceededMs = new Histogram();
+    final Histogram reconnectFailedMs = new Histogram();
+
+    FleetStats(long intervalMs, int topCount) {
+        this.intervalMs = intervalMs;
+        this.topCount = topCount;
+        this.longestStalls = new TopN<>(topCount, (a, b) -> Long.compare(a.durationMs(), b.durationMs()));
+        this.ratePeaks = new TopN<>(topCount, (a, b) -> Long.compare(a.packetsPerSecond(), b.packetsPerSecond()));
+    }
+
+    /**
+     * Intervalo que contiene el instante dado, creado si hace falta.
+     */
+    Interval interval(long timeMs) {
+        return intervals.computeIfAbsent(Math.floorDiv(timeMs, intervalMs) * intervalMs, start -> new Interval());
+    }
+
+    Predictions predictions(String type) {
+        return predictions.computeIfAbsent(type, t -> new Predictions());
+    }
+
+    StallCause stallCause(String cause) {
+        return stallsByCause.computeIfAbsent(cause, c -> new StallCause());
+    }
+
+    Histogram rttSource(String source) {
+        return rttBySource.computeIfAbsent(source, s -> new Histogram());
+    }
+
+    /**
+     * Suma otro agregado a este. El otro no debe usarse después.
+     */
+    FleetStats merge(FleetStats other) {
+        files += other.files;
+        truncatedFiles += other.truncatedFiles;
+        sessions += other.sessions;
+        records += other.records;
+        connectedMs += other.connectedMs;
+        errors.addAll(other.errors);
+
+        other.intervals.forEach((start, interval) -> intervals.merge(start, interval, (a, b) -> {
+            a.merge(b);
+            return a;
+        }));
+        other.rttBySource.forEach((source, histogram) -> rttSource(source).merge(histogram));
+        rtt.merge(other.rtt);
+        jitterMicros.merge(other.jitterMicros);
+        other.stallsByCause.forEach((cause, stats) -> stallCause(cause).merge(stats));
+        longestStalls.merge(other.longestStalls);
+        ratePeaks.merge(other.ratePeaks);
+        other.predictions.forEach((type, stats) -> predictions(type).merge(stats));
+
+        reconnectEpisodes += other.reconnectEpisodes;
+        reconnectAttempts += other.reconnectAttempts;
+        reconnectUnresolved += other.reconnectUnresolved;
+        reconnectSucceededMs.merge(other.reconnectSucceededMs);
+        reconnectFailedMs.merge(other.reconnectFailedMs);
+        return this;
+    }
+}
@@ -0,0 +1,77 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import dev.zxnoragami.clientreflex.policy.WeakModePolicy;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Ticks en los que la conexión de una traza estaba realmente degradada, con un criterio
+ * fijo que no depende de la configuración evaluada: la mediana del RTT de los últimos
+ * WINDOW_MS supera truthPingMs, o hay un silencio de red de más de 2 s.
+ *
+ * Es la referencia contra la que se miden las activaciones falsas y la degradación que
+ * el modo débil no cubrió.
+ */
+final class GroundTruth {
+    static final long WINDOW_MS = 5_000;
+
+    final BitSet degraded;
+    final long degradedMs;
+
+    private GroundTruth(BitSet degraded) {
+        this.degraded = degraded;
+        this.degradedMs = degraded.cardinality() * SessionTrace.TICK_MS;
+    }
+
+    static GroundTruth compute(SessionTrace trace, long truthPingMs) {
+        BitSet degraded = new BitSet(trace.totalTicks);
+        int[] window = new int[64];
+        int[] stallCursor = {0};
+        int lo = 0;
+        int hi = 0;
+        long median = 0;
+        for (int interval = 0; interval < trace.connectedCount; interval++) {
+            int offset = trace.tickOffsets[interval];
+            int ticks = trace.ticks(interval);
+            for (int tick = 0; tick < ticks; tick++) {
+                long now = trace.connectedStarts[interval] + (tick + 1) * SessionTrace.TICK_MS;
+                boolean changed = false;
+                while (hi < trace.rttCount && trace.rttTimes[hi] <= now) {
+                    hi++;
+                    changed = true;
+                }
+                while (lo < hi && trace.rttTimes[lo] <= now - WINDOW_MS) {
+                    lo++;
+                    changed = true;
+                }
+                if (changed) {
+                    int count = hi - lo;
+                    if (count == 0) {
+                        median = 0;
+                    } else {
+                        if (window.length < count) {
+                            window = new int[Integer.highestOneBit(count) * 2];
+                        }
+                        System.arraycopy(trace.rttValues, lo, window, 0, count);
+                        Arrays.sort(window, 0, count);
+                        median = window[count / 2];
+                    }
+                }
+                if (median > truthPingMs
+                    || trace.silenceAt(now, stallCursor) > WeakModePolicy.NETWORK_SILENCE_THRESHOLD_MS) {
+                    degraded.set(offset + tick);
+                }
+            }
+        }
+        return new GroundTruth(degraded);
+    }
+
+    /**
+     * Si hubo algún tick degradado en [fromTick, toTick) del mismo tramo.
+     */
+    boolean anyDegraded(int fromTick, int toTick) {
+        int next = degraded.nextSetBit(fromTick);
+        return next >= 0 && next < toTick;
+    }
+}
@@ -0,0 +1,105 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import java.util.Arrays;
+
+/**
+ * Histograma log-lineal de valores enteros no negativos, combinable.
+ *
+ * Los valores menores que 2·SUB_BUCKETS se cuentan exactos; por encima, cada potencia
+ * de dos se divide en SUB_BUCKETS intervalos, así que el error relativo de un
+ * percentil es menor que 1/SUB_BUCKETS (~3%) sea cual sea la escala. El tamaño está
+ * acotado, de modo que agregar millones de muestras no guarda las muestras, y solo
+ * llega hasta el intervalo del mayor valor visto: un histograma vacío no reserva nada y
+ * uno de RTT en milisegundos ocupa unos cientos de contadores, no BUCKET_COUNT.
+ */
+final class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] counts = EMPTY;
+    private long total = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    void record(long value) {
+        long v = Math.max(0, value);
+        int index = index(v);
+        ensureCapacity(index + 1);
+        counts[index]++;
+        total++;
+        sum += v;
+        max = Math.max(max, v);
+    }
+
+    void merge(Histogram other) {
+        ensureCapacity(other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return total;
+    }
+
+    long max() {
+        return max;
+    }
+
+    double mean() {
+        return total == 0 ? 0.0 : (double) sum / total;
+    }
+
+    /**
+     * Valor del percentil (0-100): el mayor valor del intervalo que contiene ese rango,
+     * sin superar el máximo observado. 0 si el histograma está vacío.
+     */
+    long percentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValue(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Crece al menos al doble para que registrar valores crecientes no copie en cada muestra.
+     */
+    private void ensureCapacity(int length) {
+        if (length > counts.length) {
+            counts = Arrays.copyOf(counts, Math.min(BUCKET_COUNT, Math.max(length, counts.length * 2)));
+        }
+    }
+
+    private static int index(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift);
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    private static long highestValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long mantissa = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,359 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import dev.zxnoragami.clientreflex.policy.ProfilePolicy;
+import dev.zxnoragami.clientreflex.policy.WeakModePolicy;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Subcomando "simulate": reproduce las trazas grabadas contra las políticas de perfil y
+ * modo débil con una rejilla de parámetros y ordena las configuraciones por coste.
+ *
+ * Cada opción acepta un valor, una lista (a,b,c) o un rango (desde:hasta:paso); se evalúa
+ * el producto de todas. La primera fila es siempre la configuración por defecto del mod,
+ * para comparar.
+ */
+final class ParameterSweep {
+    private static final String USAGE = """
+        Uso: clientreflex-analyzer simulate [opciones] <archivo.crss | directorio>...
+
+        Cada parámetro acepta un valor, una lista (a,b,c) o un rango (desde:hasta:paso).
+        Tiempos en ms. Por defecto, los valores por defecto del mod.
+
+        Perfiles de ping:
+          --percentile <p>          Percentil de decisión sobre 10 s (90)
+          --low/--medium/--high <ms> Umbrales de los rangos (60 / 120 / 200)
+          --cooldown <ms>           Tiempo mínimo entre cambios por percentil (5000)
+          --confidence <c>          Confianza mínima de un cambio de régimen (0.999)
+        Modo conexión débil:
+          --weak-ping <ms>          Umbral de ping (200)
+          --weak-activate <ms>      Degradación sostenida para activar (5000)
+          --weak-restore <ms>       Conexión sana seguida para restaurar (10000)
+
+        Evaluación:
+          --truth-ping <ms>         Mediana de RTT a partir de la cual la conexión está realmente degradada (200)
+          --sort <criterio>         coste, cambios, falsas o perdido (por defecto: coste)
+          --top <n>                 Configuraciones a mostrar (por defecto: 20)
+          --threads <n>             Hilos de la simulación (por defecto: núcleos disponibles)
+
+        Coste por hora conectada = cambios de perfil + 5 · activaciones falsas del modo débil
+                                   + minutos realmente degradados sin modo débil
+        """;
+
+    // Más combinaciones tardarían horas incluso con pocas trazas
+    private static final long MAX_CONFIGS = 1_000_000;
+
+    /**
+     * Parámetro de la rejilla con su opción y el valor por defecto de ClientReflexConfig.ConfigData.
+     */
+    private enum Dimension {
+        PERCENTILE("--percentile", "90"),
+        LOW("--low", "60"),
+        MEDIUM("--medium", "120"),
+        HIGH("--high", "200"),
+        COOLDOWN("--cooldown", "5000"),
+        CONFIDENCE("--confidence", "0.999"),
+        WEAK_PING("--weak-ping", "200"),
+        WEAK_ACTIVATE("--weak-activate", "5000"),
+        WEAK_RESTORE("--weak-restore", "10000");
+
+        private static final Dimension[] VALUES = values();
+
+        final String option;
+        final String defaultValue;
+
+        Dimension(String option, String defaultValue) {
+            this.option = option;
+            this.defaultValue = defaultValue;
+        }
+
+        static Dimension of(String option) {
+            for (Dimension dimension : VALUES) {
+                if (dimension.option.equals(option)) {
+                    return dimension;
+                }
+            }
+            return null;
+        }
+    }
+
+    private ParameterSweep() {
+    }
+
+    static void run(String[] args) {
+        PrintStream out = System.out;
+        Map<Dimension, double[]> grid = defaultGrid();
+        long truthPingMs = 200;
+        String sort = "coste";
+        int topCount = 20;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                Dimension dimension = Dimension.of(arg);
+                if (dimension != null) {
+                    grid.put(dimension, parseValues(SessionAnalyzer.value(args, ++i)));
+                    continue;
+                }
+                switch (arg) {
+                    case "--truth-ping" -> truthPingMs = Long.parseLong(SessionAnalyzer.value(args, ++i));
+                    case "--sort" -> sort = SessionAnalyzer.value(args, ++i);
+                    case "--top" -> topCount = Math.max(1, Integer.parseInt(SessionAnalyzer.value(args, ++i)));
+                    case "--threads" -> threads = Math.max(1, Integer.parseInt(SessionAnalyzer.value(args, ++i)));
+                    case "-h", "--help" -> {
+                        out.print(USAGE);
+                        return;
+                    }
+                    default -> inputs.add(Path.of(arg));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        Comparator<SimulationResult> order = comparator(sort);
+        if (order == null) {
+            System.err.println("Criterio de orden desconocido: " + sort);
+            System.exit(2);
+        }
+        if (inputs.isEmpty()) {
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+
+        long combinations = 1;
+        for (double[] values : grid.values()) {
+            combinations *= values.length;
+            if (combinations > MAX_CONFIGS) {
+                System.err.println("Demasiadas combinaciones (máximo " + MAX_CONFIGS + "): reduce los rangos");
+                System.exit(2);
+            }
+        }
+
+        List<SessionAnalyzer.Session> sessions;
+        try {
+            sessions = SessionAnalyzer.discover(inputs);
+        } catch (IOException e) {
+            System.err.println("No se pudieron listar las sesiones: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (sessions.isEmpty()) {
+            System.err.println("No se encontraron sesiones");
+            System.exit(1);
+        }
+
+        PolicySimulator.Config baseline = configs(defaultGrid()).get(0);
+        List<PolicySimulator.Config> configs = configs(grid);
+        if (configs.isEmpty()) {
+            System.err.println("Ninguna combinación válida: los umbrales deben cumplir low < medium < high");
+            System.exit(2);
+        }
+
+        long startNanos = System.nanoTime();
+        final long truthPing = truthPingMs;
+        List<SimulationResult> results;
+        SimulationResult baselineResult;
+        List<SessionTrace> traces;
+        List<GroundTruth> truths;
+        try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+            traces = pool.submit(() -> sessions.parallelStream().map(SessionTrace::load).toList()).get();
+            truths = pool.submit(() -> traces.parallelStream().map(trace -> GroundTruth.compute(trace, truthPing)).toList()).get();
+
+            Map<Double, List<DecisionInputs>> inputsByPercentile = new HashMap<>();
+            for (double percentile : percentiles(configs, baseline)) {
+                inputsByPercentile.put(percentile, pool.submit(() ->
+                    traces.parallelStream().map(trace -> DecisionInputs.compute(trace, percentile)).toList()).get());
+            }
+
+            baselineResult = evaluate(baseline, traces, truths, inputsByPercentile.get(baseline.percentile()));
+            results = pool.submit(() -> configs.parallelStream()
+                .map(config -> evaluate(config, traces, truths, inputsByPercentile.get(config.percentile())))
+                .sorted(order)
+                .toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            System.err.println("La simulación falló: " + e.getCause());
+            System.exit(1);
+            return;
+        }
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+
+        List<SimulationResult> top = results.subList(0, Math.min(topCount, results.size()));
+        print(out, traces, baselineResult, top, configs.size(), truthPing, sort, elapsedMs, threads);
+    }
+
+    private static SimulationResult evaluate(PolicySimulator.Config config, List<SessionTrace> traces,
+                                             List<GroundTruth> truths, List<DecisionInputs> inputs) {
+        SimulationResult result = new SimulationResult(config);
+        for (int i = 0; i < traces.size(); i++) {
+            PolicySimulator.simulate(traces.get(i), truths.get(i), inputs.get(i), result);
+        }
+        return result;
+    }
+
+    private static void print(PrintStream out, List<SessionTrace> traces, SimulationResult baseline,
+                              List<SimulationResult> results, int configCount, long truthPingMs, String sort,
+                              long elapsedMs, int threads) {
+        long intervals = traces.stream().mapToLong(trace -> trace.connectedCount).sum();
+        out.println("ClientReflex - simulación de políticas");
+        out.printf(Locale.ROOT, "Sesiones: %d · Tramos conectados: %d · Tiempo conectado: %s%n",
+            traces.size(), intervals, ReportPrinter.duration(baseline.connectedMs));
+        out.printf(Locale.ROOT, "Degradación real (mediana de RTT en 5 s > %d ms o silencio > 2 s): %s (%.1f%%)%n",
+            truthPingMs, ReportPrinter.duration(baseline.degradedMs), baseline.fraction(baseline.degradedMs) * 100.0);
+        out.printf(Locale.ROOT, "Configuraciones: %d · Simulado en %d ms con %d hilos · Orden: %s%n",
+            configCount, elapsedMs, threads, sort);
+        out.println();
+        out.printf(Locale.ROOT, "%-4s %8s %9s %8s %8s %8s %8s  %s%n",
+            "#", "Coste/h", "Cambios/h", "Activ./h", "Falsas/h", "Perdido", "Adaptado", "Configuración");
+        printRow(out, "mod", baseline);
+        for (int i = 0; i < results.size(); i++) {
+            printRow(out, Integer.toString(i + 1), results.get(i));
+        }
+    }
+
+    private static void printRow(PrintStream out, String label, SimulationResult result) {
+        out.printf(Locale.ROOT, "%-4s %8.2f %9.2f %8.2f %8.2f %7.1f%% %7.1f%%  %s%n",
+            label, result.cost(), result.perHour(result.profileFlips), result.perHour(result.weakActivations),
+            result.perHour(result.falseActivations), result.missedFraction() * 100.0,
+            result.fraction(result.adaptedMs) * 100.0, describe(result.config));
+    }
+
+    private static String describe(PolicySimulator.Config config) {
+        ProfilePolicy.Parameters profile = config.profile();
+        WeakModePolicy.Parameters weak = config.weak();
+        return String.format(Locale.ROOT, "p%s %d/%d/%d cd %d conf %s · débil %d %d/%d",
+            number(config.percentile()), profile.lowThresholdMs(), profile.mediumThresholdMs(), profile.highThresholdMs(),
+            profile.cooldownMs(), number(profile.changePointMinConfidence()),
+            weak.pingThresholdMs(), weak.activateAfterMs(), weak.restoreAfterMs());
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static Comparator<SimulationResult> comparator(String sort) {
+        Comparator<SimulationResult> byCost = Comparator.comparingDouble(SimulationResult::cost);
+        return switch (sort) {
+            case "coste" -> byCost;
+            case "cambios" -> Comparator.<SimulationResult>comparingLong(r -> r.profileFlips).thenComparing(byCost);
+            case "falsas" -> Comparator.<SimulationResult>comparingLong(r -> r.falseActivations).thenComparing(byCost);
+            case "perdido" -> Comparator.<SimulationResult>comparingLong(r -> r.missedDegradedMs).thenComparing(byCost);
+            default -> null;
+        };
+    }
+
+    private static Map<Dimension, double[]> defaultGrid() {
+        Map<Dimension, double[]> grid = new EnumMap<>(Dimension.class);
+        for (Dimension dimension : Dimension.VALUES) {
+            grid.put(dimension, parseValues(dimension.defaultValue));
+        }
+        return grid;
+    }
+
+    private static List<Double> percentiles(List<PolicySimulator.Config> configs, PolicySimulator.Config baseline) {
+        List<Double> percentiles = new ArrayList<>();
+        percentiles.add(baseline.percentile());
+        for (PolicySimulator.Config config : configs) {
+            if (!percentiles.contains(config.percentile())) {
+                percentiles.add(config.percentile());
+            }
+        }
+        return percentiles;
+    }
+
+    /**
+     * Producto de todos los valores de la rejilla, descartando umbrales desordenados.
+     */
+    private static List<PolicySimulator.Config> configs(Map<Dimension, double[]> grid) {
+        Dimension[] dimensions = Dimension.VALUES;
+        int[] index = new int[dimensions.length];
+        List<PolicySimulator.Config> configs = new ArrayList<>();
+        while (true) {
+            Map<Dimension, Double> point = new EnumMap<>(Dimension.class);
+            for (Dimension dimension : dimensions) {
+                point.put(dimension, grid.get(dimension)[index[dimension.ordinal()]]);
+            }
+            PolicySimulator.Config config = config(point);
+            if (config != null) {
+                configs.add(config);
+            }
+            int d = dimensions.length - 1;
+            while (d >= 0 && ++index[d] == grid.get(dimensions[d]).length) {
+                index[d] = 0;
+                d--;
+            }
+            if (d < 0) {
+                return configs;
+            }
+        }
+    }
+
+    /**
+     * Configuración de un punto de la rejilla, o null si sus umbrales están desordenados.
+     */
+    private static PolicySimulator.Config config(Map<Dimension, Double> point) {
+        long low = point.get(Dimension.LOW).longValue();
+        long medium = point.get(Dimension.MEDIUM).longValue();
+        long high = point.get(Dimension.HIGH).longValue();
+        if (low >= medium || medium >= high) {
+            return null;
+        }
+        // Las trazas no graban la capacidad del enlace: sus umbrales quedan desactivados
+        ProfilePolicy.Parameters profile = new ProfilePolicy.Parameters(low, medium, high,
+            point.get(Dimension.COOLDOWN).longValue(), point.get(Dimension.CONFIDENCE), 0, 0, 0);
+        WeakModePolicy.Parameters weak = new WeakModePolicy.Parameters(point.get(Dimension.WEAK_PING).longValue(),
+            WeakModePolicy.NETWORK_SILENCE_THRESHOLD_MS, point.get(Dimension.WEAK_ACTIVATE).longValue(),
+            point.get(Dimension.WEAK_RESTORE).longValue());
+        return new PolicySimulator.Config(point.get(Dimension.PERCENTILE), profile, weak);
+    }
+
+    /**
+     * "5", "1,2,4" o "100:300:50" (ambos extremos incluidos).
+     */
+    static double[] parseValues(String text) {
+        try {
+            if (text.contains(":")) {
+                String[] parts = text.split(":");
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Rango no válido (desde:hasta:paso): " + text);
+                }
+                double from = Double.parseDouble(parts[0]);
+                double to = Double.parseDouble(parts[1]);
+                double step = Double.parseDouble(parts[2]);
+                if (step <= 0 || to < from) {
+                    throw new IllegalArgumentException("Rango no válido (desde:hasta:paso): " + text);
+                }
+                int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+                double[] values = new double[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = from + i * step;
+                }
+                return values;
+            }
+            String[] parts = text.split(",");
+            double[] values = new double[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Double.parseDouble(parts[i].trim());
+            }
+            return values;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no válido: " + text);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import dev.zxnoragami.clientreflex.policy.PingRange;
+import dev.zxnoragami.clientreflex.policy.ProfilePolicy;
+import dev.zxnoragami.clientreflex.policy.WeakModePolicy;
+
+/**
+ * Reproduce una traza contra las políticas del mod con una configuración dada.
+ *
+ * Cada tramo conectado empieza con políticas nuevas y se recorre tick a tick en el mismo
+ * orden que ClientReflexClient: modo débil, cambio de régimen y, cada 100 ticks, el
+ * percentil. El servidor no graba su TPS, así que se asume que nunca va con lag; tampoco
+ * se graba la capacidad del enlace de entrada, así que no se conoce ni se satura.
+ *
+ * El backoff de reconexión no se simula: la duración grabada de un corte incluye la
+ * confirmación del jugador en la pantalla de desconexión, así que no acota cuándo volvió
+ * a aceptar conexiones el servidor.
+ */
+final class PolicySimulator {
+    // Ticks entre decisiones por percentil, como el contador de ClientReflexClient
+    private static final int PERCENTILE_TICKS = 100;
+    // Una activación es falsa si no hubo degradación real desde 10 s antes hasta 30 s después
+    private static final long FALSE_ACTIVATION_BEFORE_MS = 10_000;
+    private static final long FALSE_ACTIVATION_AFTER_MS = 30_000;
+
+    /**
+     * Configuración evaluada: percentil de decisión y parámetros de las dos políticas.
+     */
+    record Config(double percentile, ProfilePolicy.Parameters profile, WeakModePolicy.Parameters weak) {
+    }
+
+    private PolicySimulator() {
+    }
+
+    /**
+     * Suma a result lo que la configuración habría hecho en la traza.
+     *
+     * @param inputs entradas de la traza para config.percentile()
+     */
+    static void simulate(SessionTrace trace, GroundTruth truth, DecisionInputs inputs, SimulationResult result) {
+        Config config = result.config;
+        int[] stallCursor = {0};
+        int change = 0;
+        int shift = 0;
+        for (int interval = 0; interval < trace.connectedCount; interval++) {
+            ProfilePolicy profile = new ProfilePolicy(config.profile());
+            WeakModePolicy weak = new WeakModePolicy(config.weak());
+            int offset = trace.tickOffsets[interval];
+            int ticks = trace.ticks(interval);
+            long start = trace.connectedStarts[interval];
+            result.connectedMs += ticks * SessionTrace.TICK_MS;
+
+            for (int tick = 0; tick < ticks; tick++) {
+                int global = offset + tick;
+                long now = start + (tick + 1) * SessionTrace.TICK_MS;
+                while (change + 1 < inputs.changeCount && inputs.changeTicks[change + 1] <= global) {
+                    change++;
+                }
+                long decisionPing = inputs.changeCount > 0 ? inputs.changeValues[change] : 0;
+
+                WeakModePolicy.Decision decision = weak.update(decisionPing,
+                    trace.silenceAt(now, stallCursor), false, false, now);
+                if (decision == WeakModePolicy.Decision.ACTIVATE) {
+                    result.weakActivations++;
+                    int from = Math.max(offset, global - (int) (FALSE_ACTIVATION_BEFORE_MS / SessionTrace.TICK_MS));
+                    int to = Math.min(offset + ticks, global + (int) (FALSE_ACTIVATION_AFTER_MS / SessionTrace.TICK_MS) + 1);
+                    if (!truth.anyDegraded(from, to)) {
+                        result.falseActivations++;
+                    }
+                }
+
+                while (shift < inputs.upShiftCount && inputs.upShiftTicks[shift] < global) {
+                    shift++;
+                }
+                while (shift < inputs.upShiftCount && inputs.upShiftTicks[shift] == global) {
+                    PingRange previous = profile.getAppliedRange();
+                    if (profile.onUpShift(inputs.upShiftLevels[shift], inputs.upShiftConfidences[shift], now) != null) {
+                        result.upShiftChanges++;
+                        if (previous != null) {
+                            result.profileFlips++;
+                        }
+                    }
+                    shift++;
+                }
+
+                if ((tick + 1) % PERCENTILE_TICKS == 0) {
+                    PingRange previous = profile.getAppliedRange();
+                    if (profile.onPercentile(decisionPing, -1, now) != null && previous != null) {
+                        result.profileFlips++;
+                    }
+                }
+
+                PingRange applied = profile.getAppliedRange();
+                boolean reduced = applied != null && applied != PingRange.LOW;
+                boolean degraded = truth.degraded.get(global);
+                if (reduced) {
+                    result.reducedProfileMs += SessionTrace.TICK_MS;
+                }
+                if (weak.isActive()) {
+                    result.weakMs += SessionTrace.TICK_MS;
+                } else if (degraded) {
+                    result.missedDegradedMs += SessionTrace.TICK_MS;
+                }
+                if (reduced || weak.isActive()) {
+                    result.adaptedMs += SessionTrace.TICK_MS;
+                }
+            }
+        }
+        result.degradedMs += truth.degradedMs;
+    }
+}
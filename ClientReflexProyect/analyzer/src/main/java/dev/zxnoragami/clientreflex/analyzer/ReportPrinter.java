@@ -0,0 +1,179 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Informe de texto de un {@link FleetStats}. Las horas se muestran en la zona local.
+ */
+final class ReportPrinter {
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+        .withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter INTERVAL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+        .withZone(ZoneId.systemDefault());
+
+    private final PrintStream out;
+    private final FleetStats stats;
+
+    ReportPrinter(PrintStream out, FleetStats stats) {
+        this.out = out;
+        this.stats = stats;
+    }
+
+    void print(long elapsedMs, int threads) {
+        out.println("ClientReflex - análisis de sesiones");
+        out.printf(Locale.ROOT, "Sesiones: %d · Segmentos: %d (%d truncados, %d ilegibles) · Registros: %d%n",
+            stats.sessions, stats.files, stats.truncatedFiles, stats.errors.size(), stats.records);
+        out.printf(Locale.ROOT, "Tiempo conectado: %s · Analizado en %d ms con %d hilos%n",
+            duration(stats.connectedMs), elapsedMs, threads);
+
+        printLatency();
+        printStalls();
+        printRates();
+        printPredictions();
+        printReconnects();
+    }
+
+    private void printLatency() {
+        section("RTT y jitter por intervalo (" + duration(stats.intervalMs) + ")");
+        out.printf(Locale.ROOT, "%-16s %9s %7s %7s %7s %7s │ %8s %8s %8s%n",
+            "Intervalo", "Muestras", "p50", "p95", "p99", "máx", "jit p50", "jit p95", "jit p99");
+        for (Map.Entry<Long, FleetStats.Interval> entry : stats.intervals.entrySet()) {
+            FleetStats.Interval interval = entry.getValue();
+            if (interval.rtt.count() == 0 && interval.jitterMicros.count() == 0) {
+                continue;
+            }
+            out.printf(Locale.ROOT, "%-16s %9d %7d %7d %7d %7d │ %8.1f %8.1f %8.1f%n",
+                INTERVAL.format(Instant.ofEpochMilli(entry.getKey())),
+                interval.rtt.count(),
+                interval.rtt.percentile(50), interval.rtt.percentile(95), interval.rtt.percentile(99), interval.rtt.max(),
+                micros(interval.jitterMicros.percentile(50)), micros(interval.jitterMicros.percentile(95)),
+                micros(interval.jitterMicros.percentile(99)));
+        }
+
+        out.println();
+        out.printf(Locale.ROOT, "%-16s %9s %7s %7s %7s %7s %7s%n", "RTT por fuente", "Muestras", "media", "p50", "p95", "p99", "máx");
+        for (Map.Entry<String, Histogram> entry : stats.rttBySource.entrySet()) {
+            printRttRow(entry.getKey(), entry.getValue());
+        }
+        printRttRow("TOTAL", stats.rtt);
+        out.printf(Locale.ROOT, "Jitter (ms): p50 %.1f · p95 %.1f · p99 %.1f · máx %.1f%n",
+            micros(stats.jitterMicros.percentile(50)), micros(stats.jitterMicros.percentile(95)),
+            micros(stats.jitterMicros.percentile(99)), micros(stats.jitterMicros.max()));
+    }
+
+    private void printRttRow(String label, Histogram rtt) {
+        out.printf(Locale.ROOT, "%-16s %9d %7.1f %7d %7d %7d %7d%n", label, rtt.count(), rtt.mean(),
+            rtt.percentile(50), rtt.percentile(95), rtt.percentile(99), rtt.max());
+    }
+
+    private void printStalls() {
+        section("Silencios");
+        out.printf(Locale.ROOT, "%-16s %9s %12s %10s%n", "Causa", "Silencios", "Total", "Más largo");
+        for (Map.Entry<String, FleetStats.StallCause> entry : stats.stallsByCause.entrySet()) {
+            FleetStats.StallCause cause = entry.getValue();
+            out.printf(Locale.ROOT, "%-16s %9d %12s %8d ms%n", entry.getKey(), cause.count, duration(cause.totalMs), cause.maxMs);
+        }
+
+        out.println();
+        out.printf(Locale.ROOT, "%-16s %9s %12s  %s%n", "Intervalo", "Silencios", "Total", "Por causa");
+        for (Map.Entry<Long, FleetStats.Interval> entry : stats.intervals.entrySet()) {
+            FleetStats.Interval interval = entry.getValue();
+            if (interval.stalls == 0) {
+                continue;
+            }
+            StringBuilder causes = new StringBuilder();
+            interval.stalledMsByCause.forEach((cause, ms) ->
+                causes.append(causes.isEmpty() ? "" : ", ").append(cause).append(' ').append(duration(ms)));
+            out.printf(Locale.ROOT, "%-16s %9d %12s  %s%n",
+                INTERVAL.format(Instant.ofEpochMilli(entry.getKey())), interval.stalls, duration(interval.stalledMs), causes);
+        }
+
+        out.println();
+        out.println("Silencios más largos:");
+        for (FleetStats.Stall stall : stats.longestStalls.descending()) {
+            out.printf(Locale.ROOT, "  %s  %8d ms  %-14s %s%n",
+                TIME.format(Instant.ofEpochMilli(stall.startMs())), stall.durationMs(), stall.cause(), stall.session());
+        }
+    }
+
+    private void printRates() {
+        section("Picos de tasa de paquetes");
+        out.printf(Locale.ROOT, "  %-19s %8s %12s %12s  %s%n", "Instante", "paq/s", "B/s entrada", "B/s salida", "Sesión");
+        for (FleetStats.RatePeak peak : stats.ratePeaks.descending()) {
+            out.printf(Locale.ROOT, "  %-19s %8d %12d %12d  %s%n", TIME.format(Instant.ofEpochMilli(peak.timeMs())),
+                peak.packetsPerSecond(), peak.bytesInPerSecond(), peak.bytesOutPerSecond(), peak.session());
+        }
+
+        out.println();
+        out.printf(Locale.ROOT, "%-16s %12s %14s%n", "Intervalo", "Máx paq/s", "Máx B/s entr.");
+        for (Map.Entry<Long, FleetStats.Interval> entry : stats.intervals.entrySet()) {
+            FleetStats.Interval interval = entry.getValue();
+            if (interval.maxPacketsPerSecond == 0 && interval.maxBytesInPerSecond == 0) {
+                continue;
+            }
+            out.printf(Locale.ROOT, "%-16s %12d %14d%n", INTERVAL.format(Instant.ofEpochMilli(entry.getKey())),
+                interval.maxPacketsPerSecond, interval.maxBytesInPerSecond);
+        }
+    }
+
+    private void printPredictions() {
+        section("Predicciones");
+        out.printf(Locale.ROOT, "%-20s %8s %11s %10s %10s %9s │ %s%n",
+            "Tipo", "Hechas", "Confirmadas", "Revertidas", "Expiradas", "Precisión", "Confirmación p50/p95/p99 (ms)");
+        for (Map.Entry<String, FleetStats.Predictions> entry : stats.predictions.entrySet()) {
+            FleetStats.Predictions p = entry.getValue();
+            double accuracy = p.accuracy();
+            out.printf(Locale.ROOT, "%-20s %8d %11d %10d %10d %9s │ %d / %d / %d%n",
+                entry.getKey(), p.made, p.confirmed, p.rolledBack, p.expired,
+                Double.isNaN(accuracy) ? "-" : String.format(Locale.ROOT, "%.1f%%", accuracy * 100.0),
+                p.timeToConfirmMs.percentile(50), p.timeToConfirmMs.percentile(95), p.timeToConfirmMs.percentile(99));
+        }
+    }
+
+    private void printReconnects() {
+        section("Reconexiones");
+        out.printf(Locale.ROOT, "Episodios: %d · Intentos: %d · Con éxito: %d · Fallidos: %d · Sin resolver: %d%n",
+            stats.reconnectEpisodes, stats.reconnectAttempts, stats.reconnectSucceededMs.count(),
+            stats.reconnectFailedMs.count(), stats.reconnectUnresolved);
+        if (stats.reconnectSucceededMs.count() > 0) {
+            out.printf(Locale.ROOT, "Hasta reconectar: p50 %s · p95 %s · máx %s%n",
+                duration(stats.reconnectSucceededMs.percentile(50)), duration(stats.reconnectSucceededMs.percentile(95)),
+                duration(stats.reconnectSucceededMs.max()));
+        }
+        if (stats.reconnectFailedMs.count() > 0) {
+            out.printf(Locale.ROOT, "Hasta rendirse: p50 %s · máx %s%n",
+                duration(stats.reconnectFailedMs.percentile(50)), duration(stats.reconnectFailedMs.max()));
+        }
+    }
+
+    private void section(String title) {
+        out.println();
+        out.println("== " + title + " ==");
+    }
+
+    private static double micros(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * Duración legible: "850 ms", "12.4 s", "3m 05s", "2h 10m".
+     */
+    static String duration(long ms) {
+        if (ms < 1000) {
+            return ms + " ms";
+        }
+        if (ms < 60_000) {
+            return String.format(Locale.ROOT, "%.1f s", ms / 1000.0);
+        }
+        long seconds = ms / 1000;
+        if (seconds < 3600) {
+            return String.format(Locale.ROOT, "%dm %02ds", seconds / 60, seconds % 60);
+        }
+        return String.format(Locale.ROOT, "%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+    }
+}
@@ -0,0 +1,189 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import dev.zxnoragami.clientreflex.recording.format.SessionFormat;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * CLI del analizador de sesiones grabadas por ClientReflex.
+ *
+ * Recibe archivos .crss o directorios (se recorren recursivamente, p. ej. uno por
+ * máquina), agrupa los segmentos de cada sesión, los analiza en paralelo con
+ * {@link AnalysisTask} e imprime el informe con {@link ReportPrinter}. El subcomando
+ * "simulate" lo atiende {@link ParameterSweep}.
+ */
+public final class SessionAnalyzer {
+    // session-yyyyMMdd-HHmmss-NNN.crss: el sufijo es el índice del segmento
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(.+)-(\\d+)" + Pattern.quote(SessionFormat.FILE_EXTENSION));
+
+    private static final String USAGE = """
+        Uso: clientreflex-analyzer [opciones] <archivo.crss | directorio>...
+             clientreflex-analyzer simulate [opciones] <archivo.crss | directorio>...
+               (reproduce las trazas contra las políticas del mod; ver simulate --help)
+
+        Opciones:
+          --interval <n><s|m|h|d>  Ancho de los intervalos de las series temporales (por defecto: 1h)
+          --top <n>                Entradas en las listas de silencios más largos y picos (por defecto: 10)
+          --threads <n>            Hilos del análisis (por defecto: núcleos disponibles)
+        """;
+
+    /**
+     * Segmentos de una sesión, ordenados por índice. El nombre es el que muestra el informe.
+     */
+    record Session(String name, List<Path> segments) {
+    }
+
+    private SessionAnalyzer() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("simulate")) {
+            ParameterSweep.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        PrintStream out = System.out;
+        long intervalMs = 3_600_000L;
+        int topCount = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--interval" -> intervalMs = parseDuration(value(args, ++i));
+                    case "--top" -> topCount = Math.max(0, Integer.parseInt(value(args, ++i)));
+                    case "--threads" -> threads = Math.max(1, Integer.parseInt(value(args, ++i)));
+                    case "-h", "--help" -> {
+                        out.print(USAGE);
+                        return;
+                    }
+                    default -> inputs.add(Path.of(args[i]));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+        if (inputs.isEmpty()) {
+            System.err.print(USAGE);
+            System.exit(2);
+        }
+
+        List<Session> sessions;
+        try {
+            sessions = discover(inputs);
+        } catch (IOException e) {
+            System.err.println("No se pudieron listar las sesiones: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (sessions.isEmpty()) {
+            System.err.println("No se encontraron archivos " + SessionFormat.FILE_EXTENSION);
+            System.exit(1);
+        }
+
+        long startNanos = System.nanoTime();
+        FleetStats stats;
+        try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+            stats = pool.invoke(new AnalysisTask(sessions, intervalMs, topCount));
+        }
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+
+        new ReportPrinter(out, stats).print(elapsedMs, threads);
+        if (!stats.errors.isEmpty()) {
+            System.err.println("Archivos ilegibles:");
+            stats.errors.forEach(error -> System.err.println("  " + error));
+        }
+    }
+
+    /**
+     * Busca los .crss de las rutas dadas y agrupa los segmentos por sesión. Dos sesiones
+     * con el mismo nombre en directorios distintos (varias máquinas) no se mezclan.
+     */
+    static List<Session> discover(List<Path> inputs) throws IOException {
+        Map<String, List<Path>> grouped = new TreeMap<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        if (Files.isRegularFile(file) && file.getFileName().toString().endsWith(SessionFormat.FILE_EXTENSION)) {
+                            grouped.computeIfAbsent(sessionKey(file), k -> new ArrayList<>()).add(file);
+                        }
+                    }
+                }
+            } else if (Files.isRegularFile(input)) {
+                grouped.computeIfAbsent(sessionKey(input), k -> new ArrayList<>()).add(input);
+            } else {
+                throw new IOException("No existe: " + input);
+            }
+        }
+        List<Session> sessions = new ArrayList<>(grouped.size());
+        grouped.forEach((key, segments) -> {
+            segments.sort(Comparator.comparingInt(SessionAnalyzer::segmentIndex));
+            sessions.add(new Session(label(Path.of(key)), List.copyOf(segments)));
+        });
+        return sessions;
+    }
+
+    private static String sessionKey(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        Matcher matcher = SEGMENT_NAME.matcher(absolute.getFileName().toString());
+        String name = matcher.matches() ? matcher.group(1) : absolute.getFileName().toString();
+        Path parent = absolute.getParent();
+        return parent != null ? parent.resolve(name).toString() : name;
+    }
+
+    /**
+     * Nombre corto para el informe: directorio de la máquina y nombre de la sesión.
+     */
+    private static String label(Path key) {
+        int count = key.getNameCount();
+        return count >= 2 ? key.subpath(count - 2, count).toString() : key.toString();
+    }
+
+    private static int segmentIndex(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Integer.parseInt(matcher.group(2)) : 0;
+    }
+
+    static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Falta el valor de " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    /**
+     * "90s", "15m", "1h", "1d" a milisegundos.
+     */
+    static long parseDuration(String text) {
+        if (text.length() < 2) {
+            throw new IllegalArgumentException("Duración no válida: " + text);
+        }
+        long unitMs = switch (text.charAt(text.length() - 1)) {
+            case 's' -> 1_000L;
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            case 'd' -> 86_400_000L;
+            default -> throw new IllegalArgumentException("Unidad de duración no válida: " + text);
+        };
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        if (amount <= 0) {
+            throw new IllegalArgumentException("La duración debe ser positiva: " + text);
+        }
+        return amount * unitMs;
+    }
+}
@@ -0,0 +1,153 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import dev.zxnoragami.clientreflex.recording.format.SessionVisitor;
+
+/**
+ * Vuelca los registros de una sesión (todos sus segmentos, en orden) en un {@link FleetStats}.
+ *
+ * Un episodio de reconexión empieza con el primer SCHEDULED y termina bien con CONNECTED
+ * o con la siguiente conexión registrada (la reconexión es semiautomática y el jugador
+ * confirma desde la pantalla de multijugador), y mal con GAVE_UP o CANCELLED.
+ */
+final class SessionStatsVisitor implements SessionVisitor {
+    private final String session;
+    private final FleetStats stats;
+    private long lastTimeMs = Long.MIN_VALUE;
+    private long connectedSinceMs = -1;
+    private long reconnectSinceMs = -1;
+
+    SessionStatsVisitor(String session, FleetStats stats) {
+        this.session = session;
+        this.stats = stats;
+    }
+
+    @Override
+    public void onRtt(long timeMs, String source, long rttMs) {
+        seen(timeMs);
+        stats.interval(timeMs).rtt.record(rttMs);
+        stats.rtt.record(rttMs);
+        stats.rttSource(source != null ? source : "?").record(rttMs);
+    }
+
+    @Override
+    public void onJitter(long timeMs, long jitterMicros) {
+        seen(timeMs);
+        stats.interval(timeMs).jitterMicros.record(jitterMicros);
+        stats.jitterMicros.record(jitterMicros);
+    }
+
+    @Override
+    public void onRates(long timeMs, long packetsPerSecond, long bytesInPerSecond, long bytesOutPerSecond) {
+        seen(timeMs);
+        FleetStats.Interval interval = stats.interval(timeMs);
+        interval.maxPacketsPerSecond = Math.max(interval.maxPacketsPerSecond, packetsPerSecond);
+        interval.maxBytesInPerSecond = Math.max(interval.maxBytesInPerSecond, bytesInPerSecond);
+        stats.ratePeaks.offer(new FleetStats.RatePeak(timeMs, session, packetsPerSecond, bytesInPerSecond, bytesOutPerSecond));
+    }
+
+    @Override
+    public void onStall(long startMs, String cause, long durationMs) {
+        seen(startMs + durationMs);
+        String key = cause != null ? cause : "?";
+        FleetStats.Interval interval = stats.interval(startMs);
+        interval.stalls++;
+        interval.stalledMs += durationMs;
+        interval.stalledMsByCause.merge(key, durationMs, Long::sum);
+        FleetStats.StallCause causeStats = stats.stallCause(key);
+        causeStats.count++;
+        causeStats.totalMs += durationMs;
+        causeStats.maxMs = Math.max(causeStats.maxMs, durationMs);
+        stats.longestStalls.offer(new FleetStats.Stall(startMs, session, key, durationMs));
+    }
+
+    @Override
+    public void onProfile(long timeMs, String fromRange, String toRange, String trigger, long pingMs) {
+        seen(timeMs);
+    }
+
+    @Override
+    public void onWeakMode(long timeMs, boolean active, long decisionPingMs) {
+        seen(timeMs);
+    }
+
+    @Override
+    public void onPrediction(long timeMs, String type, String target, String outcome, long latencyMs) {
+        seen(timeMs);
+        FleetStats.Predictions predictions = stats.predictions(type != null ? type : "?");
+        switch (outcome != null ? outcome : "") {
+            case "MADE" -> predictions.made++;
+            case "CONFIRMED" -> {
+                predictions.confirmed++;
+                predictions.timeToConfirmMs.record(latencyMs);
+            }
+            case "ROLLED_BACK" -> predictions.rolledBack++;
+            case "EXPIRED" -> predictions.expired++;
+            default -> {
+                // Desenlace desconocido de una versión más nueva del mod: se ignora
+            }
+        }
+    }
+
+    @Override
+    public void onReconnect(long timeMs, String phase, int attempt) {
+        seen(timeMs);
+        switch (phase != null ? phase : "") {
+            case "SCHEDULED" -> {
+                if (reconnectSinceMs < 0) {
+                    reconnectSinceMs = timeMs;
+                    stats.reconnectEpisodes++;
+                }
+            }
+            case "ATTEMPT" -> stats.reconnectAttempts++;
+            case "CONNECTED" -> endReconnect(timeMs, true);
+            case "GAVE_UP", "CANCELLED" -> endReconnect(timeMs, false);
+            default -> {
+                // FAILED: el episodio sigue con el siguiente intento programado
+            }
+        }
+    }
+
+    @Override
+    public void onConnect(long timeMs, String server) {
+        seen(timeMs);
+        endReconnect(timeMs, true);
+        connectedSinceMs = timeMs;
+    }
+
+    @Override
+    public void onDisconnect(long timeMs) {
+        seen(timeMs);
+        if (connectedSinceMs >= 0) {
+            stats.connectedMs += timeMs - connectedSinceMs;
+            connectedSinceMs = -1;
+        }
+    }
+
+    /**
+     * Cierra lo que quedó abierto al final de la sesión (p. ej. si el cliente se cerró
+     * de golpe): la conexión cuenta hasta el último registro y el episodio de reconexión
+     * queda sin resolver.
+     */
+    void finish() {
+        if (connectedSinceMs >= 0 && lastTimeMs > connectedSinceMs) {
+            stats.connectedMs += lastTimeMs - connectedSinceMs;
+        }
+        connectedSinceMs = -1;
+        if (reconnectSinceMs >= 0) {
+            stats.reconnectUnresolved++;
+            reconnectSinceMs = -1;
+        }
+    }
+
+    private void endReconnect(long timeMs, boolean succeeded) {
+        if (reconnectSinceMs < 0) {
+            return;
+        }
+        (succeeded ? stats.reconnectSucceededMs : stats.reconnectFailedMs).record(timeMs - reconnectSinceMs);
+        reconnectSinceMs = -1;
+    }
+
+    private void seen(long timeMs) {
+        lastTimeMs = Math.max(lastTimeMs, timeMs);
+    }
+}
@@ -0,0 +1,213 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import dev.zxnoragami.clientreflex.ping.RttSource;
+import dev.zxnoragami.clientreflex.recording.format.SessionReader;
+import dev.zxnoragami.clientreflex.recording.format.SessionVisitor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Trazas de una sesión cargadas en arrays de primitivos para reproducirlas muchas veces
+ * en el simulador: muestras de RTT, silencios de red y tramos conectados.
+ */
+final class SessionTrace {
+    // Un tick del cliente: el simulador evalúa las políticas con la misma cadencia que el juego
+    static final long TICK_MS = 50;
+
+    private static final RttSource[] SOURCES = RttSource.values();
+
+    final String name;
+
+    // Muestras de RTT en orden de llegada
+    long[] rttTimes = new long[1024];
+    int[] rttValues = new int[1024];
+    RttSource[] rttSources = new RttSource[1024];
+    int rttCount = 0;
+
+    // Silencios de red: los congelamientos del cliente no cuentan, igual que en el juego
+    long[] stallStarts = new long[16];
+    long[] stallDurations = new long[16];
+    int stallCount = 0;
+
+    // Tramos con mundo cargado [inicio, fin]
+    long[] connectedStarts = new long[4];
+    long[] connectedEnds = new long[4];
+    int connectedCount = 0;
+
+    // Índice global del primer tick de cada tramo conectado; totalTicks al final
+    int[] tickOffsets = new int[0];
+    int totalTicks = 0;
+
+    private SessionTrace(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Lee todos los segmentos de la sesión. Un segmento ilegible o truncado aporta lo que
+     * se pudo leer.
+     */
+    static SessionTrace load(SessionAnalyzer.Session session) {
+        SessionTrace trace = new SessionTrace(session.name());
+        Collector collector = trace.new Collector();
+        for (Path segment : session.segments()) {
+            try {
+                SessionReader.read(segment, collector);
+            } catch (IOException e) {
+                // El informe de errores es cosa del análisis normal; aquí solo se simula
+            }
+        }
+        collector.finish();
+        trace.indexTicks();
+        return trace;
+    }
+
+    /**
+     * Ticks del tramo conectado dado.
+     */
+    int ticks(int interval) {
+        return (interval + 1 < connectedCount ? tickOffsets[interval + 1] : totalTicks) - tickOffsets[interval];
+    }
+
+    /**
+     * Silencio de red en curso (ms) en el instante dado, 0 si llegaban paquetes.
+     */
+    long silenceAt(long timeMs, int[] cursor) {
+        int i = cursor[0];
+        while (i < stallCount && stallStarts[i] + stallDurations[i] < timeMs) {
+            i++;
+        }
+        cursor[0] = i;
+        return i < stallCount && stallStarts[i] <= timeMs ? timeMs - stallStarts[i] : 0;
+    }
+
+    private void indexTicks() {
+        tickOffsets = new int[connectedCount];
+        long ticks = 0;
+        for (int i = 0; i < connectedCount; i++) {
+            tickOffsets[i] = (int) ticks;
+            ticks += (connectedEnds[i] - connectedStarts[i]) / TICK_MS;
+        }
+        totalTicks = (int) Math.min(Integer.MAX_VALUE, ticks);
+        sortStalls();
+    }
+
+    /**
+     * Los silencios se graban al terminar; se ordenan por inicio para recorrerlos con un cursor.
+     */
+    private void sortStalls() {
+        Integer[] order = new Integer[stallCount];
+        for (int i = 0; i < stallCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(stallStarts[a], stallStarts[b]));
+        long[] starts = new long[stallCount];
+        long[] durations = new long[stallCount];
+        for (int i = 0; i < stallCount; i++) {
+            starts[i] = stallStarts[order[i]];
+            durations[i] = stallDurations[order[i]];
+        }
+        stallStarts = starts;
+        stallDurations = durations;
+    }
+
+    private final class Collector implements SessionVisitor {
+        private long lastTimeMs = Long.MIN_VALUE;
+        private long connectedSinceMs = -1;
+
+        @Override
+        public void onRtt(long timeMs, String source, long rttMs) {
+            seen(timeMs);
+            RttSource rttSource = source(source);
+            if (rttSource == null) {
+                return;
+            }
+            if (rttCount == rttTimes.length) {
+                int capacity = rttCount * 2;
+                rttTimes = Arrays.copyOf(rttTimes, capacity);
+                rttValues = Arrays.copyOf(rttValues, capacity);
+                rttSources = Arrays.copyOf(rttSources, capacity);
+            }
+            rttTimes[rttCount] = timeMs;
+            rttValues[rttCount] = (int) Math.min(Integer.MAX_VALUE, rttMs);
+            rttSources[rttCount] = rttSource;
+            rttCount++;
+        }
+
+        @Override
+        public void onStall(long startMs, String cause, long durationMs) {
+            seen(startMs + durationMs);
+            if ("CLIENT_FREEZE".equals(cause)) {
+                return;
+            }
+            if (stallCount == stallStarts.length) {
+                stallStarts = Arrays.copyOf(stallStarts, stallCount * 2);
+                stallDurations = Arrays.copyOf(stallDurations, stallCount * 2);
+            }
+            stallStarts[stallCount] = startMs;
+            stallDurations[stallCount] = durationMs;
+            stallCount++;
+        }
+
+        @Override
+        public void onReconnect(long timeMs, String phase, int attempt) {
+            seen(timeMs);
+        }
+
+        @Override
+        public void onConnect(long timeMs, String server) {
+            seen(timeMs);
+            connectedSinceMs = timeMs;
+        }
+
+        @Override
+        public void onDisconnect(long timeMs) {
+            seen(timeMs);
+            closeConnected(timeMs);
+        }
+
+        @Override
+        public void onJitter(long timeMs, long jitterMicros) {
+            seen(timeMs);
+        }
+
+        @Override
+        public void onRates(long timeMs, long packetsPerSecond, long bytesInPerSecond, long bytesOutPerSecond) {
+            seen(timeMs);
+        }
+
+        void finish() {
+            closeConnected(lastTimeMs);
+        }
+
+        private void closeConnected(long endMs) {
+            if (connectedSinceMs < 0) {
+                return;
+            }
+            if (endMs > connectedSinceMs) {
+                if (connectedCount == connectedStarts.length) {
+                    connectedStarts = Arrays.copyOf(connectedStarts, connectedCount * 2);
+                    connectedEnds = Arrays.copyOf(connectedEnds, connectedCount * 2);
+                }
+                connectedStarts[connectedCount] = connectedSinceMs;
+                connectedEnds[connectedCount] = endMs;
+                connectedCount++;
+            }
+            connectedSinceMs = -1;
+        }
+
+        private void seen(long timeMs) {
+            lastTimeMs = Math.max(lastTimeMs, timeMs);
+        }
+
+        private RttSource source(String name) {
+            for (RttSource source : SOURCES) {
+                if (source.name().equals(name)) {
+                    return source;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+/**
+ * Resultado de reproducir una configuración sobre una o varias trazas. Combinable, como
+ * {@link FleetStats}.
+ */
+final class SimulationResult {
+    // Peso de una activación falsa del modo débil en el coste, en "cambios de perfil"
+    static final double FALSE_ACTIVATION_COST = 5.0;
+
+    final PolicySimulator.Config config;
+
+    long connectedMs = 0;
+    long degradedMs = 0;
+
+    // Cambios de perfil (sin contar la primera aplicación de cada tramo)
+    long profileFlips = 0;
+    long upShiftChanges = 0;
+    long reducedProfileMs = 0;
+
+    long weakActivations = 0;
+    long falseActivations = 0;
+    long weakMs = 0;
+    // Tiempo con perfil reducido o modo débil: el jugador ve opciones recortadas
+    long adaptedMs = 0;
+    // Tiempo realmente degradado sin modo débil activo
+    long missedDegradedMs = 0;
+
+    SimulationResult(PolicySimulator.Config config) {
+        this.config = config;
+    }
+
+    SimulationResult merge(SimulationResult other) {
+        connectedMs += other.connectedMs;
+        degradedMs += other.degradedMs;
+        profileFlips += other.profileFlips;
+        upShiftChanges += other.upShiftChanges;
+        reducedProfileMs += other.reducedProfileMs;
+        weakActivations += other.weakActivations;
+        falseActivations += other.falseActivations;
+        weakMs += other.weakMs;
+        adaptedMs += other.adaptedMs;
+        missedDegradedMs += other.missedDegradedMs;
+        return this;
+    }
+
+    /**
+     * Eventos por hora conectada.
+     */
+    double perHour(long count) {
+        return connectedMs == 0 ? 0.0 : count * 3_600_000.0 / connectedMs;
+    }
+
+    /**
+     * Fracción (0-1) del tiempo conectado.
+     */
+    double fraction(long ms) {
+        return connectedMs == 0 ? 0.0 : (double) ms / connectedMs;
+    }
+
+    /**
+     * Fracción de la degradación real que el modo débil no cubrió.
+     */
+    double missedFraction() {
+        return degradedMs == 0 ? 0.0 : (double) missedDegradedMs / degradedMs;
+    }
+
+    /**
+     * Coste por hora conectada: cambios de perfil + 5 · activaciones falsas + minutos
+     * degradados sin modo débil. Menor es mejor.
+     */
+    double cost() {
+        double missedMinutes = missedDegradedMs / 60_000.0;
+        return connectedMs == 0 ? 0.0
+            : (profileFlips + FALSE_ACTIVATION_COST * falseActivations + missedMinutes) * 3_600_000.0 / connectedMs;
+    }
+}
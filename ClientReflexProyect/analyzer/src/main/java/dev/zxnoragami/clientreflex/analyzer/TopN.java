@@ -0,0 +1,48 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Conserva los N mayores elementos según un comparador, con memoria acotada.
+ */
+final class TopN<T> {
+    private final int limit;
+    private final Comparator<T> order;
+    private final PriorityQueue<T> heap; // Montículo de mínimos: la cabeza es el primero en salir
+
+    TopN(int limit, Comparator<T> order) {
+        this.limit = limit;
+        this.order = order;
+        this.heap = new PriorityQueue<>(order);
+    }
+
+    void offer(T value) {
+        if (limit <= 0) {
+            return;
+        }
+        if (heap.size() < limit) {
+            heap.add(value);
+        } else if (order.compare(value, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(value);
+        }
+    }
+
+    void merge(TopN<T> other) {
+        for (T value : other.heap) {
+            offer(value);
+        }
+    }
+
+    /**
+     * Elementos de mayor a menor.
+     */
+    List<T> descending() {
+        List<T> values = new ArrayList<>(heap);
+        values.sort(order.reversed());
+        return values;
+    }
+}
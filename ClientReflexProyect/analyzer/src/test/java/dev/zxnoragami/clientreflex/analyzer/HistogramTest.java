@@ -0,0 +1,95 @@
+package dev.zxnoragami.clientreflex.analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+    @Test
+    void emptyHistogramReportsZero() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0.0, histogram.mean());
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int v = 1; v <= 50; v++) {
+            histogram.record(v);
+        }
+        assertEquals(50, histogram.count());
+        assertEquals(25, histogram.percentile(50));
+        assertEquals(50, histogram.percentile(100));
+        assertEquals(25.5, histogram.mean(), 1e-9);
+    }
+
+    @Test
+    void largeValuesStayWithinRelativeError() {
+        Histogram histogram = new Histogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+        for (double p : new double[] {50, 90, 99, 99.9}) {
+            long expected = (long) Math.ceil(p / 100.0 * 100_000);
+            long actual = histogram.percentile(p);
+            assertTrue(actual >= expected, "p" + p + " por debajo: " + actual);
+            assertTrue(actual - expected <= expected / 32, "p" + p + " fuera del error: " + actual);
+        }
+        assertEquals(100_000, histogram.percentile(100));
+    }
+
+    @Test
+    void percentileNeverExceedsMax() {
+        Histogram histogram = new Histogram();
+        histogram.record(1000);
+        assertEquals(1000, histogram.percentile(50));
+        assertEquals(1000, histogram.max());
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.count());
+        assertEquals(0, histogram.percentile(100));
+    }
+
+    @Test
+    void mergeMatchesRecordingEverything() {
+        Histogram small = new Histogram();
+        Histogram large = new Histogram();
+        Histogram all = new Histogram();
+        for (long v = 0; v < 100; v++) {
+            small.record(v);
+            all.record(v);
+        }
+        for (long v = 1_000_000; v < 1_000_100; v++) {
+            large.record(v);
+            all.record(v);
+        }
+        small.merge(large);
+        assertEquals(all.count(), small.count());
+        assertEquals(all.max(), small.max());
+        assertEquals(all.mean(), small.mean(), 1e-9);
+        for (double p : new double[] {10, 50, 75, 99}) {
+            assertEquals(all.percentile(p), small.percentile(p));
+        }
+    }
+
+    @Test
+    void mergeIntoEmptyAndFromEmpty() {
+        Histogram empty = new Histogram();
+        Histogram filled = new Histogram();
+        filled.record(Long.MAX_VALUE);
+        filled.record(7);
+        filled.merge(new Histogram());
+        empty.merge(filled);
+        assertEquals(2, empty.count());
+        assertEquals(Long.MAX_VALUE, empty.percentile(100));
+        assertEquals(7, empty.percentile(50));
+    }
+}
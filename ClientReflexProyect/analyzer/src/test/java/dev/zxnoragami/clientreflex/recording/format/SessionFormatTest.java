@@ -0,0 +1,189 @@
+package dev.zxnoragami.clientreflex.recording.format;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionFormatTest {
+    private static final long SESSION_START = 1_700_000_000_000L;
+    private static final long SEGMENT_START = SESSION_START + 60_000;
+
+    /**
+     * Anota cada registro como texto para comparar secuencias completas.
+     */
+    private static final class Recorder implements SessionVisitor {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onSegment(long sessionStartMs, long segmentStartMs, int segmentIndex) {
+            events.add("segment " + sessionStartMs + " " + segmentStartMs + " " + segmentIndex);
+        }
+
+        @Override
+        public void onRtt(long timeMs, String source, long rttMs) {
+            events.add("rtt " + timeMs + " " + source + " " + rttMs);
+        }
+
+        @Override
+        public void onJitter(long timeMs, long jitterMicros) {
+            events.add("jitter " + timeMs + " " + jitterMicros);
+        }
+
+        @Override
+        public void onRates(long timeMs, long packetsPerSecond, long bytesInPerSecond, long bytesOutPerSecond) {
+            events.add("rates " + timeMs + " " + packetsPerSecond + " " + bytesInPerSecond + " " + bytesOutPerSecond);
+        }
+
+        @Override
+        public void onStall(long startMs, String cause, long durationMs) {
+            events.add("stall " + startMs + " " + cause + " " + durationMs);
+        }
+
+        @Override
+        public void onProfile(long timeMs, String fromRange, String toRange, String trigger, long pingMs) {
+            events.add("profile " + timeMs + " " + fromRange + " " + toRange + " " + trigger + " " + pingMs);
+        }
+
+        @Override
+        public void onWeakMode(long timeMs, boolean active, long decisionPingMs) {
+            events.add("weak " + timeMs + " " + active + " " + decisionPingMs);
+        }
+
+        @Override
+        public void onPrediction(long timeMs, String type, String target, String outcome, long latencyMs) {
+            events.add("prediction " + timeMs + " " + type + " " + target + " " + outcome + " " + latencyMs);
+        }
+
+        @Override
+        public void onReconnect(long timeMs, String phase, int attempt) {
+            events.add("reconnect " + timeMs + " " + phase + " " + attempt);
+        }
+
+        @Override
+        public void onConnect(long timeMs, String server) {
+            events.add("connect " + timeMs + " " + server);
+        }
+
+        @Override
+        public void onDisconnect(long timeMs) {
+            events.add("disconnect " + timeMs);
+        }
+    }
+
+    /**
+     * Escribe un registro de cada tipo; los tiempos retroceden en el silencio, que se
+     * sella con su inicio.
+     */
+    private static List<String> writeAll(SessionWriter writer) {
+        long t = SEGMENT_START;
+        assertTrue(writer.connect(t, "mc.example.net"));
+        assertTrue(writer.rtt(t + 50, "KEEP_ALIVE", 80));
+        assertTrue(writer.rtt(t + 1050, "KEEP_ALIVE", 45));
+        assertTrue(writer.rtt(t + 1100, "TCP_INFO", 400));
+        assertTrue(writer.jitter(t + 1100, 12_345));
+        assertTrue(writer.rates(t + 2000, 120, 48_000, 3_000));
+        assertTrue(writer.stall(t + 500, "NETWORK_STALL", 1800));
+        assertTrue(writer.profile(t + 2500, null, "51-100", "rtt", 60));
+        assertTrue(writer.weakMode(t + 3000, true, 320));
+        assertTrue(writer.prediction(t + 3100, "BLOCK_BREAK", "minecraft:stone", "CONFIRMED", 95));
+        assertTrue(writer.reconnect(t + 4000, "ATTEMPT", 2));
+        assertTrue(writer.disconnect(t + 5000));
+        return List.of(
+            "segment " + SESSION_START + " " + SEGMENT_START + " 3",
+            "connect " + t + " mc.example.net",
+            "rtt " + (t + 50) + " KEEP_ALIVE 80",
+            "rtt " + (t + 1050) + " KEEP_ALIVE 45",
+            "rtt " + (t + 1100) + " TCP_INFO 400",
+            "jitter " + (t + 1100) + " 12345",
+            "rates " + (t + 2000) + " 120 48000 3000",
+            "stall " + (t + 500) + " NETWORK_STALL 1800",
+            "profile " + (t + 2500) + " null 51-100 rtt 60",
+            "weak " + (t + 3000) + " true 320",
+            "prediction " + (t + 3100) + " BLOCK_BREAK minecraft:stone CONFIRMED 95",
+            "reconnect " + (t + 4000) + " ATTEMPT 2",
+            "disconnect " + (t + 5000));
+    }
+
+    @Test
+    void roundTripsEveryRecordType() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        List<String> expected = writeAll(new SessionWriter(buffer, SESSION_START, SEGMENT_START, 3));
+
+        Recorder recorder = new Recorder();
+        SessionReader.Result result = SessionReader.read(buffer, recorder);
+
+        assertEquals(expected, recorder.events);
+        assertEquals(expected.size() - 1, result.records());
+        assertFalse(result.truncated());
+    }
+
+    @Test
+    void fullWriterRejectsRecordsWithoutCorruptingTheSegment() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SessionFormat.HEADER_SIZE + 2 * SessionFormat.MAX_FIXED_RECORD + 64);
+        SessionWriter writer = new SessionWriter(buffer, SESSION_START, SEGMENT_START, 0);
+        int written = 0;
+        while (writer.rtt(SEGMENT_START + written, "KEEP_ALIVE", 40 + written)) {
+            written++;
+        }
+        assertTrue(written > 0);
+        assertFalse(writer.connect(SEGMENT_START + written, "a-server-name-that-does-not-fit-anymore"));
+
+        SessionReader.Result result = SessionReader.read(buffer, new Recorder());
+        assertEquals(written, result.records());
+    }
+
+    @Test
+    void truncatedSegmentKeepsCompleteRecords() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        SessionWriter writer = new SessionWriter(buffer, SESSION_START, SEGMENT_START, 0);
+        assertTrue(writer.rtt(SEGMENT_START + 10, "KEEP_ALIVE", 50));
+        assertTrue(writer.rtt(SEGMENT_START + 20, "KEEP_ALIVE", 55));
+        int beforeLast = writer.position();
+        assertTrue(writer.rates(SEGMENT_START + 1000, 100_000, 50_000_000, 1_000_000));
+        int end = writer.position();
+
+        // Cortado a mitad del último registro, como tras un apagón con páginas sin volcar
+        for (int cut = beforeLast + 1; cut < end; cut++) {
+            ByteBuffer truncated = ByteBuffer.wrap(buffer.array(), 0, cut).slice();
+            Recorder recorder = new Recorder();
+            SessionReader.Result result = SessionReader.read(truncated, recorder);
+            assertTrue(result.truncated(), "corte en " + cut);
+            assertEquals(2, result.records(), "corte en " + cut);
+            assertEquals(3, recorder.events.size(), "corte en " + cut);
+        }
+
+        // Cortado justo en el límite de un registro: completo
+        ByteBuffer atBoundary = ByteBuffer.wrap(buffer.array(), 0, beforeLast).slice();
+        SessionReader.Result result = SessionReader.read(atBoundary, new Recorder());
+        assertFalse(result.truncated());
+        assertEquals(2, result.records());
+    }
+
+    @Test
+    void unknownRecordTypeMarksTruncated() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        SessionWriter writer = new SessionWriter(buffer, SESSION_START, SEGMENT_START, 0);
+        assertTrue(writer.disconnect(SEGMENT_START + 1));
+        buffer.put((byte) 0x7f);
+
+        SessionReader.Result result = SessionReader.read(buffer, new Recorder());
+        assertTrue(result.truncated());
+        assertEquals(1, result.records());
+    }
+
+    @Test
+    void rejectsForeignHeaders() {
+        assertThrows(IOException.class, () -> SessionReader.read(ByteBuffer.allocate(8), new Recorder()));
+        ByteBuffer wrongMagic = ByteBuffer.allocate(SessionFormat.HEADER_SIZE);
+        wrongMagic.put(new byte[] {'N', 'O', 'P', 'E'});
+        assertThrows(IOException.class, () -> SessionReader.read(wrongMagic, new Recorder()));
+    }
+}
@@ -0,0 +1,98 @@
+package dev.zxnoragami.clientreflex.bench;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.c2s.common.KeepAliveC2SPacket;
+import net.minecraft.network.packet.c2s.play.ClientStatusC2SPacket;
+import net.minecraft.network.packet.c2s.play.CommandExecutionC2SPacket;
+import net.minecraft.network.packet.c2s.play.HandSwingC2SPacket;
+import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket;
+import net.minecraft.network.packet.s2c.common.KeepAliveS2CPacket;
+import net.minecraft.util.Hand;
+
+/**
+ * Utilidades compartidas por los benchmarks.
+ * 
+ * Inicializa Minecraft una sola vez (registros y versión del juego) para poder
+ * construir paquetes reales, y ofrece handlers "sumidero" que terminan el pipeline
+ * de un EmbeddedChannel sin acumular mensajes, de forma que lo medido sea solo
+ * el handler bajo prueba.
+ */
+public final class BenchmarkSupport {
+    private static boolean bootstrapped = false;
+    
+    private BenchmarkSupport() {
+    }
+    
+    /**
+     * Inicializa Minecraft si aún no se hizo en esta JVM.
+     */
+    public static synchronized void bootstrap() {
+        if (bootstrapped) {
+            return;
+        }
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        bootstrapped = true;
+    }
+    
+    /**
+     * Paquetes salientes representativos de cada categoría de prioridad.
+     * Se reutilizan entre iteraciones para no medir su construcción.
+     */
+    public static Packet<?>[] outboundMix() {
+        bootstrap();
+        return new Packet<?>[] {
+            new PlayerMoveC2SPacket.OnGroundOnly(true),       // MOVEMENT
+            new HandSwingC2SPacket(Hand.MAIN_HAND),           // ATTACK
+            new KeepAliveC2SPacket(42L),                      // KEEPALIVE
+            new CommandExecutionC2SPacket("spawn"),           // CHAT
+            new ClientStatusC2SPacket(ClientStatusC2SPacket.Mode.REQUEST_STATS), // Por defecto
+            new PlayerMoveC2SPacket.OnGroundOnly(false)       // MOVEMENT
+        };
+    }
+    
+    /**
+     * Keep-alive entrante del servidor.
+     */
+    public static KeepAliveS2CPacket inboundKeepAlive() {
+        bootstrap();
+        return new KeepAliveS2CPacket(42L);
+    }
+    
+    /**
+     * Handler de salida que descarta todo lo que llega a la cabeza del pipeline.
+     * Se añade primero para que sea el último en recibir las escrituras.
+     */
+    public static final class OutboundSink extends ChannelOutboundHandlerAdapter {
+        public long written = 0;
+        
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            written++;
+        }
+        
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            // Nada que vaciar: los mensajes ya se descartaron en write()
+        }
+    }
+    
+    /**
+     * Handler de entrada que consume todo lo que llega al final del pipeline.
+     * Evita que EmbeddedChannel acumule los mensajes en su cola interna.
+     */
+    public static final class InboundSink extends ChannelInboundHandlerAdapter {
+        public long read = 0;
+        
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            read++;
+        }
+    }
+}
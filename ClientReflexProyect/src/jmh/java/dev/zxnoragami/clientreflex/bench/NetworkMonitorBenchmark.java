@@ -0,0 +1,56 @@
+package dev.zxnoragami.clientreflex.bench;
+
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark del NetworkMonitor.
+ * 
+ * onPacketReceived se ejecuta en el event loop de Netty por cada paquete entrante y el
+ * hilo del cliente drena la ingesta cada tick; getAveragePing y getPacketsReceivedInWindow
+ * se consultan cada tick y cada frame del HUD.
+ */
+@State(Scope.Thread)
+public class NetworkMonitorBenchmark {
+    private NetworkMonitor monitor;
+    
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        monitor = new NetworkMonitor();
+        
+        // Llenar el historial de ping con pares keep-alive
+        for (int i = 0; i < 200; i++) {
+            monitor.onKeepAliveSent();
+            monitor.onKeepAliveReceived();
+        }
+        // Un segundo de tráfico previo para que la ventana no esté vacía
+        for (int i = 0; i < 1000; i++) {
+            monitor.onPacketReceived();
+        }
+        monitor.drainIngestion();
+    }
+    
+    /**
+     * Un tick con 256 paquetes: publicación en Netty más drenado en el hilo del cliente.
+     * Medido por paquete; sin drenar, la cola SPSC se llenaría y se mediría otro camino.
+     */
+    @Benchmark
+    @OperationsPerInvocation(256)
+    public void onPacketReceivedAndDrain() {
+        for (int i = 0; i < 256; i++) {
+            monitor.onPacketReceived();
+        }
+        monitor.drainIngestion();
+    }
+    
+    @Benchmark
+    public double getAveragePing() {
+        return monitor.getAveragePing();
+    }
+    
+    @Benchmark
+    public int getPacketsReceivedInWindow() {
+        return monitor.getPacketsReceivedInWindow();
+    }
+}
@@ -0,0 +1,42 @@
+package dev.zxnoragami.clientreflex.bench;
+
+import dev.zxnoragami.clientreflex.ping.PingMetrics;
+import dev.zxnoragami.clientreflex.ping.RttSource;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark de PingMetrics.recordPing con el historial lleno.
+ * El tamaño por defecto del historial coincide con pingMetricsHistorySize.
+ * Las muestras son de la sonda de ping, la fuente preferida: recorren también los
+ * estimadores suavizados y el detector de cambios.
+ */
+@State(Scope.Thread)
+public class PingMetricsBenchmark {
+    @Param({"60", "1000"})
+    public int historySize;
+    
+    private PingMetrics metrics;
+    private long sample = 0;
+    
+    @Setup
+    public void setup() {
+        metrics = new PingMetrics(historySize);
+        for (int i = 0; i < historySize; i++) {
+            metrics.recordPing(RttSource.STATUS_PROBE, nextPing());
+        }
+    }
+    
+    /**
+     * Ping sintético de ~120ms con variación determinista.
+     */
+    private long nextPing() {
+        sample++;
+        return 100 + (sample * 37 % 41);
+    }
+    
+    @Benchmark
+    public double recordPing() {
+        metrics.recordPing(RttSource.STATUS_PROBE, nextPing());
+        return metrics.getJitterMs();
+    }
+}
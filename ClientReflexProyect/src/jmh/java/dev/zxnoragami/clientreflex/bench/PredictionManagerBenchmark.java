@@ -0,0 +1,72 @@
+package dev.zxnoragami.clientreflex.bench;
+
+import dev.zxnoragami.clientreflex.prediction.PredictionManager;
+import dev.zxnoragami.clientreflex.prediction.modules.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark del PredictionManager.
+ * 
+ * tick() se ejecuta cada tick del cliente y recorre las predicciones activas;
+ * isEntityPredictedDestroyed se consulta desde los mixins por cada entidad
+ * añadida o eliminada del mundo.
+ */
+@State(Scope.Thread)
+public class PredictionManagerBenchmark {
+    @Param({"0", "64"})
+    public int activePredictions;
+    
+    private PredictionManager manager;
+    private int probe = 0;
+    
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        manager = PredictionManager.getInstance();
+        PredictionModules.registerAll(manager);
+        manager.clearAll();
+        
+        // Timeout largo para que las predicciones no expiren durante la medición
+        for (int i = 0; i < activePredictions; i++) {
+            manager.predictEntityDestroyed(i, "crystal", Long.MAX_VALUE / 2);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        manager.clearAll();
+    }
+    
+    @Benchmark
+    public void tick() {
+        manager.tick();
+    }
+    
+    /**
+     * Mezcla de aciertos y fallos: la mitad de los IDs consultados están predichos.
+     */
+    @Benchmark
+    public boolean isEntityPredictedDestroyed() {
+        probe = (probe + 1) & 127;
+        return manager.isEntityPredictedDestroyed(probe);
+    }
+    
+    /**
+     * Registra los módulos una sola vez por JVM (registerModule ignora duplicados
+     * por identidad, así que instancias nuevas se acumularían).
+     */
+    static final class PredictionModules {
+        private static boolean registered = false;
+        
+        static synchronized void registerAll(PredictionManager manager) {
+            if (registered) {
+                return;
+            }
+            manager.registerModule(new CrystalPredictionModule(manager));
+            manager.registerModule(new BedPredictionModule(manager));
+            manager.registerModule(new AnchorPredictionModule(manager));
+            manager.registerModule(new TntMinecartPredictionModule(manager));
+            registered = true;
+        }
+    }
+}
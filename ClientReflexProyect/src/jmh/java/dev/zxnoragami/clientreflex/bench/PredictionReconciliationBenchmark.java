@@ -0,0 +1,61 @@
+package dev.zxnoragami.clientreflex.bench;
+
+import dev.zxnoragami.clientreflex.prediction.PredictionManager;
+import dev.zxnoragami.clientreflex.prediction.ServerPacketContext;
+import dev.zxnoragami.clientreflex.prediction.modules.AnchorPredictionModule;
+import dev.zxnoragami.clientreflex.prediction.modules.BedPredictionModule;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark de la reconciliación de explosiones en los módulos de camas y anchors.
+ * 
+ * Cada paquete de explosión recorre un cubo de 5x5x5 alrededor del centro
+ * buscando bloques predichos. Se mide con y sin predicciones activas cerca.
+ */
+@State(Scope.Thread)
+public class PredictionReconciliationBenchmark {
+    @Param({"false", "true"})
+    public boolean predictedNearby;
+    
+    private PredictionManager manager;
+    private BedPredictionModule bedModule;
+    private AnchorPredictionModule anchorModule;
+    private ServerPacketContext explosion;
+    private BlockPos center;
+    
+    @Setup
+    public void setup() {
+        BenchmarkSupport.bootstrap();
+        manager = PredictionManager.getInstance();
+        manager.clearAll();
+        bedModule = new BedPredictionModule(manager);
+        anchorModule = new AnchorPredictionModule(manager);
+        
+        center = new BlockPos(100, 64, -200);
+        explosion = new ServerPacketContext(ServerPacketContext.PacketType.EXPLOSION, null, null, center);
+    }
+    
+    @Setup(Level.Invocation)
+    public void predict() {
+        // La confirmación elimina la predicción, así que se repone antes de cada invocación
+        if (predictedNearby) {
+            manager.predictBlockDestroyed(center.add(1, 0, -1), "bed", Long.MAX_VALUE / 2);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        manager.clearAll();
+    }
+    
+    @Benchmark
+    public void bedExplosion() {
+        bedModule.onServerPacket(explosion);
+    }
+    
+    @Benchmark
+    public void anchorExplosion() {
+        anchorModule.onServerPacket(explosion);
+    }
+}
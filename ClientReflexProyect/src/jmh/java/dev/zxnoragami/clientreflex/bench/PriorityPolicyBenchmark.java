@@ -0,0 +1,30 @@
+package dev.zxnoragami.clientreflex.bench;
+
+import dev.zxnoragami.clientreflex.net.PriorityPolicy;
+import dev.zxnoragami.clientreflex.ping.PriorityWriteHandler;
+import net.minecraft.network.packet.Packet;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark de la clasificación de paquetes salientes.
+ * Se ejecuta una vez por cada paquete enviado al servidor.
+ */
+@State(Scope.Thread)
+public class PriorityPolicyBenchmark {
+    private PriorityPolicy policy;
+    private Packet<?>[] packets;
+    private int index = 0;
+    
+    @Setup
+    public void setup() {
+        packets = BenchmarkSupport.outboundMix();
+        policy = new PriorityPolicy();
+    }
+    
+    @Benchmark
+    public PriorityWriteHandler.Priority getPriority() {
+        Packet<?> packet = packets[index];
+        index = (index + 1) % packets.length;
+        return policy.getPriority(packet);
+    }
+}
@@ -0,0 +1,71 @@
+package dev.zxnoragami.clientreflex.bench;
+
+import dev.zxnoragami.clientreflex.net.PriorityPolicy;
+import dev.zxnoragami.clientreflex.ping.PriorityWriteHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.minecraft.network.packet.Packet;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmark del PriorityWriteHandler sobre un EmbeddedChannel.
+ * 
+ * El pipeline es: [OutboundSink] -> [PriorityWriteHandler] -> [InboundSink],
+ * de forma que cada escritura atraviesa el handler y termina descartada sin
+ * acumularse en el canal. Se usa el voidPromise para no medir la creación
+ * de promesas, que en el juego real hace Minecraft y no el handler.
+ */
+@State(Scope.Thread)
+public class PriorityWriteHandlerBenchmark {
+    private EmbeddedChannel channel;
+    private Packet<?>[] packets;
+    private int index = 0;
+    
+    @Setup
+    public void setup() {
+        packets = BenchmarkSupport.outboundMix();
+        
+        PriorityWriteHandler handler = new PriorityWriteHandler();
+        handler.updatePolicy(new PriorityPolicy());
+        
+        channel = new EmbeddedChannel();
+        ChannelPipeline pipeline = channel.pipeline();
+        pipeline.addLast("sink_out", new BenchmarkSupport.OutboundSink());
+        pipeline.addLast("clientreflex_priority", handler);
+        pipeline.addLast("sink_in", new BenchmarkSupport.InboundSink());
+    }
+    
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+    
+    /**
+     * Escritura sin flush explícito (el handler vacía sus colas en cada write).
+     */
+    @Benchmark
+    public void write() {
+        Packet<?> packet = packets[index];
+        index = (index + 1) % packets.length;
+        channel.write(packet, channel.voidPromise());
+    }
+    
+    /**
+     * Escritura seguida de flush, como hace ClientConnection.send().
+     */
+    @Benchmark
+    public void writeAndFlush() {
+        Packet<?> packet = packets[index];
+        index = (index + 1) % packets.length;
+        channel.write(packet, channel.voidPromise());
+        channel.flush();
+    }
+    
+    /**
+     * Flush con las colas vacías (coste fijo de cada flush del canal).
+     */
+    @Benchmark
+    public void flush() {
+        channel.flush();
+    }
+}
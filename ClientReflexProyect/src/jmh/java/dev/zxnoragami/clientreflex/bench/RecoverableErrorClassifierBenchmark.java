@@ -0,0 +1,46 @@
+package dev.zxnoragami.clientreflex.bench;
+
+import dev.zxnoragami.clientreflex.net.antidisconnect.RecoverableErrorClassifier;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+
+/**
+ * Benchmark del clasificador de errores recuperables.
+ * Cubre el caso recuperable, el no recuperable (que corta en el primer patrón
+ * negativo) y el caso por defecto que recorre todos los patrones.
+ */
+@State(Scope.Thread)
+public class RecoverableErrorClassifierBenchmark {
+    @Param({
+        "io.netty.handler.timeout.ReadTimeoutException: null",
+        "You are banned from this server",
+        "Lost connection: Unexpected custom data from client"
+    })
+    public String reason;
+    
+    private Throwable readTimeout;
+    private Throwable connectionReset;
+    
+    @Setup
+    public void setup() {
+        readTimeout = ReadTimeoutException.INSTANCE;
+        connectionReset = new IOException("Connection reset by peer");
+    }
+    
+    @Benchmark
+    public boolean isRecoverableMessage() {
+        return RecoverableErrorClassifier.isRecoverable(reason);
+    }
+    
+    @Benchmark
+    public boolean isRecoverableReadTimeout() {
+        return RecoverableErrorClassifier.isRecoverable(readTimeout);
+    }
+    
+    @Benchmark
+    public boolean isRecoverableIOException() {
+        return RecoverableErrorClassifier.isRecoverable(connectionReset);
+    }
+}
@@ -1,17 +1,27 @@
 package dev.zxnoragami.clientreflex;
 
+import dev.zxnoragami.clientreflex.client.ChunkRetentionCache;
+import dev.zxnoragami.clientreflex.client.ClientOptionsArbiter;
+import dev.zxnoragami.clientreflex.client.ViewDistanceController;
 import dev.zxnoragami.clientreflex.client.WeakConnectionManager;
 import dev.zxnoragami.clientreflex.command.ClientReflexCommand;
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
+import dev.zxnoragami.clientreflex.metrics.OpenMetricsExporter;
 import dev.zxnoragami.clientreflex.net.NetworkMonitor;
 import dev.zxnoragami.clientreflex.net.antidisconnect.AntiDisconnectManager;
+import dev.zxnoragami.clientreflex.perf.ClientPerformanceMonitor;
 import dev.zxnoragami.clientreflex.ping.*;
 import dev.zxnoragami.clientreflex.prediction.PredictionManager;
 import dev.zxnoragami.clientreflex.prediction.modules.*;
+import dev.zxnoragami.clientreflex.recording.SessionRecorder;
+import dev.zxnoragami.clientreflex.ui.AutoReconnectManager;
 import dev.zxnoragami.clientreflex.ui.NetworkHUD;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.rendering.v1.HudRenderCallback;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.minecraft.client.option.KeyBinding;
@@ -50,6 +60,9 @@ public class ClientReflexClient implements ClientModInitializer {
         
         ClientReflexMod.LOGGER.info("ClientReflex cliente inicializado");
 
+        // Eventos JFR: solo se emiten mientras haya una grabación en curso
+        ClientReflexJfr.initialize();
+
         // Inicializar AntiDisconnectManager
         AntiDisconnectManager antiDisconnectManager = AntiDisconnectManager.getInstance();
         if (ClientReflexConfig.getConfig().antiDisconnect.enabled) {
@@ -62,6 +75,10 @@ public class ClientReflexClient implements ClientModInitializer {
         // Inicializar métricas de ping
         var config = ClientReflexConfig.getConfig();
         pingMetrics = new PingMetrics(config.pingMetricsHistorySize);
+        // Cada muestra nueva de RTT, con su fuente, llega a PingMetrics en el hilo del cliente
+        networkMonitor.setRttSampleListener(pingMetrics::recordPing);
+        networkMonitor.setKeepAliveTransitListener(pingMetrics::recordKeepAliveTransit);
+        pingMetrics.setEwmaHalfLifeMs(config.pingEwmaHalfLifeMs);
         
         // Inicializar gestores de optimización de ping
         pingProfileManager = PingProfileManager.getInstance();
@@ -87,8 +104,15 @@ public class ClientReflexClient implements ClientModInitializer {
             "category.clientreflex.general"
         ));
 
+        // Medir la duración de cada tick (y revisar pausas de GC) para poder atribuir
+        // los silencios de red a congelamientos del cliente
+        ClientPerformanceMonitor performanceMonitor = ClientPerformanceMonitor.getInstance();
+        ClientTickEvents.START_CLIENT_TICK.register(client -> performanceMonitor.onTickStart());
+
         // Registrar el evento de tick del cliente para manejar el HUD y el modo conexión débil
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
+            performanceMonitor.onTickEnd();
+
             // Toggle del HUD
             while (hudToggleKey.wasPressed()) {
                 networkHUD.toggle();
@@ -101,15 +125,12 @@ public class ClientReflexClient implements ClientModInitializer {
                 // Marcar conexión como estable para AntiDisconnect
                 AntiDisconnectManager.getInstance().markStable();
                 
-                // Actualizar métricas de ping desde el monitor de red
-                long currentPing = networkMonitor.getCurrentPing();
-                if (currentPing > 0) {
-                    pingMetrics.recordPing(currentPing);
-                }
-                
                 // Actualizar el gestor de modo conexión débil
                 WeakConnectionManager.getInstance().update();
                 
+                // Cambios de régimen del ping: adelantar el perfil al inicio de una degradación
+                pingProfileManager.onTick(pingMetrics);
+                
                 // Actualizar perfiles de ping cada 100 ticks (~5 segundos)
                 // Usamos un contador propio en lugar de world.getTime() para garantizar
                 // actualizaciones regulares independientemente de cambios en el mundo
@@ -133,8 +154,36 @@ public class ClientReflexClient implements ClientModInitializer {
                 // Actualizar el sistema de predicción
                 PredictionManager.getInstance().tick();
             }
+
+            // Distancia de renderizado según el ancho de banda; sin mundo restaura la del jugador
+            ViewDistanceController.getInstance().update();
+
+            // Aplicar las opciones pedidas por perfil, modo débil y control de distancia
+            ClientOptionsArbiter.getInstance().tick();
+
+            // Reinstalar los chunks retenidos si la distancia volvió a subir
+            ChunkRetentionCache.getInstance().tick();
+
+            // Perfiles por servidor: sembrar al entrar, guardar lo aprendido al salir
+            ServerProfileStore.getInstance().tick();
+
+            // Exportador de métricas: también sin mundo, para ver las reconexiones
+            OpenMetricsExporter.getInstance().tick();
+
+            // Grabación de sesión: conexiones, desconexiones y muestras por segundo
+            SessionRecorder.getInstance().tick();
         });
 
+        // Volcar a disco el último segmento de la sesión al cerrar el juego
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> SessionRecorder.getInstance().close());
+        // Dejar las opciones del jugador, no las reducidas
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> ClientOptionsArbiter.getInstance().restoreUserValues());
+        // Guardar lo aprendido del servidor si se cierra el juego conectado
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> ServerProfileStore.getInstance().close());
+
+        // Una entrada en el juego tras un intento de reconexión es una reconexión lograda
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> AutoReconnectManager.getInstance().onGameJoin());
+
         // Registrar el renderizado del HUD
         HudRenderCallback.EVENT.register((drawContext, tickCounter) -> {
             networkHUD.render(drawContext, tickCounter);
@@ -0,0 +1,391 @@
+package dev.zxnoragami.clientreflex.client;
+
+import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.network.packet.s2c.play.ChunkData;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
+import net.minecraft.network.packet.s2c.play.LightData;
+import net.minecraft.network.packet.s2c.play.UnloadChunkS2CPacket;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Retiene los chunks que el servidor descarga por una reducción de la distancia de
+ * renderizado de ClientReflex y los reinstala en cuanto la distancia vuelve a subir.
+ *
+ * Un servidor vanilla reenvía todos los chunks que entran en el radio al subir la
+ * distancia, así que esto no ahorra la descarga: lo que ahorra es la espera. Los chunks
+ * retenidos se ven al instante, y la copia del servidor los sustituye al llegar. Un
+ * chunk reinstalado que el servidor no confirma en chunkRetentionConfirmMs se descarga,
+ * para no dejar en pantalla terreno que el servidor ya no actualiza.
+ *
+ * - Solo se retienen chunks dentro de la distancia del jugador y fuera de la aplicada:
+ *   los que se pierden por la reducción, no los que quedan atrás al moverse.
+ * - Cada chunk se guarda como su ChunkDataS2CPacket serializado (bloques, block entities
+ *   y luz), en un buffer de Netty dentro o fuera del heap según chunkRetentionOffHeap.
+ *   El presupuesto (chunkRetentionBudgetMb) cuenta los bytes exactos de esos buffers.
+ * - Serializar un chunk (paletas de todas sus secciones) es caro, y una reducción
+ *   descarga un anillo entero en el mismo tick. En el hilo del cliente solo se copia la
+ *   luz, que vanilla borra justo después; el chunk ya descargado no lo toca nadie más, así
+ *   que sus secciones se serializan en un hilo aparte y el resultado entra en la caché en
+ *   el siguiente tick.
+ * - Al pasar el presupuesto se expulsa el chunk con peor puntuación: distancia al
+ *   jugador en chunks más un chunk por cada AGE_WEIGHT_MS de antigüedad. Los que pasan
+ *   de chunkRetentionMaxAgeSeconds se descartan: su contenido ya puede no ser el actual.
+ *
+ * No es thread-safe: se usa solo desde el hilo del cliente (salvo la serialización, que
+ * solo lee el chunk descargado y entrega el buffer por una cola).
+ */
+public class ChunkRetentionCache {
+    private static ChunkRetentionCache instance;
+
+    private static final long AGE_WEIGHT_MS = 10_000;
+
+    private record Entry(ByteBuf data, long retainedAtMs) {
+    }
+
+    // Chunk serializado en el hilo aparte; ticket identifica el encargo que lo pidió
+    private record Encoded(long key, long ticket, ByteBuf data) {
+    }
+
+    private final ExecutorService encoder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ClientReflex-ChunkRetention");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Queue<Encoded> encoded = new ConcurrentLinkedQueue<>();
+    // Chunks en serialización, con el ticket del encargo vigente (los demás se descartan)
+    private final Map<Long, Long> encoding = new HashMap<>();
+    private long nextTicket = 0;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    // Chunks reinstalados pendientes de la copia del servidor, con su plazo
+    private final Map<Long, Long> unconfirmed = new HashMap<>();
+    private ClientWorld world;
+    private long retainedBytes = 0;
+    private int lastViewDistance = -1;
+    // Mientras se reinstala o se descarta un chunk propio, los hooks no deben reaccionar
+    private boolean replaying = false;
+
+    private long reinstalledCount = 0;
+    private long confirmedCount = 0;
+    private long expiredCount = 0;
+
+    private ChunkRetentionCache() {
+    }
+
+    public static ChunkRetentionCache getInstance() {
+        if (instance == null) {
+            instance = new ChunkRetentionCache();
+        }
+        return instance;
+    }
+
+    /**
+     * El servidor va a descargar un chunk. Lo llama ClientPlayNetworkHandlerMixin en el
+     * hilo del cliente, antes de que vanilla lo quite del mundo y borre su luz.
+     */
+    public void onChunkUnload(ClientWorld world, int chunkX, int chunkZ) {
+        var config = ClientReflexConfig.getConfig();
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (replaying || !config.chunkRetentionEnabled || client.player == null) {
+            return;
+        }
+        syncWorld(world);
+
+        double userDistance = ClientOptionsArbiter.getInstance().getUserValue(ClientOptionsArbiter.Option.VIEW_DISTANCE);
+        int distance = client.options.getViewDistance().getValue();
+        ChunkPos center = client.player.getChunkPos();
+        if (Double.isNaN(userDistance) || !isWithinRadius(center, (int) userDistance, chunkX, chunkZ)
+            || isWithinRadius(center, distance, chunkX, chunkZ)) {
+            return;
+        }
+        // Un reinstalado sin confirmar es una copia vieja: no se vuelve a retener
+        if (unconfirmed.remove(ChunkPos.toLong(chunkX, chunkZ)) != null) {
+            return;
+        }
+        WorldChunk chunk = world.getChunkManager().getWorldChunk(chunkX, chunkZ);
+        if (chunk == null) {
+            return;
+        }
+
+        LightData light;
+        try {
+            light = new LightData(chunk.getPos(), world.getLightingProvider(), null, null);
+        } catch (RuntimeException e) {
+            ClientReflexMod.LOGGER.warn("No se pudo retener el chunk " + chunkX + ", " + chunkZ + ": " + e.getMessage());
+            return;
+        }
+        long key = ChunkPos.toLong(chunkX, chunkZ);
+        long ticket = nextTicket++;
+        remove(key);
+        encoding.put(key, ticket);
+        boolean offHeap = config.chunkRetentionOffHeap;
+        DynamicRegistryManager registries = world.getRegistryManager();
+        encoder.execute(() -> encode(key, ticket, chunk, light, registries, offHeap));
+    }
+
+    /**
+     * Serializa en el hilo aparte con el mismo formato que ChunkDataS2CPacket.
+     */
+    private void encode(long key, long ticket, WorldChunk chunk, LightData light,
+                        DynamicRegistryManager registries, boolean offHeap) {
+        ByteBuf data = offHeap ? Unpooled.directBuffer() : Unpooled.buffer();
+        try {
+            RegistryByteBuf buf = new RegistryByteBuf(data, registries);
+            buf.writeInt(chunk.getPos().x);
+            buf.writeInt(chunk.getPos().z);
+            new ChunkData(chunk).write(buf);
+            light.write(buf);
+            data.capacity(data.writerIndex());
+        } catch (RuntimeException e) {
+            data.release();
+            ClientReflexMod.LOGGER.warn("No se pudo retener el chunk " + chunk.getPos().x + ", "
+                + chunk.getPos().z + ": " + e.getMessage());
+            data = null;
+        }
+        encoded.add(new Encoded(key, ticket, data));
+    }
+
+    /**
+     * Pasa a la caché los chunks ya serializados cuyo encargo sigue vigente.
+     */
+    private void drainEncoded(ChunkPos center, long now, long budgetBytes) {
+        Encoded result;
+        boolean added = false;
+        while ((result = encoded.poll()) != null) {
+            Long ticket = encoding.get(result.key());
+            if (ticket == null || ticket != result.ticket()) {
+                // Encargo anulado: llegó la copia del servidor o se cambió de mundo
+                if (result.data() != null) {
+                    result.data().release();
+                }
+                continue;
+            }
+            encoding.remove(result.key());
+            if (result.data() == null) {
+                continue;
+            }
+            entries.put(result.key(), new Entry(result.data(), now));
+            retainedBytes += result.data().capacity();
+            added = true;
+        }
+        if (added) {
+            evict(center, now, budgetBytes);
+        }
+    }
+
+    /**
+     * Llegó un chunk del servidor: sustituye al retenido o confirma el reinstalado.
+     */
+    public void onChunkData(int chunkX, int chunkZ) {
+        if (replaying) {
+            return;
+        }
+        long key = ChunkPos.toLong(chunkX, chunkZ);
+        remove(key);
+        encoding.remove(key);
+        if (unconfirmed.remove(key) != null) {
+            confirmedCount++;
+        }
+    }
+
+    /**
+     * Reinstala los chunks retenidos cuando sube la distancia y descarga los reinstalados
+     * sin confirmar. Debe llamarse cada tick, después de {@link ClientOptionsArbiter#tick()}.
+     */
+    public void tick() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        var config = ClientReflexConfig.getConfig();
+        ClientPlayNetworkHandler handler = client.getNetworkHandler();
+        if (client.world == null || client.player == null || handler == null || !config.chunkRetentionEnabled) {
+            clear();
+            lastViewDistance = -1;
+            return;
+        }
+        syncWorld(client.world);
+        long now = System.currentTimeMillis();
+        ChunkPos center = client.player.getChunkPos();
+        drainEncoded(center, now, (long) config.chunkRetentionBudgetMb * 1024 * 1024);
+
+        int distance = client.options.getViewDistance().getValue();
+        if (lastViewDistance >= 0 && distance > lastViewDistance) {
+            reinstall(client.world, handler, center, distance, now + config.chunkRetentionConfirmMs);
+        }
+        lastViewDistance = distance;
+
+        expireUnconfirmed(handler, now);
+        evict(center, now, (long) config.chunkRetentionBudgetMb * 1024 * 1024);
+    }
+
+    private void reinstall(ClientWorld world, ClientPlayNetworkHandler handler, ChunkPos center, int distance, long deadlineMs) {
+        int count = 0;
+        replaying = true;
+        try {
+            Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Entry> mapEntry = iterator.next();
+                long key = mapEntry.getKey();
+                int chunkX = ChunkPos.getPackedX(key);
+                int chunkZ = ChunkPos.getPackedZ(key);
+                if (!isWithinRadius(center, distance, chunkX, chunkZ)) {
+                    continue;
+                }
+                ByteBuf data = mapEntry.getValue().data();
+                iterator.remove();
+                retainedBytes -= data.capacity();
+                try {
+                    // Si el servidor ya lo envió, su copia es más reciente
+                    if (world.getChunkManager().getWorldChunk(chunkX, chunkZ) == null) {
+                        handler.onChunkData(ChunkDataS2CPacket.CODEC.decode(
+                            new RegistryByteBuf(data, world.getRegistryManager())));
+                        unconfirmed.put(key, deadlineMs);
+                        count++;
+                    }
+                } catch (RuntimeException e) {
+                    ClientReflexMod.LOGGER.warn("No se pudo reinstalar el chunk " + chunkX + ", " + chunkZ + ": " + e.getMessage());
+                } finally {
+                    data.release();
+                }
+            }
+        } finally {
+            replaying = false;
+        }
+        if (count > 0) {
+            reinstalledCount += count;
+            ClientReflexMod.LOGGER.info("Chunks retenidos reinstalados: " + count + " (distancia " + distance + ")");
+        }
+    }
+
+    private void expireUnconfirmed(ClientPlayNetworkHandler handler, long now) {
+        if (unconfirmed.isEmpty()) {
+            return;
+        }
+        replaying = true;
+        try {
+            Iterator<Map.Entry<Long, Long>> iterator = unconfirmed.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Long> mapEntry = iterator.next();
+                if (now < mapEntry.getValue()) {
+                    continue;
+                }
+                iterator.remove();
+                expiredCount++;
+                long key = mapEntry.getKey();
+                handler.onUnloadChunk(new UnloadChunkS2CPacket(new ChunkPos(key)));
+            }
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private void evict(ChunkPos center, long now, long budgetBytes) {
+        long maxAgeMs = ClientReflexConfig.getConfig().chunkRetentionMaxAgeSeconds * 1000L;
+        entries.entrySet().removeIf(mapEntry -> {
+            if (now - mapEntry.getValue().retainedAtMs() < maxAgeMs) {
+                return false;
+            }
+            retainedBytes -= mapEntry.getValue().data().capacity();
+            mapEntry.getValue().data().release();
+            return true;
+        });
+        while (retainedBytes > budgetBytes && !entries.isEmpty()) {
+            long worstKey = 0;
+            double worstScore = Double.NEGATIVE_INFINITY;
+            for (Map.Entry<Long, Entry> mapEntry : entries.entrySet()) {
+                long key = mapEntry.getKey();
+                int dx = Math.abs(ChunkPos.getPackedX(key) - center.x);
+                int dz = Math.abs(ChunkPos.getPackedZ(key) - center.z);
+                double score = Math.max(dx, dz) + (double) (now - mapEntry.getValue().retainedAtMs()) / AGE_WEIGHT_MS;
+                if (score > worstScore) {
+                    worstScore = score;
+                    worstKey = key;
+                }
+            }
+            remove(worstKey);
+        }
+    }
+
+    private void remove(long key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            retainedBytes -= entry.data().capacity();
+            entry.data().release();
+        }
+    }
+
+    // Otro mundo (dimensión o servidor nuevo): lo retenido ya no sirve
+    private void syncWorld(ClientWorld current) {
+        if (world != current) {
+            clear();
+            world = current;
+        }
+    }
+
+    /**
+     * Libera todo lo retenido (sin mundo, al cambiar de mundo o con la retención desactivada).
+     */
+    public void clear() {
+        for (Entry entry : entries.values()) {
+            entry.data().release();
+        }
+        entries.clear();
+        // Lo que aún se esté serializando se libera al llegar: su ticket ya no está
+        encoding.clear();
+        Encoded result;
+        while ((result = encoded.poll()) != null) {
+            if (result.data() != null) {
+                result.data().release();
+            }
+        }
+        unconfirmed.clear();
+        retainedBytes = 0;
+        world = null;
+    }
+
+    /**
+     * Mismo criterio circular que usa el servidor para decidir qué chunks envía.
+     */
+    private static boolean isWithinRadius(ChunkPos center, int distance, int chunkX, int chunkZ) {
+        long dx = Math.max(0, Math.abs(chunkX - center.x) - 1);
+        long dz = Math.max(0, Math.abs(chunkZ - center.z) - 1);
+        long far = Math.max(0, Math.max(dx, dz) - 1);
+        long near = Math.min(dx, dz);
+        return near * near + far * far < (long) distance * distance;
+    }
+
+    public int getRetainedChunkCount() {
+        return entries.size();
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public long getReinstalledCount() {
+        return reinstalledCount;
+    }
+
+    public long getConfirmedCount() {
+        return confirmedCount;
+    }
+
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+}
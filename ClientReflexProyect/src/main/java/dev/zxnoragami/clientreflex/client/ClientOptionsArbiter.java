@@ -0,0 +1,493 @@
+package dev.zxnoragami.clientreflex.client;
+
+import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.perf.ClientPerformanceMonitor;
+import dev.zxnoragami.clientreflex.perf.PerformanceTimeline;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.option.GameOptions;
+import net.minecraft.client.option.ParticlesMode;
+
+import java.util.Arrays;
+
+/**
+ * Árbitro único de las opciones del cliente que ClientReflex modifica.
+ *
+ * Los subsistemas (perfil de ping, modo débil, control de distancia) no escriben en
+ * GameOptions: piden un tope por opción con {@link #request} y lo retiran con
+ * {@link #clear}. Cada periodo de decisión el árbitro resuelve las peticiones y aplica
+ * como mucho un cambio por opción:
+ *
+ * - Las peticiones son topes sobre el valor del jugador: gana la más restrictiva y, a
+ *   igualdad, la de la fuente de mayor prioridad (a la que se atribuye el cambio).
+ * - Restringir se aplica en el siguiente periodo; relajar exige que el valor más suelto
+ *   se mantenga optionsRelaxHoldMs seguidos, para no oscilar entre peticiones.
+ * - El valor del jugador es la única base: se lee mientras no hay nada aplicado y, si el
+ *   jugador cambia una opción reducida, su valor nuevo pasa a ser la base. Sin mundo, al
+ *   cerrar el juego y al guardar options.txt se usan sus valores, nunca los reducidos.
+ *
+ * La distancia de renderizado cambia de anillo en anillo, uno cada
+ * viewDistanceTransitionStepMs, y la transición se detiene mientras el cliente tenga
+ * picos de tiempo entre frames (viewDistanceTransitionQuietMs): saltar de 12 a 6 de una
+ * vez descarga y reconstruye cientos de chunks en el mismo frame. Sin mundo no hay nada
+ * que reconstruir y se salta directamente.
+ *
+ * La distancia de renderizado también la usa el servidor para decidir qué chunks envía,
+ * pero cambiarla no le avisa: tras cambiarla el árbitro reenvía las opciones del cliente
+ * (ClientOptionsC2SPacket) cuando lleva clientSettingsDebounceMs sin cambios, y como
+ * mucho una vez cada clientSettingsMinIntervalMs. Si no, el servidor seguiría enviando
+ * chunks del radio anterior y bajar la distancia no ahorraría ancho de banda.
+ *
+ * Viñeta, niebla y el límite de entidades dibujadas no existen en GameOptions: son
+ * opciones propias que leen los mixins de render con {@link #getEffectiveValue}; su
+ * valor del jugador es siempre el de vanilla (activadas, sin límite).
+ *
+ * No es thread-safe: se usa solo desde el hilo del cliente.
+ */
+public class ClientOptionsArbiter {
+    private static ClientOptionsArbiter instance;
+
+    /**
+     * Subsistemas que piden opciones, de mayor a menor prioridad.
+     */
+    public enum Source {
+        WEAK_MODE("modo débil"),
+        VIEW_DISTANCE_CONTROLLER("control de distancia"),
+        PING_PROFILE("perfil de ping");
+
+        private final String displayName;
+
+        Source(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Opciones arbitradas. Los valores se codifican como double: menor es más restrictivo.
+     */
+    public enum Option {
+        VIEW_DISTANCE("distancia de renderizado") {
+            @Override
+            double read(GameOptions options) {
+                return options.getViewDistance().getValue();
+            }
+
+            @Override
+            void write(GameOptions options, double value) {
+                options.getViewDistance().setValue((int) value);
+            }
+
+            @Override
+            void writeRaw(GameOptions options, double value) {
+                options.getViewDistance().value = (int) value;
+            }
+
+            @Override
+            double normalize(double value) {
+                return Math.max(2, Math.round(value));
+            }
+
+            @Override
+            boolean isSentToServer() {
+                return true;
+            }
+
+            @Override
+            boolean isStepwise() {
+                return true;
+            }
+        },
+        ENTITY_DISTANCE_SCALING("distancia de entidades") {
+            @Override
+            double read(GameOptions options) {
+                return options.getEntityDistanceScaling().getValue();
+            }
+
+            @Override
+            void write(GameOptions options, double value) {
+                options.getEntityDistanceScaling().setValue(value);
+            }
+
+            @Override
+            void writeRaw(GameOptions options, double value) {
+                options.getEntityDistanceScaling().value = value;
+            }
+
+            @Override
+            double normalize(double value) {
+                // El deslizador va de 0.5 a 5.0 en pasos de 0.25; otro valor se rechaza
+                return Math.max(0.5, Math.min(5.0, Math.floor(value * 4.0) / 4.0));
+            }
+        },
+        // 2 = todas, 1 = reducidas, 0 = mínimas (ParticlesMode va al revés)
+        PARTICLES("partículas") {
+            @Override
+            double read(GameOptions options) {
+                return 2 - options.getParticles().getValue().ordinal();
+            }
+
+            @Override
+            void write(GameOptions options, double value) {
+                options.getParticles().setValue(ParticlesMode.values()[2 - (int) value]);
+            }
+
+            @Override
+            void writeRaw(GameOptions options, double value) {
+                options.getParticles().value = ParticlesMode.values()[2 - (int) value];
+            }
+
+            @Override
+            double normalize(double value) {
+                return Math.max(0, Math.min(2, Math.floor(value)));
+            }
+        },
+        // 1 = activada, 0 = omitida
+        VIGNETTE("viñeta", 1.0),
+        // 1 = activada, 0 = omitida (solo la niebla de distancia del terreno)
+        FOG("niebla", 1.0),
+        MAX_RENDERED_ENTITIES("entidades dibujadas", Double.POSITIVE_INFINITY) {
+            @Override
+            double normalize(double value) {
+                return Math.max(EntityRenderLimiter.MIN_LIMIT, Math.floor(value));
+            }
+        };
+
+        private final String displayName;
+        // Valor del jugador de las opciones propias (no están en GameOptions); NaN en las demás
+        private final double ownDefault;
+
+        Option(String displayName) {
+            this(displayName, Double.NaN);
+        }
+
+        Option(String displayName, double ownDefault) {
+            this.displayName = displayName;
+            this.ownDefault = ownDefault;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        // Las opciones propias guardan su valor en el árbitro
+        double read(GameOptions options) {
+            return getInstance().ownValues[ordinal()];
+        }
+
+        // Con los callbacks de la opción (recarga de chunks, etc.)
+        void write(GameOptions options, double value) {
+            getInstance().ownValues[ordinal()] = value;
+        }
+
+        // Sin callbacks: solo para guardar options.txt con los valores del jugador
+        void writeRaw(GameOptions options, double value) {
+        }
+
+        // Valor que la opción acepta
+        double normalize(double value) {
+            return value >= 1.0 ? 1.0 : 0.0;
+        }
+
+        // Si el servidor recibe la opción en ClientOptionsC2SPacket
+        boolean isSentToServer() {
+            return false;
+        }
+
+        // Si cambia de uno en uno (cada paso reconstruye parte del mundo)
+        boolean isStepwise() {
+            return false;
+        }
+    }
+
+    private static final Source[] SOURCES = Source.values();
+    private static final Option[] OPTIONS = Option.values();
+
+    // Peticiones [fuente][opción]; NaN = sin petición
+    private final double[][] requests = new double[SOURCES.length][OPTIONS.length];
+    // Valor del jugador por opción; NaN = aún no leído
+    private final double[] userValues = new double[OPTIONS.length];
+    // Valor escrito por el árbitro (leído tras escribir); NaN = la opción tiene el del jugador
+    private final double[] appliedValues = new double[OPTIONS.length];
+    // Desde cuándo el valor resuelto es más suelto que el aplicado; -1 si no lo es
+    private final long[] relaxSinceMs = new long[OPTIONS.length];
+    // Valor en efecto de las opciones propias
+    private final double[] ownValues = new double[OPTIONS.length];
+    // Último paso de una opción escalonada y si su transición sigue a medias
+    private final long[] lastStepMs = new long[OPTIONS.length];
+    private final boolean[] inTransition = new boolean[OPTIONS.length];
+    private long lastDecisionMs = 0;
+    // Último cambio de una opción que ve el servidor sin enviar aún; -1 si no hay
+    private long settingsChangedAtMs = -1;
+    private long settingsSentAtMs = 0;
+
+    private ClientOptionsArbiter() {
+        for (double[] sourceRequests : requests) {
+            Arrays.fill(sourceRequests, Double.NaN);
+        }
+        Arrays.fill(userValues, Double.NaN);
+        Arrays.fill(appliedValues, Double.NaN);
+        Arrays.fill(relaxSinceMs, -1);
+        for (Option option : OPTIONS) {
+            ownValues[option.ordinal()] = option.ownDefault;
+        }
+    }
+
+    public static ClientOptionsArbiter getInstance() {
+        if (instance == null) {
+            instance = new ClientOptionsArbiter();
+        }
+        return instance;
+    }
+
+    /**
+     * Pide que la opción no supere value mientras la petición siga activa.
+     */
+    public void request(Source source, Option option, double value) {
+        requests[source.ordinal()][option.ordinal()] = value;
+    }
+
+    /**
+     * Retira la petición de la fuente sobre la opción.
+     */
+    public void clear(Source source, Option option) {
+        requests[source.ordinal()][option.ordinal()] = Double.NaN;
+    }
+
+    /**
+     * Retira todas las peticiones de la fuente.
+     */
+    public void clearAll(Source source) {
+        Arrays.fill(requests[source.ordinal()], Double.NaN);
+    }
+
+    /**
+     * Valor elegido por el jugador para la opción (la base de todas las peticiones).
+     */
+    public double getUserValue(Option option) {
+        int index = option.ordinal();
+        if (Double.isNaN(userValues[index])) {
+            MinecraftClient client = MinecraftClient.getInstance();
+            if (client.options != null) {
+                userValues[index] = option.read(client.options);
+            }
+        }
+        return userValues[index];
+    }
+
+    /**
+     * Valor en efecto de una opción propia (viñeta, niebla, límite de entidades). Lo leen
+     * los mixins de render en cada frame.
+     */
+    public double getEffectiveValue(Option option) {
+        return ownValues[option.ordinal()];
+    }
+
+    /**
+     * Si la opción tiene aplicado un valor distinto del del jugador.
+     */
+    public boolean isOverridden(Option option) {
+        return !Double.isNaN(appliedValues[option.ordinal()]);
+    }
+
+    /**
+     * Resuelve y aplica las peticiones. Debe llamarse cada tick del cliente, después de
+     * los subsistemas que piden opciones; decide como mucho una vez por periodo.
+     */
+    public void tick() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.options == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        boolean inWorld = client.world != null;
+        var config = ClientReflexConfig.getConfig();
+        sendSettingsIfDue(client, inWorld, now, config.clientSettingsDebounceMs, config.clientSettingsMinIntervalMs);
+        // Sin mundo no hay que esperar: se vuelve a los valores del jugador en el acto.
+        // Las transiciones a medias avanzan a su ritmo, sin esperar al periodo de decisión
+        boolean decisionDue = !inWorld || now - lastDecisionMs >= config.optionsDecisionPeriodMs;
+        if (decisionDue) {
+            lastDecisionMs = now;
+        }
+
+        boolean changed = false;
+        for (Option option : OPTIONS) {
+            if (decisionDue || inTransition[option.ordinal()]) {
+                changed |= decide(client.options, option, inWorld, now, config);
+            }
+        }
+        if (changed) {
+            ClientPerformanceMonitor.getInstance().mark(PerformanceTimeline.EventType.PROFILE_SWITCH, now, 0);
+        }
+    }
+
+    /**
+     * Reenvía las opciones al servidor si una opción que ve cambió, lleva debounceMs sin
+     * cambios y pasaron minIntervalMs desde el último envío.
+     */
+    private void sendSettingsIfDue(MinecraftClient client, boolean inWorld, long now, long debounceMs, long minIntervalMs) {
+        if (settingsChangedAtMs < 0) {
+            return;
+        }
+        if (!inWorld || client.player == null) {
+            // Al entrar en un mundo el cliente ya envía sus opciones
+            settingsChangedAtMs = -1;
+            return;
+        }
+        if (now - settingsChangedAtMs < debounceMs || now - settingsSentAtMs < minIntervalMs) {
+            return;
+        }
+        client.options.sendClientSettings();
+        settingsChangedAtMs = -1;
+        settingsSentAtMs = now;
+        ClientReflexMod.LOGGER.info("Opciones del cliente reenviadas al servidor (distancia de renderizado: "
+            + client.options.getViewDistance().getValue() + ")");
+    }
+
+    private boolean decide(GameOptions options, Option option, boolean inWorld, long now, ClientReflexConfig.ConfigData config) {
+        int index = option.ordinal();
+        double current = option.read(options);
+        if (Double.isNaN(appliedValues[index])) {
+            userValues[index] = current;
+        } else {
+            adoptManualChange(option, current);
+        }
+
+        double target = userValues[index];
+        Source winner = null;
+        if (inWorld) {
+            for (Source source : SOURCES) {
+                double value = requests[source.ordinal()][index];
+                if (!Double.isNaN(value) && value < target) {
+                    target = value;
+                    winner = source;
+                }
+            }
+            target = Math.min(userValues[index], option.normalize(target));
+        }
+        if (target == current) {
+            relaxSinceMs[index] = -1;
+            inTransition[index] = false;
+            return false;
+        }
+
+        // Relajar espera a que el valor más suelto se mantenga; sin mundo no hay espera.
+        // Una vez cumplida, el resto de la transición no vuelve a esperar
+        if (inWorld && target > current) {
+            if (relaxSinceMs[index] < 0) {
+                relaxSinceMs[index] = now;
+            }
+            if (now - relaxSinceMs[index] < config.optionsRelaxHoldMs) {
+                return false;
+            }
+        } else {
+            relaxSinceMs[index] = -1;
+        }
+
+        double next = target;
+        if (inWorld && option.isStepwise()) {
+            inTransition[index] = true;
+            if (now - lastStepMs[index] < config.viewDistanceTransitionStepMs
+                || ClientPerformanceMonitor.getInstance().isStuttering(config.viewDistanceTransitionQuietMs)) {
+                return false;
+            }
+            next = current + Math.signum(target - current);
+            lastStepMs[index] = now;
+        }
+        if (next == target) {
+            relaxSinceMs[index] = -1;
+            inTransition[index] = false;
+        }
+        target = next;
+
+        option.write(options, target);
+        double written = option.read(options);
+        if (option.isSentToServer() && written != current) {
+            settingsChangedAtMs = now;
+        }
+        appliedValues[index] = written == userValues[index] ? Double.NaN : written;
+        ClientReflexMod.LOGGER.info(String.format("%s: %s -> %s (%s)", option.getDisplayName(),
+            format(current), format(written), winner != null ? winner.getDisplayName() : "valor del jugador"));
+        return true;
+    }
+
+    /**
+     * Si la opción ya no tiene el valor aplicado, el jugador la cambió mientras estaba
+     * reducida: su valor es la base nueva y deja de haber valor aplicado.
+     */
+    private boolean adoptManualChange(Option option, double current) {
+        int index = option.ordinal();
+        if (Double.isNaN(appliedValues[index]) || current == appliedValues[index]) {
+            return false;
+        }
+        userValues[index] = current;
+        appliedValues[index] = Double.NaN;
+        relaxSinceMs[index] = -1;
+        inTransition[index] = false;
+        ClientReflexMod.LOGGER.info("Opción cambiada por el jugador: " + option.getDisplayName() + " = " + current);
+        return true;
+    }
+
+    /**
+     * Pone en las opciones los valores del jugador sin disparar sus callbacks, para que
+     * options.txt nunca guarde un valor reducido. Lo llama GameOptionsMixin antes de escribir.
+     * Un cambio manual aún no visto por el tick (la pantalla de opciones guarda al cerrarse)
+     * se adopta antes, igual que en el tick, para no pisarlo con el valor anterior del jugador.
+     */
+    public void beforeOptionsWrite(GameOptions options) {
+        for (Option option : OPTIONS) {
+            int index = option.ordinal();
+            if (adoptManualChange(option, option.read(options))) {
+                continue;
+            }
+            if (!Double.isNaN(appliedValues[index]) && !Double.isNaN(userValues[index])) {
+                option.writeRaw(options, userValues[index]);
+            }
+        }
+    }
+
+    /**
+     * Vuelve a poner los valores aplicados tras escribir options.txt. GameOptions envía
+     * las opciones al servidor justo después, así que no queda nada pendiente.
+     */
+    public void afterOptionsWrite(GameOptions options) {
+        if (settingsChangedAtMs >= 0) {
+            settingsChangedAtMs = -1;
+            settingsSentAtMs = System.currentTimeMillis();
+        }
+        for (Option option : OPTIONS) {
+            int index = option.ordinal();
+            if (!Double.isNaN(appliedValues[index])) {
+                option.writeRaw(options, appliedValues[index]);
+            }
+        }
+    }
+
+    /**
+     * Restaura en el acto los valores del jugador (al cerrar el juego).
+     */
+    public void restoreUserValues() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.options == null) {
+            return;
+        }
+        for (Option option : OPTIONS) {
+            int index = option.ordinal();
+            if (!Double.isNaN(appliedValues[index]) && !Double.isNaN(userValues[index])) {
+                option.write(client.options, userValues[index]);
+                appliedValues[index] = Double.NaN;
+            }
+            inTransition[index] = false;
+        }
+    }
+
+    private static String format(double value) {
+        if (Double.isInfinite(value)) {
+            return "sin límite";
+        }
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,115 @@
+package dev.zxnoragami.clientreflex.client;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.ExperienceOrbEntity;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.entity.mob.AmbientEntity;
+import net.minecraft.entity.mob.Angerable;
+import net.minecraft.entity.mob.Monster;
+import net.minecraft.entity.mob.WaterCreatureEntity;
+import net.minecraft.entity.passive.PassiveEntity;
+
+import java.util.Arrays;
+
+/**
+ * Límite de entidades dibujadas por frame ({@link ClientOptionsArbiter.Option#MAX_RENDERED_ENTITIES}).
+ *
+ * Con el límite activo se dibujan solo las entidades más cercanas a la cámara. Ordenar
+ * cada frame sería caro, así que se usa la distribución de distancias del frame anterior
+ * (un histograma por tramos de DISTANCE_STEP bloques): el corte es el tramo en el que se
+ * alcanza el límite. Entre frames las entidades apenas se mueven, así que el error es de
+ * unas pocas entidades en el borde del corte.
+ *
+ * Solo se recortan ítems, orbes de experiencia y mobs pasivos, que son los que se
+ * acumulan en granjas y no amenazan a nadie. Jugadores, hostiles, mobs neutrales,
+ * proyectiles y el resto se dibujan siempre y no cuentan para el límite: ocultar algo
+ * que puede hacer daño no es aceptable.
+ *
+ * No es thread-safe: se usa solo desde el hilo de render.
+ */
+public class EntityRenderLimiter {
+    private static EntityRenderLimiter instance;
+
+    public static final int MIN_LIMIT = 16;
+    private static final double DISTANCE_STEP = 4.0;
+    private static final int BUCKETS = 64;
+
+    private final int[] counts = new int[BUCKETS + 1];
+    // Distancia al cuadrado hasta la que se dibuja en este frame
+    private double cutoffSquared = Double.POSITIVE_INFINITY;
+    private int culled = 0;
+    private int lastFrameCulled = 0;
+
+    private EntityRenderLimiter() {
+    }
+
+    public static EntityRenderLimiter getInstance() {
+        if (instance == null) {
+            instance = new EntityRenderLimiter();
+        }
+        return instance;
+    }
+
+    /**
+     * Calcula el corte con las distancias del frame anterior. Lo llama MinecraftClientMixin
+     * al empezar cada frame.
+     */
+    public void beginFrame() {
+        double limit = ClientOptionsArbiter.getInstance().getEffectiveValue(ClientOptionsArbiter.Option.MAX_RENDERED_ENTITIES);
+        cutoffSquared = Double.POSITIVE_INFINITY;
+        if (!Double.isInfinite(limit)) {
+            int total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += counts[i];
+                if (total > limit) {
+                    // Se corta antes del tramo que pasa el límite (siempre se dibuja el primero)
+                    double edge = Math.max(1, i) * DISTANCE_STEP;
+                    cutoffSquared = edge * edge;
+                    break;
+                }
+            }
+        }
+        Arrays.fill(counts, 0);
+        lastFrameCulled = culled;
+        culled = 0;
+    }
+
+    /**
+     * Si la entidad, que vanilla ya decidió dibujar, entra en el límite. Lo llama
+     * EntityRenderDispatcherMixin con la posición de la cámara.
+     */
+    public boolean allow(Entity entity, double cameraX, double cameraY, double cameraZ) {
+        if (!isCullable(entity)) {
+            return true;
+        }
+        double distanceSquared = entity.squaredDistanceTo(cameraX, cameraY, cameraZ);
+        int bucket = (int) Math.min(BUCKETS, Math.sqrt(distanceSquared) / DISTANCE_STEP);
+        counts[bucket]++;
+        if (distanceSquared <= cutoffSquared) {
+            return true;
+        }
+        culled++;
+        return false;
+    }
+
+    /**
+     * Si el límite puede ocultar la entidad: ítems, orbes y mobs pasivos que no atacan.
+     */
+    private static boolean isCullable(Entity entity) {
+        if (entity instanceof ItemEntity || entity instanceof ExperienceOrbEntity) {
+            return true;
+        }
+        if (entity instanceof Monster || entity instanceof Angerable) {
+            return false;
+        }
+        return entity instanceof PassiveEntity || entity instanceof AmbientEntity
+            || entity instanceof WaterCreatureEntity;
+    }
+
+    /**
+     * Entidades que el límite ocultó en el último frame completo.
+     */
+    public int getLastFrameCulled() {
+        return lastFrameCulled;
+    }
+}
@@ -0,0 +1,171 @@
+package dev.zxnoragami.clientreflex.client;
+
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.net.InboundBandwidthEstimator;
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
+import dev.zxnoragami.clientreflex.policy.ViewDistancePolicy;
+import net.minecraft.client.MinecraftClient;
+
+/**
+ * Controlador de la distancia de renderizado según el ancho de banda.
+ *
+ * Sustituye a las tablas fijas de ping a distancia: busca la mayor distancia cuyos datos
+ * de chunks quepan en una fracción de la capacidad de entrada estimada, para que los
+ * chunks carguen a ritmo constante sin ahogar entidades ni keep-alive. La decisión vive
+ * en {@link ViewDistancePolicy}; la distancia se pide a {@link ClientOptionsArbiter}.
+ *
+ * El techo es la distancia elegida por el jugador (la base del árbitro), recortada a la
+ * del servidor: por encima no llegan chunks y subir no cambiaría nada. Si el techo cambia,
+ * las cuentas de la política empiezan de nuevo.
+ *
+ * Los paquetes de red avisan de saltos del centro de chunks y de recargas del mundo para
+ * que la descarga de golpe que traen no se tome por falta de ancho de banda.
+ */
+public class ViewDistanceController {
+    private static ViewDistanceController instance;
+
+    private final ViewDistancePolicy policy = new ViewDistancePolicy(policyParameters());
+    // Distancia pedida al árbitro, o -1 si no hay reducción (se usa la del jugador)
+    private int targetDistance = -1;
+    private int lastUserDistance = -1;
+    // Distancia de visión del servidor (GameJoin / ChunkLoadDistance), o -1 si no se conoce
+    private int serverViewDistance = -1;
+    private int lastCeiling = -1;
+    private boolean hasCenter = false;
+    private int centerX;
+    private int centerZ;
+
+    private ViewDistanceController() {
+    }
+
+    public static ViewDistanceController getInstance() {
+        if (instance == null) {
+            instance = new ViewDistanceController();
+        }
+        return instance;
+    }
+
+    /**
+     * Parámetros de la política según la configuración actual.
+     */
+    public static ViewDistancePolicy.Parameters policyParameters() {
+        var config = ClientReflexConfig.getConfig();
+        return new ViewDistancePolicy.Parameters(config.chunkBandwidthFraction, config.viewDistanceHysteresis,
+            config.minViewDistance, config.viewDistanceStepDownMs, config.viewDistanceStepUpMs);
+    }
+
+    /**
+     * Distancia de visión anunciada por el servidor al entrar o al cambiarla.
+     */
+    public void onServerViewDistance(int distance) {
+        serverViewDistance = distance;
+    }
+
+    /**
+     * Centro de chunks nuevo. Moverse un chunk es lo normal al andar; un salto mayor
+     * (teletransporte) trae de golpe el área nueva.
+     */
+    public void onChunkCenter(int chunkX, int chunkZ) {
+        int dx = chunkX - centerX;
+        int dz = chunkZ - centerZ;
+        if (hasCenter && (Math.abs(dx) > 1 || Math.abs(dz) > 1)) {
+            policy.onCenterJump(dx, dz);
+        }
+        hasCenter = true;
+        centerX = chunkX;
+        centerZ = chunkZ;
+    }
+
+    /**
+     * Entrada al servidor, reaparición o cambio de dimensión: el área visible entera se
+     * vuelve a enviar.
+     */
+    public void onWorldReload() {
+        hasCenter = false;
+        policy.onFullReload();
+    }
+
+    /**
+     * Decide la distancia de renderizado. Debe llamarse cada tick del cliente, antes de
+     * {@link ClientOptionsArbiter#tick()}.
+     */
+    public void update() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        var config = ClientReflexConfig.getConfig();
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        if (!config.viewDistanceControllerEnabled || client.world == null || monitor == null) {
+            release();
+            return;
+        }
+
+        ClientOptionsArbiter arbiter = ClientOptionsArbiter.getInstance();
+        double userValue = arbiter.getUserValue(ClientOptionsArbiter.Option.VIEW_DISTANCE);
+        if (Double.isNaN(userValue)) {
+            return;
+        }
+        int userDistance = (int) userValue;
+        lastUserDistance = userDistance;
+        int ceiling = serverViewDistance > 0 ? Math.min(userDistance, serverViewDistance) : userDistance;
+        if (ceiling != lastCeiling) {
+            // Techo nuevo (el jugador o el servidor cambió la distancia): las cuentas empiezan de cero
+            lastCeiling = ceiling;
+            policy.reset();
+            if (targetDistance >= ceiling) {
+                targetDistance = -1;
+                arbiter.clear(ClientOptionsArbiter.Source.VIEW_DISTANCE_CONTROLLER, ClientOptionsArbiter.Option.VIEW_DISTANCE);
+            }
+        }
+        int current = targetDistance >= 0 ? Math.min(targetDistance, ceiling) : ceiling;
+
+        // Ventana de la tasa igual a la espera para bajar: tras cada cambio la cuenta
+        // empieza de cero y la siguiente decisión ya ve solo tráfico de la distancia nueva
+        long windowMs = config.viewDistanceStepDownMs;
+        double chunkRate = monitor.getChunkBytesPerSecond(windowMs);
+        InboundBandwidthEstimator bandwidth = monitor.getInboundBandwidth();
+        policy.setParameters(policyParameters());
+        int next = policy.update(current, ceiling, chunkRate, monitor.getBytesPerChunk(),
+            bandwidth.getCapacityBytesPerSecond(), bandwidth.isCapacityMeasured(), System.currentTimeMillis());
+        if (next == current) {
+            return;
+        }
+
+        if (next >= ceiling) {
+            targetDistance = -1;
+            arbiter.clear(ClientOptionsArbiter.Source.VIEW_DISTANCE_CONTROLLER, ClientOptionsArbiter.Option.VIEW_DISTANCE);
+        } else {
+            targetDistance = next;
+            arbiter.request(ClientOptionsArbiter.Source.VIEW_DISTANCE_CONTROLLER, ClientOptionsArbiter.Option.VIEW_DISTANCE, next);
+        }
+        ClientReflexMod.LOGGER.info(String.format(
+            "Distancia de renderizado pedida %d -> %d (chunks: %.0f kbit/s, capacidad: %.0f kbit/s)",
+            current, next, chunkRate * 8 / 1000.0, bandwidth.getCapacityBytesPerSecond() * 8 / 1000.0));
+    }
+
+    /**
+     * Retira la petición de distancia (sin mundo o con el controlador desactivado).
+     */
+    private void release() {
+        if (targetDistance >= 0) {
+            ClientOptionsArbiter.getInstance().clear(ClientOptionsArbiter.Source.VIEW_DISTANCE_CONTROLLER,
+                ClientOptionsArbiter.Option.VIEW_DISTANCE);
+            targetDistance = -1;
+        }
+        policy.reset();
+    }
+
+    /**
+     * Distancia elegida por el jugador, o -1 si aún no se leyó.
+     */
+    public int getUserViewDistance() {
+        return lastUserDistance;
+    }
+
+    /**
+     * Si el controlador pide una distancia menor que la del jugador.
+     */
+    public boolean isReduced() {
+        return targetDistance >= 0;
+    }
+}
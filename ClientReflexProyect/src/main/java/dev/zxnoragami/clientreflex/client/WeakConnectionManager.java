@@ -3,23 +3,28 @@ package dev.zxnoragami.clientreflex.client;
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
 import dev.zxnoragami.clientreflex.ClientReflexClient;
 import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
+import dev.zxnoragami.clientreflex.net.ServerTpsEstimator;
+import dev.zxnoragami.clientreflex.perf.ClientPerformanceMonitor;
+import dev.zxnoragami.clientreflex.ping.PingMetrics;
+import dev.zxnoragami.clientreflex.ping.RollingLatencyHistogram;
+import dev.zxnoragami.clientreflex.policy.WeakModePolicy;
+import dev.zxnoragami.clientreflex.recording.SessionRecorder;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.option.GameOptions;
 
 /**
  * Gestor de modo conexión débil.
  * Ajusta automáticamente las opciones del cliente cuando la conexión es inestable
- * para reducir el estrés de la red y mejorar la experiencia.
+ * para reducir el estrés de la red y mejorar la experiencia. La histéresis de
+ * activación y restauración vive en {@link WeakModePolicy}; las opciones se piden a
+ * {@link ClientOptionsArbiter}, que guarda los valores del jugador.
  */
 public class WeakConnectionManager {
     private static WeakConnectionManager instance;
     private boolean weakConnectionMode = false;
-    private int originalRenderDistance = -1;
-    private Double originalEntityDistance = null; // Double porque getEntityDistanceScaling() devuelve Double
-    private long weakConnectionStartTime = 0;
-    private long stableConnectionStartTime = 0;
-    private static final long WEAK_CONNECTION_THRESHOLD_MS = 5000; // 5 segundos para activar modo débil
-    private static final long STABLE_CONNECTION_THRESHOLD_MS = 10000; // 10 segundos para restaurar
+    private final WeakModePolicy policy = new WeakModePolicy(policyParameters());
+    private boolean serverLagging = false;
+    private long lastDecisionPing = 0;
 
     private WeakConnectionManager() {
     }
@@ -31,6 +36,15 @@ public class WeakConnectionManager {
         return instance;
     }
 
+    /**
+     * Parámetros de la política según la configuración actual.
+     */
+    public static WeakModePolicy.Parameters policyParameters() {
+        var config = ClientReflexConfig.getConfig();
+        return new WeakModePolicy.Parameters(config.weakConnectionPingThreshold,
+            WeakModePolicy.NETWORK_SILENCE_THRESHOLD_MS, config.weakConnectionActivateMs, config.weakConnectionRestoreMs);
+    }
+
     /**
      * Actualiza el estado del modo conexión débil basado en las métricas de red.
      * Debe llamarse periódicamente (cada tick del cliente).
@@ -45,89 +59,95 @@ public class WeakConnectionManager {
             return;
         }
 
-        long currentPing = ClientReflexClient.getNetworkMonitor().getCurrentPing();
-        double avgPing = ClientReflexClient.getNetworkMonitor().getAveragePing();
-        long timeSinceLastPacket = ClientReflexClient.getNetworkMonitor().getTimeSinceLastPacket();
+        var config = ClientReflexConfig.getConfig();
+
+        // Si el servidor va por debajo del umbral de TPS, el ping alto viene de sus ticks
+        // lentos y no cuenta; el silencio y la saturación siguen contando
+        ServerTpsEstimator serverTps = ClientReflexClient.getNetworkMonitor().getServerTpsEstimator();
+        boolean lagging = serverTps.isLagging(config.serverLagTpsThreshold);
+        if (lagging != serverLagging) {
+            serverLagging = lagging;
+            ClientReflexMod.LOGGER.info(lagging
+                ? String.format("Servidor con lag (%.1f TPS): el ping no cuenta para el modo conexión débil", serverTps.getTps())
+                : "El servidor recuperó su TPS");
+        }
 
-        int weakThreshold = ClientReflexConfig.getConfig().weakConnectionPingThreshold;
+        long timeSinceLastPacket = ClientReflexClient.getNetworkMonitor().getTimeSinceLastPacket();
 
-        boolean shouldBeWeak = (currentPing > weakThreshold || avgPing > weakThreshold) 
-            || timeSinceLastPacket > 2000; // Más de 2 segundos sin paquetes
+        // Decidir sobre el percentil de los últimos 10 s: un único ping alto no activa
+        // el modo débil, pero una cola de latencias altas sostenida sí
+        long decisionPing;
+        PingMetrics pingMetrics = ClientReflexClient.getPingMetrics();
+        if (pingMetrics != null) {
+            decisionPing = pingMetrics.getPingPercentileMs(
+                RollingLatencyHistogram.Window.TEN_SECONDS, config.pingDecisionPercentile);
+        } else {
+            decisionPing = ClientReflexClient.getNetworkMonitor().getCurrentPing();
+        }
 
+        // Una pausa de GC detiene también el event loop de Netty, que es quien sella las
+        // llegadas: ese tiempo no es silencio de red. Un frame o un tick largos no se
+        // descuentan, porque el event loop sigue recibiendo mientras el cliente se atasca
         long now = System.currentTimeMillis();
+        long networkSilenceMs = timeSinceLastPacket;
+        if (networkSilenceMs > WeakModePolicy.NETWORK_SILENCE_THRESHOLD_MS) {
+            networkSilenceMs -= ClientPerformanceMonitor.getInstance()
+                .getJvmPausedMs(now - timeSinceLastPacket, now);
+        }
 
-        if (shouldBeWeak) {
-            if (!weakConnectionMode) {
-                weakConnectionStartTime = now;
-            }
-
-            // Activar modo débil si se mantiene durante el umbral
-            if (now - weakConnectionStartTime >= WEAK_CONNECTION_THRESHOLD_MS && !weakConnectionMode) {
-                activateWeakConnectionMode(client.options);
-            }
-        } else {
-            if (weakConnectionMode) {
-                if (stableConnectionStartTime == 0) {
-                    stableConnectionStartTime = now;
-                }
-
-                // Restaurar configuración si la conexión es estable durante el umbral
-                if (now - stableConnectionStartTime >= STABLE_CONNECTION_THRESHOLD_MS) {
-                    deactivateWeakConnectionMode(client.options);
-                }
-            } else {
-                stableConnectionStartTime = 0;
+        // Con el enlace de entrada lleno (carga de chunks en un enlace lento) el RTT puede
+        // seguir bien mientras todo llega tarde: la saturación también cuenta como degradación
+        boolean linkSaturated = ClientReflexClient.getNetworkMonitor().getInboundBandwidth()
+            .isSaturated(config.linkSaturationUtilization);
+
+        lastDecisionPing = decisionPing;
+        policy.setParameters(policyParameters());
+        switch (policy.update(decisionPing, networkSilenceMs, linkSaturated, serverLagging, now)) {
+            case ACTIVATE -> activateWeakConnectionMode();
+            case DEACTIVATE -> deactivateWeakConnectionMode();
+            case NONE -> {
             }
         }
     }
 
     /**
      * Activa el modo conexión débil.
-     * Guarda las opciones actuales y las reduce para aliviar la carga de red.
+     * Pide al árbitro opciones reducidas para aliviar la carga de red.
      */
-    private void activateWeakConnectionMode(GameOptions options) {
+    private void activateWeakConnectionMode() {
         if (weakConnectionMode) {
             return; // Ya está activo
         }
 
         ClientReflexMod.LOGGER.info("Activando modo conexión débil");
 
-        // Guardar valores originales
-        originalRenderDistance = options.getViewDistance().getValue();
-        originalEntityDistance = options.getEntityDistanceScaling().getValue();
-
-        // Aplicar valores reducidos
-        int weakRenderDistance = ClientReflexConfig.getConfig().weakConnectionRenderDistance;
-        options.getViewDistance().setValue(Math.min(weakRenderDistance, originalRenderDistance));
-        options.getEntityDistanceScaling().setValue(0.5); // Reducir distancia de entidades a la mitad
+        // Pedir valores reducidos; la distancia de renderizado la ajusta ViewDistanceController
+        // según el ancho de banda, que es lo que de verdad alivia el enlace
+        ClientOptionsArbiter.getInstance().request(ClientOptionsArbiter.Source.WEAK_MODE,
+            ClientOptionsArbiter.Option.ENTITY_DISTANCE_SCALING, 0.5); // Distancia de entidades a la mitad
 
         weakConnectionMode = true;
-        weakConnectionStartTime = System.currentTimeMillis();
-        stableConnectionStartTime = 0;
+        ClientReflexJfr.weakMode(true, lastDecisionPing);
+        SessionRecorder.getInstance().recordWeakMode(true, lastDecisionPing);
     }
 
     /**
-     * Desactiva el modo conexión débil y restaura las opciones originales.
+     * Desactiva el modo conexión débil y retira sus peticiones de opciones.
      */
-    private void deactivateWeakConnectionMode(GameOptions options) {
+    private void deactivateWeakConnectionMode() {
         if (!weakConnectionMode) {
             return; // No está activo
         }
 
         ClientReflexMod.LOGGER.info("Desactivando modo conexión débil, restaurando configuración");
 
-        // Restaurar valores originales
-        if (originalRenderDistance > 0) {
-            options.getViewDistance().setValue(originalRenderDistance);
-        }
-        if (originalEntityDistance != null && originalEntityDistance > 0) {
-            options.getEntityDistanceScaling().setValue(originalEntityDistance);
-        }
+        // El árbitro vuelve a los valores del jugador (o al tope de otra fuente)
+        ClientOptionsArbiter.getInstance().clearAll(ClientOptionsArbiter.Source.WEAK_MODE);
 
         weakConnectionMode = false;
-        originalRenderDistance = -1;
-        originalEntityDistance = null;
-        stableConnectionStartTime = 0;
+        ClientReflexJfr.weakMode(false, lastDecisionPing);
+        SessionRecorder.getInstance().recordWeakMode(false, lastDecisionPing);
+        policy.reset();
     }
 
     /**
@@ -135,14 +155,18 @@ public class WeakConnectionManager {
      * Útil cuando el jugador cambia manualmente las opciones.
      */
     public void forceDeactivate() {
-        MinecraftClient client = MinecraftClient.getInstance();
-        if (client.options != null) {
-            deactivateWeakConnectionMode(client.options);
-        }
+        deactivateWeakConnectionMode();
     }
 
     public boolean isWeakConnectionMode() {
         return weakConnectionMode;
     }
+
+    /**
+     * Indica si el ping no cuenta para el modo débil porque el lag es del servidor.
+     */
+    public boolean isServerLagging() {
+        return serverLagging;
+    }
 }
 
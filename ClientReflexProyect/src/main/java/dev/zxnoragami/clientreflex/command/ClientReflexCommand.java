@@ -3,10 +3,13 @@ package dev.zxnoragami.clientreflex.command;
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
 import dev.zxnoragami.clientreflex.ClientReflexClient;
 import dev.zxnoragami.clientreflex.net.antidisconnect.AntiDisconnectManager;
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
 import dev.zxnoragami.clientreflex.net.PriorityPolicy;
+import dev.zxnoragami.clientreflex.net.StallDetector;
 import dev.zxnoragami.clientreflex.ping.PingDiagnostics;
 import dev.zxnoragami.clientreflex.ping.PingMetrics;
 import dev.zxnoragami.clientreflex.ping.PingProfileManager;
+import dev.zxnoragami.clientreflex.ping.RollingLatencyHistogram;
 import dev.zxnoragami.clientreflex.prediction.PredictionManager;
 import dev.zxnoragami.clientreflex.prediction.PredictionTelemetry;
 import com.mojang.brigadier.CommandDispatcher;
@@ -42,6 +45,8 @@ public class ClientReflexCommand {
                 .executes(ClientReflexCommand::showPredictionStats))
             .then(ClientCommandManager.literal("pingdiag")
                 .executes(ClientReflexCommand::showPingDiagnostics))
+            .then(ClientCommandManager.literal("stalls")
+                .executes(ClientReflexCommand::showStalls))
         );
     }
     
@@ -164,5 +169,50 @@ public class ClientReflexCommand {
         
         return 1;
     }
+    
+    /**
+     * Muestra los silencios de entrada de la sesión: conteo por causa, percentiles de
+     * duración y los últimos eventos.
+     */
+    private static int showStalls(CommandContext<FabricClientCommandSource> context) {
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        if (monitor == null) {
+            context.getSource().sendFeedback(Text.literal("Monitor de red no inicializado"));
+            return 1;
+        }
+        
+        StallDetector detector = monitor.getStallDetector();
+        RollingLatencyHistogram durations = detector.getDurationHistogram();
+        RollingLatencyHistogram.Window session = RollingLatencyHistogram.Window.SESSION;
+        
+        context.getSource().sendFeedback(Text.literal(String.format("=== Silencios de entrada (> %d ms) ===",
+            ClientReflexConfig.getConfig().stallThresholdMs)));
+        if (durations.getCount(session) == 0) {
+            context.getSource().sendFeedback(Text.literal("Sin silencios en esta sesión"));
+            return 1;
+        }
+        
+        for (StallDetector.StallCause cause : StallDetector.StallCause.values()) {
+            context.getSource().sendFeedback(Text.literal(String.format("%s: %d",
+                cause.getDisplayName(), detector.getCount(cause))));
+        }
+        context.getSource().sendFeedback(Text.literal(String.format(
+            "Duración p50 / p90 / p99 / máx: %d / %d / %d / %d ms",
+            durations.getP50(session), durations.getP90(session),
+            durations.getP99(session), durations.getMax(session))));
+        if (detector.hasPendingStall()) {
+            context.getSource().sendFeedback(Text.literal("(un silencio reciente aún se está clasificando)"));
+        }
+        
+        List<StallDetector.StallEvent> events = detector.getRecentEvents();
+        long now = System.currentTimeMillis();
+        for (int i = Math.max(0, events.size() - 10); i < events.size(); i++) {
+            StallDetector.StallEvent event = events.get(i);
+            context.getSource().sendFeedback(Text.literal(String.format("hace %d s: %d ms, %s (%s)",
+                (now - event.startMs) / 1000, event.durationMs, event.cause.getDisplayName(), event.detail)));
+        }
+        
+        return 1;
+    }
 }
 
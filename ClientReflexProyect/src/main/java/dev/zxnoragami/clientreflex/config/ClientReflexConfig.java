@@ -60,12 +60,49 @@ public class ClientReflexConfig {
 
         // Modo conexión débil
         public int weakConnectionPingThreshold = 200; // ms
-        public int weakConnectionRenderDistance = 6;
         public int weakConnectionStablePingThreshold = 150; // ms para considerar conexión estable
+        public int weakConnectionActivateMs = 5000; // Degradación sostenida para activar el modo débil
+        public int weakConnectionRestoreMs = 10000; // Conexión sana seguida para restaurar
+        public double serverLagTpsThreshold = 17.0; // Por debajo, el lag es del servidor y el ping no activa el modo débil
+
+        // Distancia de renderizado según el ancho de banda
+        public boolean viewDistanceControllerEnabled = true;
+        // Fracción de la capacidad de entrada que pueden ocupar los datos de chunks;
+        // el resto queda para entidades, keep-alive y demás tráfico
+        public double chunkBandwidthFraction = 0.6;
+        // Margen bajo el presupuesto que debe dejar la tasa prevista para subir un anillo
+        public double viewDistanceHysteresis = 0.25;
+        public int minViewDistance = 4;
+        public int viewDistanceStepDownMs = 5000; // Presupuesto superado seguido para bajar un anillo
+        public int viewDistanceStepUpMs = 15000;  // Margen seguido para subir un anillo
+
+        // Arbitraje de opciones del cliente
+        public int optionsDecisionPeriodMs = 1000; // Como mucho un cambio por opción en cada periodo
+        public int optionsRelaxHoldMs = 3000;      // Tiempo que debe mantenerse un valor más suelto para aplicarlo
+        // Reenvío de las opciones al servidor tras cambiar la distancia de renderizado
+        public int clientSettingsDebounceMs = 1500;    // Tiempo sin cambios antes de reenviar
+        public int clientSettingsMinIntervalMs = 3000; // Mínimo entre dos reenvíos
+
+        // Retención de chunks descargados por una reducción de la distancia de renderizado
+        public boolean chunkRetentionEnabled = true;
+        public int chunkRetentionBudgetMb = 64;          // Memoria máxima de los chunks retenidos
+        public boolean chunkRetentionOffHeap = true;     // Guardarlos fuera del heap de Java
+        public int chunkRetentionMaxAgeSeconds = 120;    // Antigüedad máxima de un chunk retenido
+        public int chunkRetentionConfirmMs = 10000;      // Plazo para que el servidor reenvíe un chunk reinstalado
+
+        // Perfiles de conexión aprendidos por servidor
+        public boolean serverProfilesEnabled = true;
+        public int serverProfileMaxAgeDays = 30;  // Los perfiles más antiguos no se usan
+        public int serverProfileMaxEntries = 64;  // Servidores recordados como máximo
+        public boolean profileRenderOptionsEnabled = true; // Partículas, viñeta, niebla y límite de entidades del perfil
+        // Transiciones de distancia de renderizado de anillo en anillo
+        public int viewDistanceTransitionStepMs = 1000;  // Tiempo mínimo entre dos anillos
+        public int viewDistanceTransitionQuietMs = 2000; // Sin picos de frame durante este tiempo para dar un paso
 
         // Monitor de red
         public int pingHistorySize = 100; // Número de valores de ping a guardar
         public int networkStatsWindowSeconds = 10; // Ventana de tiempo para estadísticas
+        public int stallThresholdMs = 1000; // Silencio de entrada mínimo para registrarlo como stall
 
         // Sistema de predicción
         public boolean predictCrystals = true;
@@ -93,12 +130,39 @@ public class ClientReflexConfig {
         public int pingMediumThresholdMs = 120;   // 60-120ms = MEDIUM (centrado en tu ping normal)
         public int pingHighThresholdMs = 200;     // 120-200ms = HIGH
         public int pingCriticalThresholdMs = 320; // > 200ms = CRITICAL
+        // Percentil del ping (ventana de 10 s) usado para elegir perfil y modo débil;
+        // p90 ignora picos aislados pero reacciona a pérdidas sostenidas
+        public double pingDecisionPercentile = 90.0;
+        // Tiempo mínimo entre cambios de perfil por percentil (histéresis)
+        public int pingProfileCooldownMs = 5000;
+        // Confianza mínima de un cambio de régimen al alza para adelantar el perfil de ping
+        // sin esperar al cooldown (0.5-0.99999; al detectarse un cambio ya es >= 0.997)
+        public double changePointMinConfidence = 0.999;
+        // Capacidad de entrada (kbit/s) por debajo de la cual se aplica al menos el perfil
+        // MEDIUM, HIGH o CRITICAL aunque el ping sea bueno; 0 desactiva cada umbral
+        public int capacityMediumThresholdKbps = 10000;
+        public int capacityHighThresholdKbps = 4000;
+        public int capacityCriticalThresholdKbps = 1500;
+        // Ventana (s) del máximo de la tasa de entrega que estima la capacidad del enlace
+        public int inboundCapacityWindowSeconds = 10;
+        // Utilización del enlace de entrada a partir de la cual cuenta como saturado
+        // (el modo débil lo trata como conexión degradada)
+        public double linkSaturationUtilization = 0.9;
         
         // Configuración de Netty
         public boolean tcpNoDelayOverride = true;      // Forzar TCP_NODELAY
         public boolean soKeepAliveOverride = true;     // Forzar SO_KEEPALIVE
         public boolean enablePriorityWriteHandler = true; // Priorizar paquetes
         
+        // Fuentes de RTT
+        public int rttProbeIntervalSeconds = 5;        // Sonda QueryPing cada N segundos (0 = desactivada)
+        public boolean enableTcpInfoSampling = true;   // Leer el RTT del kernel con transporte epoll
+        
+        // Estimadores de RTT
+        public int pingEwmaHalfLifeMs = 10000;         // Vida media de la media exponencial del ping
+        public boolean adaptivePredictionTimeouts = false; // Timeouts de predicción = SRTT + 4·RTTVAR + margen (opt-in)
+        public int adaptivePredictionMarginMs = 100;   // Margen para el tick y el procesamiento del servidor
+        
         // Suavizado de input y movimiento
         public boolean enableMovementSmoothing = true;        // Suavizar movimiento remoto
         public boolean enableRemoteEntityInterpolation = true; // Interpolar entidades remotas
@@ -106,6 +170,14 @@ public class ClientReflexConfig {
         
         // Historial de ping
         public int pingMetricsHistorySize = 60; // Número de valores de ping a guardar
+        
+        // Exportador OpenMetrics (Prometheus), solo en 127.0.0.1
+        public boolean metricsExporterEnabled = false;
+        public int metricsExporterPort = 9464;
+        
+        // Grabación de la sesión en archivos mapeados en memoria (opt-in)
+        public boolean sessionRecordingEnabled = false;
+        public int sessionRecordingMaxMb = 64;
     }
     
     /**
@@ -275,10 +347,42 @@ public class ClientReflexConfig {
         
         // Validar otros valores
         data.weakConnectionPingThreshold = Math.max(50, Math.min(1000, data.weakConnectionPingThreshold));
-        data.weakConnectionRenderDistance = Math.max(2, Math.min(32, data.weakConnectionRenderDistance));
+        data.weakConnectionActivateMs = Math.max(0, Math.min(60000, data.weakConnectionActivateMs));
+        data.weakConnectionRestoreMs = Math.max(1000, Math.min(120000, data.weakConnectionRestoreMs));
+        data.serverLagTpsThreshold = Math.max(5.0, Math.min(19.5, data.serverLagTpsThreshold));
+        data.chunkBandwidthFraction = Math.max(0.1, Math.min(0.95, data.chunkBandwidthFraction));
+        data.viewDistanceHysteresis = Math.max(0.0, Math.min(0.9, data.viewDistanceHysteresis));
+        data.minViewDistance = Math.max(2, Math.min(32, data.minViewDistance));
+        data.viewDistanceStepDownMs = Math.max(1000, Math.min(60000, data.viewDistanceStepDownMs));
+        data.viewDistanceStepUpMs = Math.max(1000, Math.min(300000, data.viewDistanceStepUpMs));
+        data.optionsDecisionPeriodMs = Math.max(250, Math.min(10000, data.optionsDecisionPeriodMs));
+        data.optionsRelaxHoldMs = Math.max(0, Math.min(60000, data.optionsRelaxHoldMs));
+        data.viewDistanceTransitionStepMs = Math.max(50, Math.min(10000, data.viewDistanceTransitionStepMs));
+        data.viewDistanceTransitionQuietMs = Math.max(0, Math.min(30000, data.viewDistanceTransitionQuietMs));
+        data.clientSettingsDebounceMs = Math.max(0, Math.min(30000, data.clientSettingsDebounceMs));
+        data.clientSettingsMinIntervalMs = Math.max(250, Math.min(60000, data.clientSettingsMinIntervalMs));
+        data.chunkRetentionBudgetMb = Math.max(0, Math.min(1024, data.chunkRetentionBudgetMb));
+        data.chunkRetentionMaxAgeSeconds = Math.max(10, Math.min(1800, data.chunkRetentionMaxAgeSeconds));
+        data.chunkRetentionConfirmMs = Math.max(1000, Math.min(60000, data.chunkRetentionConfirmMs));
+        data.serverProfileMaxAgeDays = Math.max(1, Math.min(365, data.serverProfileMaxAgeDays));
+        data.serverProfileMaxEntries = Math.max(1, Math.min(1000, data.serverProfileMaxEntries));
         data.pingHistorySize = Math.max(10, Math.min(1000, data.pingHistorySize));
         data.networkStatsWindowSeconds = Math.max(1, Math.min(60, data.networkStatsWindowSeconds));
+        data.stallThresholdMs = Math.max(250, Math.min(10000, data.stallThresholdMs));
         data.pingMetricsHistorySize = Math.max(10, Math.min(1000, data.pingMetricsHistorySize));
+        data.pingDecisionPercentile = Math.max(50.0, Math.min(99.9, data.pingDecisionPercentile));
+        data.pingProfileCooldownMs = Math.max(0, Math.min(60000, data.pingProfileCooldownMs));
+        data.changePointMinConfidence = Math.max(0.5, Math.min(0.99999, data.changePointMinConfidence));
+        data.capacityMediumThresholdKbps = Math.max(0, Math.min(1000000, data.capacityMediumThresholdKbps));
+        data.capacityHighThresholdKbps = Math.max(0, Math.min(1000000, data.capacityHighThresholdKbps));
+        data.capacityCriticalThresholdKbps = Math.max(0, Math.min(1000000, data.capacityCriticalThresholdKbps));
+        data.inboundCapacityWindowSeconds = Math.max(2, Math.min(120, data.inboundCapacityWindowSeconds));
+        data.linkSaturationUtilization = Math.max(0.5, Math.min(1.0, data.linkSaturationUtilization));
+        data.rttProbeIntervalSeconds = Math.max(0, Math.min(60, data.rttProbeIntervalSeconds));
+        data.pingEwmaHalfLifeMs = Math.max(500, Math.min(120000, data.pingEwmaHalfLifeMs));
+        data.adaptivePredictionMarginMs = Math.max(0, Math.min(1000, data.adaptivePredictionMarginMs));
+        data.metricsExporterPort = Math.max(1024, Math.min(65535, data.metricsExporterPort));
+        data.sessionRecordingMaxMb = Math.max(4, Math.min(4096, data.sessionRecordingMaxMb));
         
         // Validar timeouts de predicción
         data.crystalPredictionTimeoutMs = Math.max(100, Math.min(5000, data.crystalPredictionTimeoutMs));
@@ -0,0 +1,24 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Cambio de estado de AntiDisconnectManager.
+ */
+@Name("clientreflex.AntiDisconnectTransition")
+@Label("Transición de AntiDisconnect")
+@Category({"ClientReflex", "Reconexión"})
+@Description("Cambio de estado de AntiDisconnectManager.")
+@StackTrace(false)
+class AntiDisconnectTransitionEvent extends Event {
+    @Label("Estado anterior")
+    String fromState;
+
+    @Label("Estado nuevo")
+    String toState;
+}
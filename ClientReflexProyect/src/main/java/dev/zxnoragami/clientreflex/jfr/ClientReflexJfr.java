@@ -0,0 +1,175 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import dev.zxnoragami.clientreflex.ClientReflexMod;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Eventos de Java Flight Recorder de ClientReflex.
+ *
+ * Con una grabación activa (jcmd &lt;pid&gt; JFR.start, -XX:StartFlightRecording o el
+ * perfilador de Minecraft), los eventos clientreflex.* quedan en la misma línea de
+ * tiempo que el GC, los hilos y los eventos de latencia de la JVM.
+ *
+ * Coste: un FlightRecorderListener mantiene un flag volátil con "hay alguna grabación
+ * en curso", y cada método de emisión lo comprueba antes de crear el evento. Sin
+ * grabación, emitir es una lectura volátil y un salto; con grabación, el evento no
+ * escapa del método y el JIT suele eliminar la asignación. Por eso todos pueden
+ * quedarse activos en producción. Los métodos se pueden llamar desde cualquier hilo.
+ */
+public final class ClientReflexJfr {
+    private static volatile boolean recording = false;
+
+    private ClientReflexJfr() {
+    }
+
+    /**
+     * Registra el listener de grabaciones. Si la JVM no incluye jdk.jfr, los eventos
+     * quedan desactivados para siempre.
+     */
+    public static void initialize() {
+        try {
+            FlightRecorder.addListener(new FlightRecorderListener() {
+                @Override
+                public void recordingStateChanged(Recording changed) {
+                    refresh();
+                }
+            });
+            if (FlightRecorder.isInitialized()) {
+                refresh();
+            }
+        } catch (LinkageError | RuntimeException e) {
+            recording = false;
+            ClientReflexMod.LOGGER.debug("JFR no disponible: ", e);
+        }
+    }
+
+    private static void refresh() {
+        boolean running = false;
+        for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (r.getState() == RecordingState.RUNNING) {
+                running = true;
+                break;
+            }
+        }
+        recording = running;
+    }
+
+    /**
+     * Indica si hay una grabación en curso. Sirve para no medir tiempos que solo
+     * usarían los eventos (p. ej. System.nanoTime al encolar un paquete).
+     */
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    public static void outboundPacketQueued(Class<?> packetClass, Enum<?> priority, int queueDepth) {
+        if (!recording) {
+            return;
+        }
+        OutboundPacketQueuedEvent event = new OutboundPacketQueuedEvent();
+        event.packetClass = packetClass;
+        event.priority = priority.name();
+        event.queueDepth = queueDepth;
+        event.commit();
+    }
+
+    public static void outboundPacketFlushed(Class<?> packetClass, Enum<?> priority, long waitNanos) {
+        if (!recording) {
+            return;
+        }
+        OutboundPacketFlushedEvent event = new OutboundPacketFlushedEvent();
+        event.packetClass = packetClass;
+        event.priority = priority.name();
+        event.waitTime = waitNanos;
+        event.commit();
+    }
+
+    public static void rttSample(Enum<?> source, long rttMs) {
+        if (!recording) {
+            return;
+        }
+        RttSampleEvent event = new RttSampleEvent();
+        event.source = source.name();
+        event.rtt = rttMs;
+        event.commit();
+    }
+
+    public static void readStall(long startMs, long durationMs, Enum<?> cause, String detail) {
+        if (!recording) {
+            return;
+        }
+        ReadStallEvent event = new ReadStallEvent();
+        event.stallStart = startMs;
+        event.stallDuration = durationMs;
+        event.cause = cause.name();
+        event.detail = detail;
+        event.commit();
+    }
+
+    /**
+     * @param fromRange rango anterior, o null si no había perfil aplicado
+     */
+    public static void profileChange(Enum<?> fromRange, Enum<?> toRange, String trigger, long pingMs) {
+        if (!recording) {
+            return;
+        }
+        ProfileChangeEvent event = new ProfileChangeEvent();
+        event.fromRange = fromRange != null ? fromRange.name() : null;
+        event.toRange = toRange.name();
+        event.trigger = trigger;
+        event.ping = pingMs;
+        event.commit();
+    }
+
+    public static void weakMode(boolean active, long decisionPingMs) {
+        if (!recording) {
+            return;
+        }
+        WeakModeEvent event = new WeakModeEvent();
+        event.active = active;
+        event.decisionPing = decisionPingMs;
+        event.commit();
+    }
+
+    /**
+     * @param target "entity" o "block"
+     * @param outcome MADE, CONFIRMED, ROLLED_BACK o EXPIRED
+     */
+    public static void prediction(String predictionType, String target, String outcome, long latencyMs) {
+        if (!recording) {
+            return;
+        }
+        PredictionEvent event = new PredictionEvent();
+        event.predictionType = predictionType;
+        event.target = target;
+        event.outcome = outcome;
+        event.latency = latencyMs;
+        event.commit();
+    }
+
+    public static void antiDisconnectTransition(Enum<?> fromState, Enum<?> toState) {
+        if (!recording) {
+            return;
+        }
+        AntiDisconnectTransitionEvent event = new AntiDisconnectTransitionEvent();
+        event.fromState = fromState.name();
+        event.toState = toState.name();
+        event.commit();
+    }
+
+    /**
+     * @param phase SCHEDULED, ATTEMPT, CONNECTED, FAILED, GAVE_UP o CANCELLED
+     */
+    public static void reconnectPhase(String phase, int attempt) {
+        if (!recording) {
+            return;
+        }
+        ReconnectPhaseEvent event = new ReconnectPhaseEvent();
+        event.phase = phase;
+        event.attempt = attempt;
+        event.commit();
+    }
+}
@@ -0,0 +1,29 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Un paquete encolado salió hacia el socket; waitTime es lo que esperó en su cola.
+ */
+@Name("clientreflex.OutboundPacketFlushed")
+@Label("Paquete saliente escrito")
+@Category({"ClientReflex", "Red"})
+@Description("Un paquete encolado salió hacia el socket; waitTime es lo que esperó en su cola.")
+@StackTrace(false)
+class OutboundPacketFlushedEvent extends Event {
+    @Label("Tipo de paquete")
+    Class<?> packetClass;
+
+    @Label("Prioridad")
+    String priority;
+
+    @Label("Espera en cola")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitTime;
+}
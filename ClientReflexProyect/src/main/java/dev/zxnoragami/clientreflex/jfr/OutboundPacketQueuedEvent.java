@@ -0,0 +1,27 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Un paquete saliente entró en una cola de PriorityWriteHandler.
+ */
+@Name("clientreflex.OutboundPacketQueued")
+@Label("Paquete saliente encolado")
+@Category({"ClientReflex", "Red"})
+@Description("Un paquete saliente entró en una cola de PriorityWriteHandler.")
+@StackTrace(false)
+class OutboundPacketQueuedEvent extends Event {
+    @Label("Tipo de paquete")
+    Class<?> packetClass;
+
+    @Label("Prioridad")
+    String priority;
+
+    @Label("Profundidad de la cola")
+    int queueDepth;
+}
@@ -0,0 +1,32 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Ciclo de vida de una predicción; latency es el tiempo desde que se hizo (0 al hacerla).
+ */
+@Name("clientreflex.Prediction")
+@Label("Predicción")
+@Category({"ClientReflex", "Predicción"})
+@Description("Ciclo de vida de una predicción; latency es el tiempo desde que se hizo (0 al hacerla).")
+@StackTrace(false)
+class PredictionEvent extends Event {
+    @Label("Tipo")
+    String predictionType;
+
+    @Label("Objetivo")
+    String target;
+
+    @Label("Resultado")
+    String outcome;
+
+    @Label("Latencia")
+    @Timespan(Timespan.MILLISECONDS)
+    long latency;
+}
@@ -0,0 +1,32 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Se aplicó un perfil de ping distinto.
+ */
+@Name("clientreflex.ProfileChange")
+@Label("Cambio de perfil de ping")
+@Category({"ClientReflex", "Perfiles"})
+@Description("Se aplicó un perfil de ping distinto.")
+@StackTrace(false)
+class ProfileChangeEvent extends Event {
+    @Label("Rango anterior")
+    String fromRange;
+
+    @Label("Rango nuevo")
+    String toRange;
+
+    @Label("Motivo")
+    String trigger;
+
+    @Label("Ping de la decisión")
+    @Timespan(Timespan.MILLISECONDS)
+    long ping;
+}
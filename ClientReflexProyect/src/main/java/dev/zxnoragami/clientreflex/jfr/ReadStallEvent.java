@@ -0,0 +1,34 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * Silencio de entrada ya clasificado; stallStart es el instante del último paquete antes del silencio.
+ */
+@Name("clientreflex.ReadStall")
+@Label("Silencio de entrada")
+@Category({"ClientReflex", "Red"})
+@Description("Silencio de entrada ya clasificado; stallStart es el instante del último paquete antes del silencio.")
+@StackTrace(false)
+class ReadStallEvent extends Event {
+    @Label("Inicio")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long stallStart;
+
+    @Label("Duración")
+    @Timespan(Timespan.MILLISECONDS)
+    long stallDuration;
+
+    @Label("Causa")
+    String cause;
+
+    @Label("Detalle")
+    String detail;
+}
@@ -0,0 +1,24 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Fase de la auto-reconexión (programada, intento, conectado, abandonada...).
+ */
+@Name("clientreflex.ReconnectPhase")
+@Label("Fase de reconexión")
+@Category({"ClientReflex", "Reconexión"})
+@Description("Fase de la auto-reconexión (programada, intento, conectado, abandonada...).")
+@StackTrace(false)
+class ReconnectPhaseEvent extends Event {
+    @Label("Fase")
+    String phase;
+
+    @Label("Intento")
+    int attempt;
+}
@@ -0,0 +1,26 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Muestra nueva de RTT con su fuente (tab list, sonda de ping, TCP_INFO).
+ */
+@Name("clientreflex.RttSample")
+@Label("Muestra de RTT")
+@Category({"ClientReflex", "Red"})
+@Description("Muestra nueva de RTT con su fuente (tab list, sonda de ping, TCP_INFO).")
+@StackTrace(false)
+class RttSampleEvent extends Event {
+    @Label("Fuente")
+    String source;
+
+    @Label("RTT")
+    @Timespan(Timespan.MILLISECONDS)
+    long rtt;
+}
@@ -0,0 +1,26 @@
+package dev.zxnoragami.clientreflex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * El modo conexión débil se activó o se desactivó.
+ */
+@Name("clientreflex.WeakMode")
+@Label("Modo conexión débil")
+@Category({"ClientReflex", "Perfiles"})
+@Description("El modo conexión débil se activó o se desactivó.")
+@StackTrace(false)
+class WeakModeEvent extends Event {
+    @Label("Activo")
+    boolean active;
+
+    @Label("Ping de la decisión")
+    @Timespan(Timespan.MILLISECONDS)
+    long decisionPing;
+}
@@ -0,0 +1,364 @@
+package dev.zxnoragami.clientreflex.metrics;
+
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.client.WeakConnectionManager;
+import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.net.InboundBandwidthEstimator;
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
+import dev.zxnoragami.clientreflex.net.ServerTpsEstimator;
+import dev.zxnoragami.clientreflex.net.StallDetector;
+import dev.zxnoragami.clientreflex.perf.ClientPerformanceMonitor;
+import dev.zxnoragami.clientreflex.ping.PingMetrics;
+import dev.zxnoragami.clientreflex.ping.RollingLatencyHistogram;
+import dev.zxnoragami.clientreflex.prediction.PredictionManager;
+import dev.zxnoragami.clientreflex.prediction.PredictionTelemetry;
+import dev.zxnoragami.clientreflex.ui.AutoReconnectManager;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Exportador opcional de métricas en formato OpenMetrics (Prometheus) por HTTP,
+ * escuchando solo en la interfaz de loopback.
+ *
+ * El hilo del cliente compone la respuesta completa (cabeceras HTTP incluidas) una vez
+ * por segundo en {@link #tick()} y la publica en un campo volátil. Un único hilo virtual
+ * acepta las conexiones de una en una y escribe el último buffer publicado: un scrape
+ * nunca toca el estado del cliente ni espera al hilo del cliente, y los datos tienen
+ * como mucho un segundo de antigüedad.
+ *
+ * tick() también arranca, detiene o mueve el servidor cuando cambian metricsExporterEnabled
+ * o metricsExporterPort, así que una recarga de configuración se aplica sola.
+ */
+public class OpenMetricsExporter {
+    private static OpenMetricsExporter instance;
+
+    private static final long REFRESH_INTERVAL_MS = 1000;
+    private static final int REQUEST_TIMEOUT_MS = 2000;
+    private static final int MAX_REQUEST_BYTES = 8192;
+    private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    private static final byte[] NOT_FOUND = ("HTTP/1.1 404 Not Found\r\n"
+        + "Content-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    private static final double[] QUANTILES = {50.0, 90.0, 99.0, 99.9};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+    private static final RollingLatencyHistogram.Window[] WINDOWS = {
+        RollingLatencyHistogram.Window.TEN_SECONDS, RollingLatencyHistogram.Window.SIXTY_SECONDS};
+    private static final String[] WINDOW_LABELS = {"10s", "60s"};
+
+    private final OpenMetricsWriter writer = new OpenMetricsWriter();
+    private volatile byte[] response;
+    private ServerSocket serverSocket;
+    private int boundPort = -1;
+    private int failedPort = -1; // Puerto que no se pudo abrir: no reintentar cada tick
+    private long lastRefreshMs = 0;
+    private String modVersion;
+
+    private OpenMetricsExporter() {
+    }
+
+    public static OpenMetricsExporter getInstance() {
+        if (instance == null) {
+            instance = new OpenMetricsExporter();
+        }
+        return instance;
+    }
+
+    /**
+     * Sincroniza el servidor con la configuración y refresca el buffer una vez por segundo.
+     * Debe llamarse cada tick desde el hilo del cliente, también sin mundo cargado.
+     */
+    public void tick() {
+        var config = ClientReflexConfig.getConfig();
+        if (!config.metricsExporterEnabled) {
+            if (serverSocket != null) {
+                stop();
+            }
+            failedPort = -1;
+            return;
+        }
+        if (serverSocket != null && boundPort != config.metricsExporterPort) {
+            stop();
+        }
+        if (serverSocket == null) {
+            if (failedPort == config.metricsExporterPort) {
+                return;
+            }
+            if (!start(config.metricsExporterPort)) {
+                failedPort = config.metricsExporterPort;
+                return;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastRefreshMs >= REFRESH_INTERVAL_MS) {
+            lastRefreshMs = now;
+            response = render();
+        }
+    }
+
+    private boolean start(int port) {
+        try {
+            ServerSocket socket = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+            serverSocket = socket;
+            boundPort = port;
+            response = render();
+            lastRefreshMs = System.currentTimeMillis();
+            Thread.ofVirtual().name("ClientReflex-metrics").start(() -> serve(socket));
+            ClientReflexMod.LOGGER.info("Exportador de métricas en http://127.0.0.1:{}/metrics", port);
+            return true;
+        } catch (IOException e) {
+            ClientReflexMod.LOGGER.error("No se pudo abrir el puerto de métricas {}: ", port, e);
+            return false;
+        }
+    }
+
+    /**
+     * Cierra el servidor. El hilo virtual sale al fallar su accept().
+     */
+    public void stop() {
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                ClientReflexMod.LOGGER.debug("Error al cerrar el puerto de métricas: ", e);
+            }
+            ClientReflexMod.LOGGER.info("Exportador de métricas detenido");
+        }
+        serverSocket = null;
+        boundPort = -1;
+        response = null;
+    }
+
+    public boolean isRunning() {
+        return serverSocket != null;
+    }
+
+    // ===== Hilo virtual del servidor =====
+
+    private void serve(ServerSocket socket) {
+        byte[] request = new byte[MAX_REQUEST_BYTES];
+        while (!socket.isClosed()) {
+            try (Socket client = socket.accept()) {
+                client.setSoTimeout(REQUEST_TIMEOUT_MS);
+                boolean metricsPath = readRequest(client.getInputStream(), request);
+                byte[] body = response;
+                OutputStream out = client.getOutputStream();
+                out.write(metricsPath && body != null ? body : NOT_FOUND);
+                out.flush();
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    ClientReflexMod.LOGGER.debug("Error atendiendo un scrape de métricas: ", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lee la petición hasta la línea en blanco y devuelve si es un GET de /metrics (o /).
+     */
+    private static boolean readRequest(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+            if (endsHeaders(buffer, length)) {
+                break;
+            }
+        }
+        String requestLine = firstLine(buffer, length);
+        return requestLine.startsWith("GET /metrics ") || requestLine.startsWith("GET /metrics?")
+            || requestLine.startsWith("GET / ");
+    }
+
+    private static boolean endsHeaders(byte[] buffer, int length) {
+        for (int i = 3; i < length; i++) {
+            if (buffer[i - 3] == '\r' && buffer[i - 2] == '\n' && buffer[i - 1] == '\r' && buffer[i] == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String firstLine(byte[] buffer, int length) {
+        int end = 0;
+        while (end < length && buffer[end] != '\r' && buffer[end] != '\n') {
+            end++;
+        }
+        return new String(buffer, 0, end, StandardCharsets.US_ASCII);
+    }
+
+    // ===== Hilo del cliente: composición del buffer =====
+
+    private byte[] render() {
+        writer.reset();
+        writeInfo();
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        if (monitor != null) {
+            writeNetwork(monitor);
+        }
+        PingMetrics pingMetrics = ClientReflexClient.getPingMetrics();
+        if (pingMetrics != null) {
+            writePing(pingMetrics);
+        }
+        writePredictions(PredictionManager.getInstance().getTelemetry());
+        writeReconnects(AutoReconnectManager.getInstance());
+        writeClient(ClientPerformanceMonitor.getInstance());
+
+        byte[] body = writer.finish();
+        byte[] header = ("HTTP/1.1 200 OK\r\nContent-Type: " + CONTENT_TYPE
+            + "\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+        byte[] full = new byte[header.length + body.length];
+        System.arraycopy(header, 0, full, 0, header.length);
+        System.arraycopy(body, 0, full, header.length, body.length);
+        return full;
+    }
+
+    private void writeInfo() {
+        if (modVersion == null) {
+            modVersion = FabricLoader.getInstance().getModContainer(ClientReflexMod.MOD_ID)
+                .map(container -> container.getMetadata().getVersion().getFriendlyString())
+                .orElse("desconocida");
+        }
+        MinecraftClient client = MinecraftClient.getInstance();
+        // Sin el nombre del jugador: los scrapes se guardan y se comparten
+        writer.family("clientreflex_build", "info", null, "Versión del mod de este cliente.");
+        writer.sample("clientreflex_build_info", "version", modVersion, 1);
+        writer.family("clientreflex_connected", "gauge", null, "1 si el cliente está en un mundo.");
+        writer.sample("clientreflex_connected", client.world != null ? 1 : 0);
+    }
+
+    private void writeNetwork(NetworkMonitor monitor) {
+        writer.family("clientreflex_received_bytes", "counter", "bytes", "Bytes leídos del socket.");
+        writer.sample("clientreflex_received_bytes_total", monitor.getBytesReceived());
+        writer.family("clientreflex_sent_bytes", "counter", "bytes", "Bytes escritos hacia el socket.");
+        writer.sample("clientreflex_sent_bytes_total", monitor.getBytesSent());
+        writer.family("clientreflex_received_bytes_per_second", "gauge", null,
+            "Bytes por segundo leídos del socket en los últimos 10 s.");
+        writer.sample("clientreflex_received_bytes_per_second", monitor.getBytesReceivedPerSecond(10_000));
+        writer.family("clientreflex_sent_bytes_per_second", "gauge", null,
+            "Bytes por segundo escritos hacia el socket en los últimos 10 s.");
+        writer.sample("clientreflex_sent_bytes_per_second", monitor.getBytesSentPerSecond(10_000));
+        writer.family("clientreflex_received_packets", "counter", null, "Paquetes recibidos.");
+        writer.sample("clientreflex_received_packets_total", monitor.getTotalPacketsReceived());
+        writer.family("clientreflex_received_packets_per_second", "gauge", null,
+            "Paquetes recibidos por segundo en los últimos 10 s.");
+        writer.sample("clientreflex_received_packets_per_second", monitor.getPacketsPerSecond(10_000));
+
+        writer.family("clientreflex_ingestion_dropped_arrivals", "counter", null,
+            "Llegadas de paquetes que no cupieron en la cola de ingesta del event loop.");
+        writer.sample("clientreflex_ingestion_dropped_arrivals_total", monitor.getDroppedArrivals());
+        long pending = monitor.getOutboundPendingBytes();
+        if (pending >= 0) {
+            writer.family("clientreflex_outbound_pending_bytes", "gauge", "bytes",
+                "Bytes en la cola de salida de Netty pendientes de pasar al socket.");
+            writer.sample("clientreflex_outbound_pending_bytes", pending);
+        }
+        InboundBandwidthEstimator bandwidth = monitor.getInboundBandwidth();
+        long capacity = bandwidth.getCapacityBytesPerSecond();
+        if (capacity >= 0) {
+            writer.family("clientreflex_inbound_capacity_bytes_per_second", "gauge", null,
+                "Capacidad estimada del enlace de entrada (máximo de la tasa de entrega).");
+            writer.sample("clientreflex_inbound_capacity_bytes_per_second", "measured",
+                bandwidth.isCapacityMeasured() ? "true" : "false", capacity);
+        }
+        double utilization = bandwidth.getUtilization();
+        if (utilization >= 0) {
+            writer.family("clientreflex_inbound_utilization", "gauge", null,
+                "Tasa entregada en los últimos 2 s respecto a la capacidad medida.");
+            writer.sample("clientreflex_inbound_utilization", utilization);
+        }
+
+        StallDetector stalls = monitor.getStallDetector();
+        writer.family("clientreflex_stalls", "counter", null, "Silencios de entrada clasificados por causa.");
+        for (StallDetector.StallCause cause : StallDetector.StallCause.values()) {
+            writer.sample("clientreflex_stalls_total", "cause", cause.name().toLowerCase(), stalls.getCount(cause));
+        }
+
+        ServerTpsEstimator tps = monitor.getServerTpsEstimator();
+        if (tps.hasEstimate()) {
+            writer.family("clientreflex_server_tps", "gauge", null, "TPS del servidor estimados por el tiempo del mundo.");
+            writer.sample("clientreflex_server_tps", tps.getTps());
+        }
+        writer.family("clientreflex_weak_mode", "gauge", null, "1 si el modo conexión débil está activo.");
+        writer.sample("clientreflex_weak_mode", WeakConnectionManager.getInstance().isWeakConnectionMode() ? 1 : 0);
+    }
+
+    private void writePing(PingMetrics metrics) {
+        writer.family("clientreflex_rtt_seconds", "summary", "seconds", "RTT por ventana (todas las fuentes).");
+        writeQuantiles("clientreflex_rtt_seconds", metrics.getRttHistogram(), 1000.0);
+        if (metrics.hasSmoothedRtt()) {
+            writer.family("clientreflex_srtt_seconds", "gauge", "seconds", "RTT suavizado (SRTT, RFC 6298).");
+            writer.sample("clientreflex_srtt_seconds", metrics.getSmoothedRttMs() / 1000.0);
+            writer.family("clientreflex_rttvar_seconds", "gauge", "seconds", "Variación del RTT (RTTVAR, RFC 6298).");
+            writer.sample("clientreflex_rttvar_seconds", metrics.getRttVarianceMs() / 1000.0);
+        }
+        // Sin keep-alives aún no hay jitter de llegada: se omite en lugar de rellenarlo con
+        // RTTVAR, que ya se exporta con su propio nombre
+        if (metrics.hasInterarrivalJitter()) {
+            writer.family("clientreflex_jitter_seconds", "gauge", "seconds",
+                "Jitter de llegada de los keep-alive (RFC 3550).");
+            writer.sample("clientreflex_jitter_seconds", metrics.getInterarrivalJitterMs() / 1000.0);
+        }
+    }
+
+    private void writePredictions(PredictionTelemetry telemetry) {
+        writer.family("clientreflex_predictions", "counter", null, "Predicciones por tipo y resultado.");
+        for (Map.Entry<String, PredictionTelemetry.TypeStats> entry : telemetry.getAllStats().entrySet()) {
+            String type = entry.getKey();
+            PredictionTelemetry.TypeStats stats = entry.getValue();
+            writer.sample("clientreflex_predictions_total", "type", type, "outcome", "made", stats.predictions.get());
+            writer.sample("clientreflex_predictions_total", "type", type, "outcome", "confirmed", stats.successes.get());
+            writer.sample("clientreflex_predictions_total", "type", type, "outcome", "rolled_back", stats.rollbacks.get());
+            writer.sample("clientreflex_predictions_total", "type", type, "outcome", "expired", stats.expired.get());
+        }
+    }
+
+    private void writeReconnects(AutoReconnectManager reconnect) {
+        writer.family("clientreflex_reconnect_attempts", "counter", null, "Intentos de auto-reconexión ejecutados.");
+        writer.sample("clientreflex_reconnect_attempts_total", reconnect.getTotalAttempts());
+        writer.family("clientreflex_reconnect_outcomes", "counter", null, "Resultados de la auto-reconexión.");
+        writer.sample("clientreflex_reconnect_outcomes_total", "outcome", "connected", reconnect.getSuccessfulReconnects());
+        writer.sample("clientreflex_reconnect_outcomes_total", "outcome", "failed", reconnect.getFailedAttempts());
+        writer.sample("clientreflex_reconnect_outcomes_total", "outcome", "gave_up", reconnect.getExhaustedReconnects());
+    }
+
+    private void writeClient(ClientPerformanceMonitor performance) {
+        writer.family("clientreflex_frame_time_seconds", "summary", "seconds", "Tiempo entre frames por ventana.");
+        writeQuantiles("clientreflex_frame_time_seconds", performance.getFrameTimeHistogram(), 1_000_000.0);
+        writer.family("clientreflex_tick_time_seconds", "summary", "seconds", "Duración de los ticks del cliente por ventana.");
+        writeQuantiles("clientreflex_tick_time_seconds", performance.getTickTimeHistogram(), 1_000_000.0);
+        writer.family("clientreflex_gc_pause_seconds", "counter", "seconds", "Tiempo total en pausas de GC.");
+        writer.sample("clientreflex_gc_pause_seconds_total", performance.getGcPauseTotalMs() / 1000.0);
+    }
+
+    /**
+     * Cuantiles de las ventanas de 10 s y 60 s; divisor pasa la unidad del histograma a segundos.
+     */
+    private void writeQuantiles(String name, RollingLatencyHistogram histogram, double divisor) {
+        for (int w = 0; w < WINDOWS.length; w++) {
+            RollingLatencyHistogram.Window window = WINDOWS[w];
+            String windowLabel = WINDOW_LABELS[w];
+            long count = histogram.getCount(window);
+            if (count > 0) {
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    writer.sample(name, "window", windowLabel, "quantile", QUANTILE_LABELS[i],
+                        histogram.getPercentile(window, QUANTILES[i]) / divisor);
+                }
+            }
+            writer.sample(name + "_count", "window", windowLabel, count);
+        }
+    }
+}
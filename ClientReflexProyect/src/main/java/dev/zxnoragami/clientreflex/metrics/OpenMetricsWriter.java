@@ -0,0 +1,87 @@
+package dev.zxnoragami.clientreflex.metrics;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escritor mínimo del formato de texto OpenMetrics 1.0.
+ *
+ * Cada familia empieza con {@link #family} (TYPE, UNIT y HELP) y sigue con sus muestras.
+ * Los valores se escriben con Double.toString salvo los enteros, que van sin decimales.
+ * Reutiliza el mismo StringBuilder entre exportaciones; no es thread-safe.
+ */
+final class OpenMetricsWriter {
+    private final StringBuilder out = new StringBuilder(8192);
+
+    void reset() {
+        out.setLength(0);
+    }
+
+    /**
+     * Cabecera de una familia. unit puede ser null; si no, el nombre debe terminar en _unit.
+     */
+    void family(String name, String type, String unit, String help) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        if (unit != null) {
+            out.append("# UNIT ").append(name).append(' ').append(unit).append('\n');
+        }
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    void sample(String name, double value) {
+        out.append(name).append(' ');
+        appendValue(value);
+        out.append('\n');
+    }
+
+    void sample(String name, String label, String labelValue, double value) {
+        out.append(name).append('{');
+        appendLabel(label, labelValue);
+        out.append("} ");
+        appendValue(value);
+        out.append('\n');
+    }
+
+    void sample(String name, String label1, String value1, String label2, String value2, double value) {
+        out.append(name).append('{');
+        appendLabel(label1, value1);
+        out.append(',');
+        appendLabel(label2, value2);
+        out.append("} ");
+        appendValue(value);
+        out.append('\n');
+    }
+
+    private void appendLabel(String label, String value) {
+        out.append(label).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private void appendValue(double value) {
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    /**
+     * Cierra la exposición con "# EOF" y la devuelve en UTF-8.
+     */
+    byte[] finish() {
+        out.append("# EOF\n");
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
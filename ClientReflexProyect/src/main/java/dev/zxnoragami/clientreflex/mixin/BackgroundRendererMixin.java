@@ -0,0 +1,38 @@
+package dev.zxnoragami.clientreflex.mixin;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import dev.zxnoragami.clientreflex.client.ClientOptionsArbiter;
+import net.minecraft.block.enums.CameraSubmersionType;
+import net.minecraft.client.render.BackgroundRenderer;
+import net.minecraft.client.render.Camera;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.effect.StatusEffects;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para BackgroundRenderer que omite la niebla de distancia del terreno cuando el
+ * perfil de ping la desactiva. La niebla bajo el agua o la lava, la de biomas espesos y
+ * la de ceguera u oscuridad se mantienen: son parte de la jugabilidad.
+ */
+@Mixin(BackgroundRenderer.class)
+public class BackgroundRendererMixin {
+
+    @Inject(method = "applyFog", at = @At("TAIL"))
+    private static void onApplyFog(Camera camera, BackgroundRenderer.FogType fogType, float viewDistance,
+                                   boolean thickFog, float tickDelta, CallbackInfo ci) {
+        if (ClientOptionsArbiter.getInstance().getEffectiveValue(ClientOptionsArbiter.Option.FOG) >= 1.0
+            || fogType != BackgroundRenderer.FogType.FOG_TERRAIN || thickFog
+            || camera.getSubmersionType() != CameraSubmersionType.NONE) {
+            return;
+        }
+        if (camera.getFocusedEntity() instanceof LivingEntity living
+            && (living.hasStatusEffect(StatusEffects.BLINDNESS) || living.hasStatusEffect(StatusEffects.DARKNESS))) {
+            return;
+        }
+        // El shader no aplica niebla por debajo del inicio
+        RenderSystem.setShaderFogStart(Float.MAX_VALUE);
+    }
+}
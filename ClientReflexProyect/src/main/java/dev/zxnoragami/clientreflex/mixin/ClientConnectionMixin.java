@@ -2,7 +2,11 @@ package dev.zxnoragami.clientreflex.mixin;
 
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
 import dev.zxnoragami.clientreflex.net.ConfigurableReadTimeoutHandler;
+import dev.zxnoragami.clientreflex.net.InboundFrameSizeHandler;
+import dev.zxnoragami.clientreflex.net.InboundPacketHook;
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
 import dev.zxnoragami.clientreflex.net.RobustKeepAliveHandler;
+import dev.zxnoragami.clientreflex.net.TrafficCounterHandler;
 import dev.zxnoragami.clientreflex.net.PriorityPolicy;
 import dev.zxnoragami.clientreflex.net.antidisconnect.AntiDisconnectManager;
 import dev.zxnoragami.clientreflex.ping.PriorityWriteHandler;
@@ -14,7 +18,10 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import net.minecraft.network.ClientConnection;
+import net.minecraft.network.listener.ClientLoginPacketListener;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
@@ -29,9 +36,27 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
  * 3. Finalmente se añaden los handlers personalizados
  * 
  * Este mixin se ejecuta cuando se establece la conexión del cliente.
+ *
+ * La lista de servidores abre conexiones de estado (ping de cada entrada) a la vez que la
+ * del juego y en otros hilos del event loop. La ingesta del NetworkMonitor admite un solo
+ * escritor, así que lo que la alimenta (contador de bytes, tamaño de tramas, keep-alive y
+ * paquetes entrantes) solo se engancha a la conexión que inicia sesión: la del juego.
  */
 @Mixin(ClientConnection.class)
 public class ClientConnectionMixin {
+    @Shadow
+    private Channel channel;
+    
+    // connect() y channelActive llegan en hilos distintos y en cualquier orden
+    @Unique
+    private final Object clientreflex$gameLock = new Object();
+    @Unique
+    private boolean clientreflex$loginRequested;
+    @Unique
+    private Channel clientreflex$activeChannel;
+    // Si esta es la conexión del juego y ya tiene sus handlers de medida
+    @Unique
+    private volatile boolean clientreflex$gameChannel;
     
     /**
      * Configura el pipeline de Netty cuando se activa el canal.
@@ -40,8 +65,8 @@ public class ClientConnectionMixin {
      * Orden de ejecución garantizado:
      * 1. Configurar opciones de Netty (TCP_NODELAY, SO_KEEPALIVE)
      * 2. Reemplazar ReadTimeoutHandler con ConfigurableReadTimeoutHandler
-     * 3. Añadir RobustKeepAliveHandler
-     * 4. Añadir PriorityWriteHandler (si está habilitado)
+     * 3. Añadir PriorityWriteHandler (si está habilitado)
+     * 4. Si la conexión ya pidió iniciar sesión, los handlers de medida del juego
      * 
      * @param ctx El contexto del canal de Netty
      * @param ci Callback info
@@ -83,11 +108,7 @@ public class ClientConnectionMixin {
         pipeline.addBefore("packet_handler", "clientreflex_timeout", 
             new ConfigurableReadTimeoutHandler(timeoutSeconds));
         
-        // PASO 3: Añadir nuestro handler robusto de keep-alive
-        pipeline.addBefore("packet_handler", "clientreflex_keepalive", 
-            new RobustKeepAliveHandler());
-        
-        // PASO 4: Añadir el PriorityWriteHandler si está habilitado
+        // PASO 3: Añadir el PriorityWriteHandler si está habilitado
         if (config.enablePriorityWriteHandler) {
             if (pipeline.get("clientreflex_priority") == null) {
                 PriorityWriteHandler priorityHandler = new PriorityWriteHandler();
@@ -98,6 +119,14 @@ public class ClientConnectionMixin {
             }
         }
         
+        // PASO 4: Handlers de medida, solo en la conexión del juego
+        synchronized (clientreflex$gameLock) {
+            clientreflex$activeChannel = channel;
+            if (clientreflex$loginRequested) {
+                clientreflex$attachGameChannel(channel);
+            }
+        }
+        
         // Guardar información del servidor para AntiDisconnect
         MinecraftClient client = MinecraftClient.getInstance();
         if (client != null) {
@@ -109,14 +138,79 @@ public class ClientConnectionMixin {
     }
     
     /**
-     * Registra cuando se recibe un paquete para el monitor de red.
+     * Solo la conexión del juego inicia sesión; las de la lista de servidores consultan
+     * el estado. El canal puede no estar activo todavía: vanilla encola el handshake.
+     */
+    @Inject(method = "connect(Ljava/lang/String;ILnet/minecraft/network/listener/ClientLoginPacketListener;)V",
+        at = @At("HEAD"))
+    private void onConnectLogin(String address, int port, ClientLoginPacketListener listener, CallbackInfo ci) {
+        synchronized (clientreflex$gameLock) {
+            clientreflex$loginRequested = true;
+            if (clientreflex$activeChannel != null) {
+                clientreflex$attachGameChannel(clientreflex$activeChannel);
+            }
+        }
+    }
+    
+    /**
+     * Engancha a la conexión del juego lo que alimenta la ingesta del NetworkMonitor.
+     * Se llama con clientreflex$gameLock tomado, una vez por conexión.
+     */
+    @Unique
+    private void clientreflex$attachGameChannel(Channel channel) {
+        if (clientreflex$gameChannel) {
+            return;
+        }
+        ChannelPipeline pipeline = channel.pipeline();
+        
+        // Keep-alive en ambos sentidos, antes de que vanilla los procese
+        if (pipeline.get("clientreflex_keepalive") == null && pipeline.get("packet_handler") != null) {
+            pipeline.addBefore("packet_handler", "clientreflex_keepalive", new RobustKeepAliveHandler());
+        }
+        
+        // Contar los bytes del socket, antes del cifrado y la compresión
+        if (pipeline.get("clientreflex_traffic") == null) {
+            pipeline.addFirst("clientreflex_traffic", new TrafficCounterHandler());
+        }
+        
+        // Medir cada trama en el enlace, para atribuir bytes a los paquetes de chunks
+        if (pipeline.get("splitter") != null && pipeline.get(InboundFrameSizeHandler.NAME) == null) {
+            pipeline.addAfter("splitter", InboundFrameSizeHandler.NAME, new InboundFrameSizeHandler());
+        }
+        
+        // Canal para leer el RTT del kernel (TCP_INFO) desde el hilo del cliente
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        if (monitor != null) {
+            monitor.attachChannel(channel);
+        }
+        clientreflex$gameChannel = true;
+    }
+    
+    /**
+     * La compresión se añade justo después del splitter, por delante de nuestro handler de
+     * tramas: se vuelve a colocar entre ambos para que siga viendo el tamaño comprimido.
+     */
+    @Inject(method = "setCompressionThreshold", at = @At("TAIL"))
+    private void onSetCompressionThreshold(int compressionThreshold, boolean rejectsBadPackets, CallbackInfo ci) {
+        if (channel == null) {
+            return;
+        }
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.get("decompress") != null && pipeline.get(InboundFrameSizeHandler.NAME) != null) {
+            pipeline.addAfter("splitter", InboundFrameSizeHandler.NAME, pipeline.remove(InboundFrameSizeHandler.NAME));
+        }
+    }
+    
+    /**
+     * Registra cuando se recibe un paquete para el monitor de red (solo en la conexión
+     * del juego: la ingesta tiene un único escritor).
      */
     @Inject(method = "channelRead0", at = @At("HEAD"))
     private void onChannelRead(io.netty.channel.ChannelHandlerContext context, 
                               net.minecraft.network.packet.Packet<?> packet, 
                               CallbackInfo ci) {
-        if (ClientReflexClient.getNetworkMonitor() != null) {
-            ClientReflexClient.getNetworkMonitor().onPacketReceived();
+        if (clientreflex$gameChannel) {
+            InboundPacketHook.onPacket(packet);
         }
     }
 }
@@ -0,0 +1,104 @@
+package dev.zxnoragami.clientreflex.mixin;
+
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import dev.zxnoragami.clientreflex.client.ChunkRetentionCache;
+import dev.zxnoragami.clientreflex.client.ViewDistanceController;
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkLoadDistanceS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkRenderDistanceCenterS2CPacket;
+import net.minecraft.network.packet.s2c.play.GameJoinS2CPacket;
+import net.minecraft.network.packet.s2c.play.PlayerListS2CPacket;
+import net.minecraft.network.packet.s2c.play.PlayerRespawnS2CPacket;
+import net.minecraft.network.packet.s2c.play.UnloadChunkS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.UUID;
+
+/**
+ * Mixin para ClientPlayNetworkHandler que captura las actualizaciones de latencia
+ * de la tab list en el momento en que llegan.
+ * 
+ * Antes se leía la latencia de la tab list cada tick, lo que repetía el mismo valor
+ * ~20 veces por segundo entre actualizaciones del servidor. Aquí solo se registra
+ * cuando el servidor envía un valor nuevo para el jugador local.
+ *
+ * También avisa a {@link ChunkRetentionCache} de los chunks que se cargan y descargan,
+ * y a {@link ViewDistanceController} de la distancia del servidor, los saltos del centro
+ * de chunks y las recargas del mundo.
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public class ClientPlayNetworkHandlerMixin {
+    @Shadow
+    private ClientWorld world;
+    
+    /**
+     * Antes de que vanilla quite el chunk del mundo y borre su luz (ya en el hilo del
+     * cliente: la llamada va después de forceMainThread).
+     */
+    @Inject(method = "onUnloadChunk", at = @At(value = "INVOKE",
+        target = "Lnet/minecraft/client/world/ClientChunkManager;unload(Lnet/minecraft/util/math/ChunkPos;)V"))
+    private void onChunkUnload(UnloadChunkS2CPacket packet, CallbackInfo ci) {
+        ChunkRetentionCache.getInstance().onChunkUnload(world, packet.pos().x, packet.pos().z);
+    }
+    
+    @Inject(method = "onChunkData", at = @At("TAIL"))
+    private void onChunkDataApplied(ChunkDataS2CPacket packet, CallbackInfo ci) {
+        ChunkRetentionCache.getInstance().onChunkData(packet.getChunkX(), packet.getChunkZ());
+    }
+    
+    /**
+     * Al final de onGameJoin el mundo nuevo ya existe; el servidor enviará toda el área.
+     */
+    @Inject(method = "onGameJoin", at = @At("TAIL"))
+    private void onGameJoinApplied(GameJoinS2CPacket packet, CallbackInfo ci) {
+        ViewDistanceController controller = ViewDistanceController.getInstance();
+        controller.onServerViewDistance(packet.viewDistance());
+        controller.onWorldReload();
+    }
+    
+    @Inject(method = "onPlayerRespawn", at = @At("TAIL"))
+    private void onPlayerRespawnApplied(PlayerRespawnS2CPacket packet, CallbackInfo ci) {
+        ViewDistanceController.getInstance().onWorldReload();
+    }
+    
+    @Inject(method = "onChunkLoadDistance", at = @At("TAIL"))
+    private void onChunkLoadDistanceApplied(ChunkLoadDistanceS2CPacket packet, CallbackInfo ci) {
+        ViewDistanceController.getInstance().onServerViewDistance(packet.getDistance());
+    }
+    
+    @Inject(method = "onChunkRenderDistanceCenter", at = @At("TAIL"))
+    private void onChunkCenterApplied(ChunkRenderDistanceCenterS2CPacket packet, CallbackInfo ci) {
+        ViewDistanceController.getInstance().onChunkCenter(packet.getChunkX(), packet.getChunkZ());
+    }
+    
+    /**
+     * Al final de onPlayerList el paquete ya se aplicó en el hilo del cliente
+     * (en el event loop, forceMainThread corta antes de llegar aquí).
+     */
+    @Inject(method = "onPlayerList", at = @At("TAIL"))
+    private void onPlayerListApplied(PlayerListS2CPacket packet, CallbackInfo ci) {
+        if (!packet.getActions().contains(PlayerListS2CPacket.Action.UPDATE_LATENCY)) {
+            return;
+        }
+        
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        if (monitor == null) {
+            return;
+        }
+        
+        UUID self = ((ClientPlayNetworkHandler) (Object) this).getProfile().getId();
+        for (PlayerListS2CPacket.Entry entry : packet.getEntries()) {
+            if (self.equals(entry.profileId())) {
+                monitor.onTabListLatency(entry.latency());
+                return;
+            }
+        }
+    }
+}
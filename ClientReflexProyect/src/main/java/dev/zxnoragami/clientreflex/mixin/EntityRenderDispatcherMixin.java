@@ -0,0 +1,26 @@
+package dev.zxnoragami.clientreflex.mixin;
+
+import dev.zxnoragami.clientreflex.client.EntityRenderLimiter;
+import net.minecraft.client.render.Frustum;
+import net.minecraft.client.render.entity.EntityRenderDispatcher;
+import net.minecraft.entity.Entity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Mixin para EntityRenderDispatcher que aplica el límite de entidades dibujadas.
+ * Solo recorta entidades que vanilla ya iba a dibujar (visibles en el frustum).
+ */
+@Mixin(EntityRenderDispatcher.class)
+public class EntityRenderDispatcherMixin {
+
+    @Inject(method = "shouldRender", at = @At("RETURN"), cancellable = true)
+    private void onShouldRender(Entity entity, Frustum frustum, double x, double y, double z,
+                                CallbackInfoReturnable<Boolean> cir) {
+        if (cir.getReturnValue() && !EntityRenderLimiter.getInstance().allow(entity, x, y, z)) {
+            cir.setReturnValue(false);
+        }
+    }
+}
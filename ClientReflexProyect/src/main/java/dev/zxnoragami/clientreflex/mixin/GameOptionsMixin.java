@@ -0,0 +1,28 @@
+package dev.zxnoragami.clientreflex.mixin;
+
+import dev.zxnoragami.clientreflex.client.ClientOptionsArbiter;
+import net.minecraft.client.option.GameOptions;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para GameOptions que guarda en options.txt los valores del jugador y no los
+ * reducidos por ClientReflex. Los aplicados se reponen antes de enviar las opciones al
+ * servidor, que debe seguir viendo la distancia reducida.
+ */
+@Mixin(GameOptions.class)
+public class GameOptionsMixin {
+
+    @Inject(method = "write", at = @At("HEAD"))
+    private void onWriteStart(CallbackInfo ci) {
+        ClientOptionsArbiter.getInstance().beforeOptionsWrite((GameOptions) (Object) this);
+    }
+
+    @Inject(method = "write", at = @At(value = "INVOKE",
+        target = "Lnet/minecraft/client/option/GameOptions;sendClientSettings()V"))
+    private void onWriteEnd(CallbackInfo ci) {
+        ClientOptionsArbiter.getInstance().afterOptionsWrite((GameOptions) (Object) this);
+    }
+}
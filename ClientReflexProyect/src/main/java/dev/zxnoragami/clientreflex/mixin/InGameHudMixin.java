@@ -0,0 +1,46 @@
+package dev.zxnoragami.clientreflex.mixin;
+
+import dev.zxnoragami.clientreflex.client.ClientOptionsArbiter;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.gui.hud.InGameHud;
+import net.minecraft.entity.Entity;
+import net.minecraft.world.border.WorldBorder;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para InGameHud que omite la viñeta de oscuridad cuando el perfil de ping la
+ * desactiva.
+ *
+ * Vanilla dibuja en la misma pasada el aviso rojo del borde del mundo, que sustituye a la
+ * oscuridad cerca del borde: en ese caso se deja dibujar, porque avisa de daño.
+ */
+@Mixin(InGameHud.class)
+public class InGameHudMixin {
+
+    @Inject(method = "renderVignetteOverlay", at = @At("HEAD"), cancellable = true)
+    private void onRenderVignette(DrawContext context, Entity entity, CallbackInfo ci) {
+        if (ClientOptionsArbiter.getInstance().getEffectiveValue(ClientOptionsArbiter.Option.VIGNETTE) < 1.0
+                && !isWorldBorderWarning(entity)) {
+            ci.cancel();
+        }
+    }
+
+    /**
+     * Misma condición que usa vanilla para teñir la viñeta con el aviso del borde.
+     */
+    private static boolean isWorldBorderWarning(Entity entity) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (entity == null || client.world == null) {
+            return false;
+        }
+        WorldBorder border = client.world.getWorldBorder();
+        double distance = border.getDistanceInsideBorder(entity);
+        double shrinking = Math.min(border.getShrinkingSpeed() * border.getWarningTime() * 1000.0,
+            Math.abs(border.getSizeLerpTarget() - border.getSize()));
+        return distance < Math.max(border.getWarningBlocks(), shrinking);
+    }
+}
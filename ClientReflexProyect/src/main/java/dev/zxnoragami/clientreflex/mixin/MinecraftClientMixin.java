@@ -0,0 +1,26 @@
+package dev.zxnoragami.clientreflex.mixin;
+
+import dev.zxnoragami.clientreflex.client.EntityRenderLimiter;
+import dev.zxnoragami.clientreflex.perf.ClientPerformanceMonitor;
+import net.minecraft.client.MinecraftClient;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para MinecraftClient que mide el tiempo entre frames.
+ * Se engancha al bucle de render y no al HUD, que no se dibuja con F1 ni en menús.
+ */
+@Mixin(MinecraftClient.class)
+public class MinecraftClientMixin {
+
+    /**
+     * Marca el inicio de cada frame y calcula el corte del límite de entidades.
+     */
+    @Inject(method = "render", at = @At("HEAD"))
+    private void onRenderStart(boolean tick, CallbackInfo ci) {
+        ClientPerformanceMonitor.getInstance().onFrameStart();
+        EntityRenderLimiter.getInstance().beginFrame();
+    }
+}
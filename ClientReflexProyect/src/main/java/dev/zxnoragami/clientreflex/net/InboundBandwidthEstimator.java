@@ -0,0 +1,283 @@
+package dev.zxnoragami.clientreflex.net;
+
+import java.util.Arrays;
+
+/**
+ * Estimador de la capacidad del enlace de entrada al estilo de BBR.
+ *
+ * Cada SAMPLE_INTERVAL_MS toma una muestra de tasa de entrega: bytes leídos del socket
+ * divididos por el tiempo en que el enlace estuvo ocupado, descontando los huecos en
+ * los que el servidor no tenía nada que enviar y los bytes de la lectura que cierra
+ * cada hueco (los mide el event loop, ver {@link NettyIngestion#onBytesReceived}). Las
+ * muestras empiezan y acaban en una lectura del socket, no en el tick: así ningún hueco
+ * queda repartido entre dos muestras ni cuenta como ocupado el rato sin lecturas que
+ * precede al cierre. La capacidad es el máximo de las muestras en una ventana
+ * deslizante ({@link WindowedMaxFilter}).
+ *
+ * Una muestra con huecos está limitada por la aplicación: el servidor no llenaba el
+ * enlace, así que su tasa solo dice que la capacidad es al menos esa. Esas muestras no
+ * entran en el filtro de la capacidad sino en otro de cota inferior, que solo se usa
+ * mientras no hay ninguna medida; así una ráfaga corta no pasa por capacidad medida y,
+ * cuando el tráfico baja (sin carga de chunks), la medida no se degrada hacia la tasa de
+ * juego normal.
+ *
+ * La utilización es la tasa entregada en los últimos UTILIZATION_WINDOW_MS respecto a la
+ * capacidad: cerca de 1 el enlace está lleno, aunque el RTT aún no lo refleje.
+ *
+ * Al conectar se puede sembrar la capacidad aprendida del servidor ({@link #seed}). No
+ * entra en los filtros: cuenta junto a ellos durante una ventana y después se descarta,
+ * haya o no muestras propias que la sustituyan. Dentro de un filtro no caducaría en un
+ * enlace que nunca se llena, porque el filtro solo expira al recibir muestras. Lo que
+ * se guarda al final de la sesión sale solo de las muestras propias
+ * ({@link #getSessionCapacityBytesPerSecond}), no de la semilla.
+ *
+ * No es thread-safe: se usa solo desde el hilo del cliente.
+ */
+public class InboundBandwidthEstimator {
+    public static final long SAMPLE_INTERVAL_MS = 250;
+    // Por debajo de esto el tiempo ocupado es demasiado corto para medir la tasa
+    private static final long MIN_BUSY_MS = 20;
+    private static final long MIN_SAMPLE_BYTES = 4096;
+    private static final long UTILIZATION_WINDOW_MS = 2000;
+    private static final int UTILIZATION_SAMPLES = (int) (UTILIZATION_WINDOW_MS / SAMPLE_INTERVAL_MS);
+
+    // Muestras con el enlace lleno
+    private final WindowedMaxFilter capacityFilter;
+    // Muestras limitadas por la aplicación
+    private final WindowedMaxFilter lowerBoundFilter;
+    private long capacityWindowMs;
+
+    // Capacidad sembrada (0 si no hay o ya caducó)
+    private long seedBytesPerSecond = 0;
+    private boolean seedMeasured = false;
+    private long seedExpiresAtMs = 0;
+
+    // Muestra en curso: empieza en la hora del tick y en la última lectura del socket
+    private long sampleStartMs = -1;
+    private long sampleStartBytes = 0;
+    private long sampleStartIdleNanos = 0;
+    private long sampleStartIdleBytes = 0;
+    private long sampleStartReadNanos = 0;
+
+    // Últimas muestras (bytes y duración) para la utilización, en un buffer circular
+    private final long[] recentBytes = new long[UTILIZATION_SAMPLES];
+    private final long[] recentDurationsMs = new long[UTILIZATION_SAMPLES];
+    private int recentIndex = 0;
+
+    private long lastRateBytesPerSecond = 0;
+    private boolean lastAppLimited = true;
+    private long samples = 0;
+    private long pipeLimitedSamples = 0;
+
+    public InboundBandwidthEstimator(long capacityWindowMs) {
+        this.capacityFilter = new WindowedMaxFilter(capacityWindowMs);
+        this.lowerBoundFilter = new WindowedMaxFilter(capacityWindowMs);
+        this.capacityWindowMs = capacityWindowMs;
+    }
+
+    /**
+     * Cambia la ventana del máximo (la configuración puede recargarse en caliente).
+     */
+    public void setCapacityWindowMs(long windowMs) {
+        capacityFilter.setWindowMs(windowMs);
+        lowerBoundFilter.setWindowMs(windowMs);
+        capacityWindowMs = windowMs;
+    }
+
+    /**
+     * Avanza con los contadores acumulados de la ingesta. Debe llamarse cada tick; cierra
+     * una muestra cuando pasa SAMPLE_INTERVAL_MS.
+     *
+     * @param totalBytes     bytes leídos del socket desde el inicio
+     * @param totalIdleNanos tiempo de entrada ociosa acumulado desde el inicio
+     * @param totalIdleBytes bytes de las lecturas que cerraron un hueco ocioso, desde el inicio
+     * @param lastReadNanos  instante (System.nanoTime) de la última lectura; 0 si aún no hubo
+     */
+    public void update(long nowMs, long totalBytes, long totalIdleNanos, long totalIdleBytes, long lastReadNanos) {
+        if (seedBytesPerSecond > 0 && nowMs >= seedExpiresAtMs) {
+            seedBytesPerSecond = 0;
+        }
+        if (sampleStartMs < 0) {
+            startSample(nowMs, totalBytes, totalIdleNanos, totalIdleBytes, lastReadNanos);
+            return;
+        }
+        long elapsedMs = nowMs - sampleStartMs;
+        if (elapsedMs < SAMPLE_INTERVAL_MS) {
+            return;
+        }
+
+        // La utilización usa el reloj del tick, con los huecos incluidos
+        recentBytes[recentIndex] = totalBytes - sampleStartBytes;
+        recentDurationsMs[recentIndex] = elapsedMs;
+        recentIndex = (recentIndex + 1) % UTILIZATION_SAMPLES;
+
+        if (sampleStartReadNanos == 0 || lastReadNanos == sampleStartReadNanos) {
+            // Sin lecturas nuevas no hay tasa que medir: los contadores no cambiaron
+            startSample(nowMs, totalBytes, totalIdleNanos, totalIdleBytes, lastReadNanos);
+            return;
+        }
+        long delivered = (totalBytes - sampleStartBytes) - (totalIdleBytes - sampleStartIdleBytes);
+        long idleNanos = totalIdleNanos - sampleStartIdleNanos;
+        long busyNanos = lastReadNanos - sampleStartReadNanos - idleNanos;
+        startSample(nowMs, totalBytes, totalIdleNanos, totalIdleBytes, lastReadNanos);
+
+        if (delivered < MIN_SAMPLE_BYTES || busyNanos < MIN_BUSY_MS * 1_000_000) {
+            return;
+        }
+        long rate = delivered * 1_000_000_000L / busyNanos;
+        boolean appLimited = idleNanos > 0;
+        samples++;
+        lastRateBytesPerSecond = rate;
+        lastAppLimited = appLimited;
+        if (appLimited) {
+            lowerBoundFilter.update(rate, nowMs);
+        } else {
+            pipeLimitedSamples++;
+            capacityFilter.update(rate, nowMs);
+        }
+    }
+
+    /**
+     * Siembra la capacidad aprendida en sesiones anteriores con el mismo servidor. Cuenta
+     * durante una ventana del máximo.
+     *
+     * @param measured si era una medida (con el enlace lleno) y no solo una cota inferior
+     */
+    public void seed(long capacityBytesPerSecond, boolean measured, long nowMs) {
+        if (capacityBytesPerSecond <= 0) {
+            return;
+        }
+        seedBytesPerSecond = capacityBytesPerSecond;
+        seedMeasured = measured;
+        seedExpiresAtMs = nowMs + capacityWindowMs;
+    }
+
+    private void startSample(long nowMs, long totalBytes, long totalIdleNanos, long totalIdleBytes, long lastReadNanos) {
+        sampleStartMs = nowMs;
+        sampleStartBytes = totalBytes;
+        sampleStartIdleNanos = totalIdleNanos;
+        sampleStartIdleBytes = totalIdleBytes;
+        sampleStartReadNanos = lastReadNanos;
+    }
+
+    /**
+     * Capacidad estimada en bytes/s, o -1 si aún no hay muestras.
+     * Si {@link #isCapacityMeasured()} es false es solo una cota inferior.
+     */
+    public long getCapacityBytesPerSecond() {
+        long seed = seedBytesPerSecond > 0 ? seedBytesPerSecond : -1;
+        if (!capacityFilter.isEmpty()) {
+            return Math.max(capacityFilter.get(), seedMeasured ? seed : -1);
+        }
+        if (seed > 0 && seedMeasured) {
+            return seed;
+        }
+        return Math.max(lowerBoundFilter.isEmpty() ? -1 : lowerBoundFilter.get(), seed);
+    }
+
+    /**
+     * Si alguna muestra llenó el enlace (o hay una medida sembrada vigente): entonces la
+     * capacidad es una medida y no solo una cota inferior.
+     */
+    public boolean isCapacityMeasured() {
+        return !capacityFilter.isEmpty() || (seedBytesPerSecond > 0 && seedMeasured);
+    }
+
+    /**
+     * Capacidad en bytes/s según las muestras de esta conexión, sin la semilla; -1 si aún
+     * no hay. Es lo que se guarda para la próxima sesión.
+     */
+    public long getSessionCapacityBytesPerSecond() {
+        if (!capacityFilter.isEmpty()) {
+            return capacityFilter.get();
+        }
+        return lowerBoundFilter.isEmpty() ? -1 : lowerBoundFilter.get();
+    }
+
+    /**
+     * Si alguna muestra de esta conexión llenó el enlace.
+     */
+    public boolean isSessionCapacityMeasured() {
+        return !capacityFilter.isEmpty();
+    }
+
+    /**
+     * Capacidad medida en bytes/s, o -1 si aún no se llenó el enlace.
+     */
+    public long getMeasuredCapacityBytesPerSecond() {
+        return isCapacityMeasured() ? capacityFilter.get() : -1;
+    }
+
+    /**
+     * Bytes/s entregados en los últimos ~2 s, con los huecos incluidos.
+     */
+    public double getDeliveryRateBytesPerSecond() {
+        long bytes = 0;
+        long durationMs = 0;
+        for (int i = 0; i < UTILIZATION_SAMPLES; i++) {
+            bytes += recentBytes[i];
+            durationMs += recentDurationsMs[i];
+        }
+        return durationMs == 0 ? 0.0 : bytes * 1000.0 / durationMs;
+    }
+
+    /**
+     * Tasa entregada reciente respecto a la capacidad medida (0-1, puede pasarse un poco
+     * por el ruido), o -1 si la capacidad aún no se midió.
+     */
+    public double getUtilization() {
+        long capacity = getMeasuredCapacityBytesPerSecond();
+        return capacity <= 0 ? -1 : getDeliveryRateBytesPerSecond() / capacity;
+    }
+
+    /**
+     * Si el enlace está lleno: la utilización reciente alcanza el umbral dado.
+     */
+    public boolean isSaturated(double utilizationThreshold) {
+        return getUtilization() >= utilizationThreshold;
+    }
+
+    /**
+     * Tasa de la última muestra válida (bytes/s, sin huecos).
+     */
+    public long getLastSampleBytesPerSecond() {
+        return lastRateBytesPerSecond;
+    }
+
+    /**
+     * Si la última muestra válida estuvo limitada por la aplicación.
+     */
+    public boolean isLastSampleAppLimited() {
+        return lastAppLimited;
+    }
+
+    /**
+     * Muestras válidas y cuántas llenaron el enlace.
+     */
+    public long getSampleCount() {
+        return samples;
+    }
+
+    public long getPipeLimitedSampleCount() {
+        return pipeLimitedSamples;
+    }
+
+    /**
+     * Olvida la capacidad (conexión nueva: puede ser otro enlace u otro servidor).
+     */
+    public void reset() {
+        capacityFilter.clear();
+        lowerBoundFilter.clear();
+        seedBytesPerSecond = 0;
+        seedMeasured = false;
+        sampleStartMs = -1;
+        sampleStartReadNanos = 0;
+        Arrays.fill(recentBytes, 0);
+        Arrays.fill(recentDurationsMs, 0);
+        recentIndex = 0;
+        lastRateBytesPerSecond = 0;
+        lastAppLimited = true;
+        samples = 0;
+        pipeLimitedSamples = 0;
+    }
+}
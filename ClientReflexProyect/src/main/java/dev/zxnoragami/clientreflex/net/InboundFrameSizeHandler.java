@@ -0,0 +1,41 @@
+package dev.zxnoragami.clientreflex.net;
+
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * Handler que mide el tamaño en el enlace de cada trama entrante.
+ *
+ * Va justo después del "splitter" y antes del "decompress", así que ve cada paquete
+ * ya separado y descifrado pero aún comprimido: su tamaño, más el prefijo de longitud
+ * que quitó el splitter, es lo que ocupó en el enlace (el cifrado no cambia el tamaño).
+ * Aquí no se sabe de qué paquete se trata; InboundPacketHook atribuye la trama cuando
+ * recibe el paquete decodificado.
+ *
+ * Se ejecuta en el event loop de Netty una vez por paquete y no asigna memoria.
+ */
+public class InboundFrameSizeHandler extends ChannelInboundHandlerAdapter {
+    public static final String NAME = "clientreflex_frames";
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ByteBuf buf) {
+            NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+            if (monitor != null) {
+                int length = buf.readableBytes();
+                monitor.onFrameReceived(length + varIntSize(length));
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+}
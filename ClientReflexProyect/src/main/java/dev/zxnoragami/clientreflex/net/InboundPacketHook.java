@@ -0,0 +1,50 @@
+package dev.zxnoragami.clientreflex.net;
+
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.common.KeepAliveS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkBiomeDataS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
+import net.minecraft.network.packet.s2c.play.LightUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.WorldTimeUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.query.PingResultS2CPacket;
+
+/**
+ * Punto de entrada único para cada paquete entrante ya decodificado.
+ * 
+ * ClientConnectionMixin lo llama desde channelRead0, en el event loop de Netty,
+ * una vez por paquete. Está separado del mixin para que la prueba de presupuesto
+ * de asignación pueda ejecutar exactamente el mismo código fuera del juego.
+ * 
+ * IMPORTANTE: Se ejecuta por cada paquete recibido, así que no debe asignar memoria
+ * ni bloquear: cualquier basura aquí termina apareciendo como pausas de GC (picos de ping).
+ */
+public final class InboundPacketHook {
+    private InboundPacketHook() {
+    }
+    
+    /**
+     * Registra un paquete entrante en el monitor de red.
+     * Las respuestas a sondas de ping se miden aquí, antes de pasar por la cola del
+     * hilo del cliente, para que el RTT no incluya esa espera. Los paquetes de chunks
+     * se cuentan con el tamaño de su trama para medir cuánto enlace ocupa la distancia
+     * de renderizado.
+     */
+    public static void onPacket(Packet<?> packet) {
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        if (monitor != null) {
+            monitor.onPacketReceived();
+            if (packet instanceof PingResultS2CPacket pingResult) {
+                monitor.onPingResult(pingResult.startTime());
+            } else if (packet instanceof KeepAliveS2CPacket keepAlive) {
+                monitor.onKeepAliveId(keepAlive.getId());
+            } else if (packet instanceof WorldTimeUpdateS2CPacket worldTime) {
+                monitor.onWorldTimeUpdate(worldTime.getTime());
+            } else if (packet instanceof ChunkDataS2CPacket) {
+                monitor.onChunkPacketReceived(true);
+            } else if (packet instanceof LightUpdateS2CPacket || packet instanceof ChunkBiomeDataS2CPacket) {
+                monitor.onChunkPacketReceived(false);
+            }
+        }
+    }
+}
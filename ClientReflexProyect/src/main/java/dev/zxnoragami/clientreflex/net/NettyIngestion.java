@@ -0,0 +1,299 @@
+package dev.zxnoragami.clientreflex.net;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongConsumer;
+
+/**
+ * Punto de ingesta de métricas escritas desde el event loop de Netty.
+ * 
+ * Diseño de escritor único: solo el event loop escribe aquí y solo el hilo del
+ * cliente lee. Las muestras que no pueden perderse (RTT de las sondas de ping, tránsito
+ * de los keep-alive, tiempo del mundo, instantes de llegada de paquetes) pasan por colas SPSC; los contadores sueltos se publican con
+ * un seqlock para que el lector vea siempre un conjunto coherente. No hay locks ni
+ * asignaciones en el lado del productor.
+ * 
+ * La única excepción al sentido único es la pista de capacidad del enlace, que el hilo
+ * del cliente publica para que el event loop distinga los huecos de entrada ociosa.
+ */
+public final class NettyIngestion {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    
+    // Campos del seqlock, precedidos y seguidos de relleno para no compartir línea de caché
+    private static final int PAD = 16;
+    private static final int SEQUENCE = PAD;
+    private static final int PACKETS_RECEIVED = PAD + 1;
+    private static final int LAST_PACKET_RECEIVED_MS = PAD + 2;
+    private static final int LAST_KEEP_ALIVE_SENT_MS = PAD + 3;
+    private static final int LAST_KEEP_ALIVE_RECEIVED_MS = PAD + 4;
+    private static final int DROPPED_ARRIVALS = PAD + 5;
+    private static final int BYTES_RECEIVED = PAD + 6;
+    private static final int BYTES_SENT = PAD + 7;
+    private static final int RECEIVE_IDLE_NANOS = PAD + 8;
+    private static final int CHUNK_BYTES_RECEIVED = PAD + 9;
+    private static final int CHUNKS_RECEIVED = PAD + 10;
+    private static final int OUTBOUND_PENDING_BYTES = PAD + 11;
+    private static final int RECEIVE_IDLE_BYTES = PAD + 12;
+    private static final int LAST_READ_NANOS = PAD + 13;
+    
+    // ~1.6 s de tráfico a 10k paquetes/s sin que el hilo del cliente drene
+    private static final int ARRIVAL_CAPACITY = 16384;
+    // Una sonda cada pocos segundos (más las de la gráfica F3): nunca debería llenarse
+    private static final int RTT_CAPACITY = 256;
+    // Sin capacidad conocida, un hueco entre lecturas de más de 20 ms es entrada ociosa:
+    // con el enlace lleno, desde ~0.6 Mbit/s llega al menos un segmento cada 20 ms
+    private static final long DEFAULT_IDLE_GAP_NANOS = 20_000_000L;
+    // Con capacidad conocida, el hueco debe superar el doble de lo que tarda en llegar la lectura
+    private static final long MIN_IDLE_GAP_NANOS = 5_000_000L;
+    
+    private final long[] state = new long[PAD * 3];
+    private final SpscLongRing arrivals = new SpscLongRing(ARRIVAL_CAPACITY);
+    private final SpscLongRing rttSamples = new SpscLongRing(RTT_CAPACITY);
+    private final SpscLongRing keepAliveTransits = new SpscLongRing(RTT_CAPACITY);
+    // Pares (llegada, tiempo del mundo); uno por segundo
+    private final SpscLongRing worldTimes = new SpscLongRing(RTT_CAPACITY);
+    
+    // Solo del event loop: instante de la última lectura del socket
+    private long lastReadNanos = 0;
+    // Solo del event loop: tamaño en el enlace de la última trama, que es la del paquete que se decodifica
+    private long lastFrameBytes = 0;
+    // Escrita por el hilo del cliente: capacidad medida en bytes/s (0 = desconocida)
+    private volatile long capacityHintBytesPerSecond = 0;
+    
+    /**
+     * Copia coherente de los contadores escritos por el event loop.
+     * El lector la reutiliza para no asignar en cada lectura.
+     */
+    public static final class Snapshot {
+        public long packetsReceived;
+        public long lastPacketReceivedMs;
+        public long lastKeepAliveSentMs;
+        public long lastKeepAliveReceivedMs;
+        public long droppedArrivals;
+        public long bytesReceived;
+        public long bytesSent;
+        public long receiveIdleNanos;
+        public long receiveIdleBytes;
+        public long lastReadNanos;
+        public long chunkBytesReceived;
+        public long chunksReceived;
+        public long outboundPendingBytes;
+    }
+    
+    public NettyIngestion(long nowMs) {
+        state[LAST_PACKET_RECEIVED_MS] = nowMs;
+    }
+    
+    // ===== Lado productor (event loop de Netty) =====
+    
+    /**
+     * Registra la llegada de un paquete.
+     */
+    public void onPacketReceived(long nowMs) {
+        boolean queued = arrivals.offer(nowMs);
+        beginWrite();
+        LONGS.setOpaque(state, PACKETS_RECEIVED, state[PACKETS_RECEIVED] + 1);
+        LONGS.setOpaque(state, LAST_PACKET_RECEIVED_MS, nowMs);
+        if (!queued) {
+            // El conteo total sigue siendo exacto; solo se pierde el instante de llegada
+            LONGS.setOpaque(state, DROPPED_ARRIVALS, state[DROPPED_ARRIVALS] + 1);
+        }
+        endWrite();
+    }
+    
+    /**
+     * Registra el envío de un keep-alive.
+     */
+    public void onKeepAliveSent(long nowMs) {
+        beginWrite();
+        LONGS.setOpaque(state, LAST_KEEP_ALIVE_SENT_MS, nowMs);
+        endWrite();
+    }
+    
+    /**
+     * Registra la recepción de un keep-alive.
+     */
+    public void onKeepAliveReceived(long nowMs) {
+        beginWrite();
+        LONGS.setOpaque(state, LAST_KEEP_ALIVE_RECEIVED_MS, nowMs);
+        endWrite();
+    }
+    
+    /**
+     * Suma los bytes leídos del socket (antes de descomprimir y descifrar) y publica el
+     * instante de la lectura. Si el hueco desde la lectura anterior es más largo de lo que
+     * el enlace tarda en entregar estos bytes, el servidor no tenía nada que enviar: el
+     * hueco entero cuenta como entrada ociosa y estos bytes también se apartan, porque no
+     * se sabe cuánto del hueco tardaron en llegar (como en BBR, la medida empieza con la
+     * lectura que cierra el hueco). Lo usa {@link InboundBandwidthEstimator} para
+     * descartar los periodos limitados por la aplicación.
+     */
+    public void onBytesReceived(long bytes, long nowNanos) {
+        long idleNanos = 0;
+        if (lastReadNanos != 0) {
+            long gap = nowNanos - lastReadNanos;
+            long capacity = capacityHintBytesPerSecond;
+            long expected = capacity > 0 ? bytes * 1_000_000_000L / capacity : 0;
+            long threshold = capacity > 0 ? Math.max(MIN_IDLE_GAP_NANOS, 2 * expected) : DEFAULT_IDLE_GAP_NANOS;
+            if (gap > threshold) {
+                idleNanos = gap;
+            }
+        }
+        lastReadNanos = nowNanos;
+        beginWrite();
+        LONGS.setOpaque(state, BYTES_RECEIVED, state[BYTES_RECEIVED] + bytes);
+        LONGS.setOpaque(state, LAST_READ_NANOS, nowNanos);
+        if (idleNanos > 0) {
+            LONGS.setOpaque(state, RECEIVE_IDLE_NANOS, state[RECEIVE_IDLE_NANOS] + idleNanos);
+            LONGS.setOpaque(state, RECEIVE_IDLE_BYTES, state[RECEIVE_IDLE_BYTES] + bytes);
+        }
+        endWrite();
+    }
+    
+    /**
+     * Registra el tamaño en el enlace (comprimido) de una trama recién separada del flujo.
+     * El pipeline decodifica cada trama de forma síncrona, así que el siguiente paquete
+     * que llegue al hook es el de esta trama.
+     */
+    public void onFrameReceived(long wireBytes) {
+        lastFrameBytes = wireBytes;
+    }
+    
+    /**
+     * Atribuye la última trama a los datos de chunks (chunk, luz o biomas).
+     *
+     * @param fullChunk si es un chunk completo, para el tamaño medio por chunk
+     */
+    public void onChunkPacket(boolean fullChunk) {
+        beginWrite();
+        LONGS.setOpaque(state, CHUNK_BYTES_RECEIVED, state[CHUNK_BYTES_RECEIVED] + lastFrameBytes);
+        if (fullChunk) {
+            LONGS.setOpaque(state, CHUNKS_RECEIVED, state[CHUNKS_RECEIVED] + 1);
+        }
+        endWrite();
+    }
+    
+    /**
+     * Suma los bytes escritos hacia el socket.
+     */
+    public void onBytesSent(long bytes) {
+        beginWrite();
+        LONGS.setOpaque(state, BYTES_SENT, state[BYTES_SENT] + bytes);
+        endWrite();
+    }
+    
+    /**
+     * Publica los bytes de la cola de salida de Netty que aún no pasaron al socket. Solo
+     * el event loop puede leer esa cola.
+     */
+    public void onOutboundPending(long pendingBytes) {
+        beginWrite();
+        LONGS.setOpaque(state, OUTBOUND_PENDING_BYTES, pendingBytes);
+        endWrite();
+    }
+    
+    /**
+     * Encola el RTT de una sonda de ping, medido al recibir su respuesta.
+     */
+    public void onProbeRtt(long rttMs) {
+        rttSamples.offer(rttMs);
+    }
+    
+    /**
+     * Encola el tránsito de un keep-alive (llegada local - marca de tiempo del servidor).
+     */
+    public void onKeepAliveTransit(long transitMs) {
+        keepAliveTransits.offer(transitMs);
+    }
+    
+    /**
+     * Encola la llegada de un paquete de tiempo del mundo junto con ese tiempo.
+     */
+    public void onWorldTimeUpdate(long nowMs, long worldTime) {
+        worldTimes.offerPair(nowMs, worldTime);
+    }
+    
+    private void beginWrite() {
+        LONGS.setOpaque(state, SEQUENCE, state[SEQUENCE] + 1);
+        VarHandle.storeStoreFence();
+    }
+    
+    private void endWrite() {
+        LONGS.setRelease(state, SEQUENCE, state[SEQUENCE] + 1);
+    }
+    
+    // ===== Lado consumidor (hilo del cliente) =====
+    
+    /**
+     * Lee los contadores en la instantánea indicada. Reintenta si coincide con una escritura.
+     */
+    public void readSnapshot(Snapshot into) {
+        while (true) {
+            long before = (long) LONGS.getAcquire(state, SEQUENCE);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            into.packetsReceived = (long) LONGS.getOpaque(state, PACKETS_RECEIVED);
+            into.lastPacketReceivedMs = (long) LONGS.getOpaque(state, LAST_PACKET_RECEIVED_MS);
+            into.lastKeepAliveSentMs = (long) LONGS.getOpaque(state, LAST_KEEP_ALIVE_SENT_MS);
+            into.lastKeepAliveReceivedMs = (long) LONGS.getOpaque(state, LAST_KEEP_ALIVE_RECEIVED_MS);
+            into.droppedArrivals = (long) LONGS.getOpaque(state, DROPPED_ARRIVALS);
+            into.bytesReceived = (long) LONGS.getOpaque(state, BYTES_RECEIVED);
+            into.bytesSent = (long) LONGS.getOpaque(state, BYTES_SENT);
+            into.receiveIdleNanos = (long) LONGS.getOpaque(state, RECEIVE_IDLE_NANOS);
+            into.receiveIdleBytes = (long) LONGS.getOpaque(state, RECEIVE_IDLE_BYTES);
+            into.lastReadNanos = (long) LONGS.getOpaque(state, LAST_READ_NANOS);
+            into.chunkBytesReceived = (long) LONGS.getOpaque(state, CHUNK_BYTES_RECEIVED);
+            into.chunksReceived = (long) LONGS.getOpaque(state, CHUNKS_RECEIVED);
+            into.outboundPendingBytes = (long) LONGS.getOpaque(state, OUTBOUND_PENDING_BYTES);
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(state, SEQUENCE) == before) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Entrega los instantes de llegada pendientes, en orden.
+     */
+    public int drainArrivals(LongConsumer consumer) {
+        return arrivals.drain(consumer);
+    }
+    
+    /**
+     * Entrega los RTT de sondas pendientes, en orden.
+     */
+    public int drainRttSamples(LongConsumer consumer) {
+        return rttSamples.drain(consumer);
+    }
+    
+    /**
+     * Entrega los tránsitos de keep-alive pendientes, en orden.
+     */
+    public int drainKeepAliveTransits(LongConsumer consumer) {
+        return keepAliveTransits.drain(consumer);
+    }
+    
+    /**
+     * Entrega los pares (llegada, tiempo del mundo) pendientes, en orden y siempre completos.
+     */
+    public int drainWorldTimes(LongConsumer consumer) {
+        return worldTimes.drain(consumer);
+    }
+    
+    /**
+     * Publica la capacidad medida del enlace de entrada (bytes/s, 0 si no se conoce)
+     * para clasificar los huecos entre lecturas.
+     */
+    public void setCapacityHint(long bytesPerSecond) {
+        capacityHintBytesPerSecond = Math.max(0, bytesPerSecond);
+    }
+    
+    /**
+     * Último instante de llegada publicado. Una sola lectura atómica, sin seqlock.
+     */
+    public long getLastPacketReceivedMs() {
+        return (long) LONGS.getOpaque(state, LAST_PACKET_RECEIVED_MS);
+    }
+}
@@ -1,48 +1,130 @@
 package dev.zxnoragami.clientreflex.net;
 
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
+import dev.zxnoragami.clientreflex.perf.ClientPerformanceMonitor;
+import dev.zxnoragami.clientreflex.perf.PerformanceTimeline;
+import dev.zxnoragami.clientreflex.ping.RollingLatencyHistogram;
+import dev.zxnoragami.clientreflex.ping.RttSource;
+import dev.zxnoragami.clientreflex.recording.SessionRecorder;
+import io.netty.channel.Channel;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.network.packet.c2s.query.QueryPingC2SPacket;
+import net.minecraft.util.Util;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.Iterator;
+import java.util.function.LongConsumer;
 
 /**
  * Monitor de red que rastrea el ping, jitter y estadísticas de conexión.
  * Mantiene un historial de valores de ping para calcular promedios y variaciones.
+ * 
+ * Hilos: los métodos on* se llaman desde el event loop de Netty y solo escriben en
+ * {@link NettyIngestion}. Todo el estado agregado (historial, contadores, histogramas)
+ * pertenece al hilo del cliente, que drena la ingesta en {@link #update()}.
+ * 
+ * Cada muestra de ping lleva su fuente ({@link RttSource}) y solo se registra cuando es
+ * una medición nueva: la tab list al llegar su actualización, las sondas al llegar su
+ * respuesta y TCP_INFO cuando el kernel reporta un valor distinto.
  */
 public class NetworkMonitor {
+    /**
+     * Recibe cada muestra nueva de RTT en el hilo del cliente.
+     */
+    @FunctionalInterface
+    public interface RttSampleListener {
+        void onRttSample(RttSource source, long rttMs);
+    }
+
     private final Deque<Long> pingHistory = new ArrayDeque<>();
-    private final Deque<Long> packetTimestamps = new ArrayDeque<>();
+    // Buckets de 100 ms durante 60 s: memoria constante y conteos por ventana en O(1)
+    private final RateCounter packetRate = new RateCounter(100, 600);
+    private final RateCounter bytesReceivedRate = new RateCounter(100, 600);
+    private final RateCounter bytesSentRate = new RateCounter(100, 600);
+    private final RateCounter chunkBytesRate = new RateCounter(100, 600);
+    private final RollingLatencyHistogram packetGapHistogram = new RollingLatencyHistogram();
+    private final InboundBandwidthEstimator inboundBandwidth = new InboundBandwidthEstimator(
+        ClientReflexConfig.getConfig().inboundCapacityWindowSeconds * 1000L);
+    private volatile boolean inboundBandwidthResetPending = false;
+    
+    // Escrito solo por el event loop de Netty
+    private final NettyIngestion ingestion = new NettyIngestion(System.currentTimeMillis());
     
-    private long lastPacketReceived = System.currentTimeMillis();
+    // Estado del hilo del cliente
+    private final NettyIngestion.Snapshot snapshot = new NettyIngestion.Snapshot();
+    private final LongConsumer arrivalSink = this::onArrivalDrained;
+    private final LongConsumer rttSink = this::onRttDrained;
+    private final TcpInfoSampler tcpInfoSampler = new TcpInfoSampler();
+    private volatile Channel channel;
+    // startTime de la última sonda propia: las respuestas con otro valor no son nuestras
+    private volatile long lastProbeStartTime = -1;
+    private RttSampleListener rttSampleListener;
+    private LongConsumer keepAliveTransitListener;
+    private final LongConsumer transitSink = this::onKeepAliveTransitDrained;
+    private final ServerTpsEstimator serverTps = new ServerTpsEstimator();
+    private final StallDetector stallDetector = new StallDetector();
+    private long worldTimeClockOffsetMs = 0;
+    private final LongConsumer worldTimeSink = this::onWorldTimeDrained;
+    private boolean worldTimeArrivalPending = false;
+    private long pendingWorldTimeArrival = 0;
+    private long lastDrainedArrival = System.currentTimeMillis();
+    private long accountedDroppedArrivals = 0;
+    private long accountedBytesReceived = 0;
+    private long accountedBytesSent = 0;
+    private long accountedChunkBytes = 0;
+    private long accountedChunks = 0;
     private long currentPing = 0;
-    private long lastKeepAliveSent = 0;
-    private long lastKeepAliveReceived = 0;
+    private RttSource currentPingSource = null;
+    private long lastProbeSent = 0;
+    private long lastTcpInfoSample = 0;
+    private long lastTcpRttMicros = -1;
     
-    private long bytesSent = 0;
-    private long bytesReceived = 0;
+    // Totales de bytes en el momento del último resetByteStats
+    private long bytesSentBaseline = 0;
+    private long bytesReceivedBaseline = 0;
 
     /**
      * Actualiza el monitor de red.
      * Debe llamarse cada tick del cliente.
      */
     public void update() {
+        if (inboundBandwidthResetPending) {
+            inboundBandwidthResetPending = false;
+            inboundBandwidth.reset();
+        }
+        inboundBandwidth.setCapacityWindowMs(ClientReflexConfig.getConfig().inboundCapacityWindowSeconds * 1000L);
+        drainIngestion();
+        stallDetector.update(System.currentTimeMillis());
+
         MinecraftClient client = MinecraftClient.getInstance();
         if (client.getNetworkHandler() == null || client.player == null) {
             return;
         }
 
-        // Obtener el ping actual del jugador
-        ClientPlayerEntity player = client.player;
-        if (player.networkHandler != null) {
-            int serverPing = player.networkHandler.getPlayerListEntry(player.getUuid()) != null 
-                ? player.networkHandler.getPlayerListEntry(player.getUuid()).getLatency() 
-                : 0;
-            
-            if (serverPing > 0) {
-                updatePing(serverPing);
+        var config = ClientReflexConfig.getConfig();
+        long now = System.currentTimeMillis();
+
+        // Sonda de ping periódica; la respuesta se mide en el event loop
+        if (config.rttProbeIntervalSeconds > 0
+                && now - lastProbeSent >= config.rttProbeIntervalSeconds * 1000L) {
+            lastProbeSent = now;
+            long startTime = Util.getMeasuringTimeMs();
+            lastProbeStartTime = startTime;
+            client.getNetworkHandler().sendPacket(new QueryPingC2SPacket(startTime));
+        }
+
+        // RTT del kernel, una vez por segundo y solo si cambió
+        if (config.enableTcpInfoSampling && now - lastTcpInfoSample >= 1000) {
+            lastTcpInfoSample = now;
+            long rttMicros = tcpInfoSampler.sampleRttMicros();
+            long retransmits = tcpInfoSampler.getTotalRetransmits();
+            if (retransmits >= 0) {
+                stallDetector.onRetransmitSample(now, retransmits);
+            }
+            if (rttMicros > 0 && rttMicros != lastTcpRttMicros) {
+                lastTcpRttMicros = rttMicros;
+                recordSample(RttSource.TCP_INFO, (rttMicros + 500) / 1000);
             }
         }
 
@@ -51,35 +133,218 @@ public class NetworkMonitor {
     }
 
     /**
-     * Actualiza el valor de ping y lo añade al historial.
+     * Registra una muestra nueva de ping, la añade al historial y la reenvía al listener.
      */
-    private void updatePing(int ping) {
+    private void recordSample(RttSource source, long ping) {
         this.currentPing = ping;
+        this.currentPingSource = source;
         
         // Añadir al historial
-        pingHistory.addLast((long) ping);
+        pingHistory.addLast(ping);
         
         // Limitar el tamaño del historial
         int maxSize = ClientReflexConfig.getConfig().pingHistorySize;
         while (pingHistory.size() > maxSize) {
             pingHistory.removeFirst();
         }
+        
+        ClientReflexJfr.rttSample(source, ping);
+        SessionRecorder.getInstance().recordRtt(source, ping);
+        if (rttSampleListener != null) {
+            rttSampleListener.onRttSample(source, ping);
+        }
     }
 
     /**
-     * Registra que se recibió un paquete.
-     * Se llama desde los mixins cuando se detecta tráfico de red.
+     * Registra la latencia propia recibida en una actualización de la tab list.
+     * Se llama desde el hilo del cliente cuando el paquete ya se aplicó.
      */
-    public void onPacketReceived() {
+    public void onTabListLatency(int latencyMs) {
+        if (latencyMs > 0) {
+            recordSample(RttSource.TAB_LIST, latencyMs);
+        }
+    }
+
+    /**
+     * Vuelca en el estado del cliente las muestras publicadas por el event loop.
+     * Solo debe llamarse desde el hilo del cliente ({@link #update()} lo hace cada tick).
+     */
+    public void drainIngestion() {
+        ingestion.drainArrivals(arrivalSink);
+        ingestion.drainRttSamples(rttSink);
+        ingestion.drainKeepAliveTransits(transitSink);
+        // Los tiempos del mundo llegan con reloj monótono; el detector de silencios usa el de pared
+        worldTimeClockOffsetMs = System.currentTimeMillis() - Util.getMeasuringTimeMs();
+        ingestion.drainWorldTimes(worldTimeSink);
+
+        // Si la cola de llegadas se llenó, los paquetes siguen contando en la tasa
+        ingestion.readSnapshot(snapshot);
+        long dropped = snapshot.droppedArrivals - accountedDroppedArrivals;
+        if (dropped > 0) {
+            packetRate.add(dropped, snapshot.lastPacketReceivedMs);
+            accountedDroppedArrivals = snapshot.droppedArrivals;
+        }
+        
+        // Bytes del socket: se acumulan en el tick en que se drenan
         long now = System.currentTimeMillis();
-        lastPacketReceived = now;
-        packetTimestamps.addLast(now);
+        bytesReceivedRate.add(snapshot.bytesReceived - accountedBytesReceived, now);
+        bytesSentRate.add(snapshot.bytesSent - accountedBytesSent, now);
+        accountedBytesReceived = snapshot.bytesReceived;
+        accountedBytesSent = snapshot.bytesSent;
+        chunkBytesRate.add(snapshot.chunkBytesReceived - accountedChunkBytes, now);
+        accountedChunkBytes = snapshot.chunkBytesReceived;
+        accountedChunks = snapshot.chunksReceived;
         
-        // Limpiar timestamps antiguos (más de 60 segundos)
-        while (!packetTimestamps.isEmpty() && 
-               now - packetTimestamps.getFirst() > 60000) {
-            packetTimestamps.removeFirst();
+        // Capacidad de entrada; la medida vuelve al event loop para clasificar los huecos
+        inboundBandwidth.update(now, snapshot.bytesReceived, snapshot.receiveIdleNanos,
+            snapshot.receiveIdleBytes, snapshot.lastReadNanos);
+        ingestion.setCapacityHint(inboundBandwidth.getMeasuredCapacityBytesPerSecond());
+    }
+
+    private void onArrivalDrained(long arrivalMs) {
+        long gapMs = arrivalMs - lastDrainedArrival;
+        packetGapHistogram.recordAt(gapMs, arrivalMs);
+        var config = ClientReflexConfig.getConfig();
+        // Un hueco mayor que el timeout de lectura abarca dos conexiones, no es un silencio
+        if (gapMs >= config.stallThresholdMs && gapMs < config.readTimeoutSeconds * 1000L) {
+            ClientPerformanceMonitor performance = ClientPerformanceMonitor.getInstance();
+            performance.mark(PerformanceTimeline.EventType.PACKET_STALL, lastDrainedArrival, gapMs);
+            stallDetector.onStall(lastDrainedArrival, gapMs);
+        }
+        lastDrainedArrival = arrivalMs;
+        packetRate.increment(arrivalMs);
+    }
+
+    private void onRttDrained(long rttMs) {
+        recordSample(RttSource.STATUS_PROBE, rttMs);
+    }
+
+    private void onKeepAliveTransitDrained(long transitMs) {
+        stallDetector.onKeepAliveTransit(transitMs);
+        if (keepAliveTransitListener != null) {
+            keepAliveTransitListener.accept(transitMs);
+        }
+    }
+
+    /**
+     * Los tiempos del mundo llegan en pares (llegada, tiempo) aplanados en la cola.
+     */
+    private void onWorldTimeDrained(long value) {
+        if (!worldTimeArrivalPending) {
+            pendingWorldTimeArrival = value;
+            worldTimeArrivalPending = true;
+        } else {
+            serverTps.record(pendingWorldTimeArrival, value);
+            stallDetector.onWorldTime(pendingWorldTimeArrival + worldTimeClockOffsetMs, value);
+            worldTimeArrivalPending = false;
+        }
+    }
+
+    /**
+     * Establece quién recibe el tránsito de cada keep-alive (en el hilo del cliente),
+     * para estimar el jitter de llegada.
+     */
+    public void setKeepAliveTransitListener(LongConsumer listener) {
+        this.keepAliveTransitListener = listener;
+    }
+
+    /**
+     * Establece quién recibe cada muestra nueva de RTT (en el hilo del cliente).
+     */
+    public void setRttSampleListener(RttSampleListener listener) {
+        this.rttSampleListener = listener;
+    }
+
+    /**
+     * Asocia el canal de la conexión del juego para leer TCP_INFO. Lo llama
+     * ClientConnectionMixin solo para la conexión que inicia sesión, nunca para los pings
+     * de la lista de servidores.
+     */
+    public void attachChannel(Channel channel) {
+        if (channel == this.channel) {
+            return;
+        }
+        this.channel = channel;
+        tcpInfoSampler.attach(channel);
+        // Conexión del juego nueva: puede ser otro enlace, la capacidad se vuelve a medir.
+        // El estimador es del hilo del cliente, que lo reinicia en el siguiente update()
+        ingestion.setCapacityHint(0);
+        inboundBandwidthResetPending = true;
+    }
+
+    /**
+     * Registra que se recibió un paquete.
+     * Se llama desde los mixins (event loop de Netty) cuando se detecta tráfico de red.
+     */
+    public void onPacketReceived() {
+        ingestion.onPacketReceived(System.currentTimeMillis());
+    }
+
+    /**
+     * Registra bytes leídos del socket (event loop de Netty, desde TrafficCounterHandler).
+     */
+    public void onBytesReceived(long bytes) {
+        ingestion.onBytesReceived(bytes, System.nanoTime());
+    }
+
+    /**
+     * Registra el tamaño en el enlace de una trama (event loop de Netty, desde InboundFrameSizeHandler).
+     */
+    public void onFrameReceived(long wireBytes) {
+        ingestion.onFrameReceived(wireBytes);
+    }
+
+    /**
+     * Registra un paquete de datos de chunks (event loop de Netty, desde InboundPacketHook).
+     */
+    public void onChunkPacketReceived(boolean fullChunk) {
+        ingestion.onChunkPacket(fullChunk);
+    }
+
+    /**
+     * Registra bytes escritos hacia el socket (event loop de Netty, desde TrafficCounterHandler).
+     */
+    public void onBytesSent(long bytes) {
+        ingestion.onBytesSent(bytes);
+    }
+
+    /**
+     * Registra el tamaño de la cola de salida (event loop de Netty, desde TrafficCounterHandler).
+     */
+    public void onOutboundPending(long pendingBytes) {
+        ingestion.onOutboundPending(pendingBytes);
+    }
+
+    /**
+     * Registra la respuesta a una sonda de ping (event loop de Netty).
+     * startTime es el Util.getMeasuringTimeMs() con el que se envió la sonda; solo cuenta
+     * la respuesta a la última sonda propia, no las de otros emisores (gráfica de depuración).
+     */
+    public void onPingResult(long startTime) {
+        if (startTime != lastProbeStartTime) {
+            return;
         }
+        long rtt = Util.getMeasuringTimeMs() - startTime;
+        if (rtt >= 0) {
+            ingestion.onProbeRtt(rtt);
+        }
+    }
+
+    /**
+     * Registra el id de un keep-alive del servidor (event loop de Netty).
+     * En vanilla el id es Util.getMeasuringTimeMs() del servidor, así que
+     * llegada - id es el tránsito más un desfase de reloj constante.
+     */
+    public void onKeepAliveId(long id) {
+        ingestion.onKeepAliveTransit(Util.getMeasuringTimeMs() - id);
+    }
+
+    /**
+     * Registra un paquete de tiempo del mundo (event loop de Netty). La llegada se mide
+     * aquí, con reloj monótono, para que la espera en la cola del cliente no la desplace.
+     */
+    public void onWorldTimeUpdate(long worldTime) {
+        ingestion.onWorldTimeUpdate(Util.getMeasuringTimeMs(), worldTime);
     }
 
     /**
@@ -90,21 +355,19 @@ public class NetworkMonitor {
     }
 
     /**
-     * Registra el envío de un keep-alive.
+     * Registra el envío de un keep-alive (event loop de Netty).
      */
     public void onKeepAliveSent() {
-        lastKeepAliveSent = System.currentTimeMillis();
+        ingestion.onKeepAliveSent(System.currentTimeMillis());
     }
 
     /**
-     * Registra la recepción de un keep-alive.
+     * Registra la recepción de un keep-alive (event loop de Netty).
+     * No produce muestras de ping: el servidor inicia el keep-alive y el cliente solo
+     * responde, así que el intervalo entre respuesta y siguiente keep-alive no es un RTT.
      */
     public void onKeepAliveReceived() {
-        lastKeepAliveReceived = System.currentTimeMillis();
-        if (lastKeepAliveSent > 0) {
-            long ping = lastKeepAliveReceived - lastKeepAliveSent;
-            updatePing((int) ping);
-        }
+        ingestion.onKeepAliveReceived(System.currentTimeMillis());
     }
 
     /**
@@ -126,6 +389,13 @@ public class NetworkMonitor {
         return currentPing;
     }
 
+    /**
+     * Obtiene la fuente de la última muestra de ping (null si aún no hay).
+     */
+    public RttSource getCurrentPingSource() {
+        return currentPingSource;
+    }
+
     /**
      * Obtiene el ping promedio de los últimos valores.
      */
@@ -159,67 +429,154 @@ public class NetworkMonitor {
     }
 
     /**
-     * Calcula el jitter (variación del ping).
-     * Es la diferencia promedio entre pings consecutivos.
+     * Obtiene el tiempo desde el último paquete recibido en milisegundos.
      */
-    public double getJitter() {
-        if (pingHistory.size() < 2) {
-            return 0;
-        }
-        
-        Iterator<Long> it = pingHistory.iterator();
-        long prev = it.next();
-        double sumDiff = 0;
-        int count = 0;
-        
-        while (it.hasNext()) {
-            long current = it.next();
-            sumDiff += Math.abs(current - prev);
-            prev = current;
-            count++;
+    public long getTimeSinceLastPacket() {
+        return System.currentTimeMillis() - ingestion.getLastPacketReceivedMs();
+    }
+
+    /**
+     * Obtiene el total de paquetes recibidos según el contador del event loop.
+     */
+    public long getTotalPacketsReceived() {
+        ingestion.readSnapshot(snapshot);
+        return snapshot.packetsReceived;
+    }
+
+    /**
+     * Obtiene el estimador de TPS del servidor.
+     */
+    public ServerTpsEstimator getServerTpsEstimator() {
+        return serverTps;
+    }
+
+    /**
+     * Obtiene el detector de silencios de entrada.
+     */
+    public StallDetector getStallDetector() {
+        return stallDetector;
+    }
+
+    /**
+     * Siembra la capacidad de entrada aprendida del servidor. Si el reinicio por conexión
+     * nueva aún está pendiente se hace antes, para que no borre la semilla.
+     */
+    public void seedInboundCapacity(long capacityBytesPerSecond, boolean measured) {
+        if (inboundBandwidthResetPending) {
+            inboundBandwidthResetPending = false;
+            inboundBandwidth.reset();
         }
-        
-        return count > 0 ? sumDiff / count : 0;
+        inboundBandwidth.seed(capacityBytesPerSecond, measured, System.currentTimeMillis());
     }
 
     /**
-     * Obtiene el tiempo desde el último paquete recibido en milisegundos.
+     * Obtiene el estimador de capacidad y utilización del enlace de entrada.
      */
-    public long getTimeSinceLastPacket() {
-        return System.currentTimeMillis() - lastPacketReceived;
+    public InboundBandwidthEstimator getInboundBandwidth() {
+        return inboundBandwidth;
+    }
+
+    /**
+     * Obtiene el histograma de intervalos entre paquetes recibidos (ms) por ventanas.
+     */
+    public RollingLatencyHistogram getPacketGapHistogram() {
+        return packetGapHistogram;
     }
 
     /**
      * Obtiene el número de paquetes recibidos en la última ventana de tiempo.
      */
     public int getPacketsReceivedInWindow() {
-        long now = System.currentTimeMillis();
         int windowSeconds = ClientReflexConfig.getConfig().networkStatsWindowSeconds;
-        long windowMs = windowSeconds * 1000L;
-        
-        int count = 0;
-        for (Long timestamp : packetTimestamps) {
-            if (now - timestamp <= windowMs) {
-                count++;
-            }
+        return (int) packetRate.getCount(windowSeconds * 1000L, System.currentTimeMillis());
+    }
+
+    /**
+     * Obtiene el pico de paquetes recibidos en un segundo durante la sesión.
+     */
+    public long getPeakPacketsPerSecond() {
+        return packetRate.getPeakPerSecond(System.currentTimeMillis());
+    }
+
+    /**
+     * Paquetes recibidos por segundo en la ventana indicada.
+     */
+    public double getPacketsPerSecond(long windowMs) {
+        return packetRate.getRatePerSecond(windowMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Llegadas que no cupieron en la cola de ingesta (cuentan en la tasa, no en los huecos).
+     */
+    public long getDroppedArrivals() {
+        return accountedDroppedArrivals;
+    }
+
+    /**
+     * Bytes por segundo leídos del socket en la ventana indicada.
+     */
+    public double getBytesReceivedPerSecond(long windowMs) {
+        return bytesReceivedRate.getRatePerSecond(windowMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Bytes por segundo escritos hacia el socket en la ventana indicada.
+     */
+    public double getBytesSentPerSecond(long windowMs) {
+        return bytesSentRate.getRatePerSecond(windowMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Bytes por segundo de datos de chunks (chunks, luz y biomas) en el enlace, en la
+     * ventana indicada. Es la parte del tráfico de entrada que depende de la distancia de
+     * renderizado.
+     */
+    public double getChunkBytesPerSecond(long windowMs) {
+        return chunkBytesRate.getRatePerSecond(windowMs, System.currentTimeMillis());
+    }
+
+    /**
+     * Bytes medios en el enlace por chunk recibido (luz y biomas incluidos), o -1 si aún
+     * no llegó ninguno.
+     */
+    public long getBytesPerChunk() {
+        return accountedChunks == 0 ? -1 : accountedChunkBytes / accountedChunks;
+    }
+
+    /**
+     * Bytes escritos por el cliente que Netty aún no pudo pasar al socket
+     * (-1 sin conexión). Es la cola de salida real: crece cuando el enlace se satura.
+     * El event loop la publica tras cada escritura y cada flush.
+     */
+    public long getOutboundPendingBytes() {
+        Channel current = channel;
+        if (current == null || !current.isActive()) {
+            return -1;
         }
-        return count;
+        ingestion.readSnapshot(snapshot);
+        return snapshot.outboundPendingBytes;
     }
 
     /**
      * Resetea las estadísticas de bytes.
      */
     public void resetByteStats() {
-        bytesSent = 0;
-        bytesReceived = 0;
+        bytesSentBaseline = accountedBytesSent;
+        bytesReceivedBaseline = accountedBytesReceived;
     }
 
+    /**
+     * Bytes escritos hacia el socket desde el último resetByteStats.
+     */
     public long getBytesSent() {
-        return bytesSent;
+        return accountedBytesSent - bytesSentBaseline;
     }
 
+    /**
+     * Bytes leídos del socket desde el último resetByteStats.
+     */
     public long getBytesReceived() {
-        return bytesReceived;
+        return accountedBytesReceived - bytesReceivedBaseline;
     }
 }
 
@@ -0,0 +1,150 @@
+package dev.zxnoragami.clientreflex.net;
+
+/**
+ * Contador de eventos por buckets de tiempo en un buffer circular de primitivos.
+ * 
+ * Cada bucket guarda el total acumulado al empezar ese bucket, así que el número de
+ * eventos en cualquier ventana (hasta buckets * bucketMs) es una resta: O(1) y sin
+ * recorrer el historial. La memoria es constante sin importar el tráfico, y contar un
+ * evento no asigna memoria.
+ * 
+ * También registra el pico de eventos por segundo (ventana deslizante de 1 s evaluada
+ * al cerrar cada bucket).
+ */
+public class RateCounter {
+    private final long bucketMs;
+    private final int buckets;
+    private final int bucketsPerSecond;
+    private final long[] startTotals;
+    
+    private long firstBucket = Long.MIN_VALUE;
+    private long currentBucket = Long.MIN_VALUE;
+    private long total = 0;
+    private long peakPerSecond = 0;
+    private long peakTimestampMs = 0;
+    
+    /**
+     * @param bucketMs duración de cada bucket en ms (debe dividir 1000)
+     * @param buckets  número de buckets; la ventana máxima es buckets * bucketMs
+     */
+    public RateCounter(long bucketMs, int buckets) {
+        if (bucketMs <= 0 || 1000 % bucketMs != 0) {
+            throw new IllegalArgumentException("bucketMs debe dividir 1000: " + bucketMs);
+        }
+        this.bucketMs = bucketMs;
+        this.bucketsPerSecond = (int) (1000 / bucketMs);
+        this.buckets = Math.max(bucketsPerSecond, buckets);
+        this.startTotals = new long[this.buckets];
+    }
+    
+    /**
+     * Registra un evento en el instante indicado.
+     */
+    public void increment(long nowMs) {
+        add(1, nowMs);
+    }
+    
+    /**
+     * Registra varios eventos (o bytes) en el instante indicado.
+     */
+    public void add(long amount, long nowMs) {
+        advanceTo(Math.floorDiv(nowMs, bucketMs));
+        total += amount;
+    }
+    
+    private void advanceTo(long bucket) {
+        if (currentBucket == Long.MIN_VALUE) {
+            firstBucket = bucket;
+            currentBucket = bucket;
+            startTotals[slot(bucket)] = total;
+            return;
+        }
+        if (bucket <= currentBucket) {
+            return;
+        }
+        
+        // Cerrar el bucket actual: el último segundo completo termina aquí
+        long lastSecond = total - startTotals[slot(oldestAvailable(currentBucket - bucketsPerSecond + 1))];
+        if (lastSecond > peakPerSecond) {
+            peakPerSecond = lastSecond;
+            peakTimestampMs = (currentBucket + 1) * bucketMs;
+        }
+        
+        // Los buckets saltados no tuvieron eventos: empiezan con el mismo total.
+        // Como mucho se rellena el buffer entero, así que el coste está acotado.
+        long from = Math.max(currentBucket + 1, bucket - buckets + 1);
+        for (long b = from; b <= bucket; b++) {
+            startTotals[slot(b)] = total;
+        }
+        if (bucket - buckets + 1 > firstBucket) {
+            firstBucket = bucket - buckets + 1;
+        }
+        currentBucket = bucket;
+    }
+    
+    /**
+     * Número de eventos en la ventana que termina en nowMs.
+     * No modifica el contador, así que no adelanta los buckets.
+     */
+    public long getCount(long windowMs, long nowMs) {
+        if (currentBucket == Long.MIN_VALUE) {
+            return 0;
+        }
+        long nowBucket = Math.floorDiv(nowMs, bucketMs);
+        long windowBuckets = Math.max(1, Math.min(buckets, (windowMs + bucketMs - 1) / bucketMs));
+        long startBucket = nowBucket - windowBuckets + 1;
+        if (startBucket > currentBucket) {
+            return 0; // Ningún evento desde el inicio de la ventana
+        }
+        return total - startTotals[slot(oldestAvailable(startBucket))];
+    }
+    
+    /**
+     * Eventos por segundo en la ventana que termina en nowMs.
+     */
+    public double getRatePerSecond(long windowMs, long nowMs) {
+        long windowBuckets = Math.max(1, Math.min(buckets, (windowMs + bucketMs - 1) / bucketMs));
+        return getCount(windowMs, nowMs) * 1000.0 / (windowBuckets * bucketMs);
+    }
+    
+    /**
+     * Pico de eventos en cualquier segundo desde el inicio (o el último reset).
+     * Incluye el segundo en curso.
+     */
+    public long getPeakPerSecond(long nowMs) {
+        return Math.max(peakPerSecond, getCount(1000, nowMs));
+    }
+    
+    /**
+     * Instante (ms) en el que terminó el segundo con el pico registrado.
+     */
+    public long getPeakTimestampMs() {
+        return peakTimestampMs;
+    }
+    
+    /**
+     * Total de eventos desde el inicio (o el último reset).
+     */
+    public long getTotal() {
+        return total;
+    }
+    
+    /**
+     * Vacía el contador.
+     */
+    public void reset() {
+        firstBucket = Long.MIN_VALUE;
+        currentBucket = Long.MIN_VALUE;
+        total = 0;
+        peakPerSecond = 0;
+        peakTimestampMs = 0;
+    }
+    
+    private long oldestAvailable(long bucket) {
+        return Math.max(bucket, firstBucket);
+    }
+    
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets);
+    }
+}
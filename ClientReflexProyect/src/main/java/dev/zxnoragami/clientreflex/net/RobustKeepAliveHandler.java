@@ -1,7 +1,6 @@
 package dev.zxnoragami.clientreflex.net;
 
 import dev.zxnoragami.clientreflex.ClientReflexClient;
-import dev.zxnoragami.clientreflex.ping.PingMetrics;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
@@ -15,6 +14,9 @@ import io.netty.channel.ChannelPromise;
  * 
  * Usa ChannelDuplexHandler para poder interceptar tanto mensajes entrantes (channelRead)
  * como salientes (write).
+ * 
+ * Se ejecuta en el event loop de Netty, así que solo publica los instantes en la
+ * ingesta del NetworkMonitor. No mide RTT: el keep-alive lo inicia el servidor.
  */
 public class RobustKeepAliveHandler extends ChannelDuplexHandler {
     @Override
@@ -27,12 +29,6 @@ public class RobustKeepAliveHandler extends ChannelDuplexHandler {
             if (ClientReflexClient.getNetworkMonitor() != null) {
                 ClientReflexClient.getNetworkMonitor().onKeepAliveReceived();
             }
-            
-            // Registrar en las métricas de ping para cálculo de RTT
-            PingMetrics pingMetrics = ClientReflexClient.getPingMetrics();
-            if (pingMetrics != null) {
-                pingMetrics.onKeepAliveReceived();
-            }
         }
         
         // Pasar el paquete al siguiente handler para que se procese normalmente
@@ -48,12 +44,6 @@ public class RobustKeepAliveHandler extends ChannelDuplexHandler {
             if (ClientReflexClient.getNetworkMonitor() != null) {
                 ClientReflexClient.getNetworkMonitor().onKeepAliveSent();
             }
-            
-            // Registrar en las métricas de ping
-            PingMetrics pingMetrics = ClientReflexClient.getPingMetrics();
-            if (pingMetrics != null) {
-                pingMetrics.onKeepAliveSent();
-            }
         }
         
         // Pasar el mensaje al siguiente handler en el pipeline
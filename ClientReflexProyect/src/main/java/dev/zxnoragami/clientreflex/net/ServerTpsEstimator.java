@@ -0,0 +1,169 @@
+package dev.zxnoragami.clientreflex.net;
+
+/**
+ * Estimador de TPS del servidor a partir de la cadencia de WorldTimeUpdateS2CPacket.
+ *
+ * El servidor envía el tiempo del mundo cada 20 ticks. A 20 TPS, entre dos paquetes
+ * avanzan 20 ticks y pasan ~1000 ms locales; si el servidor va lento, los mismos ticks
+ * tardan más. El TPS es ticks avanzados / tiempo local transcurrido sobre una ventana de
+ * ~10 s, que diluye el jitter de red: 50 ms de retraso en un paquete son un 5 % sobre
+ * 1 s, pero un 0.5 % sobre 10 s. Un corte de red también retrasa los paquetes, pero
+ * al terminar llegan en ráfaga con los ticks acumulados y la estimación se recupera;
+ * un servidor lento nunca recupera esos ticks.
+ *
+ * El tiempo por tick se sigue por intervalo con media y varianza exponenciales; su
+ * desviación incluye también el jitter de llegada.
+ *
+ * Usa el tiempo total del mundo, no la hora del día (que se detiene con
+ * doDaylightCycle=false o salta con /time set). Solo lo usa el hilo del cliente.
+ * Coste constante por muestra y sin asignaciones.
+ */
+public class ServerTpsEstimator {
+    public static final double NOMINAL_TPS = 20.0;
+    private static final double NOMINAL_TICK_MS = 1000.0 / NOMINAL_TPS;
+
+    private static final int CAPACITY = 32;
+    private static final long WINDOW_MS = 10_000;
+    private static final long MIN_SPAN_MS = 3_000;      // Menos tiempo no basta para diluir el jitter
+    private static final long MIN_INTERVAL_MS = 250;    // Paquetes llegados en ráfaga no aportan cadencia
+    private static final long MAX_INTERVAL_MS = 60_000; // Más sin paquetes: reconexión o pausa, empezar de cero
+    private static final double TICK_TIME_ALPHA = 0.1;
+
+    // Muestras (llegada local, tiempo del mundo) en un buffer circular
+    private final long[] arrivalMs = new long[CAPACITY];
+    private final long[] worldTicks = new long[CAPACITY];
+    private int next = 0;
+    private int count = 0;
+
+    private double tps = NOMINAL_TPS;
+    private boolean hasEstimate = false;
+    private double tickTimeMs = NOMINAL_TICK_MS;
+    private double tickTimeVariance = 0.0;
+    private long intervals = 0;
+
+    /**
+     * Incorpora un paquete de tiempo del mundo.
+     *
+     * @param nowMs instante de llegada en un reloj local monótono
+     * @param worldTime tiempo total del mundo en ticks
+     */
+    public void record(long nowMs, long worldTime) {
+        if (count > 0) {
+            int last = index(count - 1);
+            long elapsedMs = nowMs - arrivalMs[last];
+            long elapsedTicks = worldTime - worldTicks[last];
+
+            if (elapsedTicks < 0 || elapsedMs > MAX_INTERVAL_MS
+                    || elapsedTicks > 4 * (elapsedMs / NOMINAL_TICK_MS) + 100) {
+                // Otro mundo u otro servidor: la cadencia anterior ya no sirve
+                clearWindow();
+            } else if (elapsedMs < MIN_INTERVAL_MS) {
+                // Ráfaga: la muestra nueva sustituye a la anterior (mismos ticks, más al día)
+                arrivalMs[last] = nowMs;
+                worldTicks[last] = worldTime;
+                updateTps(nowMs);
+                return;
+            } else if (elapsedTicks > 0) {
+                recordTickTime((double) elapsedMs / elapsedTicks);
+            }
+        }
+
+        arrivalMs[next] = nowMs;
+        worldTicks[next] = worldTime;
+        next = (next + 1) % CAPACITY;
+        count = Math.min(count + 1, CAPACITY);
+
+        updateTps(nowMs);
+    }
+
+    private void recordTickTime(double msPerTick) {
+        intervals++;
+        if (intervals == 1) {
+            tickTimeMs = msPerTick;
+            tickTimeVariance = 0.0;
+            return;
+        }
+        double delta = msPerTick - tickTimeMs;
+        tickTimeMs += TICK_TIME_ALPHA * delta;
+        tickTimeVariance = (1 - TICK_TIME_ALPHA) * (tickTimeVariance + TICK_TIME_ALPHA * delta * delta);
+    }
+
+    /**
+     * Recalcula el TPS entre la muestra más antigua de la ventana y la más reciente.
+     */
+    private void updateTps(long nowMs) {
+        int newest = index(count - 1);
+        int oldest = newest;
+        for (int i = count - 2; i >= 0; i--) {
+            int candidate = index(i);
+            if (nowMs - arrivalMs[candidate] > WINDOW_MS) {
+                break;
+            }
+            oldest = candidate;
+        }
+
+        long spanMs = arrivalMs[newest] - arrivalMs[oldest];
+        if (spanMs < MIN_SPAN_MS) {
+            return;
+        }
+        tps = (worldTicks[newest] - worldTicks[oldest]) * 1000.0 / spanMs;
+        hasEstimate = true;
+    }
+
+    /**
+     * Posición en el buffer de la i-ésima muestra, de la más antigua (0) a la más reciente.
+     */
+    private int index(int i) {
+        return (next - count + i + CAPACITY) % CAPACITY;
+    }
+
+    private void clearWindow() {
+        next = 0;
+        count = 0;
+    }
+
+    /**
+     * Indica si ya hay una ventana suficiente para estimar el TPS.
+     */
+    public boolean hasEstimate() {
+        return hasEstimate;
+    }
+
+    /**
+     * TPS estimado del servidor (20 si aún no hay estimación). Puede superar 20
+     * brevemente cuando el servidor recupera ticks atrasados.
+     */
+    public double getTps() {
+        return tps;
+    }
+
+    /**
+     * Tiempo medio entre ticks del servidor en milisegundos (50 a 20 TPS).
+     */
+    public double getTickTimeMs() {
+        return tickTimeMs;
+    }
+
+    /**
+     * Desviación estándar del tiempo entre ticks, en milisegundos.
+     */
+    public double getTickTimeStdDevMs() {
+        return Math.sqrt(tickTimeVariance);
+    }
+
+    /**
+     * Indica si el servidor va por debajo del TPS indicado.
+     */
+    public boolean isLagging(double tpsThreshold) {
+        return hasEstimate && tps < tpsThreshold;
+    }
+
+    public void reset() {
+        clearWindow();
+        tps = NOMINAL_TPS;
+        hasEstimate = false;
+        tickTimeMs = NOMINAL_TICK_MS;
+        tickTimeVariance = 0.0;
+        intervals = 0;
+    }
+}
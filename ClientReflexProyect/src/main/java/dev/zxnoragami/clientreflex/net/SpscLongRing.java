@@ -0,0 +1,97 @@
+package dev.zxnoragami.clientreflex.net;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.LongConsumer;
+
+/**
+ * Cola circular de longs para un único productor y un único consumidor, sin locks.
+ * 
+ * Pensada para pasar muestras del event loop de Netty (productor) al hilo del cliente
+ * (consumidor). Los índices de productor y consumidor viven en un array con relleno
+ * para que cada uno ocupe su propia línea de caché y no haya false sharing. Ni
+ * offer ni drain asignan memoria.
+ */
+public final class SpscLongRing {
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    
+    // 16 longs = 128 bytes entre índices: cubre líneas de 64 bytes y el prefetch de pares
+    private static final int PAD = 16;
+    private static final int PRODUCER_INDEX = PAD;
+    private static final int CACHED_CONSUMER_INDEX = PAD + 1; // Solo lo toca el productor
+    private static final int CONSUMER_INDEX = PAD * 3;
+    
+    private final long[] buffer;
+    private final int mask;
+    private final long[] indices = new long[PAD * 4];
+    
+    /**
+     * @param capacity capacidad mínima; se redondea a la siguiente potencia de dos
+     */
+    public SpscLongRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.buffer = new long[size];
+        this.mask = size - 1;
+    }
+    
+    /**
+     * Añade un valor. Solo debe llamarlo el hilo productor.
+     * 
+     * @return false si la cola está llena (el valor no se guarda)
+     */
+    public boolean offer(long value) {
+        long producer = indices[PRODUCER_INDEX];
+        if (producer - indices[CACHED_CONSUMER_INDEX] >= buffer.length) {
+            // Releer el índice del consumidor solo cuando la copia local dice que está llena
+            indices[CACHED_CONSUMER_INDEX] = (long) LONGS.getAcquire(indices, CONSUMER_INDEX);
+            if (producer - indices[CACHED_CONSUMER_INDEX] >= buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) producer & mask] = value;
+        LONGS.setRelease(indices, PRODUCER_INDEX, producer + 1);
+        return true;
+    }
+    
+    /**
+     * Añade dos valores que el consumidor siempre verá juntos (se publican a la vez).
+     * Solo debe llamarlo el hilo productor.
+     * 
+     * @return false si no caben los dos (no se guarda ninguno)
+     */
+    public boolean offerPair(long first, long second) {
+        long producer = indices[PRODUCER_INDEX];
+        if (producer + 1 - indices[CACHED_CONSUMER_INDEX] >= buffer.length) {
+            indices[CACHED_CONSUMER_INDEX] = (long) LONGS.getAcquire(indices, CONSUMER_INDEX);
+            if (producer + 1 - indices[CACHED_CONSUMER_INDEX] >= buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) producer & mask] = first;
+        buffer[(int) (producer + 1) & mask] = second;
+        LONGS.setRelease(indices, PRODUCER_INDEX, producer + 2);
+        return true;
+    }
+    
+    /**
+     * Entrega al consumidor todos los valores publicados hasta ahora, en orden.
+     * Solo debe llamarlo el hilo consumidor.
+     * 
+     * @return número de valores entregados
+     */
+    public int drain(LongConsumer consumer) {
+        long start = indices[CONSUMER_INDEX];
+        long end = (long) LONGS.getAcquire(indices, PRODUCER_INDEX);
+        for (long i = start; i < end; i++) {
+            consumer.accept(buffer[(int) i & mask]);
+        }
+        if (end != start) {
+            LONGS.setRelease(indices, CONSUMER_INDEX, end);
+        }
+        return (int) (end - start);
+    }
+    
+    public int capacity() {
+        return buffer.length;
+    }
+}
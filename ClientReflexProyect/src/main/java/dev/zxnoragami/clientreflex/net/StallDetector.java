@@ -0,0 +1,286 @@
+package dev.zxnoragami.clientreflex.net;
+
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
+import dev.zxnoragami.clientreflex.perf.ClientPerformanceMonitor;
+import dev.zxnoragami.clientreflex.ping.RollingLatencyHistogram;
+import dev.zxnoragami.clientreflex.recording.SessionRecorder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Detector de silencios de entrada (stalls) con clasificación de la causa.
+ *
+ * Cada hueco entre paquetes mayor que el umbral se registra con su inicio y duración
+ * en un histograma por ventanas y, una vez clasificado, en un registro acotado:
+ *
+ * - CLIENT_FREEZE: pausas de GC cubren al menos la mitad del silencio. Solo cuentan
+ *   las pausas que detienen toda la JVM: las llegadas se sellan en el event loop de
+ *   Netty, que sigue leyendo durante un tick o un frame largos del hilo del cliente.
+ * - SERVER_TICK_FREEZE: al volver los paquetes, el tiempo del mundo avanzó bastante
+ *   menos de lo que duró el silencio: el servidor dejó de hacer ticks.
+ * - NETWORK_STALL: el servidor siguió haciendo ticks (el tiempo del mundo avanzó lo
+ *   normal), el kernel retransmitió segmentos o un keep-alive llegó con el retraso
+ *   del silencio: los paquetes se quedaron por el camino.
+ * - UNKNOWN: sin pruebas suficientes en CLASSIFY_TIMEOUT_MS.
+ *
+ * La clasificación por tiempo del mundo usa el último WorldTimeUpdateS2CPacket de la
+ * ráfaga que sigue al silencio: en un corte de red los paquetes retenidos llegan juntos
+ * y solo el más reciente refleja los ticks que pasaron. Todos los instantes usan el
+ * mismo reloj (System.currentTimeMillis). Solo lo usa el hilo del cliente; solo asigna
+ * memoria al detectar un silencio.
+ */
+public class StallDetector {
+    /**
+     * Causa atribuida a un silencio.
+     */
+    public enum StallCause {
+        SERVER_TICK_FREEZE("Congelamiento del servidor"),
+        NETWORK_STALL("Corte de red"),
+        CLIENT_FREEZE("Congelamiento del cliente"),
+        UNKNOWN("Desconocida");
+
+        private final String displayName;
+
+        StallCause(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Un silencio ya clasificado.
+     */
+    public static final class StallEvent {
+        public final long startMs;
+        public final long durationMs;
+        public final StallCause cause;
+        public final String detail;
+
+        StallEvent(long startMs, long durationMs, StallCause cause, String detail) {
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+            this.cause = cause;
+            this.detail = detail;
+        }
+    }
+
+    private static final int LOG_CAPACITY = 64;
+    private static final long CLASSIFY_TIMEOUT_MS = 3000;
+    private static final long BURST_SETTLE_MS = 250; // Sin tiempos del mundo nuevos: la ráfaga terminó
+    private static final double TICK_MS = 50.0;
+    private static final int RETRANSMIT_SAMPLES = 16;
+
+    private final RollingLatencyHistogram durationHistogram = new RollingLatencyHistogram();
+    private final long[] countsByCause = new long[StallCause.values().length];
+    private final Deque<StallEvent> log = new ArrayDeque<>();
+
+    // Último tiempo del mundo conocido
+    private boolean hasWorldTime = false;
+    private long lastWorldTimeArrivalMs = 0;
+    private long lastWorldTicks = 0;
+
+    // Último tránsito de keep-alive y retransmisiones acumuladas del kernel (1 por segundo)
+    private boolean hasTransit = false;
+    private long lastTransitMs = 0;
+    private final long[] retransmitTimeMs = new long[RETRANSMIT_SAMPLES];
+    private final long[] retransmitTotals = new long[RETRANSMIT_SAMPLES];
+    private int retransmitCount = 0;
+
+    // Silencio pendiente de clasificar (solo uno: el siguiente lo clasifica como esté)
+    private boolean pending = false;
+    private long pendingStartMs;
+    private long pendingDurationMs;
+    private boolean pendingHasWorldTime;
+    private long pendingWorldTimeArrivalMs;
+    private long pendingWorldTicks;
+    private boolean pendingHasTransit;
+    private long pendingTransitMs;
+    private boolean pendingKeepAliveDelayed;
+    private boolean pendingHasWorldTimeAfter;
+
+    /**
+     * Registra un silencio recién terminado.
+     *
+     * @param startMs llegada del último paquete antes del silencio
+     * @param durationMs duración del silencio
+     */
+    public void onStall(long startMs, long durationMs) {
+        if (pending && !finishIfJvmPaused()) {
+            finish(StallCause.UNKNOWN, "superpuesto con otro silencio");
+        }
+        durationHistogram.recordAt(durationMs, startMs + durationMs);
+
+        pending = true;
+        pendingStartMs = startMs;
+        pendingDurationMs = durationMs;
+        pendingHasWorldTime = hasWorldTime;
+        pendingWorldTimeArrivalMs = lastWorldTimeArrivalMs;
+        pendingWorldTicks = lastWorldTicks;
+        pendingHasTransit = hasTransit;
+        pendingTransitMs = lastTransitMs;
+        pendingKeepAliveDelayed = false;
+        pendingHasWorldTimeAfter = false;
+    }
+
+    /**
+     * Registra un tiempo del mundo. Con un silencio pendiente, la comparación se hace en
+     * {@link #update(long)} cuando la ráfaga posterior termina.
+     */
+    public void onWorldTime(long arrivalMs, long worldTicks) {
+        if (pending && pendingHasWorldTime && arrivalMs >= pendingStartMs + pendingDurationMs) {
+            pendingHasWorldTimeAfter = true;
+        }
+        hasWorldTime = true;
+        lastWorldTimeArrivalMs = arrivalMs;
+        lastWorldTicks = worldTicks;
+    }
+
+    /**
+     * Registra el tránsito de un keep-alive. Si sube tanto como medio silencio, el
+     * keep-alive estuvo retenido en la red.
+     */
+    public void onKeepAliveTransit(long transitMs) {
+        if (pending && pendingHasTransit && transitMs - pendingTransitMs >= pendingDurationMs / 2) {
+            pendingKeepAliveDelayed = true;
+        }
+        hasTransit = true;
+        lastTransitMs = transitMs;
+    }
+
+    /**
+     * Registra el total de retransmisiones TCP del kernel.
+     */
+    public void onRetransmitSample(long nowMs, long totalRetransmits) {
+        int slot = retransmitCount % RETRANSMIT_SAMPLES;
+        retransmitTimeMs[slot] = nowMs;
+        retransmitTotals[slot] = totalRetransmits;
+        retransmitCount++;
+    }
+
+    /**
+     * Clasifica el silencio pendiente cuando termina la ráfaga de tiempos del mundo
+     * posterior o, sin ellos, cuando pasa el plazo. Debe llamarse cada tick.
+     */
+    public void update(long nowMs) {
+        if (!pending || finishIfJvmPaused()) {
+            return;
+        }
+        if (pendingHasWorldTimeAfter && nowMs - lastWorldTimeArrivalMs >= BURST_SETTLE_MS) {
+            classifyByWorldTime();
+            return;
+        }
+        if (nowMs - (pendingStartMs + pendingDurationMs) < CLASSIFY_TIMEOUT_MS) {
+            return;
+        }
+        long retransmits = retransmitsSince(pendingStartMs);
+        if (retransmits > 0) {
+            finish(StallCause.NETWORK_STALL, String.format("%d retransmisiones TCP", retransmits));
+        } else if (pendingKeepAliveDelayed) {
+            finish(StallCause.NETWORK_STALL, "keep-alive retrasado");
+        } else {
+            finish(StallCause.UNKNOWN, "sin tiempo del mundo ni señales de red");
+        }
+    }
+
+    /**
+     * Clasifica el silencio pendiente como CLIENT_FREEZE si las pausas de GC cubren al
+     * menos la mitad. Se comprueba al clasificar y no al detectar: las pausas se leen al
+     * empezar cada tick, así que la de este silencio puede registrarse después de drenar
+     * el paquete que lo cerró.
+     */
+    private boolean finishIfJvmPaused() {
+        long pausedMs = ClientPerformanceMonitor.getInstance()
+            .getJvmPausedMs(pendingStartMs, pendingStartMs + pendingDurationMs);
+        if (pausedMs * 2 < pendingDurationMs) {
+            return false;
+        }
+        finish(StallCause.CLIENT_FREEZE, String.format("pausas de GC %d ms", pausedMs));
+        return true;
+    }
+
+    /**
+     * Compara los ticks que avanzó el servidor desde antes del silencio con los que
+     * deberían haber pasado. Si faltan más de la mitad de los del silencio, el servidor
+     * estuvo parado.
+     */
+    private void classifyByWorldTime() {
+        double expectedTicks = (lastWorldTimeArrivalMs - pendingWorldTimeArrivalMs) / TICK_MS;
+        long actualTicks = lastWorldTicks - pendingWorldTicks;
+        double stallTicks = pendingDurationMs / TICK_MS;
+        String detail = String.format("ticks %d de %.0f esperados", actualTicks, expectedTicks);
+        if (actualTicks < 0) {
+            finish(StallCause.UNKNOWN, "el tiempo del mundo retrocedió");
+        } else if (actualTicks < expectedTicks - stallTicks / 2) {
+            finish(StallCause.SERVER_TICK_FREEZE, detail);
+        } else {
+            finish(StallCause.NETWORK_STALL, detail);
+        }
+    }
+
+    /**
+     * Retransmisiones entre la última muestra anterior a startMs y la más reciente.
+     */
+    private long retransmitsSince(long startMs) {
+        int available = Math.min(retransmitCount, RETRANSMIT_SAMPLES);
+        if (available < 2) {
+            return 0;
+        }
+        int newest = (retransmitCount - 1) % RETRANSMIT_SAMPLES;
+        for (int i = 1; i < available; i++) {
+            int slot = (retransmitCount - 1 - i) % RETRANSMIT_SAMPLES;
+            if (retransmitTimeMs[slot] <= startMs) {
+                return retransmitTotals[newest] - retransmitTotals[slot];
+            }
+        }
+        return 0;
+    }
+
+    private void finish(StallCause cause, String detail) {
+        pending = false;
+        log(pendingStartMs, pendingDurationMs, cause, detail);
+    }
+
+    private void log(long startMs, long durationMs, StallCause cause, String detail) {
+        countsByCause[cause.ordinal()]++;
+        ClientReflexJfr.readStall(startMs, durationMs, cause, detail);
+        SessionRecorder.getInstance().recordStall(startMs, durationMs, cause);
+        if (log.size() == LOG_CAPACITY) {
+            log.removeFirst();
+        }
+        log.addLast(new StallEvent(startMs, durationMs, cause, detail));
+    }
+
+    /**
+     * Histograma de duración de los silencios (ms) por ventanas.
+     */
+    public RollingLatencyHistogram getDurationHistogram() {
+        return durationHistogram;
+    }
+
+    /**
+     * Número de silencios clasificados con la causa indicada en la sesión.
+     */
+    public long getCount(StallCause cause) {
+        return countsByCause[cause.ordinal()];
+    }
+
+    /**
+     * Copia de los últimos silencios clasificados, del más antiguo al más reciente.
+     */
+    public List<StallEvent> getRecentEvents() {
+        return new ArrayList<>(log);
+    }
+
+    /**
+     * Indica si hay un silencio esperando clasificación.
+     */
+    public boolean hasPendingStall() {
+        return pending;
+    }
+}
@@ -0,0 +1,63 @@
+package dev.zxnoragami.clientreflex.net;
+
+import dev.zxnoragami.clientreflex.ClientReflexMod;
+import io.netty.channel.Channel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.epoll.EpollTcpInfo;
+
+/**
+ * Lee el RTT suavizado y las retransmisiones del kernel (TCP_INFO) del canal del servidor.
+ * 
+ * Solo funciona con el transporte nativo epoll (Linux con "Usar transporte nativo");
+ * con NIO o en otros sistemas devuelve -1 y el monitor simplemente no usa esta fuente.
+ * Reutiliza el mismo EpollTcpInfo en cada lectura para no asignar memoria.
+ */
+public class TcpInfoSampler {
+    private volatile Channel channel;
+    private EpollTcpInfo tcpInfo;
+    private boolean unavailable = false;
+    private long totalRetransmits = -1;
+    
+    /**
+     * Asocia el canal de la conexión actual (se llama al activarse el canal).
+     */
+    public void attach(Channel channel) {
+        this.channel = channel;
+    }
+    
+    /**
+     * Lee el RTT del kernel en microsegundos, o -1 si no está disponible.
+     * Se llama desde el hilo del cliente; getsockopt no necesita el event loop.
+     */
+    public long sampleRttMicros() {
+        Channel current = channel;
+        if (unavailable || current == null || !current.isActive()) {
+            totalRetransmits = -1;
+            return -1;
+        }
+        try {
+            if (!(current instanceof EpollSocketChannel epollChannel)) {
+                return -1;
+            }
+            if (tcpInfo == null) {
+                tcpInfo = new EpollTcpInfo();
+            }
+            epollChannel.tcpInfo(tcpInfo);
+            long rtt = tcpInfo.rtt();
+            totalRetransmits = tcpInfo.totalRetrans();
+            return rtt > 0 ? rtt : -1;
+        } catch (LinkageError | RuntimeException e) {
+            // Sin las clases o la librería nativa de epoll: no volver a intentarlo
+            unavailable = true;
+            ClientReflexMod.LOGGER.debug("TCP_INFO no disponible: ", e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Retransmisiones TCP acumuladas en la última lectura, o -1 si no hay lectura.
+     */
+    public long getTotalRetransmits() {
+        return totalRetransmits;
+    }
+}
@@ -0,0 +1,62 @@
+package dev.zxnoragami.clientreflex.net;
+
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Handler que cuenta los bytes que pasan por el socket en ambas direcciones.
+ *
+ * Va el primero del pipeline, así que ve los ByteBuf tal como salen y entran del
+ * socket: comprimidos y cifrados, es decir, el tráfico real del enlace. Solo lee
+ * readableBytes() y lo publica en la ingesta del NetworkMonitor; no copia ni retiene
+ * los buffers.
+ *
+ * Tras cada escritura y cada flush publica también el tamaño de la cola de salida, que
+ * solo se puede leer desde el event loop. El cliente escribe cada tick, así que el
+ * valor publicado nunca tiene más de un tick de antigüedad mientras hay mundo.
+ *
+ * Se ejecuta en el event loop de Netty una vez por lectura o escritura del socket,
+ * no por paquete, y no asigna memoria.
+ */
+public class TrafficCounterHandler extends ChannelDuplexHandler {
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof ByteBuf buf) {
+            NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+            if (monitor != null) {
+                monitor.onBytesReceived(buf.readableBytes());
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf buf) {
+            NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+            if (monitor != null) {
+                monitor.onBytesSent(buf.readableBytes());
+            }
+        }
+        super.write(ctx, msg, promise);
+        publishOutboundPending(ctx);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        super.flush(ctx);
+        publishOutboundPending(ctx);
+    }
+
+    private static void publishOutboundPending(ChannelHandlerContext ctx) {
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        ChannelOutboundBuffer outboundBuffer = ctx.channel().unsafe().outboundBuffer();
+        if (monitor != null && outboundBuffer != null) {
+            monitor.onOutboundPending(outboundBuffer.totalPendingWriteBytes());
+        }
+    }
+}
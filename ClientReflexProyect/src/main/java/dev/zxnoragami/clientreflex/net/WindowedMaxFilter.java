@@ -0,0 +1,102 @@
+package dev.zxnoragami.clientreflex.net;
+
+/**
+ * Máximo de una serie en una ventana deslizante de tiempo, con el algoritmo de Kathleen
+ * Nichols que usan BBR y lib/minmax.c de Linux: guarda solo los tres mejores candidatos
+ * (el máximo, el mejor del segundo cuarto y el del último), así que memoria y coste
+ * son constantes.
+ *
+ * El resultado es aproximado: puede conservar un máximo hasta una ventana y cuarto,
+ * nunca menos de una. No es thread-safe.
+ */
+public class WindowedMaxFilter {
+    private final long[] times = new long[3];
+    private final long[] values = new long[3];
+    private long windowMs;
+    private boolean empty = true;
+
+    public WindowedMaxFilter(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * Cambia la ventana; se aplica desde la siguiente muestra.
+     */
+    public void setWindowMs(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * Registra una muestra y devuelve el máximo de la ventana.
+     */
+    public long update(long value, long nowMs) {
+        if (empty || value >= values[0] || nowMs - times[2] > windowMs) {
+            // Máximo nuevo o ventana entera sin muestras: reiniciar con esta
+            reset(value, nowMs);
+            return value;
+        }
+        if (value >= values[1]) {
+            set(1, value, nowMs);
+            set(2, value, nowMs);
+        } else if (value >= values[2]) {
+            set(2, value, nowMs);
+        }
+        return expire(value, nowMs);
+    }
+
+    /**
+     * Máximo actual (0 si no hay muestras).
+     */
+    public long get() {
+        return empty ? 0 : values[0];
+    }
+
+    /**
+     * Instante de la muestra que da el máximo actual.
+     */
+    public long getTimeMs() {
+        return times[0];
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public void clear() {
+        empty = true;
+    }
+
+    private long expire(long value, long nowMs) {
+        long age = nowMs - times[0];
+        if (age > windowMs) {
+            // El máximo caducó: avanzan los candidatos y la muestra nueva ocupa el último lugar
+            set(0, values[1], times[1]);
+            set(1, values[2], times[2]);
+            set(2, value, nowMs);
+            if (nowMs - times[0] > windowMs) {
+                set(0, values[1], times[1]);
+                set(1, values[2], times[2]);
+            }
+        } else if (times[1] == times[0] && age > windowMs / 4) {
+            // Pasó un cuarto de ventana: buscar un segundo candidato
+            set(1, value, nowMs);
+            set(2, value, nowMs);
+        } else if (times[2] == times[1] && age > windowMs / 2) {
+            // Pasó media ventana: buscar un tercer candidato
+            set(2, value, nowMs);
+        }
+        return values[0];
+    }
+
+    private void reset(long value, long nowMs) {
+        for (int i = 0; i < 3; i++) {
+            set(i, value, nowMs);
+        }
+        empty = false;
+    }
+
+    private void set(int index, long value, long nowMs) {
+        values[index] = value;
+        times[index] = nowMs;
+    }
+}
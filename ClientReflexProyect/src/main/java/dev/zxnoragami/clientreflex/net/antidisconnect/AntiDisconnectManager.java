@@ -3,6 +3,8 @@ package dev.zxnoragami.clientreflex.net.antidisconnect;
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
 import dev.zxnoragami.clientreflex.net.ChatNotifier;
 import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
+import dev.zxnoragami.clientreflex.policy.BackoffPolicy;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.multiplayer.MultiplayerScreen;
 import net.minecraft.client.gui.screen.TitleScreen;
@@ -252,23 +254,16 @@ public class AntiDisconnectManager {
      * Calcula el delay de backoff exponencial.
      */
     private long calculateBackoffDelay() {
+        return BackoffPolicy.delayMs(backoffParameters(), currentAttempt, random.nextDouble());
+    }
+    
+    /**
+     * Parámetros del backoff según la configuración actual.
+     */
+    public static BackoffPolicy.Parameters backoffParameters() {
         var config = ClientReflexConfig.getConfig().antiDisconnect;
-        long baseDelay = config.baseDelayMs;
-        long maxDelay = config.maxDelayMs;
-        double multiplier = config.multiplier;
-        int jitterPct = config.jitterPct;
-        
-        // Backoff exponencial: baseDelay * (multiplier ^ (attempt - 1))
-        long delay = (long) (baseDelay * Math.pow(multiplier, currentAttempt - 1));
-        delay = Math.min(delay, maxDelay);
-        
-        // Añadir jitter aleatorio
-        if (jitterPct > 0) {
-            long jitter = (long) (delay * jitterPct / 100.0 * (random.nextDouble() * 2 - 1));
-            delay += jitter;
-        }
-        
-        return Math.max(delay, baseDelay);
+        return new BackoffPolicy.Parameters(config.baseDelayMs, config.maxDelayMs, config.multiplier,
+            config.jitterPct, config.maxAttempts);
     }
     
     /**
@@ -325,6 +320,7 @@ public class AntiDisconnectManager {
         AntiDisconnectState oldState = state.getAndSet(newState);
         if (oldState != newState) {
             ClientReflexMod.LOGGER.debug("AntiDisconnect: {} -> {}", oldState, newState);
+            ClientReflexJfr.antiDisconnectTransition(oldState, newState);
         }
     }
     
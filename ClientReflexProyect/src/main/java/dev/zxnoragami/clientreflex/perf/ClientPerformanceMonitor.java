@@ -0,0 +1,203 @@
+package dev.zxnoragami.clientreflex.perf;
+
+import dev.zxnoragami.clientreflex.ping.RollingLatencyHistogram;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Monitor ligero del rendimiento del cliente: duración de ticks, tiempo entre frames
+ * y pausas de GC.
+ *
+ * Las duraciones se guardan en histogramas por ventana (en microsegundos, así que los
+ * valores de más de ~1 s se acumulan en el último bucket) y todo lo que supera
+ * STALL_THRESHOLD_MS se marca en la {@link PerformanceTimeline}, junto a los silencios
+ * de red y los cambios de perfil. Con eso, un hueco entre paquetes que coincide con una
+ * pausa de GC se atribuye al cliente y no a la red. Un frame o un tick largos no: solo
+ * detienen el hilo del cliente, y las llegadas se sellan en el event loop de Netty.
+ *
+ * Las pausas de GC salen de las diferencias de GarbageCollectorMXBean.getCollectionTime
+ * en cada tick; se ignoran los colectores concurrentes, cuyo tiempo no detiene la JVM.
+ *
+ * Para decisiones inmediatas (pausar una transición de distancia) los histogramas son
+ * demasiado lentos: se lleva además una media móvil del tiempo entre frames y la hora
+ * del último pico, un frame de más de FRAME_SPIKE_MIN_MS y FRAME_SPIKE_FACTOR veces la media.
+ *
+ * Solo se usa desde el hilo del cliente. No asigna memoria por tick ni por frame.
+ */
+public class ClientPerformanceMonitor {
+    private static ClientPerformanceMonitor instance;
+
+    /**
+     * Duración a partir de la cual un tick, un frame o una pausa cuentan como congelamiento.
+     */
+    public static final long STALL_THRESHOLD_MS = 250;
+    private static final int TIMELINE_CAPACITY = 512;
+    // Un pico es un frame por debajo de ~30 FPS y de más del doble de la media
+    private static final double FRAME_SPIKE_MIN_MS = 34.0;
+    private static final double FRAME_SPIKE_FACTOR = 2.0;
+    private static final double FRAME_AVERAGE_ALPHA = 0.05;
+
+    private final RollingLatencyHistogram tickTimeHistogram = new RollingLatencyHistogram();
+    private final RollingLatencyHistogram frameTimeHistogram = new RollingLatencyHistogram();
+    private final PerformanceTimeline timeline = new PerformanceTimeline(TIMELINE_CAPACITY);
+
+    private final GarbageCollectorMXBean[] pauseCollectors;
+    private final long[] lastCollectionTimeMs;
+    private final long[] lastCollectionCount;
+    private long gcPauseCount = 0;
+    private long gcPauseTotalMs = 0;
+
+    private long tickStartNanos = -1;
+    private long lastFrameNanos = -1;
+    private double frameTimeAverageMs = -1;
+    private long lastFrameSpikeMs = -1;
+
+    private ClientPerformanceMonitor() {
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .filter(bean -> !bean.getName().contains("Concurrent") && !bean.getName().contains("Cycles"))
+            .toList();
+        pauseCollectors = collectors.toArray(new GarbageCollectorMXBean[0]);
+        lastCollectionTimeMs = new long[pauseCollectors.length];
+        lastCollectionCount = new long[pauseCollectors.length];
+        for (int i = 0; i < pauseCollectors.length; i++) {
+            lastCollectionTimeMs[i] = Math.max(0, pauseCollectors[i].getCollectionTime());
+            lastCollectionCount[i] = Math.max(0, pauseCollectors[i].getCollectionCount());
+        }
+    }
+
+    public static ClientPerformanceMonitor getInstance() {
+        if (instance == null) {
+            instance = new ClientPerformanceMonitor();
+        }
+        return instance;
+    }
+
+    /**
+     * Inicio de un tick del cliente. También revisa si hubo pausas de GC desde el anterior.
+     */
+    public void onTickStart() {
+        tickStartNanos = System.nanoTime();
+        pollGarbageCollectors();
+    }
+
+    /**
+     * Fin de un tick del cliente.
+     */
+    public void onTickEnd() {
+        if (tickStartNanos < 0) {
+            return;
+        }
+        long micros = (System.nanoTime() - tickStartNanos) / 1000;
+        tickTimeHistogram.record(micros);
+        markIfStall(PerformanceTimeline.EventType.TICK_OVERRUN, micros / 1000);
+        tickStartNanos = -1;
+    }
+
+    /**
+     * Inicio de un frame (MinecraftClientMixin, al entrar en render).
+     */
+    public void onFrameStart() {
+        long now = System.nanoTime();
+        if (lastFrameNanos >= 0) {
+            long micros = (now - lastFrameNanos) / 1000;
+            frameTimeHistogram.record(micros);
+            markIfStall(PerformanceTimeline.EventType.FRAME_STALL, micros / 1000);
+
+            double frameMs = micros / 1000.0;
+            if (frameTimeAverageMs < 0) {
+                frameTimeAverageMs = frameMs;
+            } else {
+                if (frameMs >= FRAME_SPIKE_MIN_MS && frameMs >= FRAME_SPIKE_FACTOR * frameTimeAverageMs) {
+                    lastFrameSpikeMs = System.currentTimeMillis();
+                }
+                frameTimeAverageMs += FRAME_AVERAGE_ALPHA * (frameMs - frameTimeAverageMs);
+            }
+        }
+        lastFrameNanos = now;
+    }
+
+    private void markIfStall(PerformanceTimeline.EventType type, long durationMs) {
+        if (durationMs >= STALL_THRESHOLD_MS) {
+            timeline.mark(type, System.currentTimeMillis() - durationMs, durationMs);
+        }
+    }
+
+    private void pollGarbageCollectors() {
+        for (int i = 0; i < pauseCollectors.length; i++) {
+            long collectionTime = pauseCollectors[i].getCollectionTime();
+            long collectionCount = pauseCollectors[i].getCollectionCount();
+            if (collectionTime < 0 || collectionCount < 0) {
+                continue; // El colector no lo reporta
+            }
+            long pausedMs = collectionTime - lastCollectionTimeMs[i];
+            long pauses = collectionCount - lastCollectionCount[i];
+            lastCollectionTimeMs[i] = collectionTime;
+            lastCollectionCount[i] = collectionCount;
+            if (pauses > 0) {
+                gcPauseCount += pauses;
+                gcPauseTotalMs += pausedMs;
+                if (pausedMs > 0) {
+                    timeline.mark(PerformanceTimeline.EventType.GC_PAUSE,
+                        System.currentTimeMillis() - pausedMs, pausedMs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marca un evento de red o de perfil en la línea de tiempo común.
+     */
+    public void mark(PerformanceTimeline.EventType type, long startMs, long durationMs) {
+        timeline.mark(type, startMs, durationMs);
+    }
+
+    /**
+     * Milisegundos del intervalo [fromMs, toMs] en los que la JVM entera estuvo detenida
+     * por pausas de GC. Es lo único que se puede descontar de un silencio de red.
+     */
+    public long getJvmPausedMs(long fromMs, long toMs) {
+        return timeline.getJvmPausedMs(fromMs, toMs);
+    }
+
+    /**
+     * Histograma de duración de ticks del cliente, en microsegundos.
+     */
+    public RollingLatencyHistogram getTickTimeHistogram() {
+        return tickTimeHistogram;
+    }
+
+    /**
+     * Histograma de tiempo entre frames, en microsegundos.
+     */
+    public RollingLatencyHistogram getFrameTimeHistogram() {
+        return frameTimeHistogram;
+    }
+
+    /**
+     * Si hubo un pico de tiempo entre frames en los últimos quietMs.
+     */
+    public boolean isStuttering(long quietMs) {
+        return lastFrameSpikeMs >= 0 && System.currentTimeMillis() - lastFrameSpikeMs < quietMs;
+    }
+
+    /**
+     * Media móvil del tiempo entre frames en ms, o -1 si aún no hay frames.
+     */
+    public double getFrameTimeAverageMs() {
+        return frameTimeAverageMs;
+    }
+
+    public PerformanceTimeline getTimeline() {
+        return timeline;
+    }
+
+    public long getGcPauseCount() {
+        return gcPauseCount;
+    }
+
+    public long getGcPauseTotalMs() {
+        return gcPauseTotalMs;
+    }
+}
@@ -0,0 +1,116 @@
+package dev.zxnoragami.clientreflex.perf;
+
+/**
+ * Línea de tiempo común de eventos del cliente y de la red.
+ *
+ * Congelamientos del cliente, pausas de GC, silencios de red y cambios de perfil se
+ * marcan aquí con su inicio y duración en el mismo reloj (System.currentTimeMillis),
+ * para poder cruzarlos: un silencio de red que coincide con una pausa de GC no es
+ * culpa de la red.
+ *
+ * Buffer circular de primitivos de tamaño fijo: marcar un evento no asigna memoria
+ * y los más antiguos se sobrescriben. Solo la usa el hilo del cliente.
+ */
+public class PerformanceTimeline {
+    /**
+     * Tipos de evento de la línea de tiempo.
+     */
+    public enum EventType {
+        FRAME_STALL("Frame congelado"),
+        TICK_OVERRUN("Tick largo"),
+        GC_PAUSE("Pausa de GC"),
+        PACKET_STALL("Silencio de red"),
+        PROFILE_SWITCH("Cambio de perfil");
+
+        private final String displayName;
+
+        EventType(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private final long[] startMs;
+    private final long[] durationMs;
+    private final EventType[] types;
+    private long written = 0;
+
+    public PerformanceTimeline(int capacity) {
+        int size = Math.max(1, capacity);
+        this.startMs = new long[size];
+        this.durationMs = new long[size];
+        this.types = new EventType[size];
+    }
+
+    /**
+     * Marca un evento que empezó en startMs y duró durationMs (0 para instantáneos).
+     */
+    public void mark(EventType type, long startMs, long durationMs) {
+        int slot = (int) (written % this.startMs.length);
+        this.startMs[slot] = startMs;
+        this.durationMs[slot] = Math.max(0, durationMs);
+        this.types[slot] = type;
+        written++;
+    }
+
+    /**
+     * Milisegundos del intervalo [fromMs, toMs] cubiertos por pausas de GC, las únicas
+     * que detienen toda la JVM. Un frame o un tick largos solo detienen el hilo del
+     * cliente: el event loop de Netty sigue recibiendo y sellando paquetes, así que no
+     * explican un silencio de red.
+     */
+    public long getJvmPausedMs(long fromMs, long toMs) {
+        if (toMs <= fromMs) {
+            return 0;
+        }
+        long paused = 0;
+        int count = size();
+        for (int i = 0; i < count; i++) {
+            int slot = slotOf(i);
+            if (types[slot] != EventType.GC_PAUSE) {
+                continue;
+            }
+            long overlap = Math.min(toMs, startMs[slot] + durationMs[slot]) - Math.max(fromMs, startMs[slot]);
+            if (overlap > 0) {
+                paused += overlap;
+            }
+        }
+        return Math.min(paused, toMs - fromMs);
+    }
+
+    /**
+     * Número de eventos guardados (como mucho la capacidad).
+     */
+    public int size() {
+        return (int) Math.min(written, startMs.length);
+    }
+
+    /**
+     * Tipo del i-ésimo evento guardado (0 = más antiguo).
+     */
+    public EventType getType(int index) {
+        return types[slotOf(index)];
+    }
+
+    public long getStartMs(int index) {
+        return startMs[slotOf(index)];
+    }
+
+    public long getDurationMs(int index) {
+        return durationMs[slotOf(index)];
+    }
+
+    private int slotOf(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Índice " + index + " fuera de la línea de tiempo de " + size());
+        }
+        return (int) ((written - size() + index) % startMs.length);
+    }
+
+    public void clear() {
+        written = 0;
+    }
+}
@@ -0,0 +1,199 @@
+package dev.zxnoragami.clientreflex.ping;
+
+/**
+ * Detector de cambios de régimen en streaming (CUSUM de dos lados sobre muestras
+ * normalizadas).
+ * 
+ * Cada muestra se normaliza con una línea base lenta (media y desviación) y se
+ * acumula en S+ = max(0, S+ + z - k) y S- = max(0, S- - z - k). Con k = 0.5, el
+ * incremento es exactamente el logaritmo del cociente de verosimilitud entre "la
+ * media subió 1σ" y "no cambió", así que S es la evidencia acumulada de un cambio y
+ * la confianza se expresa como 1 / (1 + e^-S). Un salto de 3σ se detecta en 2-3
+ * muestras y uno de 1σ en unas 10, con ~1 falsa alarma cada ~400 muestras estables.
+ * 
+ * Al detectar un cambio, la nueva línea base es la media de las muestras desde que
+ * empezó a acumularse la evidencia (el punto de cambio estimado).
+ * Coste constante por muestra y sin asignaciones.
+ */
+public class ChangePointDetector {
+    /**
+     * Dirección de un cambio de régimen.
+     */
+    public enum Shift {
+        NONE,
+        UP,
+        DOWN
+    }
+    
+    private static final double K = 0.5;             // Holgura: mitad del salto mínimo (1σ)
+    private static final double H = 6.0;             // Umbral de alarma sobre S
+    private static final double BASELINE_ALPHA = 0.02;
+    private static final double OUTLIER_Z = 3.0;     // Muestras más lejanas no mueven la línea base
+    private static final int WARMUP_SAMPLES = 16;
+    
+    private final double minSigma;
+    
+    // Línea base del régimen actual
+    private double mean = 0.0;
+    private double variance = 0.0;
+    private long samples = 0;
+    
+    // Evidencia acumulada y muestras desde que empezó (para estimar el nuevo nivel)
+    private double upSum = 0.0;
+    private double downSum = 0.0;
+    private double upSamplesTotal = 0.0;
+    private double downSamplesTotal = 0.0;
+    private int upRunLength = 0;
+    private int downRunLength = 0;
+    
+    // Último cambio detectado
+    private Shift lastShift = Shift.NONE;
+    private double lastShiftConfidence = 0.0;
+    private double lastShiftMagnitude = 0.0;
+    private long lastShiftTimeMs = 0;
+    private long shiftCount = 0;
+    
+    /**
+     * @param minSigma desviación mínima supuesta, para no disparar con señales casi planas
+     */
+    public ChangePointDetector(double minSigma) {
+        this.minSigma = Math.max(1e-6, minSigma);
+    }
+    
+    /**
+     * Incorpora una muestra.
+     * 
+     * @return la dirección del cambio si esta muestra confirma uno, o NONE
+     */
+    public Shift record(double value, long nowMs) {
+        samples++;
+        if (samples <= WARMUP_SAMPLES) {
+            // Calentamiento: media y varianza exactas (Welford) sin detección
+            double delta = value - mean;
+            mean += delta / samples;
+            variance += (delta * (value - mean) - variance) / samples;
+            return Shift.NONE;
+        }
+        
+        double z = (value - mean) / sigma();
+        
+        upSum = Math.max(0.0, upSum + z - K);
+        if (upSum > 0) {
+            upSamplesTotal += value;
+            upRunLength++;
+        } else {
+            upSamplesTotal = 0.0;
+            upRunLength = 0;
+        }
+        
+        downSum = Math.max(0.0, downSum - z - K);
+        if (downSum > 0) {
+            downSamplesTotal += value;
+            downRunLength++;
+        } else {
+            downSamplesTotal = 0.0;
+            downRunLength = 0;
+        }
+        
+        if (upSum > H) {
+            return confirmShift(Shift.UP, upSum, upSamplesTotal / upRunLength, nowMs);
+        }
+        if (downSum > H) {
+            return confirmShift(Shift.DOWN, downSum, downSamplesTotal / downRunLength, nowMs);
+        }
+        
+        // La línea base sigue lentamente a la señal, ignorando valores atípicos
+        if (Math.abs(z) < OUTLIER_Z) {
+            double delta = value - mean;
+            mean += BASELINE_ALPHA * delta;
+            variance += BASELINE_ALPHA * (delta * delta - variance);
+        }
+        return Shift.NONE;
+    }
+    
+    private Shift confirmShift(Shift shift, double evidence, double newLevel, long nowMs) {
+        lastShift = shift;
+        lastShiftConfidence = confidenceOf(evidence);
+        lastShiftMagnitude = newLevel - mean;
+        lastShiftTimeMs = nowMs;
+        shiftCount++;
+        
+        // El nuevo régimen empieza en el punto de cambio estimado
+        mean = newLevel;
+        upSum = 0.0;
+        downSum = 0.0;
+        upSamplesTotal = 0.0;
+        downSamplesTotal = 0.0;
+        upRunLength = 0;
+        downRunLength = 0;
+        return shift;
+    }
+    
+    private double sigma() {
+        return Math.max(minSigma, Math.sqrt(variance));
+    }
+    
+    private static double confidenceOf(double evidence) {
+        return 1.0 / (1.0 + Math.exp(-evidence));
+    }
+    
+    /**
+     * Confianza actual de que la señal está subiendo (0.5 = sin evidencia).
+     */
+    public double getPendingUpConfidence() {
+        return confidenceOf(upSum);
+    }
+    
+    public Shift getLastShift() {
+        return lastShift;
+    }
+    
+    /**
+     * Confianza del último cambio detectado (0.5-1).
+     */
+    public double getLastShiftConfidence() {
+        return lastShiftConfidence;
+    }
+    
+    /**
+     * Diferencia entre el nivel nuevo y el anterior en el último cambio.
+     */
+    public double getLastShiftMagnitude() {
+        return lastShiftMagnitude;
+    }
+    
+    public long getLastShiftTimeMs() {
+        return lastShiftTimeMs;
+    }
+    
+    /**
+     * Número de cambios detectados; sirve para saber si hay uno nuevo sin consumirlo.
+     */
+    public long getShiftCount() {
+        return shiftCount;
+    }
+    
+    /**
+     * Nivel (media) del régimen actual.
+     */
+    public double getCurrentLevel() {
+        return mean;
+    }
+    
+    public void reset() {
+        mean = 0.0;
+        variance = 0.0;
+        samples = 0;
+        upSum = 0.0;
+        downSum = 0.0;
+        upSamplesTotal = 0.0;
+        downSamplesTotal = 0.0;
+        upRunLength = 0;
+        downRunLength = 0;
+        lastShift = Shift.NONE;
+        lastShiftConfidence = 0.0;
+        lastShiftMagnitude = 0.0;
+        lastShiftTimeMs = 0;
+        shiftCount = 0;
+    }
+}
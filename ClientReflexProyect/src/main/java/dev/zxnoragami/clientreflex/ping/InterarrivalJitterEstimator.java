@@ -0,0 +1,57 @@
+package dev.zxnoragami.clientreflex.ping;
+
+/**
+ * Jitter de llegada según RFC 3550 (sección 6.4.1).
+ * 
+ * Recibe el tiempo de tránsito de paquetes con marca de tiempo del emisor
+ * (llegada local - marca del servidor). El desfase entre relojes se cancela al
+ * restar tránsitos consecutivos: D = (Rj - Ri) - (Sj - Si), y J += (|D| - J) / 16.
+ * 
+ * Si un servidor o proxy no usa marcas de tiempo como id (por ejemplo, ids
+ * aleatorios), D sale absurdo; en ese caso se descarta la referencia en lugar de
+ * contaminar la estimación.
+ */
+public class InterarrivalJitterEstimator {
+    private static final long MAX_PLAUSIBLE_DELTA_MS = 10_000;
+    
+    private long previousTransitMs = 0;
+    private boolean hasPrevious = false;
+    private double jitterMs = 0.0;
+    private long samples = 0;
+    
+    /**
+     * Incorpora el tránsito de un paquete nuevo.
+     */
+    public void record(long transitMs) {
+        if (hasPrevious) {
+            long delta = Math.abs(transitMs - previousTransitMs);
+            if (delta > MAX_PLAUSIBLE_DELTA_MS) {
+                // Probablemente no es una marca de tiempo: reiniciar la referencia
+                previousTransitMs = transitMs;
+                return;
+            }
+            jitterMs += (delta - jitterMs) / 16.0;
+            samples++;
+        }
+        previousTransitMs = transitMs;
+        hasPrevious = true;
+    }
+    
+    public double getJitterMs() {
+        return jitterMs;
+    }
+    
+    /**
+     * Número de diferencias incorporadas (0 = aún sin estimación).
+     */
+    public long getSampleCount() {
+        return samples;
+    }
+    
+    public void reset() {
+        previousTransitMs = 0;
+        hasPrevious = false;
+        jitterMs = 0.0;
+        samples = 0;
+    }
+}
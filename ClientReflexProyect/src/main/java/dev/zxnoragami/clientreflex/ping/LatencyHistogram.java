@@ -0,0 +1,172 @@
+package dev.zxnoragami.clientreflex.ping;
+
+/**
+ * Histograma compacto de latencias con buckets logarítmicos (estilo HDR).
+ * 
+ * Los valores de 0 a 31 ms tienen un bucket exacto cada uno; por encima, cada
+ * potencia de dos se divide en 16 buckets lineales, así que el error relativo de
+ * cualquier percentil es como mucho 1/16 (~6%). Con valores de hasta ~17 minutos
+ * son 288 buckets de long en total (~2.3 KB), y registrar un valor es O(1) sin
+ * asignar memoria.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;            // 16 por octava
+    private static final int EXACT_LIMIT = SUB_BUCKETS * 2;                 // 0..31 exactos
+    private static final int FIRST_EXPONENT = SUB_BUCKET_BITS + 1;          // 32 = 2^5
+    private static final int MAX_EXPONENT = 19;                             // hasta 2^20 - 1 ms
+    private static final int BUCKET_COUNT = EXACT_LIMIT + (MAX_EXPONENT - FIRST_EXPONENT + 1) * SUB_BUCKETS;
+    
+    /**
+     * Valor máximo representable; los valores mayores se acumulan en el último bucket.
+     */
+    public static final long MAX_TRACKABLE_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount = 0;
+    
+    /**
+     * Registra un valor (en ms). Los negativos se registran como 0.
+     */
+    public void record(long value) {
+        counts[bucketIndex(value)]++;
+        totalCount++;
+    }
+    
+    /**
+     * Suma los conteos de otro histograma a este.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.totalCount == 0) {
+            return;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+    
+    /**
+     * Resta los conteos de otro histograma (que debe estar contenido en este).
+     */
+    public void subtract(LatencyHistogram other) {
+        if (other.totalCount == 0) {
+            return;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] -= other.counts[i];
+        }
+        totalCount -= other.totalCount;
+    }
+    
+    /**
+     * Vacía el histograma.
+     */
+    public void clear() {
+        if (totalCount == 0) {
+            return;
+        }
+        java.util.Arrays.fill(counts, 0);
+        totalCount = 0;
+    }
+    
+    public long getTotalCount() {
+        return totalCount;
+    }
+    
+    /**
+     * Obtiene el valor en el percentil indicado (0-100).
+     * Retorna el punto medio del bucket que contiene el percentil, o 0 si está vacío.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = rankFor(percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return representativeValue(i);
+            }
+        }
+        return representativeValue(BUCKET_COUNT - 1);
+    }
+    
+    /**
+     * Calcula varios percentiles en una sola pasada sobre los buckets.
+     * Los percentiles deben venir en orden ascendente; el resultado se escribe en out.
+     */
+    public void getValuesAtPercentiles(double[] percentiles, long[] out) {
+        if (totalCount == 0) {
+            java.util.Arrays.fill(out, 0, percentiles.length, 0L);
+            return;
+        }
+        int next = 0;
+        long rank = rankFor(percentiles[0]);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && next < percentiles.length; i++) {
+            seen += counts[i];
+            while (next < percentiles.length && seen >= rank) {
+                out[next++] = representativeValue(i);
+                if (next < percentiles.length) {
+                    rank = rankFor(percentiles[next]);
+                }
+            }
+        }
+        while (next < percentiles.length) {
+            out[next++] = representativeValue(BUCKET_COUNT - 1);
+        }
+    }
+    
+    /**
+     * Obtiene el límite superior del bucket más alto con conteos (0 si está vacío).
+     */
+    public long getMaxValue() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+    
+    private long rankFor(double percentile) {
+        double p = Math.max(0.0, Math.min(100.0, percentile));
+        return Math.max(1, (long) Math.ceil(p / 100.0 * totalCount));
+    }
+    
+    static int bucketIndex(long value) {
+        if (value < EXACT_LIMIT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        if (value > MAX_TRACKABLE_VALUE) {
+            return BUCKET_COUNT - 1;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);   // >= FIRST_EXPONENT
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >> shift) - SUB_BUCKETS;    // 0..15
+        return EXACT_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+    
+    static long lowerBound(int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        int exponent = FIRST_EXPONENT + (index - EXACT_LIMIT) / SUB_BUCKETS;
+        int subBucket = (index - EXACT_LIMIT) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+    
+    static long upperBound(int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        int exponent = FIRST_EXPONENT + (index - EXACT_LIMIT) / SUB_BUCKETS;
+        return lowerBound(index) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+    
+    private static long representativeValue(int index) {
+        return (lowerBound(index) + upperBound(index)) / 2;
+    }
+}
@@ -1,6 +1,15 @@
 package dev.zxnoragami.clientreflex.ping;
 
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import dev.zxnoragami.clientreflex.client.ChunkRetentionCache;
+import dev.zxnoragami.clientreflex.client.ViewDistanceController;
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.net.InboundBandwidthEstimator;
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
+import dev.zxnoragami.clientreflex.net.ServerTpsEstimator;
+import dev.zxnoragami.clientreflex.perf.ClientPerformanceMonitor;
+import dev.zxnoragami.clientreflex.perf.PerformanceTimeline;
+import dev.zxnoragami.clientreflex.policy.PingRange;
 import net.minecraft.text.Text;
 
 import java.util.ArrayList;
@@ -15,6 +24,10 @@ import java.util.List;
 public class PingDiagnostics {
     private static PingDiagnostics instance;
     
+    // Umbrales de RTTVAR para las sugerencias
+    private static final double HIGH_JITTER_MS = 35;
+    private static final double EXCELLENT_JITTER_MS = 7;
+    
     private PingDiagnostics() {
     }
     
@@ -44,16 +57,109 @@ public class PingDiagnostics {
         report.add(Text.literal(String.format("  Mínimo: %d ms", metrics.getMinPingMs())));
         report.add(Text.literal(String.format("  Máximo: %d ms", metrics.getMaxPingMs())));
         report.add(Text.literal(String.format("  Jitter: %.1f ms", metrics.getJitterMs())));
+        if (metrics.hasSmoothedRtt()) {
+            report.add(Text.literal(String.format("  SRTT / RTTVAR: %.1f / %.1f ms (timeout %d ms)",
+                metrics.getSmoothedRttMs(), metrics.getRttVarianceMs(), metrics.getRetransmissionTimeoutMs())));
+            report.add(Text.literal(String.format("  Media exponencial: %.1f ms", metrics.getEwmaPingMs())));
+        }
+        if (metrics.hasInterarrivalJitter()) {
+            report.add(Text.literal(String.format("  Jitter de llegada (RFC 3550): %.1f ms",
+                metrics.getInterarrivalJitterMs())));
+        }
         
         PingMetrics.PingTrend trend = metrics.getTrend();
         String trendStr = trend == PingMetrics.PingTrend.INCREASING ? "↑ Subiendo" :
                          trend == PingMetrics.PingTrend.DECREASING ? "↓ Bajando" : "→ Estable";
         report.add(Text.literal(String.format("  Tendencia: %s", trendStr)));
+        RttSource shiftSource = metrics.getLastRttShiftSource();
+        addShiftLine(report, shiftSource != null ? "Último cambio de RTT (" + shiftSource.getDisplayName() + ")"
+            : "Último cambio de RTT", metrics.getRttChangeDetector());
+        addShiftLine(report, "Último cambio de jitter", metrics.getJitterChangeDetector());
+        report.add(Text.literal(""));
+        
+        // Última muestra de cada fuente de RTT
+        report.add(Text.literal("Fuentes de RTT:"));
+        for (RttSource source : RttSource.values()) {
+            long sample = metrics.getLastSample(source);
+            report.add(Text.literal(String.format("  %s: %s", source.getDisplayName(),
+                sample >= 0 ? sample + " ms" : "sin muestras")));
+        }
+        report.add(Text.literal(""));
+        
+        // Percentiles por ventana
+        report.add(Text.literal("Percentiles (p50 / p90 / p99 / p99.9):"));
+        addPercentileLines(report, "Ping", metrics.getRttHistogram());
+        addPercentileLines(report, "Jitter", metrics.getJitterHistogram());
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        if (monitor != null) {
+            addPercentileLines(report, "Hueco entre paquetes", monitor.getPacketGapHistogram());
+        }
+        report.add(Text.literal(""));
+        
+        // TPS del servidor (cadencia del tiempo del mundo)
+        if (monitor != null) {
+            ServerTpsEstimator serverTps = monitor.getServerTpsEstimator();
+            report.add(Text.literal("Servidor:"));
+            if (serverTps.hasEstimate()) {
+                report.add(Text.literal(String.format("  TPS: %.2f%s", serverTps.getTps(),
+                    serverTps.isLagging(config.serverLagTpsThreshold) ? " (con lag: el ping no activa el modo débil)" : "")));
+                report.add(Text.literal(String.format("  Tiempo por tick: %.1f ± %.1f ms",
+                    serverTps.getTickTimeMs(), serverTps.getTickTimeStdDevMs())));
+            } else {
+                report.add(Text.literal("  TPS: sin datos suficientes"));
+            }
+            report.add(Text.literal(""));
+            
+            // Capacidad del enlace de entrada (máximo de la tasa de entrega, al estilo de BBR)
+            InboundBandwidthEstimator bandwidth = monitor.getInboundBandwidth();
+            report.add(Text.literal("Enlace de entrada:"));
+            long capacity = bandwidth.getCapacityBytesPerSecond();
+            if (capacity < 0) {
+                report.add(Text.literal("  Capacidad: sin datos suficientes"));
+            } else {
+                report.add(Text.literal(String.format("  Capacidad: %s%.0f kbit/s",
+                    bandwidth.isCapacityMeasured() ? "" : "al menos ", capacity * 8 / 1000.0)));
+            }
+            report.add(Text.literal(String.format("  Tasa entregada (2 s): %.0f kbit/s",
+                bandwidth.getDeliveryRateBytesPerSecond() * 8 / 1000.0)));
+            double utilization = bandwidth.getUtilization();
+            if (utilization >= 0) {
+                report.add(Text.literal(String.format("  Utilización: %.0f%%%s", utilization * 100,
+                    utilization >= config.linkSaturationUtilization ? " (saturado)" : "")));
+            }
+            report.add(Text.literal(String.format("  Muestras con el enlace lleno: %d / %d",
+                bandwidth.getPipeLimitedSampleCount(), bandwidth.getSampleCount())));
+            report.add(Text.literal(String.format("  Datos de chunks: %.0f kbit/s%s",
+                monitor.getChunkBytesPerSecond(config.viewDistanceStepDownMs) * 8 / 1000.0,
+                capacity > 0 ? String.format(" (presupuesto %.0f kbit/s)",
+                    config.chunkBandwidthFraction * capacity * 8 / 1000.0) : "")));
+            ViewDistanceController viewDistance = ViewDistanceController.getInstance();
+            if (viewDistance.isReduced()) {
+                report.add(Text.literal(String.format("  Distancia de renderizado: reducida (jugador: %d)",
+                    viewDistance.getUserViewDistance())));
+            }
+            if (config.chunkRetentionEnabled) {
+                ChunkRetentionCache retention = ChunkRetentionCache.getInstance();
+                report.add(Text.literal(String.format("  Chunks retenidos: %d (%.1f MB), reinstalados %d, confirmados %d, caducados %d",
+                    retention.getRetainedChunkCount(), retention.getRetainedBytes() / (1024.0 * 1024.0),
+                    retention.getReinstalledCount(), retention.getConfirmedCount(), retention.getExpiredCount())));
+            }
+            report.add(Text.literal(""));
+        }
+        
+        // Rendimiento del cliente y línea de tiempo común
+        addClientPerformanceLines(report, ClientPerformanceMonitor.getInstance());
         report.add(Text.literal(""));
         
         // Perfil actual
-        PingProfileManager.PingRange range = profileManager.getCurrentRange();
+        PingRange range = profileManager.getCurrentRange();
         report.add(Text.literal("Perfil de Conexión: " + range));
+        ServerProfileStore.ServerProfile learned = ServerProfileStore.getInstance().getCurrentProfile();
+        if (learned != null) {
+            report.add(Text.literal(String.format("  Aprendido de %s (%d sesiones): %s, RTT p50 %d ms, timeout de predicción %d ms",
+                ServerProfileStore.getInstance().getCurrentServer(), learned.sessions, learned.stableRange,
+                learned.rttP50Ms, learned.predictionTimeoutMs)));
+        }
         report.add(Text.literal(""));
         
         // Configuración de Netty
@@ -76,21 +182,89 @@ public class PingDiagnostics {
         report.add(Text.literal(String.format("  Crítico: > %d ms", config.pingHighThresholdMs)));
         report.add(Text.literal(""));
         
-        // Sugerencias
+        // Sugerencias. El jitter es RTTVAR (desviación media suavizada): con ruido
+        // gaussiano vale ~0.71 de la antigua diferencia media entre pings consecutivos
+        // (sqrt(2/pi)·sigma frente a 2·sigma/sqrt(pi)), de ahí 35 y 7 ms en vez de 50 y 10
         report.add(Text.literal("Sugerencias:"));
-        if (metrics.getJitterMs() > 50 && metrics.getAveragePingMs() < 100) {
+        if (metrics.getJitterMs() > HIGH_JITTER_MS && metrics.getAveragePingMs() < 100) {
             report.add(Text.literal("  ⚠ Jitter alto con ping bajo: revisa tu conexión Wi-Fi"));
         }
         if (metrics.getAveragePingMs() > 200) {
             report.add(Text.literal("  ⚠ Ping alto: considera usar un servidor más cercano"));
         }
-        if (metrics.getJitterMs() < 10 && metrics.getAveragePingMs() < 50) {
+        if (metrics.getJitterMs() < EXCELLENT_JITTER_MS && metrics.getAveragePingMs() < 50) {
             report.add(Text.literal("  ✓ Conexión excelente"));
         }
         
         return report;
     }
     
+    /**
+     * Añade una línea por ventana (10 s, 60 s, sesión) con los percentiles estándar.
+     */
+    private void addPercentileLines(List<Text> report, String label, RollingLatencyHistogram histogram) {
+        report.add(Text.literal("  " + label + ":"));
+        for (RollingLatencyHistogram.Window window : RollingLatencyHistogram.Window.values()) {
+            long count = histogram.getCount(window);
+            if (count == 0) {
+                report.add(Text.literal(String.format("    %s: sin muestras", windowLabel(window))));
+                continue;
+            }
+            report.add(Text.literal(String.format("    %s: %d / %d / %d / %d ms (n=%d)",
+                windowLabel(window),
+                histogram.getP50(window), histogram.getP90(window),
+                histogram.getP99(window), histogram.getP999(window), count)));
+        }
+    }
+    
+    /**
+     * Añade el último cambio de régimen de un detector: dirección, salto, confianza y antigüedad.
+     */
+    private void addShiftLine(List<Text> report, String label, ChangePointDetector detector) {
+        if (detector.getShiftCount() == 0) {
+            report.add(Text.literal(String.format("  %s: ninguno", label)));
+            return;
+        }
+        long ageSeconds = (System.currentTimeMillis() - detector.getLastShiftTimeMs()) / 1000;
+        report.add(Text.literal(String.format("  %s: %s %+.0f ms (confianza %.1f%%, hace %d s)",
+            label, detector.getLastShift() == ChangePointDetector.Shift.UP ? "↑" : "↓",
+            detector.getLastShiftMagnitude(), detector.getLastShiftConfidence() * 100, ageSeconds)));
+    }
+    
+    /**
+     * Añade tick y frame (p50 / p99 de 10 s, en ms), pausas de GC y los últimos eventos
+     * de la línea de tiempo.
+     */
+    private void addClientPerformanceLines(List<Text> report, ClientPerformanceMonitor performance) {
+        RollingLatencyHistogram.Window window = RollingLatencyHistogram.Window.TEN_SECONDS;
+        RollingLatencyHistogram ticks = performance.getTickTimeHistogram();
+        RollingLatencyHistogram frames = performance.getFrameTimeHistogram();
+        report.add(Text.literal("Rendimiento del cliente (10s):"));
+        report.add(Text.literal(String.format("  Tick p50 / p99: %.1f / %.1f ms",
+            ticks.getP50(window) / 1000.0, ticks.getP99(window) / 1000.0)));
+        report.add(Text.literal(String.format("  Frame p50 / p99: %.1f / %.1f ms",
+            frames.getP50(window) / 1000.0, frames.getP99(window) / 1000.0)));
+        report.add(Text.literal(String.format("  Pausas de GC: %d (%d ms en total)",
+            performance.getGcPauseCount(), performance.getGcPauseTotalMs())));
+        
+        PerformanceTimeline timeline = performance.getTimeline();
+        int shown = Math.min(5, timeline.size());
+        long now = System.currentTimeMillis();
+        for (int i = timeline.size() - shown; i < timeline.size(); i++) {
+            report.add(Text.literal(String.format("  hace %d s: %s (%d ms)",
+                (now - timeline.getStartMs(i)) / 1000, timeline.getType(i).getDisplayName(),
+                timeline.getDurationMs(i))));
+        }
+    }
+    
+    private static String windowLabel(RollingLatencyHistogram.Window window) {
+        return switch (window) {
+            case TEN_SECONDS -> "10s";
+            case SIXTY_SECONDS -> "60s";
+            case SESSION -> "Sesión";
+        };
+    }
+    
     /**
      * Obtiene estadísticas de paquetes (simplificado).
      * En una implementación completa, esto se integraría con el NetworkMonitor.
@@ -1,8 +1,8 @@
 package dev.zxnoragami.clientreflex.ping;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
 
 /**
  * Métricas avanzadas de ping y jitter.
@@ -15,19 +15,58 @@ import java.util.Iterator;
  * - Percepción de latencia: cómo se siente el delay en el juego (se puede optimizar)
  * 
  * Este módulo optimiza la percepción, no el ping físico.
+ * 
+ * No es thread-safe: se usa solo desde el hilo del cliente. Las muestras medidas en
+ * el event loop de Netty llegan a través de NetworkMonitor.drainIngestion().
+ * El simulador de políticas del analizador la alimenta con un reloj virtual.
  */
 public class PingMetrics {
-    private final Deque<Long> pingHistory = new ArrayDeque<>();
+    // Historial en un buffer circular de primitivos: registrar un ping no asigna memoria.
+    // La muestra con número de secuencia N vive en samples[N % capacity].
+    private final long[] samples;
     private final int maxHistorySize;
+    private long nextSequence = 0;
+    private int size = 0;
+    
+    // Acumuladores incrementales sobre la ventana del historial
+    private long runningSum = 0;
+    private final MonotonicQueue minQueue;
+    private final MonotonicQueue maxQueue;
+    private final HistoryView historyView = new HistoryView();
+    
+    // Distribuciones por ventana (10 s, 60 s, sesión) para decidir sobre percentiles
+    private final LongSupplier clock;
+    private final RollingLatencyHistogram rttHistogram;
+    private final RollingLatencyHistogram jitterHistogram;
     
     private long currentPingMs = 0;
     private long minPingMs = Long.MAX_VALUE;
     private long maxPingMs = 0;
     private double averagePingMs = 0.0;
-    private double jitterMs = 0.0;
     
-    private long lastKeepAliveSent = 0;
-    private PingTrend trend = PingTrend.STABLE;
+    // Estimadores en streaming, O(1) por muestra
+    private static final long DEFAULT_EWMA_HALF_LIFE_MS = 10_000;
+    private static final long TICK_GRANULARITY_MS = 50;
+    private final SmoothedRttEstimator smoothedRtt = new SmoothedRttEstimator();
+    private final InterarrivalJitterEstimator interarrivalJitter = new InterarrivalJitterEstimator();
+    private final TimeDecayEwma pingEwma = new TimeDecayEwma(DEFAULT_EWMA_HALF_LIFE_MS);
+    
+    // Última muestra de cada fuente (indexado por RttSource.ordinal()); tiempo 0 = sin muestras
+    private static final RttSource[] SOURCES = RttSource.values();
+    private final long[] lastSampleBySource = new long[SOURCES.length];
+    private final long[] lastSampleTimeBySource = new long[SOURCES.length];
+    private RttSource lastSource = null;
+    
+    // Cambios de régimen (CUSUM) en el RTT y en el jitter; la tendencia se deriva del
+    // último cambio del RTT y se mantiene TREND_HOLD_MS.
+    // El RTT usa un detector por fuente: cada una tiene su sesgo (TCP_INFO no incluye el
+    // procesamiento del servidor), así que en un solo detector solo podría entrar la
+    // preferida, y con la sonda activa eso deja una muestra cada 5 s
+    private static final long TREND_HOLD_MS = 10_000;
+    private final ChangePointDetector[] rttChangeDetectors = new ChangePointDetector[SOURCES.length];
+    private final ChangePointDetector jitterChangeDetector = new ChangePointDetector(1.0);
+    private int lastRttShiftSource = -1;
+    private long rttShiftCount = 0;
     
     /**
      * Tendencia del ping (subiendo, bajando, estable).
@@ -39,141 +78,178 @@ public class PingMetrics {
     }
     
     public PingMetrics(int maxHistorySize) {
-        this.maxHistorySize = maxHistorySize;
+        this(maxHistorySize, System::currentTimeMillis);
     }
     
     /**
-     * Registra el envío de un keep-alive.
-     * Se debe llamar cuando se envía un paquete keep-alive al servidor.
+     * Crea las métricas con un reloj propio (en ms). Útil para reproducir trazas.
      */
-    public void onKeepAliveSent() {
-        lastKeepAliveSent = System.currentTimeMillis();
-    }
-    
-    /**
-     * Registra la recepción de una respuesta keep-alive.
-     * Calcula el RTT (Round Trip Time) y actualiza las métricas.
-     */
-    public void onKeepAliveReceived() {
-        if (lastKeepAliveSent == 0) {
-            return; // No hay timestamp de envío
+    public PingMetrics(int maxHistorySize, LongSupplier clock) {
+        this.clock = clock;
+        this.rttHistogram = new RollingLatencyHistogram(clock);
+        this.jitterHistogram = new RollingLatencyHistogram(clock);
+        this.maxHistorySize = Math.max(1, maxHistorySize);
+        this.samples = new long[this.maxHistorySize];
+        this.minQueue = new MonotonicQueue(this.maxHistorySize, true);
+        this.maxQueue = new MonotonicQueue(this.maxHistorySize, false);
+        for (int i = 0; i < SOURCES.length; i++) {
+            rttChangeDetectors[i] = new ChangePointDetector(2.0);
         }
-        
-        long rtt = System.currentTimeMillis() - lastKeepAliveSent;
-        recordPing(rtt);
-        lastKeepAliveSent = 0; // Reset
     }
     
     /**
-     * Registra un valor de ping directamente.
-     * Útil cuando se obtiene el ping de otras fuentes (ej. tab list).
+     * Registra una muestra nueva de RTT de la fuente indicada.
+     * Solo deben llegar mediciones nuevas: repetir un valor viejo aplana el jitter
+     * y sesga la tendencia.
+     * 
+     * Coste constante y sin asignaciones: las estadísticas se actualizan de forma
+     * incremental en lugar de recorrer todo el historial en cada muestra.
      */
-    public void recordPing(long pingMs) {
+    public void recordPing(RttSource source, long pingMs) {
         if (pingMs < 0) {
             return; // Ping inválido
         }
         
-        currentPingMs = pingMs;
+        long now = clock.getAsLong();
+        int sourceIndex = source.ordinal();
         
-        // Añadir al historial
-        pingHistory.addLast(pingMs);
-        while (pingHistory.size() > maxHistorySize) {
-            pingHistory.removeFirst();
+        // Jitter por fuente: comparar fuentes distintas mezclaría sus sesgos sistemáticos
+        if (lastSampleTimeBySource[sourceIndex] != 0) {
+            long delta = Math.abs(pingMs - lastSampleBySource[sourceIndex]);
+            jitterHistogram.record(delta);
+            jitterChangeDetector.record(delta, now);
         }
+        // Los estimadores siguen a la fuente más precisa que esté activa, para que el
+        // desfase entre fuentes (p. ej. TCP_INFO no incluye el procesamiento del
+        // servidor) no se confunda con varianza
+        if (isPreferredSource(source, now)) {
+            smoothedRtt.record(pingMs);
+            pingEwma.record(pingMs, now);
+        }
+        if (rttChangeDetectors[sourceIndex].record(pingMs, now) != ChangePointDetector.Shift.NONE) {
+            lastRttShiftSource = sourceIndex;
+            rttShiftCount++;
+        }
+        lastSampleBySource[sourceIndex] = pingMs;
+        lastSampleTimeBySource[sourceIndex] = now;
+        lastSource = source;
+        currentPingMs = Math.round(weightedEstimate(now));
+        
+        // Descartar la muestra más antigua si el historial está lleno
+        if (size == maxHistorySize) {
+            evictOldest();
+        }
+        
+        // Añadir al historial
+        rttHistogram.record(pingMs);
+        samples[slot(nextSequence)] = pingMs;
+        runningSum += pingMs;
+        minQueue.push(nextSequence, pingMs);
+        maxQueue.push(nextSequence, pingMs);
+        nextSequence++;
+        size++;
         
         // Actualizar estadísticas
         updateStatistics();
-        updateTrend();
     }
     
     /**
-     * Actualiza las estadísticas (min, max, promedio, jitter).
+     * Registra el tránsito de un keep-alive del servidor (llegada local - id), para el
+     * jitter de llegada RFC 3550. En vanilla el id es la marca de tiempo del servidor en ms.
      */
-    private void updateStatistics() {
-        if (pingHistory.isEmpty()) {
-            return;
-        }
-        
-        long sum = 0;
-        minPingMs = Long.MAX_VALUE;
-        maxPingMs = 0;
-        
-        for (Long ping : pingHistory) {
-            sum += ping;
-            if (ping < minPingMs) {
-                minPingMs = ping;
-            }
-            if (ping > maxPingMs) {
-                maxPingMs = ping;
+    public void recordKeepAliveTransit(long transitMs) {
+        interarrivalJitter.record(transitMs);
+    }
+    
+    /**
+     * Indica si la fuente es la más precisa entre las que dieron muestras recientes
+     * (dentro de tres vidas medias de frescura).
+     */
+    private boolean isPreferredSource(RttSource source, long now) {
+        for (int i = 0; i < SOURCES.length; i++) {
+            RttSource other = SOURCES[i];
+            if (other != source && other.getPrecision() > source.getPrecision()
+                    && lastSampleTimeBySource[i] != 0
+                    && now - lastSampleTimeBySource[i] < 3 * other.getFreshnessHalfLifeMs()) {
+                return false;
             }
         }
-        
-        averagePingMs = (double) sum / pingHistory.size();
-        
-        // Calcular jitter (desviación absoluta media)
-        if (pingHistory.size() >= 2) {
-            double jitterSum = 0;
-            Iterator<Long> it = pingHistory.iterator();
-            long prev = it.next();
-            int count = 0;
-            
-            while (it.hasNext()) {
-                long current = it.next();
-                jitterSum += Math.abs(current - prev);
-                prev = current;
-                count++;
+        return true;
+    }
+    
+    /**
+     * Combina la última muestra de cada fuente ponderada por precisión y frescura.
+     */
+    private double weightedEstimate(long now) {
+        double weightedSum = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < SOURCES.length; i++) {
+            if (lastSampleTimeBySource[i] == 0) {
+                continue;
             }
-            
-            jitterMs = count > 0 ? jitterSum / count : 0.0;
-        } else {
-            jitterMs = 0.0;
+            double weight = SOURCES[i].weightAt(now - lastSampleTimeBySource[i]);
+            weightedSum += weight * lastSampleBySource[i];
+            totalWeight += weight;
         }
+        return totalWeight > 0 ? weightedSum / totalWeight : 0;
+    }
+    
+    /**
+     * Saca la muestra más antigua de la ventana y de los acumuladores.
+     */
+    private void evictOldest() {
+        long oldestSequence = nextSequence - size;
+        long oldest = sampleAt(oldestSequence);
+        runningSum -= oldest;
+        minQueue.expire(oldestSequence);
+        maxQueue.expire(oldestSequence);
+        size--;
     }
     
     /**
-     * Actualiza la tendencia del ping comparando los últimos valores.
+     * Actualiza las estadísticas (min, max, promedio) desde los acumuladores.
      */
-    private void updateTrend() {
-        if (pingHistory.size() < 10) {
-            trend = PingTrend.STABLE;
+    private void updateStatistics() {
+        if (size == 0) {
             return;
         }
         
-        // Comparar el promedio de los últimos 5 con los 5 anteriores
-        long[] recent = new long[5];
-        long[] previous = new long[5];
-        
-        Iterator<Long> it = pingHistory.descendingIterator();
-        for (int i = 0; i < 5 && it.hasNext(); i++) {
-            recent[i] = it.next();
-        }
-        for (int i = 0; i < 5 && it.hasNext(); i++) {
-            previous[i] = it.next();
-        }
-        
-        double recentAvg = 0, previousAvg = 0;
-        for (long v : recent) recentAvg += v;
-        for (long v : previous) previousAvg += v;
-        recentAvg /= 5;
-        previousAvg /= 5;
-        
-        double diff = recentAvg - previousAvg;
-        if (diff > 10) {
-            trend = PingTrend.INCREASING;
-        } else if (diff < -10) {
-            trend = PingTrend.DECREASING;
-        } else {
-            trend = PingTrend.STABLE;
-        }
+        minPingMs = minQueue.peekValue();
+        maxPingMs = maxQueue.peekValue();
+        averagePingMs = (double) runningSum / size;
+    }
+    
+    private int slot(long sequence) {
+        return (int) (sequence % maxHistorySize);
+    }
+    
+    private long sampleAt(long sequence) {
+        return samples[slot(sequence)];
     }
     
     /**
-     * Obtiene el ping actual en milisegundos.
+     * Obtiene el ping actual en milisegundos: la estimación combinada de todas las
+     * fuentes, ponderada por precisión y frescura en el momento de la última muestra.
      */
     public long getCurrentPingMs() {
         return currentPingMs;
     }
     
+    /**
+     * Obtiene la última muestra de una fuente, o -1 si esa fuente no ha dado ninguna.
+     */
+    public long getLastSample(RttSource source) {
+        int index = source.ordinal();
+        return lastSampleTimeBySource[index] == 0 ? -1 : lastSampleBySource[index];
+    }
+    
+    /**
+     * Obtiene la fuente de la muestra más reciente (null si no hay muestras).
+     */
+    public RttSource getLastSource() {
+        return lastSource;
+    }
+    
     /**
      * Obtiene el ping mínimo registrado.
      */
@@ -196,37 +272,296 @@ public class PingMetrics {
     }
     
     /**
-     * Obtiene el jitter (variación del ping) en milisegundos.
+     * Obtiene el jitter (variación del ping) en milisegundos: RTTVAR, la desviación
+     * media suavizada del RTT respecto a SRTT.
      */
     public double getJitterMs() {
-        return jitterMs;
+        return smoothedRtt.getRttVarMs();
+    }
+    
+    /**
+     * Indica si ya hay estimación de SRTT/RTTVAR.
+     */
+    public boolean hasSmoothedRtt() {
+        return smoothedRtt.isInitialized();
     }
     
     /**
-     * Obtiene la tendencia del ping.
+     * RTT suavizado (RFC 6298) en milisegundos.
+     */
+    public double getSmoothedRttMs() {
+        return smoothedRtt.getSrttMs();
+    }
+    
+    /**
+     * Varianza del RTT (RTTVAR, RFC 6298) en milisegundos.
+     */
+    public double getRttVarianceMs() {
+        return smoothedRtt.getRttVarMs();
+    }
+    
+    /**
+     * Timeout estilo TCP: SRTT + max(1 tick, 4·RTTVAR).
+     */
+    public long getRetransmissionTimeoutMs() {
+        return smoothedRtt.getTimeoutMs(TICK_GRANULARITY_MS);
+    }
+    
+    /**
+     * Jitter de llegada de los keep-alive del servidor (RFC 3550), en milisegundos.
+     */
+    public double getInterarrivalJitterMs() {
+        return interarrivalJitter.getJitterMs();
+    }
+    
+    /**
+     * Indica si ya hay estimación de jitter de llegada.
+     */
+    public boolean hasInterarrivalJitter() {
+        return interarrivalJitter.getSampleCount() > 0;
+    }
+    
+    /**
+     * Media exponencial del ping con vida media en tiempo.
+     */
+    public double getEwmaPingMs() {
+        return pingEwma.getValue();
+    }
+    
+    /**
+     * Cambia la vida media de la media exponencial del ping.
+     */
+    public void setEwmaHalfLifeMs(long halfLifeMs) {
+        pingEwma.setHalfLifeMs(halfLifeMs);
+    }
+    
+    /**
+     * Obtiene el percentil del ping en la ventana indicada.
+     * Si la ventana aún no tiene muestras, retorna el ping actual.
+     */
+    public long getPingPercentileMs(RollingLatencyHistogram.Window window, double percentile) {
+        if (rttHistogram.getCount(window) == 0) {
+            return currentPingMs;
+        }
+        return rttHistogram.getPercentile(window, percentile);
+    }
+    
+    /**
+     * Obtiene el histograma de RTT (ping) por ventanas.
+     */
+    public RollingLatencyHistogram getRttHistogram() {
+        return rttHistogram;
+    }
+    
+    /**
+     * Obtiene el histograma de jitter (|diferencia| entre pings consecutivos) por ventanas.
+     */
+    public RollingLatencyHistogram getJitterHistogram() {
+        return jitterHistogram;
+    }
+    
+    /**
+     * Obtiene la tendencia del ping: la dirección del último cambio de régimen del RTT
+     * durante los 10 s siguientes a detectarlo, y estable el resto del tiempo.
      */
     public PingTrend getTrend() {
-        return trend;
+        ChangePointDetector detector = getRttChangeDetector();
+        if (rttShiftCount == 0 || clock.getAsLong() - detector.getLastShiftTimeMs() >= TREND_HOLD_MS) {
+            return PingTrend.STABLE;
+        }
+        return detector.getLastShift() == ChangePointDetector.Shift.UP
+            ? PingTrend.INCREASING : PingTrend.DECREASING;
+    }
+    
+    /**
+     * Detector de cambios de régimen del RTT de la fuente que confirmó el último cambio
+     * (o el de la fuente de la última muestra si aún no hubo ninguno).
+     */
+    public ChangePointDetector getRttChangeDetector() {
+        if (lastRttShiftSource >= 0) {
+            return rttChangeDetectors[lastRttShiftSource];
+        }
+        return rttChangeDetectors[lastSource != null ? lastSource.ordinal() : 0];
+    }
+    
+    /**
+     * Fuente que confirmó el último cambio de régimen del RTT (null si no hubo ninguno).
+     */
+    public RttSource getLastRttShiftSource() {
+        return lastRttShiftSource >= 0 ? SOURCES[lastRttShiftSource] : null;
+    }
+    
+    /**
+     * Cambios de régimen del RTT confirmados por cualquier fuente; sirve para saber si
+     * hay uno nuevo sin consumirlo.
+     */
+    public long getRttShiftCount() {
+        return rttShiftCount;
+    }
+    
+    /**
+     * Detector de cambios de régimen del jitter (diferencias por fuente).
+     */
+    public ChangePointDetector getJitterChangeDetector() {
+        return jitterChangeDetector;
+    }
+    
+    /**
+     * Obtiene una vista de solo lectura del historial de pings.
+     * No copia: refleja las muestras nuevas a medida que se registran.
+     */
+    public HistoryView getHistory() {
+        return historyView;
     }
     
     /**
-     * Obtiene el historial completo de pings.
+     * Arranca SRTT, RTTVAR y la media móvil desde valores aprendidos del servidor, para que
+     * los timeouts adaptativos sean los correctos antes de la primera muestra. El
+     * historial y los percentiles siguen vacíos: solo se llenan con muestras reales.
      */
-    public Deque<Long> getHistory() {
-        return new ArrayDeque<>(pingHistory);
+    public void seedSmoothedRtt(double srttMs, double rttVarMs) {
+        if (smoothedRtt.isInitialized()) {
+            return;
+        }
+        smoothedRtt.seed(srttMs, rttVarMs);
+        pingEwma.record(srttMs, clock.getAsLong());
     }
     
     /**
      * Limpia el historial y resetea las estadísticas.
      */
     public void reset() {
-        pingHistory.clear();
+        nextSequence = 0;
+        size = 0;
+        runningSum = 0;
+        minQueue.clear();
+        maxQueue.clear();
+        rttHistogram.reset();
+        jitterHistogram.reset();
+        Arrays.fill(lastSampleTimeBySource, 0);
+        lastSource = null;
         currentPingMs = 0;
         minPingMs = Long.MAX_VALUE;
         maxPingMs = 0;
         averagePingMs = 0.0;
-        jitterMs = 0.0;
-        trend = PingTrend.STABLE;
+        smoothedRtt.reset();
+        interarrivalJitter.reset();
+        pingEwma.reset();
+        for (ChangePointDetector detector : rttChangeDetectors) {
+            detector.reset();
+        }
+        lastRttShiftSource = -1;
+        rttShiftCount = 0;
+        jitterChangeDetector.reset();
+    }
+    
+    /**
+     * Vista de solo lectura sobre el buffer circular del historial.
+     * El índice 0 es la muestra más antigua.
+     */
+    public final class HistoryView {
+        private HistoryView() {
+        }
+        
+        public int size() {
+            return size;
+        }
+        
+        public boolean isEmpty() {
+            return size == 0;
+        }
+        
+        /**
+         * Obtiene la muestra en la posición indicada (0 = más antigua).
+         */
+        public long get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Índice " + index + " fuera del historial de " + size);
+            }
+            return sampleAt(nextSequence - size + index);
+        }
+        
+        /**
+         * Obtiene la muestra más reciente.
+         */
+        public long getLast() {
+            if (size == 0) {
+                throw new IllegalStateException("Historial vacío");
+            }
+            return sampleAt(nextSequence - 1);
+        }
+        
+        /**
+         * Recorre las muestras de la más antigua a la más reciente.
+         */
+        public void forEach(LongConsumer action) {
+            long first = nextSequence - size;
+            for (int i = 0; i < size; i++) {
+                action.accept(sampleAt(first + i));
+            }
+        }
+        
+        /**
+         * Copia el historial a un array nuevo (para diagnóstico, no para rutas calientes).
+         */
+        public long[] toArray() {
+            long[] copy = new long[size];
+            for (int i = 0; i < size; i++) {
+                copy[i] = get(i);
+            }
+            return copy;
+        }
+    }
+    
+    /**
+     * Cola monótona de números de secuencia para mínimo/máximo en ventana deslizante.
+     * 
+     * Los valores quedan ordenados de forma monótona desde el frente, así que el frente
+     * siempre es el mínimo (o máximo) de la ventana. Cada muestra entra y sale una sola
+     * vez, por lo que el coste amortizado por muestra es constante.
+     */
+    private final class MonotonicQueue {
+        private final long[] sequences;
+        private final boolean keepMinimum;
+        private int head = 0;
+        private int count = 0;
+        
+        MonotonicQueue(int capacity, boolean keepMinimum) {
+            this.sequences = new long[capacity];
+            this.keepMinimum = keepMinimum;
+        }
+        
+        void push(long sequence, long value) {
+            // Quitar desde el final las muestras que ya nunca serán el extremo de la ventana
+            while (count > 0) {
+                long back = sampleAt(sequences[(head + count - 1) % sequences.length]);
+                if (keepMinimum ? back >= value : back <= value) {
+                    count--;
+                } else {
+                    break;
+                }
+            }
+            sequences[(head + count) % sequences.length] = sequence;
+            count++;
+        }
+        
+        /**
+         * Quita el frente si corresponde a la muestra que sale de la ventana.
+         */
+        void expire(long sequence) {
+            if (count > 0 && sequences[head] == sequence) {
+                head = (head + 1) % sequences.length;
+                count--;
+            }
+        }
+        
+        long peekValue() {
+            return sampleAt(sequences[head]);
+        }
+        
+        void clear() {
+            head = 0;
+            count = 0;
+        }
     }
 }
-
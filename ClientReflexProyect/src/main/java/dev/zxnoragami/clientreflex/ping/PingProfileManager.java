@@ -1,9 +1,15 @@
 package dev.zxnoragami.clientreflex.ping;
 
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.ClientReflexClient;
 import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.client.ClientOptionsArbiter;
+import dev.zxnoragami.clientreflex.client.ViewDistanceController;
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
+import dev.zxnoragami.clientreflex.policy.PingRange;
+import dev.zxnoragami.clientreflex.policy.ProfilePolicy;
+import dev.zxnoragami.clientreflex.recording.SessionRecorder;
 import net.minecraft.client.MinecraftClient;
-import net.minecraft.client.option.GameOptions;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -15,50 +21,38 @@ import java.util.Map;
  * para optimizar la experiencia en diferentes condiciones de red.
  * 
  * Este sistema es una versión avanzada del "modo conexión débil" que define
- * perfiles específicos para diferentes rangos de ping.
+ * perfiles específicos para diferentes rangos de ping. La decisión de cuándo cambiar
+ * de rango vive en {@link ProfilePolicy}; aquí solo se leen las métricas y se aplican
+ * las opciones a través de {@link ClientOptionsArbiter}. La distancia de renderizado no
+ * forma parte del perfil: la ajusta {@link ViewDistanceController} según el ancho de banda.
  */
 public class PingProfileManager {
     private static PingProfileManager instance;
     
-    /**
-     * Rangos de ping y sus perfiles correspondientes.
-     */
-    public enum PingRange {
-        LOW,        // < pingLowThreshold
-        MEDIUM,     // pingLowThreshold - pingMediumThreshold
-        HIGH,       // pingMediumThreshold - pingHighThreshold
-        CRITICAL    // > pingHighThreshold
-    }
-    
     /**
      * Perfil de configuración para un rango de ping.
      */
     public static class PingProfile {
-        public int renderDistance;
         public double entityDistanceScaling;
         public int particleQuality; // 0 = mínimo, 1 = reducido, 2 = todos
         public boolean enableVignette;
         public boolean enableFog;
+        public int maxRenderedEntities; // 0 = sin límite (los jugadores no cuentan)
         
-        public PingProfile(int renderDistance, double entityDistanceScaling, 
-                          int particleQuality, boolean enableVignette, boolean enableFog) {
-            this.renderDistance = renderDistance;
+        public PingProfile(double entityDistanceScaling, 
+                          int particleQuality, boolean enableVignette, boolean enableFog,
+                          int maxRenderedEntities) {
             this.entityDistanceScaling = entityDistanceScaling;
             this.particleQuality = particleQuality;
             this.enableVignette = enableVignette;
             this.enableFog = enableFog;
+            this.maxRenderedEntities = maxRenderedEntities;
         }
     }
     
     private final Map<PingRange, PingProfile> profiles = new HashMap<>();
-    private PingRange currentRange = PingRange.LOW;
-    private PingRange lastAppliedRange = null;
-    private long lastProfileChange = 0;
-    private static final long PROFILE_CHANGE_COOLDOWN = 5000; // 5 segundos de histeresis
-    
-    // Valores originales guardados
-    private int originalRenderDistance = -1;
-    private double originalEntityDistanceScaling = -1;
+    private final ProfilePolicy policy = new ProfilePolicy(policyParameters());
+    private long lastSeenRttShiftCount = 0;
     
     private PingProfileManager() {
         initializeProfiles();
@@ -75,45 +69,51 @@ public class PingProfileManager {
      * Inicializa los perfiles por defecto.
      */
     private void initializeProfiles() {
-        // Perfil LOW: ping bajo, máxima calidad
-        profiles.put(PingRange.LOW, new PingProfile(
-            12,  // renderDistance
-            1.0, // entityDistanceScaling
-            2,   // particleQuality (todos)
-            true, // enableVignette
-            true  // enableFog
-        ));
+        // LOW no tiene perfil: con ping bajo se retiran las peticiones y mandan los valores
+        // del jugador (pedir 1.0 de distancia de entidades recortaría a quien usa más)
         
         // Perfil MEDIUM: ping medio, calidad reducida
         profiles.put(PingRange.MEDIUM, new PingProfile(
-            10,  // renderDistance
             0.8, // entityDistanceScaling
             1,   // particleQuality (reducido)
             true, // enableVignette
-            true  // enableFog
+            true, // enableFog
+            0     // maxRenderedEntities (sin límite)
         ));
         
         // Perfil HIGH: ping alto, calidad mínima
         profiles.put(PingRange.HIGH, new PingProfile(
-            8,   // renderDistance
             0.6, // entityDistanceScaling
             0,   // particleQuality (mínimo)
             false, // enableVignette
-            false  // enableFog
+            false, // enableFog
+            128    // maxRenderedEntities
         ));
         
         // Perfil CRITICAL: ping crítico, calidad muy reducida
         profiles.put(PingRange.CRITICAL, new PingProfile(
-            6,   // renderDistance
             0.4, // entityDistanceScaling
             0,   // particleQuality (mínimo)
             false, // enableVignette
-            false  // enableFog
+            false, // enableFog
+            48     // maxRenderedEntities
         ));
     }
     
     /**
-     * Actualiza el perfil según el ping actual.
+     * Parámetros de la política según la configuración actual.
+     */
+    public static ProfilePolicy.Parameters policyParameters() {
+        var config = ClientReflexConfig.getConfig();
+        return new ProfilePolicy.Parameters(config.pingLowThresholdMs, config.pingMediumThresholdMs,
+            config.pingHighThresholdMs, config.pingProfileCooldownMs, config.changePointMinConfidence,
+            config.capacityMediumThresholdKbps, config.capacityHighThresholdKbps, config.capacityCriticalThresholdKbps);
+    }
+    
+    /**
+     * Actualiza el perfil según el percentil configurado del ping en los últimos 10 s
+     * y la capacidad medida del enlace de entrada (se aplica el peor de los dos rangos).
+     * Un pico aislado no cambia el perfil; una degradación sostenida sí.
      * Debe llamarse periódicamente (cada 5 segundos aproximadamente).
      */
     public void update(PingMetrics metrics) {
@@ -122,83 +122,149 @@ public class PingProfileManager {
             return;
         }
         
-        long currentPing = metrics.getCurrentPingMs();
         var config = ClientReflexConfig.getConfig();
-        
-        // Determinar el rango actual
-        PingRange newRange;
-        if (currentPing < config.pingLowThresholdMs) {
-            newRange = PingRange.LOW;
-        } else if (currentPing < config.pingMediumThresholdMs) {
-            newRange = PingRange.MEDIUM;
-        } else if (currentPing < config.pingHighThresholdMs) {
-            newRange = PingRange.HIGH;
-        } else {
-            newRange = PingRange.CRITICAL;
+        // Sin muestras el percentil es 0: no debe deshacer un perfil aprendido del servidor
+        if (metrics.getRttHistogram().getCount(RollingLatencyHistogram.Window.TEN_SECONDS) == 0) {
+            return;
         }
+        long currentPing = metrics.getPingPercentileMs(
+            RollingLatencyHistogram.Window.TEN_SECONDS, config.pingDecisionPercentile);
         
-        currentRange = newRange;
+        // Capacidad solo si un tramo llenó el enlace: una cota inferior no dice que sea lento
+        long capacityKbps = -1;
+        if (ClientReflexClient.getNetworkMonitor() != null) {
+            long capacity = ClientReflexClient.getNetworkMonitor().getInboundBandwidth().getMeasuredCapacityBytesPerSecond();
+            if (capacity >= 0) {
+                capacityKbps = capacity * 8 / 1000;
+            }
+        }
         
         // Aplicar perfil si cambió y pasó el cooldown
-        long now = System.currentTimeMillis();
-        if (newRange != lastAppliedRange && 
-            (now - lastProfileChange) >= PROFILE_CHANGE_COOLDOWN) {
-            applyProfile(newRange, client.options);
-            lastAppliedRange = newRange;
-            lastProfileChange = now;
-            ClientReflexMod.LOGGER.info("Perfil de ping aplicado: " + newRange + " (ping: " + currentPing + "ms)");
+        policy.setParameters(policyParameters());
+        PingRange previousRange = policy.getAppliedRange();
+        PingRange newRange = policy.onPercentile(currentPing, capacityKbps, System.currentTimeMillis());
+        if (newRange != null) {
+            String trigger = newRange.ordinal() > policy.rangeFor(currentPing).ordinal() ? "capacidad" : "percentil";
+            ClientReflexJfr.profileChange(previousRange, newRange, trigger, currentPing);
+            SessionRecorder.getInstance().recordProfileChange(previousRange, newRange, trigger, currentPing);
+            applyProfile(newRange);
+            ClientReflexMod.LOGGER.info("Perfil de ping aplicado: " + newRange + " (p" + config.pingDecisionPercentile + " 10s: " + currentPing + "ms"
+                + (capacityKbps >= 0 ? ", capacidad: " + capacityKbps + " kbit/s" : "") + ", motivo: " + trigger + ")");
         }
     }
     
     /**
-     * Aplica un perfil de configuración.
+     * Revisa cada tick si el detector de cambios del RTT confirmó una subida nueva.
+     * Si la confianza alcanza changePointMinConfidence y el nivel nuevo cae en un rango
+     * peor que el aplicado, lo aplica en el acto, sin esperar al percentil de 10 s ni
+     * al cooldown: el perfil cambia al empezar la degradación, no 5-10 s después.
+     * Las mejoras siguen pasando por update() y su histéresis.
      */
-    private void applyProfile(PingRange range, GameOptions options) {
-        PingProfile profile = profiles.get(range);
-        if (profile == null) {
+    public void onTick(PingMetrics metrics) {
+        long shiftCount = metrics.getRttShiftCount();
+        if (shiftCount == lastSeenRttShiftCount) {
             return;
         }
+        lastSeenRttShiftCount = shiftCount;
         
-        // Guardar valores originales la primera vez
-        if (originalRenderDistance == -1) {
-            originalRenderDistance = options.getViewDistance().getValue();
-            originalEntityDistanceScaling = options.getEntityDistanceScaling().getValue();
-            // particleQuality no está directamente en GameOptions, se maneja diferente
+        ChangePointDetector detector = metrics.getRttChangeDetector();
+        if (detector.getLastShift() != ChangePointDetector.Shift.UP) {
+            return;
         }
         
-        // Aplicar perfil
-        options.getViewDistance().setValue(profile.renderDistance);
-        options.getEntityDistanceScaling().setValue(profile.entityDistanceScaling);
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.options == null) {
+            return;
+        }
         
-        // Nota: particleQuality y otros ajustes requieren acceso a más opciones
-        // que pueden no estar disponibles directamente en GameOptions
+        long newLevel = Math.round(detector.getCurrentLevel());
+        policy.setParameters(policyParameters());
+        PingRange previousRange = policy.getAppliedRange();
+        PingRange newRange = policy.onUpShift(newLevel, detector.getLastShiftConfidence(), System.currentTimeMillis());
+        if (newRange == null) {
+            return;
+        }
+        
+        ClientReflexJfr.profileChange(previousRange, newRange, "cambio de régimen", newLevel);
+        SessionRecorder.getInstance().recordProfileChange(previousRange, newRange, "cambio de régimen", newLevel);
+        applyProfile(newRange);
+        ClientReflexMod.LOGGER.info(String.format("Perfil de ping aplicado por cambio de régimen: %s (nivel %d ms, +%.0f ms, confianza %.4f)",
+            newRange, newLevel, detector.getLastShiftMagnitude(), detector.getLastShiftConfidence()));
     }
     
     /**
-     * Restaura los valores originales.
+     * Aplica al conectar el perfil aprendido en sesiones anteriores con el servidor, sin
+     * esperar a los primeros ciclos de update(). Lo llama {@link ServerProfileStore}.
      */
-    public void restoreOriginal() {
-        MinecraftClient client = MinecraftClient.getInstance();
-        if (client.options == null || originalRenderDistance == -1) {
+    public void warmStart(PingRange range, long learnedPingMs) {
+        policy.setParameters(policyParameters());
+        PingRange previousRange = policy.getAppliedRange();
+        policy.seed(range, System.currentTimeMillis());
+        ClientReflexJfr.profileChange(previousRange, range, "perfil aprendido", learnedPingMs);
+        SessionRecorder.getInstance().recordProfileChange(previousRange, range, "perfil aprendido", learnedPingMs);
+        applyProfile(range);
+        ClientReflexMod.LOGGER.info("Perfil de ping aprendido aplicado al conectar: " + range);
+    }
+    
+    /**
+     * Pide al árbitro las opciones de un perfil; las aplica en su siguiente decisión.
+     * Partículas, viñeta, niebla y límite de entidades solo se piden si
+     * profileRenderOptionsEnabled está activo; si no, se retiran. Un rango sin perfil
+     * (LOW) retira todas las peticiones.
+     */
+    private void applyProfile(PingRange range) {
+        ClientOptionsArbiter arbiter = ClientOptionsArbiter.getInstance();
+        ClientOptionsArbiter.Source source = ClientOptionsArbiter.Source.PING_PROFILE;
+        PingProfile profile = profiles.get(range);
+        if (profile == null) {
+            arbiter.clearAll(source);
             return;
         }
         
-        client.options.getViewDistance().setValue(originalRenderDistance);
-        client.options.getEntityDistanceScaling().setValue(originalEntityDistanceScaling);
+        arbiter.request(source, ClientOptionsArbiter.Option.ENTITY_DISTANCE_SCALING, profile.entityDistanceScaling);
         
-        lastAppliedRange = null;
+        if (!ClientReflexConfig.getConfig().profileRenderOptionsEnabled) {
+            arbiter.clear(source, ClientOptionsArbiter.Option.PARTICLES);
+            arbiter.clear(source, ClientOptionsArbiter.Option.VIGNETTE);
+            arbiter.clear(source, ClientOptionsArbiter.Option.FOG);
+            arbiter.clear(source, ClientOptionsArbiter.Option.MAX_RENDERED_ENTITIES);
+            return;
+        }
+        arbiter.request(source, ClientOptionsArbiter.Option.PARTICLES, profile.particleQuality);
+        arbiter.request(source, ClientOptionsArbiter.Option.VIGNETTE, profile.enableVignette ? 1.0 : 0.0);
+        arbiter.request(source, ClientOptionsArbiter.Option.FOG, profile.enableFog ? 1.0 : 0.0);
+        if (profile.maxRenderedEntities > 0) {
+            arbiter.request(source, ClientOptionsArbiter.Option.MAX_RENDERED_ENTITIES, profile.maxRenderedEntities);
+        } else {
+            arbiter.clear(source, ClientOptionsArbiter.Option.MAX_RENDERED_ENTITIES);
+        }
+    }
+    
+    /**
+     * Retira las peticiones del perfil: el árbitro vuelve a los valores del jugador.
+     */
+    public void restoreOriginal() {
+        ClientOptionsArbiter.getInstance().clearAll(ClientOptionsArbiter.Source.PING_PROFILE);
+        policy.clearApplied();
         ClientReflexMod.LOGGER.info("Valores originales restaurados");
     }
     
+    /**
+     * Rango cuyo perfil está aplicado, o null si ninguno.
+     */
+    public PingRange getAppliedRange() {
+        return policy.getAppliedRange();
+    }
+    
     /**
      * Obtiene el rango de ping actual.
      */
     public PingRange getCurrentRange() {
-        return currentRange;
+        return policy.getCurrentRange();
     }
     
     /**
-     * Obtiene el perfil para un rango específico.
+     * Obtiene el perfil para un rango específico, o null si el rango no pide nada (LOW).
      */
     public PingProfile getProfile(PingRange range) {
         return profiles.get(range);
@@ -1,6 +1,7 @@
 package dev.zxnoragami.clientreflex.ping;
 
 import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
 import dev.zxnoragami.clientreflex.net.PriorityPolicy;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
@@ -8,8 +9,6 @@ import io.netty.channel.ChannelPromise;
 import net.minecraft.network.packet.Packet;
 import net.minecraft.network.packet.c2s.play.*;
 
-import java.util.ArrayDeque;
-import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -35,13 +34,15 @@ public class PriorityWriteHandler extends ChannelOutboundHandlerAdapter {
         LOW      // Cambios de opciones, pings secundarios, etc.
     }
     
-    private final Queue<QueuedPacket> highPriorityQueue = new ArrayDeque<>();
-    private final Queue<QueuedPacket> mediumPriorityQueue = new ArrayDeque<>();
-    private final Queue<QueuedPacket> lowPriorityQueue = new ArrayDeque<>();
+    private static final int MAX_QUEUE_SIZE = 50; // Límite para evitar acumulación excesiva
+    
+    // Colas circulares preasignadas: encolar un paquete no asigna memoria
+    private final PacketRing highPriorityQueue = new PacketRing(Priority.HIGH, MAX_QUEUE_SIZE);
+    private final PacketRing mediumPriorityQueue = new PacketRing(Priority.MEDIUM, MAX_QUEUE_SIZE);
+    private final PacketRing lowPriorityQueue = new PacketRing(Priority.LOW, MAX_QUEUE_SIZE);
     
     private final AtomicBoolean flushing = new AtomicBoolean(false);
     private final AtomicReference<PriorityPolicy> policy = new AtomicReference<>(new PriorityPolicy());
-    private static final int MAX_QUEUE_SIZE = 50; // Límite para evitar acumulación excesiva
     
     /**
      * Clasifica un paquete según su tipo y retorna su prioridad.
@@ -114,13 +115,9 @@ public class PriorityWriteHandler extends ChannelOutboundHandlerAdapter {
         Priority priority = classifyPacket(packet);
         
         // Añadir a la cola correspondiente
-        QueuedPacket queued = new QueuedPacket(packet, promise, priority);
-        
         switch (priority) {
             case HIGH:
-                if (highPriorityQueue.size() < MAX_QUEUE_SIZE) {
-                    highPriorityQueue.offer(queued);
-                } else {
+                if (!highPriorityQueue.offer(packet, promise)) {
                     // Cola de alta prioridad llena: enviar directamente para NO perder el paquete
                     ClientReflexMod.LOGGER.warn("Cola de alta prioridad llena, enviando paquete directamente");
                     ctx.writeAndFlush(packet, promise);
@@ -128,9 +125,7 @@ public class PriorityWriteHandler extends ChannelOutboundHandlerAdapter {
                 }
                 break;
             case MEDIUM:
-                if (mediumPriorityQueue.size() < MAX_QUEUE_SIZE) {
-                    mediumPriorityQueue.offer(queued);
-                } else {
+                if (!mediumPriorityQueue.offer(packet, promise)) {
                     // Cola de prioridad media llena: enviar directamente para NO perder el paquete
                     ClientReflexMod.LOGGER.debug("Cola de prioridad media llena, enviando paquete directamente");
                     ctx.writeAndFlush(packet, promise);
@@ -138,9 +133,7 @@ public class PriorityWriteHandler extends ChannelOutboundHandlerAdapter {
                 }
                 break;
             case LOW:
-                if (lowPriorityQueue.size() < MAX_QUEUE_SIZE) {
-                    lowPriorityQueue.offer(queued);
-                } else {
+                if (!lowPriorityQueue.offer(packet, promise)) {
                     // Cola de baja prioridad llena: enviar directamente para NO perder el paquete
                     ClientReflexMod.LOGGER.debug("Cola de baja prioridad llena, enviando paquete directamente");
                     ctx.writeAndFlush(packet, promise);
@@ -165,13 +158,13 @@ public class PriorityWriteHandler extends ChannelOutboundHandlerAdapter {
         
         try {
             // Enviar primero los de alta prioridad
-            flushQueue(ctx, highPriorityQueue);
+            highPriorityQueue.drainTo(ctx);
             
             // Luego los de prioridad media
-            flushQueue(ctx, mediumPriorityQueue);
+            mediumPriorityQueue.drainTo(ctx);
             
             // Finalmente los de baja prioridad
-            flushQueue(ctx, lowPriorityQueue);
+            lowPriorityQueue.drainTo(ctx);
             
             // Hacer flush del canal
             ctx.flush();
@@ -180,18 +173,6 @@ public class PriorityWriteHandler extends ChannelOutboundHandlerAdapter {
         }
     }
     
-    /**
-     * Envía todos los paquetes de una cola.
-     */
-    private void flushQueue(ChannelHandlerContext ctx, Queue<QueuedPacket> queue) {
-        while (!queue.isEmpty()) {
-            QueuedPacket queued = queue.poll();
-            if (queued != null) {
-                ctx.write(queued.packet, queued.promise);
-            }
-        }
-    }
-    
     /**
      * Se llama cuando el canal se vuelve writable.
      * Aprovechamos para procesar las colas.
@@ -207,18 +188,66 @@ public class PriorityWriteHandler extends ChannelOutboundHandlerAdapter {
     }
     
     /**
-     * Clase interna para almacenar paquetes en cola.
+     * Cola circular de capacidad fija para paquetes pendientes.
+     * 
+     * Guarda paquete y promesa en arrays paralelos preasignados en lugar de
+     * envolverlos en un objeto por paquete, para que write() no genere basura.
+     * El instante de encolado solo se toma con una grabación JFR activa (0 si no),
+     * para emitir la espera en cola al escribir. Solo se usa desde el event loop del canal.
      */
-    private static class QueuedPacket {
-        final Packet<?> packet;
-        final ChannelPromise promise;
-        @SuppressWarnings("unused")
-        final Priority priority; // Almacenado para debugging/futuras funcionalidades
+    private static class PacketRing {
+        private final Priority priority;
+        private final Packet<?>[] packets;
+        private final ChannelPromise[] promises;
+        private final long[] enqueuedNanos;
+        private int head = 0;
+        private int size = 0;
         
-        QueuedPacket(Packet<?> packet, ChannelPromise promise, Priority priority) {
-            this.packet = packet;
-            this.promise = promise;
+        PacketRing(Priority priority, int capacity) {
             this.priority = priority;
+            this.packets = new Packet<?>[capacity];
+            this.promises = new ChannelPromise[capacity];
+            this.enqueuedNanos = new long[capacity];
+        }
+        
+        /**
+         * Encola un paquete. Retorna false si la cola está llena.
+         */
+        boolean offer(Packet<?> packet, ChannelPromise promise) {
+            if (size == packets.length) {
+                return false;
+            }
+            int tail = (head + size) % packets.length;
+            packets[tail] = packet;
+            promises[tail] = promise;
+            size++;
+            if (ClientReflexJfr.isRecording()) {
+                enqueuedNanos[tail] = System.nanoTime();
+                ClientReflexJfr.outboundPacketQueued(packet.getClass(), priority, size);
+            } else {
+                enqueuedNanos[tail] = 0;
+            }
+            return true;
+        }
+        
+        /**
+         * Escribe todos los paquetes encolados en orden de llegada.
+         */
+        void drainTo(ChannelHandlerContext ctx) {
+            while (size > 0) {
+                Packet<?> packet = packets[head];
+                ChannelPromise promise = promises[head];
+                long enqueued = enqueuedNanos[head];
+                // Soltar las referencias para no retener paquetes ya enviados
+                packets[head] = null;
+                promises[head] = null;
+                head = (head + 1) % packets.length;
+                size--;
+                if (enqueued != 0) {
+                    ClientReflexJfr.outboundPacketFlushed(packet.getClass(), priority, System.nanoTime() - enqueued);
+                }
+                ctx.write(packet, promise);
+            }
         }
     }
 }
@@ -122,13 +122,19 @@ public class RemoteEntityInterpolator {
     
     /**
      * Ajusta la ventana de interpolación según el ping.
-     * Ping alto = ventana más grande para suavizar más.
+     * Ping alto = ventana más grande para suavizar más; jitter alto = más margen
+     * para que los snapshots que llegan tarde no produzcan saltos.
      */
     public void adjustInterpolationWindow(PingMetrics metrics) {
-        double avgPing = metrics.getAveragePingMs();
+        double extraMs;
+        if (metrics.hasSmoothedRtt()) {
+            extraMs = metrics.getSmoothedRttMs() * 0.5 + 2.0 * metrics.getRttVarianceMs();
+        } else {
+            extraMs = metrics.getAveragePingMs() * 0.5;
+        }
         
         // Ajustar ventana según ping: 50ms base + hasta 100ms adicionales
-        interpolationWindowMs = 50.0 + Math.min(100.0, avgPing * 0.5);
+        interpolationWindowMs = 50.0 + Math.min(100.0, extraMs);
     }
     
     /**
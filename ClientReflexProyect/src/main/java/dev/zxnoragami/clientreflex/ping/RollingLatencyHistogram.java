@@ -0,0 +1,194 @@
+package dev.zxnoragami.clientreflex.ping;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Histograma de latencias con ventanas deslizantes de 10 s, 60 s y toda la sesión.
+ * 
+ * Guarda un LatencyHistogram por segundo en un buffer circular de 60 posiciones y
+ * mantiene los agregados de 10 s y 60 s de forma incremental: cada valor se suma a
+ * su segundo y a los agregados, y al rotar se resta el segundo que sale de cada
+ * ventana. Los percentiles p50/p90/p99/p99.9 de cada ventana se calculan en una
+ * sola pasada cuando cambian los datos y se leen en tiempo constante.
+ * 
+ * No es thread-safe: debe usarse desde un único hilo.
+ */
+public class RollingLatencyHistogram {
+    /**
+     * Ventanas de tiempo disponibles.
+     */
+    public enum Window {
+        TEN_SECONDS(10),
+        SIXTY_SECONDS(60),
+        SESSION(0);
+        
+        final int seconds;
+        
+        Window(int seconds) {
+            this.seconds = seconds;
+        }
+    }
+    
+    private static final int SLICES = 60;
+    private static final double[] STANDARD_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    
+    private final LatencyHistogram[] slices = new LatencyHistogram[SLICES];
+    private final LatencyHistogram[] windows = new LatencyHistogram[Window.values().length];
+    private final long[][] cachedPercentiles = new long[Window.values().length][STANDARD_PERCENTILES.length];
+    private final boolean[] dirty = new boolean[Window.values().length];
+    private final LongSupplier clock;
+    private long currentSecond = Long.MIN_VALUE;
+    
+    public RollingLatencyHistogram() {
+        this(System::currentTimeMillis);
+    }
+    
+    /**
+     * Crea el histograma con un reloj propio (en ms). Útil para reproducir trazas.
+     */
+    public RollingLatencyHistogram(LongSupplier clock) {
+        this.clock = clock;
+        for (int i = 0; i < SLICES; i++) {
+            slices[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new LatencyHistogram();
+        }
+    }
+    
+    /**
+     * Registra un valor en ms con la hora actual del reloj.
+     */
+    public void record(long valueMs) {
+        recordAt(valueMs, clock.getAsLong());
+    }
+    
+    /**
+     * Registra un valor en ms ocurrido en el instante indicado.
+     */
+    public void recordAt(long valueMs, long nowMs) {
+        advanceTo(nowMs);
+        slices[sliceIndex(currentSecond)].record(valueMs);
+        for (int i = 0; i < windows.length; i++) {
+            windows[i].record(valueMs);
+            dirty[i] = true;
+        }
+    }
+    
+    /**
+     * Rota las ventanas hasta el instante indicado, descartando los segundos expirados.
+     * Coste amortizado constante: como mucho una resta por segundo transcurrido.
+     */
+    public void advanceTo(long nowMs) {
+        long second = Math.floorDiv(nowMs, 1000L);
+        if (currentSecond == Long.MIN_VALUE) {
+            currentSecond = second;
+            return;
+        }
+        if (second <= currentSecond) {
+            return;
+        }
+        
+        if (second - currentSecond >= SLICES) {
+            // Pasó más de un minuto sin datos: las ventanas deslizantes quedan vacías
+            for (LatencyHistogram slice : slices) {
+                slice.clear();
+            }
+            windows[Window.TEN_SECONDS.ordinal()].clear();
+            windows[Window.SIXTY_SECONDS.ordinal()].clear();
+            markDirty();
+            currentSecond = second;
+            return;
+        }
+        
+        while (currentSecond < second) {
+            currentSecond++;
+            // Sale de la ventana de 10 s el segundo (actual - 10)
+            LatencyHistogram leavingTen = slices[sliceIndex(currentSecond - Window.TEN_SECONDS.seconds)];
+            windows[Window.TEN_SECONDS.ordinal()].subtract(leavingTen);
+            // Sale de la ventana de 60 s el segundo que ocupa la posición que se reutiliza
+            LatencyHistogram reused = slices[sliceIndex(currentSecond)];
+            windows[Window.SIXTY_SECONDS.ordinal()].subtract(reused);
+            reused.clear();
+        }
+        markDirty();
+    }
+    
+    private void markDirty() {
+        dirty[Window.TEN_SECONDS.ordinal()] = true;
+        dirty[Window.SIXTY_SECONDS.ordinal()] = true;
+    }
+    
+    private static int sliceIndex(long second) {
+        return (int) Math.floorMod(second, (long) SLICES);
+    }
+    
+    private long cachedPercentile(Window window, int percentileIndex) {
+        advanceTo(clock.getAsLong());
+        int w = window.ordinal();
+        if (dirty[w]) {
+            windows[w].getValuesAtPercentiles(STANDARD_PERCENTILES, cachedPercentiles[w]);
+            dirty[w] = false;
+        }
+        return cachedPercentiles[w][percentileIndex];
+    }
+    
+    public long getP50(Window window) {
+        return cachedPercentile(window, 0);
+    }
+    
+    public long getP90(Window window) {
+        return cachedPercentile(window, 1);
+    }
+    
+    public long getP99(Window window) {
+        return cachedPercentile(window, 2);
+    }
+    
+    public long getP999(Window window) {
+        return cachedPercentile(window, 3);
+    }
+    
+    /**
+     * Obtiene un percentil arbitrario (0-100). Usa la caché si es uno de los estándar.
+     */
+    public long getPercentile(Window window, double percentile) {
+        for (int i = 0; i < STANDARD_PERCENTILES.length; i++) {
+            if (STANDARD_PERCENTILES[i] == percentile) {
+                return cachedPercentile(window, i);
+            }
+        }
+        advanceTo(clock.getAsLong());
+        return windows[window.ordinal()].getValueAtPercentile(percentile);
+    }
+    
+    /**
+     * Número de valores registrados en la ventana.
+     */
+    public long getCount(Window window) {
+        advanceTo(clock.getAsLong());
+        return windows[window.ordinal()].getTotalCount();
+    }
+    
+    /**
+     * Límite superior del valor más alto registrado en la ventana.
+     */
+    public long getMax(Window window) {
+        advanceTo(clock.getAsLong());
+        return windows[window.ordinal()].getMaxValue();
+    }
+    
+    /**
+     * Vacía todas las ventanas, incluida la de sesión.
+     */
+    public void reset() {
+        for (LatencyHistogram slice : slices) {
+            slice.clear();
+        }
+        for (int i = 0; i < windows.length; i++) {
+            windows[i].clear();
+            dirty[i] = true;
+        }
+        currentSecond = Long.MIN_VALUE;
+    }
+}
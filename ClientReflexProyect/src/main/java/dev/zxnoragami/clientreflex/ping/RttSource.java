@@ -0,0 +1,64 @@
+package dev.zxnoragami.clientreflex.ping;
+
+/**
+ * Origen de una muestra de RTT, con la precisión y la frescura que se le asignan
+ * al combinar fuentes.
+ * 
+ * El peso de la última muestra de cada fuente es precisión × 0.5^(edad / vida media):
+ * una fuente precisa pero antigua pesa menos que una aproximada pero reciente.
+ */
+public enum RttSource {
+    /**
+     * Latencia de la tab list. El servidor la suaviza y la reenvía cada bastantes
+     * segundos, así que es la menos precisa y envejece rápido respecto a su cadencia.
+     */
+    TAB_LIST("Tab list", 0.25, 30_000),
+    
+    /**
+     * Keep-alive del servidor. En vanilla lo inicia el servidor y el cliente solo
+     * responde, así que el cliente no puede medir un RTT con él; queda como etiqueta
+     * para mediciones derivadas de su marca de tiempo.
+     */
+    KEEP_ALIVE("Keep-alive", 0.5, 15_000),
+    
+    /**
+     * Sonda de ping del protocolo (QueryPing/PingResult): RTT de aplicación medido
+     * en el event loop, la fuente más precisa.
+     */
+    STATUS_PROBE("Sonda", 1.0, 10_000),
+    
+    /**
+     * RTT suavizado del kernel (TCP_INFO) con transporte epoll. Preciso, pero no
+     * incluye el tiempo que el servidor tarda en procesar los paquetes.
+     */
+    TCP_INFO("TCP_INFO", 0.7, 5_000);
+    
+    private final String displayName;
+    private final double precision;
+    private final long freshnessHalfLifeMs;
+    
+    RttSource(String displayName, double precision, long freshnessHalfLifeMs) {
+        this.displayName = displayName;
+        this.precision = precision;
+        this.freshnessHalfLifeMs = freshnessHalfLifeMs;
+    }
+    
+    /**
+     * Peso de una muestra de esta fuente con la edad indicada.
+     */
+    public double weightAt(long ageMs) {
+        return precision * Math.pow(0.5, Math.max(0, ageMs) / (double) freshnessHalfLifeMs);
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    public double getPrecision() {
+        return precision;
+    }
+    
+    public long getFreshnessHalfLifeMs() {
+        return freshnessHalfLifeMs;
+    }
+}
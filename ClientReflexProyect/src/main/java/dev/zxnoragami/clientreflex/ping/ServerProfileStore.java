@@ -0,0 +1,304 @@
+package dev.zxnoragami.clientreflex.ping;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
+import dev.zxnoragami.clientreflex.policy.PingRange;
+import dev.zxnoragami.clientreflex.prediction.PredictionManager;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Perfiles de conexión aprendidos por servidor, guardados en clientreflex-servers.json.
+ *
+ * Al salir de un servidor se guardan los percentiles de RTT y jitter de la sesión, SRTT
+ * y RTTVAR, la última capacidad de entrada medida, el timeout de predicción resultante y
+ * el perfil de ping que estuvo aplicado más tiempo. Al volver a entrar se parte de ahí:
+ *
+ * - SRTT y RTTVAR se siembran en {@link PingMetrics}, así que los timeouts adaptativos de
+ *   predicción son los del servidor desde el primer segundo.
+ * - La capacidad se siembra en el estimador del enlace y caduca con su ventana.
+ * - El perfil aprendido se aplica en el acto y el percentil no lo cambia hasta el cooldown.
+ *
+ * Las métricas de ping se reinician al entrar en un servidor: los percentiles de la
+ * sesión anterior no dicen nada del nuevo. Solo se guardan sesiones con al menos
+ * MIN_SESSION_SAMPLES muestras de RTT, y los perfiles de más de serverProfileMaxAgeDays
+ * no se usan. El mundo local no se aprende.
+ *
+ * No es thread-safe: se usa solo desde el hilo del cliente.
+ */
+public class ServerProfileStore {
+    private static ServerProfileStore instance;
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final File STORE_FILE = new File(
+        FabricLoader.getInstance().getConfigDir().toFile(),
+        "clientreflex-servers.json"
+    );
+    private static final Type STORE_TYPE = new TypeToken<Map<String, ServerProfile>>() { }.getType();
+    private static final long MIN_SESSION_SAMPLES = 20;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    /**
+     * Lo aprendido de un servidor. Se guarda tal cual en JSON.
+     */
+    public static class ServerProfile {
+        public long updatedAtMs;
+        public int sessions;
+        public long rttP50Ms;
+        public long rttP90Ms;
+        public long rttP99Ms;
+        public long jitterP50Ms;
+        public long jitterP90Ms;
+        public double smoothedRttMs;
+        public double rttVarianceMs;
+        public long inboundCapacityBytesPerSecond = -1; // -1 = nunca se midió
+        public boolean inboundCapacityMeasured;
+        public long predictionTimeoutMs;
+        public String stableRange; // Nombre de PingRange
+    }
+
+    private Map<String, ServerProfile> profiles;
+    // Servidor de la sesión en curso, o null sin sesión (o en el mundo local)
+    private String currentServer;
+    private long lastTickMs;
+    private final long[] rangeDwellMs = new long[PingRange.values().length];
+    private long sessionCapacity = -1;
+    private boolean sessionCapacityMeasured = false;
+
+    private ServerProfileStore() {
+    }
+
+    public static ServerProfileStore getInstance() {
+        if (instance == null) {
+            instance = new ServerProfileStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Detecta entradas y salidas de servidor y acumula lo aprendido en la sesión. Debe
+     * llamarse cada tick, también sin mundo (para cerrar la sesión al salir).
+     */
+    public void tick() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        long now = System.currentTimeMillis();
+        String server = ClientReflexConfig.getConfig().serverProfilesEnabled ? serverKey(client) : null;
+        if (!Objects.equals(server, currentServer)) {
+            if (currentServer != null) {
+                endSession();
+            }
+            currentServer = server;
+            if (server != null) {
+                startSession(server, now);
+            }
+        }
+        if (currentServer == null) {
+            return;
+        }
+
+        PingRange applied = PingProfileManager.getInstance().getAppliedRange();
+        rangeDwellMs[(applied != null ? applied : PingRange.LOW).ordinal()] += now - lastTickMs;
+        lastTickMs = now;
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        // Solo lo medido en esta conexión: la semilla de la sesión anterior no se vuelve a guardar
+        if (monitor != null && monitor.getInboundBandwidth().getSessionCapacityBytesPerSecond() > 0) {
+            long capacity = monitor.getInboundBandwidth().getSessionCapacityBytesPerSecond();
+            if (monitor.getInboundBandwidth().isSessionCapacityMeasured()) {
+                sessionCapacity = capacity;
+                sessionCapacityMeasured = true;
+            } else if (!sessionCapacityMeasured) {
+                sessionCapacity = Math.max(sessionCapacity, capacity);
+            }
+        }
+    }
+
+    private static String serverKey(MinecraftClient client) {
+        if (client.world == null || client.getNetworkHandler() == null || client.isInSingleplayer()) {
+            return null;
+        }
+        ServerInfo server = client.getCurrentServerEntry();
+        if (server == null || server.address == null || server.address.isBlank()) {
+            return null;
+        }
+        return server.address.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void startSession(String server, long now) {
+        lastTickMs = now;
+        Arrays.fill(rangeDwellMs, 0);
+        sessionCapacity = -1;
+        sessionCapacityMeasured = false;
+
+        PingMetrics metrics = ClientReflexClient.getPingMetrics();
+        if (metrics != null) {
+            metrics.reset();
+        }
+        ServerProfile profile = getProfiles().get(server);
+        long maxAgeMs = ClientReflexConfig.getConfig().serverProfileMaxAgeDays * DAY_MS;
+        if (profile == null || now - profile.updatedAtMs > maxAgeMs) {
+            return;
+        }
+
+        if (metrics != null && profile.smoothedRttMs > 0) {
+            metrics.seedSmoothedRtt(profile.smoothedRttMs, profile.rttVarianceMs);
+        }
+        NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+        if (monitor != null && profile.inboundCapacityBytesPerSecond > 0) {
+            monitor.seedInboundCapacity(profile.inboundCapacityBytesPerSecond, profile.inboundCapacityMeasured);
+        }
+        PingRange range = parseRange(profile.stableRange);
+        if (range != null) {
+            PingProfileManager.getInstance().warmStart(range, profile.rttP50Ms);
+        }
+        ClientReflexMod.LOGGER.info(String.format(
+            "Perfil aprendido de %s (%d sesiones): RTT p50 %d ms, p90 %d ms, SRTT %.0f ms, capacidad %s, perfil %s",
+            server, profile.sessions, profile.rttP50Ms, profile.rttP90Ms, profile.smoothedRttMs,
+            profile.inboundCapacityBytesPerSecond > 0 ? profile.inboundCapacityBytesPerSecond * 8 / 1000 + " kbit/s" : "sin datos",
+            range != null ? range : "sin datos"));
+    }
+
+    private void endSession() {
+        PingMetrics metrics = ClientReflexClient.getPingMetrics();
+        if (metrics == null || metrics.getRttHistogram().getCount(RollingLatencyHistogram.Window.SESSION) < MIN_SESSION_SAMPLES) {
+            return;
+        }
+        ServerProfile previous = getProfiles().get(currentServer);
+        ServerProfile profile = new ServerProfile();
+        profile.updatedAtMs = System.currentTimeMillis();
+        profile.sessions = previous != null ? previous.sessions + 1 : 1;
+
+        RollingLatencyHistogram rtt = metrics.getRttHistogram();
+        RollingLatencyHistogram jitter = metrics.getJitterHistogram();
+        profile.rttP50Ms = rtt.getP50(RollingLatencyHistogram.Window.SESSION);
+        profile.rttP90Ms = rtt.getP90(RollingLatencyHistogram.Window.SESSION);
+        profile.rttP99Ms = rtt.getP99(RollingLatencyHistogram.Window.SESSION);
+        profile.jitterP50Ms = jitter.getP50(RollingLatencyHistogram.Window.SESSION);
+        profile.jitterP90Ms = jitter.getP90(RollingLatencyHistogram.Window.SESSION);
+        if (metrics.hasSmoothedRtt()) {
+            profile.smoothedRttMs = metrics.getSmoothedRttMs();
+            profile.rttVarianceMs = metrics.getRttVarianceMs();
+        }
+        profile.predictionTimeoutMs = PredictionManager.getInstance()
+            .resolveTimeoutMs(ClientReflexConfig.getConfig().crystalPredictionTimeoutMs);
+
+        // Una sesión sin medida no borra la capacidad aprendida antes
+        if (sessionCapacity > 0 && (sessionCapacityMeasured || previous == null || !previous.inboundCapacityMeasured)) {
+            profile.inboundCapacityBytesPerSecond = sessionCapacity;
+            profile.inboundCapacityMeasured = sessionCapacityMeasured;
+        } else if (previous != null) {
+            profile.inboundCapacityBytesPerSecond = previous.inboundCapacityBytesPerSecond;
+            profile.inboundCapacityMeasured = previous.inboundCapacityMeasured;
+        }
+
+        PingRange stable = PingRange.LOW;
+        for (PingRange range : PingRange.values()) {
+            if (rangeDwellMs[range.ordinal()] > rangeDwellMs[stable.ordinal()]) {
+                stable = range;
+            }
+        }
+        profile.stableRange = stable.name();
+
+        getProfiles().put(currentServer, profile);
+        prune(profile.updatedAtMs);
+        save();
+        ClientReflexMod.LOGGER.info("Perfil de conexión guardado para " + currentServer + " (perfil " + stable
+            + ", RTT p50 " + profile.rttP50Ms + " ms)");
+    }
+
+    /**
+     * Guarda la sesión en curso (al cerrar el juego).
+     */
+    public void close() {
+        if (currentServer != null) {
+            endSession();
+            currentServer = null;
+        }
+    }
+
+    /**
+     * Perfil aprendido del servidor actual, o null si no hay.
+     */
+    public ServerProfile getCurrentProfile() {
+        return currentServer != null ? getProfiles().get(currentServer) : null;
+    }
+
+    public String getCurrentServer() {
+        return currentServer;
+    }
+
+    private static PingRange parseRange(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return PingRange.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Quita los caducados y, si sobran, los más antiguos
+    private void prune(long now) {
+        var config = ClientReflexConfig.getConfig();
+        long maxAgeMs = config.serverProfileMaxAgeDays * DAY_MS;
+        profiles.values().removeIf(profile -> now - profile.updatedAtMs > maxAgeMs);
+        while (profiles.size() > config.serverProfileMaxEntries) {
+            String oldest = null;
+            long oldestMs = Long.MAX_VALUE;
+            for (Map.Entry<String, ServerProfile> entry : profiles.entrySet()) {
+                if (entry.getValue().updatedAtMs < oldestMs) {
+                    oldestMs = entry.getValue().updatedAtMs;
+                    oldest = entry.getKey();
+                }
+            }
+            profiles.remove(oldest);
+        }
+    }
+
+    private Map<String, ServerProfile> getProfiles() {
+        if (profiles == null) {
+            profiles = load();
+        }
+        return profiles;
+    }
+
+    private static Map<String, ServerProfile> load() {
+        if (!STORE_FILE.exists()) {
+            return new HashMap<>();
+        }
+        try (FileReader reader = new FileReader(STORE_FILE)) {
+            Map<String, ServerProfile> loaded = GSON.fromJson(reader, STORE_TYPE);
+            return loaded != null ? new HashMap<>(loaded) : new HashMap<>();
+        } catch (IOException e) {
+            ClientReflexMod.LOGGER.error("Error al cargar los perfiles de servidor: ", e);
+        } catch (Exception e) {
+            ClientReflexMod.LOGGER.error("Error al parsear los perfiles de servidor (se empieza de cero): ", e);
+        }
+        return new HashMap<>();
+    }
+
+    private void save() {
+        try (FileWriter writer = new FileWriter(STORE_FILE)) {
+            GSON.toJson(profiles, STORE_TYPE, writer);
+        } catch (IOException e) {
+            ClientReflexMod.LOGGER.error("Error al guardar los perfiles de servidor: ", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dev.zxnoragami.clientreflex.ping;
+
+/**
+ * Estimador de RTT suavizado y su varianza al estilo TCP (RFC 6298).
+ * 
+ * SRTT sigue al RTT con ganancia 1/8 y RTTVAR a la desviación absoluta con ganancia
+ * 1/4, así que un pico aislado apenas mueve SRTT pero sí abre RTTVAR, y el timeout
+ * SRTT + 4·RTTVAR se adapta a la variabilidad real de la conexión.
+ * Coste constante por muestra.
+ */
+public class SmoothedRttEstimator {
+    private static final double ALPHA = 1.0 / 8.0;
+    private static final double BETA = 1.0 / 4.0;
+    private static final int K = 4;
+    
+    private double srttMs = 0.0;
+    private double rttVarMs = 0.0;
+    private boolean initialized = false;
+    
+    /**
+     * Incorpora una muestra de RTT.
+     */
+    public void record(long rttMs) {
+        if (!initialized) {
+            srttMs = rttMs;
+            rttVarMs = rttMs / 2.0;
+            initialized = true;
+            return;
+        }
+        // RTTVAR se actualiza con el SRTT anterior, como indica la RFC
+        rttVarMs = (1 - BETA) * rttVarMs + BETA * Math.abs(srttMs - rttMs);
+        srttMs = (1 - ALPHA) * srttMs + ALPHA * rttMs;
+    }
+    
+    /**
+     * Arranca desde valores conocidos (aprendidos en sesiones anteriores) en lugar de
+     * desde la primera muestra; las muestras siguientes los corrigen con las ganancias de siempre.
+     */
+    public void seed(double srttMs, double rttVarMs) {
+        this.srttMs = srttMs;
+        this.rttVarMs = rttVarMs;
+        initialized = true;
+    }
+    
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    public double getSrttMs() {
+        return srttMs;
+    }
+    
+    public double getRttVarMs() {
+        return rttVarMs;
+    }
+    
+    /**
+     * Timeout de retransmisión: SRTT + max(G, 4·RTTVAR), con G la granularidad del reloj.
+     */
+    public long getTimeoutMs(long granularityMs) {
+        return Math.round(srttMs + Math.max(granularityMs, K * rttVarMs));
+    }
+    
+    public void reset() {
+        srttMs = 0.0;
+        rttVarMs = 0.0;
+        initialized = false;
+    }
+}
@@ -0,0 +1,53 @@
+package dev.zxnoragami.clientreflex.ping;
+
+/**
+ * Media móvil exponencial con vida media en tiempo, no en número de muestras.
+ * 
+ * El peso de una muestra se reduce a la mitad cada halfLifeMs, tanto si llegan
+ * 20 muestras por segundo como una cada 15 segundos, así que el suavizado no
+ * depende de la cadencia de cada fuente.
+ */
+public class TimeDecayEwma {
+    private long halfLifeMs;
+    private double value = 0.0;
+    private long lastUpdateMs = 0;
+    private boolean initialized = false;
+    
+    public TimeDecayEwma(long halfLifeMs) {
+        this.halfLifeMs = Math.max(1, halfLifeMs);
+    }
+    
+    /**
+     * Incorpora una muestra tomada en el instante indicado.
+     */
+    public void record(double sample, long nowMs) {
+        if (!initialized) {
+            value = sample;
+            lastUpdateMs = nowMs;
+            initialized = true;
+            return;
+        }
+        long elapsed = Math.max(0, nowMs - lastUpdateMs);
+        double alpha = 1.0 - Math.pow(0.5, elapsed / (double) halfLifeMs);
+        value += alpha * (sample - value);
+        lastUpdateMs = nowMs;
+    }
+    
+    public void setHalfLifeMs(long halfLifeMs) {
+        this.halfLifeMs = Math.max(1, halfLifeMs);
+    }
+    
+    public boolean isInitialized() {
+        return initialized;
+    }
+    
+    public double getValue() {
+        return value;
+    }
+    
+    public void reset() {
+        value = 0.0;
+        lastUpdateMs = 0;
+        initialized = false;
+    }
+}
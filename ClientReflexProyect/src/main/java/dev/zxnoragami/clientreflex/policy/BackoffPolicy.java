@@ -0,0 +1,36 @@
+package dev.zxnoragami.clientreflex.policy;
+
+/**
+ * Espera entre intentos de recuperación de AntiDisconnect: backoff exponencial con
+ * jitter, acotado a [baseDelayMs, maxDelayMs ± jitter].
+ *
+ * El valor aleatorio se recibe como parámetro para que el simulador pueda repetir la
+ * misma secuencia al comparar configuraciones.
+ */
+public final class BackoffPolicy {
+    /**
+     * Parámetros del backoff (los de la sección antiDisconnect de la configuración).
+     */
+    public record Parameters(long baseDelayMs, long maxDelayMs, double multiplier, int jitterPct, int maxAttempts) {
+    }
+
+    private BackoffPolicy() {
+    }
+
+    /**
+     * Espera antes del intento dado: baseDelay · multiplier^(intento - 1), acotada a
+     * maxDelay, más un jitter de ±jitterPct %.
+     *
+     * @param attempt intento, empezando por 1
+     * @param random valor uniforme en [0, 1)
+     */
+    public static long delayMs(Parameters parameters, int attempt, double random) {
+        long delay = (long) (parameters.baseDelayMs() * Math.pow(parameters.multiplier(), attempt - 1));
+        delay = Math.min(delay, parameters.maxDelayMs());
+        if (parameters.jitterPct() > 0) {
+            long jitter = (long) (delay * parameters.jitterPct() / 100.0 * (random * 2 - 1));
+            delay += jitter;
+        }
+        return Math.max(delay, parameters.baseDelayMs());
+    }
+}
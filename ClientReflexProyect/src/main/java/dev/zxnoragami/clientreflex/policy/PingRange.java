@@ -0,0 +1,11 @@
+package dev.zxnoragami.clientreflex.policy;
+
+/**
+ * Rangos de ping, de mejor a peor. Cada uno tiene su perfil de opciones del cliente.
+ */
+public enum PingRange {
+    LOW,        // < pingLowThreshold
+    MEDIUM,     // pingLowThreshold - pingMediumThreshold
+    HIGH,       // pingMediumThreshold - pingHighThreshold
+    CRITICAL    // > pingHighThreshold
+}
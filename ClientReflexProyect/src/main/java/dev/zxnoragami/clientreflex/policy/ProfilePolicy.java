@@ -0,0 +1,145 @@
+package dev.zxnoragami.clientreflex.policy;
+
+/**
+ * Decisión de qué perfil de ping aplicar, sin efectos: recibe el ping de decisión o el
+ * cambio de régimen y la hora (real o virtual) y responde si hay que cambiar de rango.
+ * PingProfileManager la usa con System.currentTimeMillis() y el simulador del analizador
+ * con el reloj de la traza, así que ambos ejecutan exactamente la misma lógica.
+ *
+ * - Percentil (cada ~5 s): cambia si el rango es otro y pasó el cooldown desde el último cambio.
+ *   El rango es el peor entre el del ping y el de la capacidad del enlace de entrada: con
+ *   el enlace lleno el RTT puede seguir bien mientras los chunks llegan tarde.
+ * - Cambio de régimen al alza: empeora en el acto, sin cooldown, si la confianza alcanza
+ *   el mínimo y el rango nuevo es peor que el aplicado.
+ *
+ * No es thread-safe.
+ */
+public class ProfilePolicy {
+    /**
+     * Umbrales de los rangos (ms), cooldown entre cambios, confianza mínima de un cambio de
+     * régimen y umbrales de capacidad (kbit/s, 0 desactiva cada uno).
+     */
+    public record Parameters(long lowThresholdMs, long mediumThresholdMs, long highThresholdMs,
+                             long cooldownMs, double changePointMinConfidence,
+                             long capacityMediumKbps, long capacityHighKbps, long capacityCriticalKbps) {
+    }
+
+    private Parameters parameters;
+    private PingRange currentRange = PingRange.LOW;
+    private PingRange appliedRange = null;
+    private long lastChangeMs = 0;
+    private boolean changedBefore = false;
+
+    public ProfilePolicy(Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * Cambia los parámetros sin perder el estado (la configuración puede recargarse en caliente).
+     */
+    public void setParameters(Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * Rango que corresponde a un ping según los umbrales.
+     */
+    public PingRange rangeFor(long pingMs) {
+        if (pingMs < parameters.lowThresholdMs()) {
+            return PingRange.LOW;
+        } else if (pingMs < parameters.mediumThresholdMs()) {
+            return PingRange.MEDIUM;
+        } else if (pingMs < parameters.highThresholdMs()) {
+            return PingRange.HIGH;
+        }
+        return PingRange.CRITICAL;
+    }
+
+    /**
+     * Rango que corresponde a una capacidad de entrada según sus umbrales; LOW si la
+     * capacidad aún no se midió (negativa).
+     */
+    public PingRange rangeForCapacity(long capacityKbps) {
+        if (capacityKbps < 0) {
+            return PingRange.LOW;
+        } else if (capacityKbps < parameters.capacityCriticalKbps()) {
+            return PingRange.CRITICAL;
+        } else if (capacityKbps < parameters.capacityHighKbps()) {
+            return PingRange.HIGH;
+        } else if (capacityKbps < parameters.capacityMediumKbps()) {
+            return PingRange.MEDIUM;
+        }
+        return PingRange.LOW;
+    }
+
+    /**
+     * Decisión periódica sobre el percentil del ping y la capacidad del enlace.
+     *
+     * @param capacityKbps capacidad de entrada medida, o -1 si no se conoce
+     * @return el rango a aplicar, o null si no hay que cambiar
+     */
+    public PingRange onPercentile(long decisionPingMs, long capacityKbps, long nowMs) {
+        PingRange pingRange = rangeFor(decisionPingMs);
+        PingRange capacityRange = rangeForCapacity(capacityKbps);
+        PingRange newRange = capacityRange.ordinal() > pingRange.ordinal() ? capacityRange : pingRange;
+        currentRange = newRange;
+        if (newRange == appliedRange || (changedBefore && nowMs - lastChangeMs < parameters.cooldownMs())) {
+            return null;
+        }
+        return apply(newRange, nowMs);
+    }
+
+    /**
+     * Cambio de régimen al alza confirmado por el detector.
+     *
+     * @return el rango a aplicar, o null si no es peor que el aplicado o la confianza no alcanza
+     */
+    public PingRange onUpShift(long levelMs, double confidence, long nowMs) {
+        if (confidence < parameters.changePointMinConfidence()) {
+            return null;
+        }
+        PingRange newRange = rangeFor(levelMs);
+        if (appliedRange != null && newRange.ordinal() <= appliedRange.ordinal()) {
+            return null;
+        }
+        currentRange = newRange;
+        return apply(newRange, nowMs);
+    }
+
+    /**
+     * Aplica un rango conocido de antemano (aprendido del servidor al conectar). Cuenta
+     * como un cambio: el percentil no lo deshace hasta que pase el cooldown.
+     */
+    public void seed(PingRange range, long nowMs) {
+        currentRange = range;
+        apply(range, nowMs);
+    }
+
+    /**
+     * Olvida el perfil aplicado (se restauraron las opciones originales). El cooldown sigue contando.
+     */
+    public void clearApplied() {
+        appliedRange = null;
+    }
+
+    /**
+     * Rango del último ping evaluado.
+     */
+    public PingRange getCurrentRange() {
+        return currentRange;
+    }
+
+    /**
+     * Rango cuyo perfil está aplicado, o null si ninguno.
+     */
+    public PingRange getAppliedRange() {
+        return appliedRange;
+    }
+
+    private PingRange apply(PingRange range, long nowMs) {
+        appliedRange = range;
+        lastChangeMs = nowMs;
+        changedBefore = true;
+        return range;
+    }
+}
@@ -0,0 +1,170 @@
+package dev.zxnoragami.clientreflex.policy;
+
+/**
+ * Control en lazo cerrado de la distancia de renderizado según el ancho de banda, sin
+ * efectos y con la hora como parámetro.
+ *
+ * El presupuesto de chunks es una fracción de la capacidad de entrada estimada; el resto
+ * queda para entidades, keep-alive y demás tráfico. La distancia baja un anillo cuando
+ * los datos de chunks superan el presupuesto durante stepDownAfterMs seguidos, y sube
+ * uno cuando la tasa prevista con un anillo más cabe con margen (hysteresis) durante
+ * stepUpAfterMs seguidos. Cada cambio reinicia ambas cuentas.
+ *
+ * - Al moverse, los chunks nuevos por segundo crecen con el lado del cuadrado visible
+ *   (2d + 1), así que la tasa prevista con d + 1 es la medida por (2d + 3) / (2d + 1).
+ * - Subir un anillo descarga de golpe sus 8(d + 1) chunks: durante lo que tardarían en
+ *   llegar al ritmo del presupuesto, superarlo es lo esperado y no cuenta para bajar.
+ * - Lo mismo tras un salto del centro de chunks (teletransporte), que trae los chunks del
+ *   área nueva que no se solapan con la anterior, y tras entrar, reaparecer o cambiar de
+ *   dimensión, que traen el área entera. Sin tamaño de chunk conocido se espera el tope.
+ * - Con la capacidad como cota inferior (ninguna muestra llenó el enlace) solo se sube:
+ *   si cabe en la cota cabe en el enlace, pero superarla no prueba que el enlace esté lleno.
+ *
+ * No es thread-safe.
+ */
+public class ViewDistancePolicy {
+    // Tope de la espera tras una descarga, por si el tamaño medio de chunk es anómalo
+    private static final long MAX_LOAD_MS = 30_000;
+
+    /**
+     * Fracción de la capacidad para chunks, margen para subir (0-1), distancia mínima y
+     * tiempos seguidos para bajar y subir un anillo.
+     */
+    public record Parameters(double budgetFraction, double hysteresis, int minDistance,
+                             long stepDownAfterMs, long stepUpAfterMs) {
+    }
+
+    private Parameters parameters;
+    private long overSinceMs = -1;
+    private long fitsSinceMs = -1;
+    // Fin de la descarga en curso (anillo nuevo, salto o recarga), o -1 si no hay
+    private long loadingUntilMs = -1;
+    // Chunks de saltos y recargas aún no convertidos en espera (falta el presupuesto)
+    private long pendingChunks = 0;
+    private boolean pendingFullReload = false;
+    // Distancia de la última muestra, o -1 si aún no hubo
+    private int lastDistance = -1;
+
+    public ViewDistancePolicy(Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    public void setParameters(Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * El centro de chunks saltó (dx, dz) chunks de golpe: llegan los chunks del área nueva
+     * que no se solapan con la anterior.
+     */
+    public void onCenterJump(int dx, int dz) {
+        if (lastDistance < 0) {
+            pendingFullReload = true;
+            return;
+        }
+        long side = 2L * lastDistance + 1;
+        long kept = Math.max(0, side - Math.abs((long) dx)) * Math.max(0, side - Math.abs((long) dz));
+        pendingChunks += side * side - kept;
+    }
+
+    /**
+     * Entrada al servidor, reaparición o cambio de dimensión: llega el área visible entera.
+     */
+    public void onFullReload() {
+        pendingFullReload = true;
+    }
+
+    /**
+     * Evalúa una muestra. Debe llamarse periódicamente (cada tick del cliente).
+     *
+     * @param distance               distancia aplicada
+     * @param maxDistance            distancia elegida por el jugador (techo)
+     * @param chunkBytesPerSecond    datos de chunks medidos en el enlace
+     * @param bytesPerChunk          bytes medios por chunk en el enlace, o -1 si no se conoce
+     * @param capacityBytesPerSecond capacidad de entrada, o -1 si no se conoce
+     * @param capacityMeasured       si la capacidad es una medida y no solo una cota inferior
+     * @return la distancia a aplicar (la misma si no hay que cambiar)
+     */
+    public int update(int distance, int maxDistance, double chunkBytesPerSecond, long bytesPerChunk,
+                      long capacityBytesPerSecond, boolean capacityMeasured, long nowMs) {
+        int floor = Math.min(parameters.minDistance(), maxDistance);
+        lastDistance = distance;
+        if (distance > maxDistance || distance < floor) {
+            return change(Math.max(floor, Math.min(maxDistance, distance)));
+        }
+        if (capacityBytesPerSecond <= 0) {
+            overSinceMs = -1;
+            fitsSinceMs = -1;
+            return distance;
+        }
+
+        double budget = parameters.budgetFraction() * capacityBytesPerSecond;
+        if (pendingFullReload) {
+            long side = 2L * distance + 1;
+            pendingChunks += side * side;
+            pendingFullReload = false;
+        }
+        if (pendingChunks > 0) {
+            expectLoad(pendingChunks, bytesPerChunk, budget, MAX_LOAD_MS, nowMs);
+            pendingChunks = 0;
+        }
+        boolean loading = isLoadingChunks(nowMs);
+        boolean over = capacityMeasured && !loading && distance > floor && chunkBytesPerSecond > budget;
+        double nextRate = chunkBytesPerSecond * (2 * distance + 3) / (2 * distance + 1);
+        boolean fits = !loading && distance < maxDistance
+            && nextRate <= budget * (1.0 - parameters.hysteresis());
+
+        if (!over) {
+            overSinceMs = -1;
+        } else if (overSinceMs < 0) {
+            overSinceMs = nowMs;
+        }
+        if (!fits) {
+            fitsSinceMs = -1;
+        } else if (fitsSinceMs < 0) {
+            fitsSinceMs = nowMs;
+        }
+
+        if (over && nowMs - overSinceMs >= parameters.stepDownAfterMs()) {
+            loadingUntilMs = -1;
+            return change(distance - 1);
+        }
+        if (fits && nowMs - fitsSinceMs >= parameters.stepUpAfterMs()) {
+            expectLoad(8L * (distance + 1), bytesPerChunk, budget, 0, nowMs);
+            return change(distance + 1);
+        }
+        return distance;
+    }
+
+    /**
+     * Alarga la espera a lo que tardan en llegar los chunks al ritmo del presupuesto.
+     */
+    private void expectLoad(long chunks, long bytesPerChunk, double budget, long unknownLoadMs, long nowMs) {
+        long loadMs = bytesPerChunk > 0 ? (long) (chunks * bytesPerChunk * 1000.0 / budget) : unknownLoadMs;
+        loadingUntilMs = Math.max(loadingUntilMs, nowMs + Math.min(MAX_LOAD_MS, loadMs));
+        overSinceMs = -1;
+    }
+
+    /**
+     * Olvida las cuentas (el jugador cambió la distancia a mano o se cambió de conexión).
+     * Los saltos y recargas pendientes se conservan: esos chunks llegan igualmente.
+     */
+    public void reset() {
+        overSinceMs = -1;
+        fitsSinceMs = -1;
+        loadingUntilMs = -1;
+    }
+
+    /**
+     * Si se está descargando un anillo nuevo, un salto o una recarga.
+     */
+    public boolean isLoadingChunks(long nowMs) {
+        return loadingUntilMs >= 0 && nowMs < loadingUntilMs;
+    }
+
+    private int change(int distance) {
+        overSinceMs = -1;
+        fitsSinceMs = -1;
+        return distance;
+    }
+}
@@ -0,0 +1,103 @@
+package dev.zxnoragami.clientreflex.policy;
+
+/**
+ * Histéresis del modo conexión débil, sin efectos y con la hora como parámetro.
+ *
+ * La conexión está degradada si el ping de decisión supera el umbral, el silencio de
+ * red supera el suyo o el enlace de entrada está saturado. Con el servidor en lag el
+ * ping no cuenta (sus ticks lentos lo inflan), pero el silencio y la saturación sí: un
+ * problema de red puede coincidir con el lag del servidor. El modo se activa cuando la
+ * degradación dura activateAfterMs seguidos y se desactiva cuando la conexión lleva
+ * restoreAfterMs seguidos sana; cualquier interrupción reinicia la cuenta.
+ *
+ * No es thread-safe.
+ */
+public class WeakModePolicy {
+    /**
+     * Silencio de red a partir del cual la conexión cuenta como degradada (más de 2 s sin paquetes).
+     */
+    public static final long NETWORK_SILENCE_THRESHOLD_MS = 2000;
+
+    /**
+     * Umbrales de ping y de silencio de red (ms) y tiempos de activación y restauración.
+     */
+    public record Parameters(long pingThresholdMs, long silenceThresholdMs, long activateAfterMs, long restoreAfterMs) {
+    }
+
+    /**
+     * Qué hacer tras una actualización.
+     */
+    public enum Decision {
+        NONE,
+        ACTIVATE,
+        DEACTIVATE
+    }
+
+    private Parameters parameters;
+    private boolean active = false;
+    private long degradedSinceMs = -1;
+    private long healthySinceMs = -1;
+
+    public WeakModePolicy(Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    public void setParameters(Parameters parameters) {
+        this.parameters = parameters;
+    }
+
+    /**
+     * Evalúa una muestra. Debe llamarse periódicamente (cada tick del cliente).
+     *
+     * @param networkSilenceMs tiempo sin paquetes, descontadas las pausas de GC
+     * @param linkSaturated    si la utilización del enlace de entrada alcanza el umbral
+     * @param serverLagging    si el TPS del servidor está bajo el umbral; solo anula el criterio del ping
+     */
+    public Decision update(long decisionPingMs, long networkSilenceMs, boolean linkSaturated,
+                           boolean serverLagging, long nowMs) {
+        boolean degraded = (!serverLagging && decisionPingMs > parameters.pingThresholdMs())
+            || networkSilenceMs > parameters.silenceThresholdMs() || linkSaturated;
+        if (!active) {
+            if (!degraded) {
+                degradedSinceMs = -1;
+                return Decision.NONE;
+            }
+            if (degradedSinceMs < 0) {
+                degradedSinceMs = nowMs;
+            }
+            if (nowMs - degradedSinceMs >= parameters.activateAfterMs()) {
+                active = true;
+                degradedSinceMs = -1;
+                healthySinceMs = -1;
+                return Decision.ACTIVATE;
+            }
+            return Decision.NONE;
+        }
+        if (degraded) {
+            healthySinceMs = -1;
+            return Decision.NONE;
+        }
+        if (healthySinceMs < 0) {
+            healthySinceMs = nowMs;
+        }
+        if (nowMs - healthySinceMs >= parameters.restoreAfterMs()) {
+            active = false;
+            healthySinceMs = -1;
+            return Decision.DEACTIVATE;
+        }
+        return Decision.NONE;
+    }
+
+    /**
+     * Sale del modo débil sin esperar (p. ej. el jugador cambió las opciones a mano).
+     */
+    public void reset() {
+        active = false;
+        degradedSinceMs = -1;
+        healthySinceMs = -1;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
@@ -1,6 +1,11 @@
 package dev.zxnoragami.clientreflex.prediction;
 
+import dev.zxnoragami.clientreflex.ClientReflexClient;
 import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
+import dev.zxnoragami.clientreflex.ping.PingMetrics;
+import dev.zxnoragami.clientreflex.recording.SessionRecorder;
 import net.minecraft.util.math.BlockPos;
 
 import java.util.*;
@@ -81,6 +86,7 @@ public class PredictionManager {
         predictedEntities.entrySet().removeIf(entry -> {
             if (now - entry.getValue().timestamp > entry.getValue().timeoutMs) {
                 telemetry.recordExpired(entry.getValue().type);
+                report(entry.getValue().type, "entity", "EXPIRED", now - entry.getValue().timestamp);
                 return true;
             }
             return false;
@@ -88,6 +94,7 @@ public class PredictionManager {
         
         predictedBlocks.entrySet().removeIf(entry -> {
             if (now - entry.getValue().timestamp > entry.getValue().timeoutMs) {
+                report(entry.getValue().type, "block", "EXPIRED", now - entry.getValue().timestamp);
                 return true;
             }
             return false;
@@ -109,8 +116,10 @@ public class PredictionManager {
      * Marca una entidad como predicha como destruida.
      */
     public void predictEntityDestroyed(int entityId, String type, long timeoutMs) {
-        predictedEntities.put(entityId, new PredictedEntity(entityId, type, System.currentTimeMillis(), timeoutMs));
+        predictedEntities.put(entityId, new PredictedEntity(entityId, type, System.currentTimeMillis(),
+            resolveTimeoutMs(timeoutMs)));
         telemetry.recordPrediction(type);
+        report(type, "entity", "MADE", 0);
     }
     
     /**
@@ -127,6 +136,8 @@ public class PredictionManager {
         PredictedEntity predicted = predictedEntities.remove(entityId);
         if (predicted != null) {
             telemetry.recordSuccess(predicted.type);
+            report(predicted.type, "entity", "CONFIRMED",
+                System.currentTimeMillis() - predicted.timestamp);
         }
     }
     
@@ -137,6 +148,8 @@ public class PredictionManager {
         PredictedEntity predicted = predictedEntities.remove(entityId);
         if (predicted != null) {
             telemetry.recordRollback(predicted.type);
+            report(predicted.type, "entity", "ROLLED_BACK",
+                System.currentTimeMillis() - predicted.timestamp);
         }
     }
     
@@ -144,7 +157,27 @@ public class PredictionManager {
      * Marca un bloque como predicho como destruido.
      */
     public void predictBlockDestroyed(BlockPos pos, String type, long timeoutMs) {
-        predictedBlocks.put(pos, new PredictedBlock(pos, type, System.currentTimeMillis(), timeoutMs));
+        predictedBlocks.put(pos, new PredictedBlock(pos, type, System.currentTimeMillis(),
+            resolveTimeoutMs(timeoutMs)));
+        report(type, "block", "MADE", 0);
+    }
+    
+    /**
+     * Obtiene el timeout efectivo de una predicción.
+     * Con timeouts adaptativos es el de retransmisión estilo TCP (SRTT + 4·RTTVAR) más
+     * un margen, acotado a 100-5000 ms; sin estimación de RTT se usa el configurado.
+     */
+    public long resolveTimeoutMs(long configuredTimeoutMs) {
+        var config = ClientReflexConfig.getConfig();
+        if (!config.adaptivePredictionTimeouts) {
+            return configuredTimeoutMs;
+        }
+        PingMetrics metrics = ClientReflexClient.getPingMetrics();
+        if (metrics == null || !metrics.hasSmoothedRtt()) {
+            return configuredTimeoutMs;
+        }
+        long adaptive = metrics.getRetransmissionTimeoutMs() + config.adaptivePredictionMarginMs;
+        return Math.max(100, Math.min(5000, adaptive));
     }
     
     /**
@@ -158,14 +191,30 @@ public class PredictionManager {
      * Confirma que un bloque fue realmente destruido.
      */
     public void confirmBlockDestroyed(BlockPos pos) {
-        predictedBlocks.remove(pos);
+        PredictedBlock predicted = predictedBlocks.remove(pos);
+        if (predicted != null) {
+            report(predicted.type, "block", "CONFIRMED",
+                System.currentTimeMillis() - predicted.timestamp);
+        }
     }
     
     /**
      * Revierte una predicción de bloque.
      */
     public void rollbackBlock(BlockPos pos) {
-        predictedBlocks.remove(pos);
+        PredictedBlock predicted = predictedBlocks.remove(pos);
+        if (predicted != null) {
+            report(predicted.type, "block", "ROLLED_BACK",
+                System.currentTimeMillis() - predicted.timestamp);
+        }
+    }
+    
+    /**
+     * Publica el desenlace de una predicción como evento JFR y en la grabación de sesión.
+     */
+    private static void report(String type, String target, String outcome, long latencyMs) {
+        ClientReflexJfr.prediction(type, target, outcome, latencyMs);
+        SessionRecorder.getInstance().recordPrediction(type, target, outcome, latencyMs);
     }
     
     /**
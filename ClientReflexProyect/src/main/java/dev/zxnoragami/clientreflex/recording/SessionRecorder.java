@@ -0,0 +1,377 @@
+package dev.zxnoragami.clientreflex.recording;
+
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.net.NetworkMonitor;
+import dev.zxnoragami.clientreflex.ping.PingMetrics;
+import dev.zxnoragami.clientreflex.recording.format.SessionFormat;
+import dev.zxnoragami.clientreflex.recording.format.SessionWriter;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Grabador de la serie temporal de la sesión en .minecraft/ClientReflex/sessions/.
+ *
+ * Registra cada muestra de RTT, el jitter y las tasas de paquetes y bytes una vez por
+ * segundo, los silencios clasificados, los cambios de perfil y de modo débil, las
+ * predicciones, las fases de reconexión y las conexiones/desconexiones, con el formato
+ * de {@link SessionFormat}.
+ *
+ * Cada segmento es un archivo de SEGMENT_BYTES preasignado y mapeado en memoria: escribir
+ * un registro son unos pocos put() en el MappedByteBuffer, sin llamadas al sistema ni
+ * asignaciones. Al llenarse se abre el siguiente segmento de la misma sesión, se
+ * desmapea el anterior (sin esperar al GC, que retendría la memoria y el descriptor) y,
+ * antes, se borran los segmentos más antiguos hasta que el directorio quepa en
+ * sessionRecordingMaxMb. Las páginas escritas pertenecen al kernel aunque la JVM muera;
+ * un hilo daemon de plataforma las vuelca a disco (force) cada FLUSH_INTERVAL_MS para
+ * sobrevivir también a un apagón hasta la última página volcada. No es un hilo virtual:
+ * force() bloquea en código nativo y dejaría fijado su hilo portador.
+ *
+ * La grabación es opt-in (sessionRecordingEnabled). Solo se usa desde el hilo del
+ * cliente; las llamadas desde otros hilos se ignoran.
+ */
+public class SessionRecorder {
+    private static SessionRecorder instance;
+
+    static final int SEGMENT_BYTES = 1 << 20;
+    private static final long SAMPLE_INTERVAL_MS = 1000;
+    private static final long FLUSH_INTERVAL_MS = 5000;
+    // session-<fecha>-<hora>-<índice>.crss; el índice puede pasar de tres cifras
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(.+)-(\\d+)" + Pattern.quote(SessionFormat.FILE_EXTENSION));
+    private static final Comparator<Path> SEGMENT_ORDER = Comparator
+        .comparing(SessionRecorder::segmentSession)
+        .thenComparingLong(SessionRecorder::segmentIndex);
+    // sun.misc.Unsafe.invokeCleaner, resuelto al desmapear el primer segmento
+    private static Object theUnsafe;
+    private static Method invokeCleaner;
+
+    private final Path directory;
+    private final String sessionName;
+    private final long sessionStartMs;
+    private Thread ownerThread;
+
+    private SessionWriter writer;
+    private volatile MappedByteBuffer mapped;
+    private volatile int publishedPosition;
+    // El hilo de volcado hace force() con este lock; un segmento solo se desmapea con él
+    private final Object flushLock = new Object();
+    private int segmentIndex = 0;
+    private boolean disabled = false; // Cerrado o sin poder abrir un segmento
+    private boolean connected = false;
+    private long lastSampleMs = 0;
+
+    private SessionRecorder() {
+        this.directory = FabricLoader.getInstance().getGameDir().resolve("ClientReflex").resolve("sessions");
+        this.sessionStartMs = System.currentTimeMillis();
+        this.sessionName = "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date(sessionStartMs));
+    }
+
+    public static SessionRecorder getInstance() {
+        if (instance == null) {
+            instance = new SessionRecorder();
+        }
+        return instance;
+    }
+
+    /**
+     * Registra conexiones y desconexiones y, una vez por segundo, el jitter y las tasas.
+     * Debe llamarse cada tick desde el hilo del cliente, también sin mundo cargado.
+     */
+    public void tick() {
+        if (!isActive()) {
+            return;
+        }
+        MinecraftClient client = MinecraftClient.getInstance();
+        long now = System.currentTimeMillis();
+        boolean inWorld = client.world != null;
+        if (inWorld != connected) {
+            connected = inWorld;
+            if (inWorld) {
+                ServerInfo server = client.getCurrentServerEntry();
+                String address = server != null && server.address != null ? server.address : "local";
+                if (!writer.connect(now, address) && rollover()) {
+                    writer.connect(now, address);
+                }
+            } else if (!writer.disconnect(now) && rollover()) {
+                writer.disconnect(now);
+            }
+        }
+
+        if (connected && now - lastSampleMs >= SAMPLE_INTERVAL_MS) {
+            lastSampleMs = now;
+            PingMetrics pingMetrics = ClientReflexClient.getPingMetrics();
+            // Solo jitter de llegada (RFC 3550): mezclarlo con RTTVAR haría incomparables
+            // los percentiles del analizador
+            if (pingMetrics != null && pingMetrics.hasInterarrivalJitter()) {
+                long jitterMicros = Math.round(pingMetrics.getInterarrivalJitterMs() * 1000.0);
+                if (!writer.jitter(now, jitterMicros) && rollover()) {
+                    writer.jitter(now, jitterMicros);
+                }
+            }
+            NetworkMonitor monitor = ClientReflexClient.getNetworkMonitor();
+            if (monitor != null) {
+                long packets = Math.round(monitor.getPacketsPerSecond(SAMPLE_INTERVAL_MS));
+                long bytesIn = Math.round(monitor.getBytesReceivedPerSecond(SAMPLE_INTERVAL_MS));
+                long bytesOut = Math.round(monitor.getBytesSentPerSecond(SAMPLE_INTERVAL_MS));
+                if (!writer.rates(now, packets, bytesIn, bytesOut) && rollover()) {
+                    writer.rates(now, packets, bytesIn, bytesOut);
+                }
+            }
+        }
+        if (writer != null) {
+            publishedPosition = writer.position();
+        }
+    }
+
+    public void recordRtt(Enum<?> source, long rttMs) {
+        if (isActive()) {
+            long now = System.currentTimeMillis();
+            if (!writer.rtt(now, source.name(), rttMs) && rollover()) {
+                writer.rtt(now, source.name(), rttMs);
+            }
+        }
+    }
+
+    public void recordStall(long startMs, long durationMs, Enum<?> cause) {
+        if (isActive()) {
+            if (!writer.stall(startMs, cause.name(), durationMs) && rollover()) {
+                writer.stall(startMs, cause.name(), durationMs);
+            }
+        }
+    }
+
+    /**
+     * @param fromRange rango anterior, o null si no había perfil aplicado
+     */
+    public void recordProfileChange(Enum<?> fromRange, Enum<?> toRange, String trigger, long pingMs) {
+        if (isActive()) {
+            long now = System.currentTimeMillis();
+            String from = fromRange != null ? fromRange.name() : null;
+            if (!writer.profile(now, from, toRange.name(), trigger, pingMs) && rollover()) {
+                writer.profile(now, from, toRange.name(), trigger, pingMs);
+            }
+        }
+    }
+
+    public void recordWeakMode(boolean active, long decisionPingMs) {
+        if (isActive()) {
+            long now = System.currentTimeMillis();
+            if (!writer.weakMode(now, active, decisionPingMs) && rollover()) {
+                writer.weakMode(now, active, decisionPingMs);
+            }
+        }
+    }
+
+    /**
+     * @param target "entity" o "block"
+     * @param outcome MADE, CONFIRMED, ROLLED_BACK o EXPIRED
+     */
+    public void recordPrediction(String type, String target, String outcome, long latencyMs) {
+        if (isActive()) {
+            long now = System.currentTimeMillis();
+            if (!writer.prediction(now, type, target, outcome, latencyMs) && rollover()) {
+                writer.prediction(now, type, target, outcome, latencyMs);
+            }
+        }
+    }
+
+    /**
+     * @param phase SCHEDULED, ATTEMPT, CONNECTED, FAILED, GAVE_UP o CANCELLED
+     */
+    public void recordReconnect(String phase, int attempt) {
+        if (isActive()) {
+            long now = System.currentTimeMillis();
+            if (!writer.reconnect(now, phase, attempt) && rollover()) {
+                writer.reconnect(now, phase, attempt);
+            }
+        }
+    }
+
+    /**
+     * Vuelca el segmento actual a disco. Se llama al cerrar el cliente.
+     */
+    public void close() {
+        MappedByteBuffer current = mapped;
+        disabled = true;
+        writer = null;
+        mapped = null;
+        if (current != null) {
+            current.force();
+            unmap(current);
+        }
+    }
+
+    /**
+     * Abre el primer segmento si hace falta. Falso si la grabación está desactivada,
+     * cerrada o la llamada no viene del hilo del cliente.
+     */
+    private boolean isActive() {
+        if (disabled || !ClientReflexConfig.getConfig().sessionRecordingEnabled) {
+            return false;
+        }
+        if (writer == null) {
+            if (ownerThread == null) {
+                ownerThread = Thread.currentThread();
+                Thread flushThread = new Thread(this::flushLoop, "ClientReflex-session-flush");
+                flushThread.setDaemon(true);
+                flushThread.start();
+            }
+            return Thread.currentThread() == ownerThread && openSegment();
+        }
+        return Thread.currentThread() == ownerThread;
+    }
+
+    /**
+     * El segmento actual está lleno: abre el siguiente para reintentar el registro.
+     */
+    private boolean rollover() {
+        segmentIndex++;
+        return openSegment();
+    }
+
+    private boolean openSegment() {
+        MappedByteBuffer previous = mapped;
+        if (previous != null) {
+            previous.force();
+        }
+        Path file = directory.resolve(String.format("%s-%03d%s", sessionName, segmentIndex, SessionFormat.FILE_EXTENSION));
+        try {
+            Files.createDirectories(directory);
+            enforceDiskLimit();
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            }
+            writer = new SessionWriter(buffer, sessionStartMs, System.currentTimeMillis(), segmentIndex);
+            mapped = buffer;
+            publishedPosition = writer.position();
+            ClientReflexMod.LOGGER.debug("Segmento de sesión abierto: {}", file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            ClientReflexMod.LOGGER.error("No se pudo abrir el segmento de sesión {}, grabación desactivada: ", file, e);
+            disabled = true;
+            writer = null;
+            mapped = null;
+            return false;
+        } finally {
+            if (previous != null) {
+                unmap(previous);
+            }
+        }
+    }
+
+    /**
+     * Libera el mapeo de un segmento que ya no se escribe. mapped ya no lo apunta, y el
+     * lock espera a un force() en curso del hilo de volcado: tocar un segmento desmapeado
+     * tumbaría la JVM. Si el JDK no expone invokeCleaner, el mapeo queda para el GC.
+     */
+    private void unmap(MappedByteBuffer buffer) {
+        synchronized (flushLock) {
+            try {
+                if (invokeCleaner == null) {
+                    Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                    Field field = unsafeClass.getDeclaredField("theUnsafe");
+                    field.setAccessible(true);
+                    theUnsafe = field.get(null);
+                    invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                }
+                invokeCleaner.invoke(theUnsafe, buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                ClientReflexMod.LOGGER.debug("No se pudo desmapear el segmento de sesión: ", e);
+            }
+        }
+    }
+
+    /**
+     * Borra los segmentos más antiguos hasta que quepa uno nuevo dentro del límite.
+     * Se ordenan por sesión (el nombre empieza por la fecha) y por el índice numérico del
+     * segmento: en orden alfabético el -1000 iría antes que el -999.
+     */
+    private void enforceDiskLimit() throws IOException {
+        long limitBytes = ClientReflexConfig.getConfig().sessionRecordingMaxMb * 1024L * 1024L;
+        List<Path> segments = new ArrayList<>();
+        long total = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted(SEGMENT_ORDER)::iterator) {
+                if (path.getFileName().toString().endsWith(SessionFormat.FILE_EXTENSION)) {
+                    segments.add(path);
+                    total += Files.size(path);
+                }
+            }
+        }
+        for (Path oldest : segments) {
+            if (total + SEGMENT_BYTES <= limitBytes) {
+                break;
+            }
+            long size = Files.size(oldest);
+            try {
+                Files.delete(oldest);
+                total -= size;
+            } catch (IOException e) {
+                // En Windows un segmento aún mapeado no se puede borrar; se intenta con el siguiente
+                ClientReflexMod.LOGGER.debug("No se pudo borrar el segmento {}: ", oldest, e);
+            }
+        }
+    }
+
+    private static String segmentSession(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? matcher.group(1) : file.getFileName().toString();
+    }
+
+    private static long segmentIndex(Path file) {
+        Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(2)) : 0;
+    }
+
+    /**
+     * Hilo de volcado: pasa a disco las páginas escritas del segmento actual.
+     */
+    private void flushLoop() {
+        int flushed = 0;
+        MappedByteBuffer flushedBuffer = null;
+        while (true) {
+            try {
+                Thread.sleep(FLUSH_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (flushLock) {
+                MappedByteBuffer current = mapped;
+                if (current == null) {
+                    continue;
+                }
+                if (current != flushedBuffer) {
+                    flushedBuffer = current;
+                    flushed = 0;
+                }
+                int position = publishedPosition;
+                if (position > flushed) {
+                    current.force(0, position);
+                    flushed = position;
+                }
+            }
+        }
+    }
+}
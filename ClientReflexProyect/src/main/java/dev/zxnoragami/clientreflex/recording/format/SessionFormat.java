@@ -0,0 +1,69 @@
+package dev.zxnoragami.clientreflex.recording.format;
+
+/**
+ * Formato binario de las grabaciones de sesión (.crss).
+ *
+ * Un segmento es un archivo de tamaño fijo con una cabecera de {@link #HEADER_SIZE}
+ * bytes y a continuación registros hasta el primer byte 0 (el resto del archivo
+ * preasignado queda a cero). Cada segmento es autónomo: su diccionario de cadenas y
+ * sus deltas empiezan de nuevo, así que se puede leer aunque falten los anteriores.
+ *
+ * Cabecera (big endian):
+ * <pre>
+ *   0  "CRSS"               magic
+ *   4  u16 versión          {@link #VERSION}
+ *   6  u16 tamaño cabecera  {@link #HEADER_SIZE}
+ *   8  i64 inicio sesión    ms desde epoch, común a todos los segmentos de la sesión
+ *  16  i64 inicio segmento  ms desde epoch, base del primer delta de tiempo
+ *  24  i32 índice segmento  0, 1, 2... dentro de la sesión
+ *  28  relleno hasta 32
+ * </pre>
+ *
+ * Registro: u8 tipo, varint zigzag con el delta de tiempo (ms) respecto al registro
+ * anterior y los campos del tipo. Los valores categóricos (fuente del RTT, causa de un
+ * silencio, rango de perfil, fases...) son ids de un diccionario que se define en línea
+ * con un registro {@link #STRING} antes de su primer uso; el id 0 significa "ninguno".
+ * Los enteros son varints sin signo salvo que se indique zigzag.
+ *
+ * Este paquete no depende de Minecraft para que el analizador de sesiones lo comparta.
+ */
+public final class SessionFormat {
+    public static final byte[] MAGIC = {'C', 'R', 'S', 'S'};
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final String FILE_EXTENSION = ".crss";
+
+    /** Fin de los registros (relleno a cero del segmento). */
+    public static final int END = 0;
+    /** id, longitud, bytes UTF-8. */
+    public static final int STRING = 1;
+    /** fuente (id), RTT en ms como zigzag del delta respecto al RTT anterior. */
+    public static final int RTT = 2;
+    /** jitter en microsegundos. Una vez por segundo. */
+    public static final int JITTER = 3;
+    /** paquetes/s, bytes recibidos/s, bytes enviados/s. Una vez por segundo. */
+    public static final int RATES = 4;
+    /** causa (id), duración en ms. El tiempo del registro es el inicio del silencio. */
+    public static final int STALL = 5;
+    /** rango anterior (id o 0), rango nuevo (id), disparador (id), ping en ms. */
+    public static final int PROFILE = 6;
+    /** activo (0/1), ping de decisión en ms. */
+    public static final int WEAK_MODE = 7;
+    /** tipo (id), objetivo (id), resultado (id), latencia en ms. */
+    public static final int PREDICTION = 8;
+    /** fase (id), número de intento. */
+    public static final int RECONNECT = 9;
+    /** servidor (id). */
+    public static final int CONNECT = 10;
+    /** sin campos. */
+    public static final int DISCONNECT = 11;
+
+    /**
+     * Espacio que se reserva para cualquier registro salvo las cadenas: tipo, delta de
+     * tiempo y hasta cuatro varints de 10 bytes.
+     */
+    static final int MAX_FIXED_RECORD = 1 + 10 * 5;
+
+    private SessionFormat() {
+    }
+}
@@ -0,0 +1,150 @@
+package dev.zxnoragami.clientreflex.recording.format;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodifica un segmento de sesión y entrega sus registros a un {@link SessionVisitor}.
+ *
+ * Lee hasta el primer byte 0 o el final del buffer. Un segmento cortado a mitad de un
+ * registro (p. ej. tras un apagón con páginas sin volcar) se lee hasta el último
+ * registro completo y se marca como truncado en lugar de fallar.
+ */
+public final class SessionReader {
+    private SessionReader() {
+    }
+
+    /**
+     * Resultado de leer un segmento.
+     */
+    public record Result(int records, boolean truncated) {
+    }
+
+    /**
+     * Mapea el archivo en solo lectura y lo recorre.
+     */
+    public static Result read(Path file, SessionVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), visitor);
+        }
+    }
+
+    /**
+     * Recorre el segmento contenido en el buffer, desde su posición 0.
+     *
+     * @throws IOException si la cabecera no es de una sesión ClientReflex compatible
+     */
+    public static Result read(ByteBuffer source, SessionVisitor visitor) throws IOException {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+        buffer.position(0);
+        if (buffer.remaining() < SessionFormat.HEADER_SIZE) {
+            throw new IOException("Archivo demasiado corto para una sesión: " + buffer.remaining() + " bytes");
+        }
+        byte[] magic = new byte[SessionFormat.MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, SessionFormat.MAGIC)) {
+            throw new IOException("No es una sesión ClientReflex (magic incorrecto)");
+        }
+        int version = Short.toUnsignedInt(buffer.getShort());
+        if (version != SessionFormat.VERSION) {
+            throw new IOException("Versión de sesión no soportada: " + version);
+        }
+        int headerSize = Short.toUnsignedInt(buffer.getShort());
+        long sessionStartMs = buffer.getLong();
+        long segmentStartMs = buffer.getLong();
+        int segmentIndex = buffer.getInt();
+        buffer.position(headerSize);
+        visitor.onSegment(sessionStartMs, segmentStartMs, segmentIndex);
+
+        List<String> strings = new ArrayList<>();
+        strings.add(null); // id 0 = ninguno
+        long timeMs = segmentStartMs;
+        long rttMs = 0;
+        int records = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                int type = Byte.toUnsignedInt(buffer.get());
+                if (type == SessionFormat.END) {
+                    break;
+                }
+                timeMs += VarInts.getSigned(buffer);
+                switch (type) {
+                    case SessionFormat.STRING -> {
+                        int id = (int) VarInts.getUnsigned(buffer);
+                        long length = VarInts.getUnsigned(buffer);
+                        if (length > buffer.remaining()) {
+                            throw new IllegalStateException("Cadena más larga que el segmento: " + length);
+                        }
+                        byte[] bytes = new byte[(int) length];
+                        buffer.get(bytes);
+                        while (strings.size() <= id) {
+                            strings.add(null);
+                        }
+                        strings.set(id, new String(bytes, StandardCharsets.UTF_8));
+                    }
+                    case SessionFormat.RTT -> {
+                        String rttSource = string(strings, VarInts.getUnsigned(buffer));
+                        rttMs += VarInts.getSigned(buffer);
+                        visitor.onRtt(timeMs, rttSource, rttMs);
+                    }
+                    case SessionFormat.JITTER -> visitor.onJitter(timeMs, VarInts.getUnsigned(buffer));
+                    case SessionFormat.RATES -> {
+                        long packets = VarInts.getUnsigned(buffer);
+                        long bytesIn = VarInts.getUnsigned(buffer);
+                        long bytesOut = VarInts.getUnsigned(buffer);
+                        visitor.onRates(timeMs, packets, bytesIn, bytesOut);
+                    }
+                    case SessionFormat.STALL -> {
+                        String cause = string(strings, VarInts.getUnsigned(buffer));
+                        visitor.onStall(timeMs, cause, VarInts.getUnsigned(buffer));
+                    }
+                    case SessionFormat.PROFILE -> {
+                        String from = string(strings, VarInts.getUnsigned(buffer));
+                        String to = string(strings, VarInts.getUnsigned(buffer));
+                        String trigger = string(strings, VarInts.getUnsigned(buffer));
+                        visitor.onProfile(timeMs, from, to, trigger, VarInts.getUnsigned(buffer));
+                    }
+                    case SessionFormat.WEAK_MODE -> {
+                        boolean active = buffer.get() != 0;
+                        visitor.onWeakMode(timeMs, active, VarInts.getUnsigned(buffer));
+                    }
+                    case SessionFormat.PREDICTION -> {
+                        String predictionType = string(strings, VarInts.getUnsigned(buffer));
+                        String target = string(strings, VarInts.getUnsigned(buffer));
+                        String outcome = string(strings, VarInts.getUnsigned(buffer));
+                        visitor.onPrediction(timeMs, predictionType, target, outcome, VarInts.getUnsigned(buffer));
+                    }
+                    case SessionFormat.RECONNECT -> {
+                        String phase = string(strings, VarInts.getUnsigned(buffer));
+                        visitor.onReconnect(timeMs, phase, (int) VarInts.getUnsigned(buffer));
+                    }
+                    case SessionFormat.CONNECT -> visitor.onConnect(timeMs, string(strings, VarInts.getUnsigned(buffer)));
+                    case SessionFormat.DISCONNECT -> visitor.onDisconnect(timeMs);
+                    default -> throw new IllegalStateException("Tipo de registro desconocido: " + type);
+                }
+                if (type != SessionFormat.STRING) {
+                    records++;
+                }
+            }
+        } catch (IllegalStateException | BufferUnderflowException e) {
+            return new Result(records, true);
+        }
+        return new Result(records, false);
+    }
+
+    private static String string(List<String> strings, long id) {
+        if (id < 0 || id >= strings.size()) {
+            throw new IllegalStateException("Id de cadena sin definir: " + id);
+        }
+        return strings.get((int) id);
+    }
+}
@@ -0,0 +1,44 @@
+package dev.zxnoragami.clientreflex.recording.format;
+
+/**
+ * Recibe los registros de un segmento en orden. Los tiempos ya están reconstruidos
+ * (ms desde epoch) y los ids del diccionario resueltos a cadenas.
+ * Todos los métodos tienen implementación vacía: basta con sobrescribir los que interesan.
+ */
+public interface SessionVisitor {
+    default void onSegment(long sessionStartMs, long segmentStartMs, int segmentIndex) {
+    }
+
+    default void onRtt(long timeMs, String source, long rttMs) {
+    }
+
+    default void onJitter(long timeMs, long jitterMicros) {
+    }
+
+    default void onRates(long timeMs, long packetsPerSecond, long bytesInPerSecond, long bytesOutPerSecond) {
+    }
+
+    default void onStall(long startMs, String cause, long durationMs) {
+    }
+
+    /**
+     * @param fromRange null si no había perfil aplicado
+     */
+    default void onProfile(long timeMs, String fromRange, String toRange, String trigger, long pingMs) {
+    }
+
+    default void onWeakMode(long timeMs, boolean active, long decisionPingMs) {
+    }
+
+    default void onPrediction(long timeMs, String type, String target, String outcome, long latencyMs) {
+    }
+
+    default void onReconnect(long timeMs, String phase, int attempt) {
+    }
+
+    default void onConnect(long timeMs, String server) {
+    }
+
+    default void onDisconnect(long timeMs) {
+    }
+}
@@ -0,0 +1,204 @@
+package dev.zxnoragami.clientreflex.recording.format;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Codifica registros de sesión en un ByteBuffer (normalmente un MappedByteBuffer).
+ *
+ * Cada método escribe un registro completo o nada: si no cabe (junto con las cadenas
+ * del diccionario que aún no se definieron) devuelve false y el llamador abre otro
+ * segmento. Una vez definidas las cadenas, escribir un registro no asigna memoria.
+ *
+ * No es thread-safe.
+ */
+public class SessionWriter {
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private long lastTimeMs;
+    private long lastRttMs = 0;
+
+    /**
+     * Escribe la cabecera al principio del buffer y deja la posición tras ella.
+     */
+    public SessionWriter(ByteBuffer buffer, long sessionStartMs, long segmentStartMs, int segmentIndex) {
+        if (buffer.capacity() < SessionFormat.HEADER_SIZE + SessionFormat.MAX_FIXED_RECORD) {
+            throw new IllegalArgumentException("Buffer demasiado pequeño para un segmento: " + buffer.capacity());
+        }
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        this.lastTimeMs = segmentStartMs;
+        buffer.position(0);
+        buffer.put(SessionFormat.MAGIC);
+        buffer.putShort((short) SessionFormat.VERSION);
+        buffer.putShort((short) SessionFormat.HEADER_SIZE);
+        buffer.putLong(sessionStartMs);
+        buffer.putLong(segmentStartMs);
+        buffer.putInt(segmentIndex);
+        buffer.position(SessionFormat.HEADER_SIZE);
+    }
+
+    /**
+     * Bytes usados del segmento (cabecera incluida).
+     */
+    public int position() {
+        return buffer.position();
+    }
+
+    public boolean rtt(long timeMs, String source, long rttMs) {
+        if (!reserve(timeMs, source, null, null)) {
+            return false;
+        }
+        begin(SessionFormat.RTT, timeMs);
+        VarInts.putUnsigned(buffer, stringIds.get(source));
+        VarInts.putSigned(buffer, rttMs - lastRttMs);
+        lastRttMs = rttMs;
+        return true;
+    }
+
+    public boolean jitter(long timeMs, long jitterMicros) {
+        if (!reserve(timeMs, null, null, null)) {
+            return false;
+        }
+        begin(SessionFormat.JITTER, timeMs);
+        VarInts.putUnsigned(buffer, Math.max(0, jitterMicros));
+        return true;
+    }
+
+    public boolean rates(long timeMs, long packetsPerSecond, long bytesInPerSecond, long bytesOutPerSecond) {
+        if (!reserve(timeMs, null, null, null)) {
+            return false;
+        }
+        begin(SessionFormat.RATES, timeMs);
+        VarInts.putUnsigned(buffer, Math.max(0, packetsPerSecond));
+        VarInts.putUnsigned(buffer, Math.max(0, bytesInPerSecond));
+        VarInts.putUnsigned(buffer, Math.max(0, bytesOutPerSecond));
+        return true;
+    }
+
+    /**
+     * @param startMs inicio del silencio, que es el tiempo del registro
+     */
+    public boolean stall(long startMs, String cause, long durationMs) {
+        if (!reserve(startMs, cause, null, null)) {
+            return false;
+        }
+        begin(SessionFormat.STALL, startMs);
+        VarInts.putUnsigned(buffer, stringIds.get(cause));
+        VarInts.putUnsigned(buffer, Math.max(0, durationMs));
+        return true;
+    }
+
+    /**
+     * @param fromRange rango anterior o null
+     */
+    public boolean profile(long timeMs, String fromRange, String toRange, String trigger, long pingMs) {
+        if (!reserve(timeMs, fromRange, toRange, trigger)) {
+            return false;
+        }
+        begin(SessionFormat.PROFILE, timeMs);
+        VarInts.putUnsigned(buffer, fromRange != null ? stringIds.get(fromRange) : 0);
+        VarInts.putUnsigned(buffer, stringIds.get(toRange));
+        VarInts.putUnsigned(buffer, stringIds.get(trigger));
+        VarInts.putUnsigned(buffer, Math.max(0, pingMs));
+        return true;
+    }
+
+    public boolean weakMode(long timeMs, boolean active, long decisionPingMs) {
+        if (!reserve(timeMs, null, null, null)) {
+            return false;
+        }
+        begin(SessionFormat.WEAK_MODE, timeMs);
+        buffer.put((byte) (active ? 1 : 0));
+        VarInts.putUnsigned(buffer, Math.max(0, decisionPingMs));
+        return true;
+    }
+
+    public boolean prediction(long timeMs, String type, String target, String outcome, long latencyMs) {
+        if (!reserve(timeMs, type, target, outcome)) {
+            return false;
+        }
+        begin(SessionFormat.PREDICTION, timeMs);
+        VarInts.putUnsigned(buffer, stringIds.get(type));
+        VarInts.putUnsigned(buffer, stringIds.get(target));
+        VarInts.putUnsigned(buffer, stringIds.get(outcome));
+        VarInts.putUnsigned(buffer, Math.max(0, latencyMs));
+        return true;
+    }
+
+    public boolean reconnect(long timeMs, String phase, int attempt) {
+        if (!reserve(timeMs, phase, null, null)) {
+            return false;
+        }
+        begin(SessionFormat.RECONNECT, timeMs);
+        VarInts.putUnsigned(buffer, stringIds.get(phase));
+        VarInts.putUnsigned(buffer, Math.max(0, attempt));
+        return true;
+    }
+
+    public boolean connect(long timeMs, String server) {
+        if (!reserve(timeMs, server, null, null)) {
+            return false;
+        }
+        begin(SessionFormat.CONNECT, timeMs);
+        VarInts.putUnsigned(buffer, stringIds.get(server));
+        return true;
+    }
+
+    public boolean disconnect(long timeMs) {
+        if (!reserve(timeMs, null, null, null)) {
+            return false;
+        }
+        begin(SessionFormat.DISCONNECT, timeMs);
+        return true;
+    }
+
+    /**
+     * Comprueba que caben el registro y las cadenas nuevas, y define estas últimas.
+     */
+    private boolean reserve(long timeMs, String s1, String s2, String s3) {
+        byte[] b1 = undefinedBytes(s1);
+        byte[] b2 = s2 != null && !s2.equals(s1) ? undefinedBytes(s2) : null;
+        byte[] b3 = s3 != null && !s3.equals(s1) && !s3.equals(s2) ? undefinedBytes(s3) : null;
+        int needed = SessionFormat.MAX_FIXED_RECORD + stringSize(b1) + stringSize(b2) + stringSize(b3);
+        // Deja siempre un byte a cero como marca de fin
+        if (buffer.remaining() < needed + 1) {
+            return false;
+        }
+        define(timeMs, s1, b1);
+        define(timeMs, s2, b2);
+        define(timeMs, s3, b3);
+        return true;
+    }
+
+    private byte[] undefinedBytes(String value) {
+        if (value == null || stringIds.containsKey(value)) {
+            return null;
+        }
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return bytes == null ? 0 : 1 + 10 + 5 + 5 + bytes.length;
+    }
+
+    private void define(long timeMs, String value, byte[] bytes) {
+        if (bytes == null) {
+            return;
+        }
+        int id = stringIds.size() + 1;
+        stringIds.put(value, id);
+        begin(SessionFormat.STRING, timeMs);
+        VarInts.putUnsigned(buffer, id);
+        VarInts.putUnsigned(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void begin(int type, long timeMs) {
+        buffer.put((byte) type);
+        VarInts.putSigned(buffer, timeMs - lastTimeMs);
+        lastTimeMs = timeMs;
+    }
+}
@@ -0,0 +1,46 @@
+package dev.zxnoragami.clientreflex.recording.format;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Varints LEB128 (7 bits por byte) y codificación zigzag para valores con signo.
+ */
+final class VarInts {
+    private VarInts() {
+    }
+
+    static void putUnsigned(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void putSigned(ByteBuffer buffer, long value) {
+        putUnsigned(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Lee un varint sin signo. Lanza IllegalStateException si está truncado o es demasiado largo.
+     */
+    static long getUnsigned(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new IllegalStateException("Varint truncado en la posición " + buffer.position());
+            }
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Varint de más de 10 bytes en la posición " + buffer.position());
+    }
+
+    static long getSigned(ByteBuffer buffer) {
+        long raw = getUnsigned(buffer);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
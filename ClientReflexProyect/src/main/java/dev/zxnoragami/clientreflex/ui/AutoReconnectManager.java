@@ -2,6 +2,8 @@ package dev.zxnoragami.clientreflex.ui;
 
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
 import dev.zxnoragami.clientreflex.ClientReflexMod;
+import dev.zxnoragami.clientreflex.jfr.ClientReflexJfr;
+import dev.zxnoragami.clientreflex.recording.SessionRecorder;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.TitleScreen;
 import net.minecraft.client.gui.screen.multiplayer.MultiplayerScreen;
@@ -23,6 +25,11 @@ public class AutoReconnectManager {
     private boolean isReconnecting = false;
     private int reconnectAttempts = 0;
     private Timer reconnectTimer;
+    // Totales de la sesión (no se reinician con reset())
+    private long totalAttempts = 0;
+    private long successfulReconnects = 0;
+    private long failedAttempts = 0;
+    private long exhaustedReconnects = 0;
 
     private AutoReconnectManager() {
     }
@@ -76,6 +83,9 @@ public class AutoReconnectManager {
         int maxAttempts = ClientReflexConfig.getConfig().maxReconnectAttempts;
         if (reconnectAttempts >= maxAttempts) {
             ClientReflexMod.LOGGER.info("Se alcanzó el límite de intentos de reconexión");
+            ClientReflexJfr.reconnectPhase("GAVE_UP", reconnectAttempts);
+            SessionRecorder.getInstance().recordReconnect("GAVE_UP", reconnectAttempts);
+            exhaustedReconnects++;
             reset();
             return false;
         }
@@ -95,6 +105,8 @@ public class AutoReconnectManager {
         int delaySeconds = ClientReflexConfig.getConfig().autoReconnectDelaySeconds;
         ClientReflexMod.LOGGER.info("Iniciando auto-reconexión en {} segundos (intento {}/{})", 
             delaySeconds, reconnectAttempts, maxAttempts);
+        ClientReflexJfr.reconnectPhase("SCHEDULED", reconnectAttempts);
+        SessionRecorder.getInstance().recordReconnect("SCHEDULED", reconnectAttempts);
 
         // Programar la reconexión
         reconnectTimer = new Timer();
@@ -122,11 +134,14 @@ public class AutoReconnectManager {
         MinecraftClient client = MinecraftClient.getInstance();
         
         if (client.world != null) {
-            // Ya estamos conectados
+            // Ya estamos conectados; la reconexión la contó onGameJoin()
             reset();
             return;
         }
 
+        ClientReflexJfr.reconnectPhase("ATTEMPT", reconnectAttempts);
+        SessionRecorder.getInstance().recordReconnect("ATTEMPT", reconnectAttempts);
+        totalAttempts++;
         try {
             if (lastServerInfo != null) {
                 // Reconectar usando ServerInfo
@@ -144,10 +159,30 @@ public class AutoReconnectManager {
             }
         } catch (Exception e) {
             ClientReflexMod.LOGGER.error("Error al intentar reconectar: ", e);
+            ClientReflexJfr.reconnectPhase("FAILED", reconnectAttempts);
+            SessionRecorder.getInstance().recordReconnect("FAILED", reconnectAttempts);
+            failedAttempts++;
             isReconnecting = false;
         }
     }
 
+    /**
+     * El cliente entró en un servidor (evento JOIN de Fabric, en el hilo del cliente).
+     * Si había una reconexión en curso, terminó bien: el intento solo abre la pantalla de
+     * multijugador, así que la reconexión real es esta entrada, cuando el jugador la
+     * confirma.
+     */
+    public void onGameJoin() {
+        if (reconnectAttempts == 0) {
+            return;
+        }
+        ClientReflexMod.LOGGER.info("Reconexión completada (intento {})", reconnectAttempts);
+        ClientReflexJfr.reconnectPhase("CONNECTED", reconnectAttempts);
+        SessionRecorder.getInstance().recordReconnect("CONNECTED", reconnectAttempts);
+        successfulReconnects++;
+        reset();
+    }
+
     /**
      * Verifica si una desconexión es recuperable (se puede intentar reconectar).
      */
@@ -212,6 +247,10 @@ public class AutoReconnectManager {
      * Cancela la auto-reconexión.
      */
     public void cancel() {
+        if (isReconnecting) {
+            ClientReflexJfr.reconnectPhase("CANCELLED", reconnectAttempts);
+            SessionRecorder.getInstance().recordReconnect("CANCELLED", reconnectAttempts);
+        }
         reset();
     }
 
@@ -226,5 +265,33 @@ public class AutoReconnectManager {
     public int getRemainingAttempts() {
         return ClientReflexConfig.getConfig().maxReconnectAttempts - reconnectAttempts;
     }
+
+    /**
+     * Intentos de reconexión ejecutados en la sesión.
+     */
+    public long getTotalAttempts() {
+        return totalAttempts;
+    }
+
+    /**
+     * Reconexiones que terminaron con el cliente de nuevo en un servidor.
+     */
+    public long getSuccessfulReconnects() {
+        return successfulReconnects;
+    }
+
+    /**
+     * Intentos que fallaron con una excepción.
+     */
+    public long getFailedAttempts() {
+        return failedAttempts;
+    }
+
+    /**
+     * Veces que se agotaron los intentos sin reconectar.
+     */
+    public long getExhaustedReconnects() {
+        return exhaustedReconnects;
+    }
 }
 
@@ -2,7 +2,10 @@ package dev.zxnoragami.clientreflex.ui;
 
 import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
 import dev.zxnoragami.clientreflex.net.NetworkMonitor;
+import dev.zxnoragami.clientreflex.net.ServerTpsEstimator;
 import dev.zxnoragami.clientreflex.ping.PingMetrics;
+import dev.zxnoragami.clientreflex.ping.RollingLatencyHistogram;
+import dev.zxnoragami.clientreflex.ping.RttSource;
 import dev.zxnoragami.clientreflex.prediction.PredictionManager;
 import dev.zxnoragami.clientreflex.ClientReflexClient;
 import net.minecraft.client.MinecraftClient;
@@ -76,7 +79,10 @@ public class NetworkHUD {
 
         // Ping actual
         long currentPing = monitor.getCurrentPing();
-        String pingText = String.format("Ping: %d ms", currentPing);
+        RttSource pingSource = monitor.getCurrentPingSource();
+        String pingText = pingSource != null
+            ? String.format("Ping: %d ms (%s)", currentPing, pingSource.getDisplayName())
+            : String.format("Ping: %d ms", currentPing);
         context.drawTextWithShadow(textRenderer, pingText, x, currentY, color);
         currentY += lineHeight;
 
@@ -92,8 +98,9 @@ public class NetworkHUD {
         context.drawTextWithShadow(textRenderer, maxText, x, currentY, color);
         currentY += lineHeight;
 
-        // Jitter
-        double jitter = monitor.getJitter();
+        // Jitter: el mismo RTTVAR que muestra /clientreflex
+        PingMetrics jitterMetrics = ClientReflexClient.getPingMetrics();
+        double jitter = jitterMetrics != null ? jitterMetrics.getJitterMs() : 0;
         String jitterText = String.format("Jitter: %.1f ms", jitter);
         context.drawTextWithShadow(textRenderer, jitterText, x, currentY, color);
         currentY += lineHeight;
@@ -106,10 +113,23 @@ public class NetworkHUD {
 
         // Paquetes recibidos en ventana
         int packetsInWindow = monitor.getPacketsReceivedInWindow();
-        String packetsText = String.format("Paquetes/10s: %d", packetsInWindow);
+        String packetsText = String.format("Paquetes/%ds: %d (pico %d/s)",
+            ClientReflexConfig.getConfig().networkStatsWindowSeconds, packetsInWindow,
+            monitor.getPeakPacketsPerSecond());
         context.drawTextWithShadow(textRenderer, packetsText, x, currentY, color);
         currentY += lineHeight;
 
+        // TPS del servidor estimado por la cadencia del tiempo del mundo
+        ServerTpsEstimator serverTps = monitor.getServerTpsEstimator();
+        if (serverTps.hasEstimate()) {
+            String tpsText = String.format("TPS servidor: %.1f (tick %.1f ± %.1f ms)",
+                serverTps.getTps(), serverTps.getTickTimeMs(), serverTps.getTickTimeStdDevMs());
+            int tpsColor = serverTps.isLagging(ClientReflexConfig.getConfig().serverLagTpsThreshold)
+                ? 0xFFFF55 : color; // Amarillo si el servidor va con lag
+            context.drawTextWithShadow(textRenderer, tpsText, x, currentY, tpsColor);
+            currentY += lineHeight;
+        }
+
         // Información avanzada de ping (si está disponible)
         PingMetrics pingMetrics = ClientReflexClient.getPingMetrics();
         if (pingMetrics != null && pingMetrics.getCurrentPingMs() > 0) {
@@ -119,6 +139,16 @@ public class NetworkHUD {
             String trendText = String.format("Tendencia: %s", trendStr);
             context.drawTextWithShadow(textRenderer, trendText, x, currentY, color);
             currentY += lineHeight;
+
+            // Percentiles de los últimos 10 s (la cola importa más que la media)
+            RollingLatencyHistogram rtt = pingMetrics.getRttHistogram();
+            RollingLatencyHistogram.Window window = RollingLatencyHistogram.Window.TEN_SECONDS;
+            if (rtt.getCount(window) > 0) {
+                String percentileText = String.format("Ping p50/p90/p99 (10s): %d/%d/%d ms",
+                    rtt.getP50(window), rtt.getP90(window), rtt.getP99(window));
+                context.drawTextWithShadow(textRenderer, percentileText, x, currentY, color);
+                currentY += lineHeight;
+            }
         }
 
         // Estadísticas de predicción (si está habilitado)
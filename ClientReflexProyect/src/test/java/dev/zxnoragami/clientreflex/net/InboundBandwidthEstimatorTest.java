@@ -0,0 +1,195 @@
+package dev.zxnoragami.clientreflex.net;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reproduce lecturas del socket con un reloj sintético a través de {@link NettyIngestion},
+ * igual que el event loop, y avanza el estimador cada tick como el hilo del cliente.
+ */
+class InboundBandwidthEstimatorTest {
+    private static final long WINDOW_MS = 10_000;
+    private static final long TICK_MS = 50;
+    private static final long SEGMENT = 1460;
+    // Un segmento por milisegundo: 1.46 MB/s con el enlace lleno
+    private static final long LINK_RATE = SEGMENT * 1000;
+
+    private NettyIngestion ingestion;
+    private InboundBandwidthEstimator estimator;
+    private final NettyIngestion.Snapshot snapshot = new NettyIngestion.Snapshot();
+    private long nowNanos;
+    private long nextTickNanos;
+
+    @BeforeEach
+    void setUp() {
+        nowNanos = 1_000_000_000L;
+        nextTickNanos = nowNanos;
+        ingestion = new NettyIngestion(nowMs());
+        estimator = new InboundBandwidthEstimator(WINDOW_MS);
+    }
+
+    private long nowMs() {
+        return nowNanos / 1_000_000;
+    }
+
+    /**
+     * Avanza el reloj, ejecutando los ticks del cliente que caigan en medio.
+     */
+    private void advanceMs(long ms) {
+        long target = nowNanos + ms * 1_000_000;
+        while (nextTickNanos <= target) {
+            nowNanos = nextTickNanos;
+            tick();
+            nextTickNanos += TICK_MS * 1_000_000;
+        }
+        nowNanos = target;
+    }
+
+    private void tick() {
+        ingestion.readSnapshot(snapshot);
+        estimator.update(nowMs(), snapshot.bytesReceived, snapshot.receiveIdleNanos,
+            snapshot.receiveIdleBytes, snapshot.lastReadNanos);
+        ingestion.setCapacityHint(estimator.getMeasuredCapacityBytesPerSecond());
+    }
+
+    private void read(long bytes) {
+        ingestion.onBytesReceived(bytes, nowNanos);
+    }
+
+    /**
+     * Enlace lleno: un segmento cada milisegundo.
+     */
+    private void saturate(long durationMs) {
+        for (long i = 0; i < durationMs; i++) {
+            advanceMs(1);
+            read(SEGMENT);
+        }
+    }
+
+    /**
+     * Ráfagas de n segmentos a la tasa del enlace, separadas por huecos sin nada que enviar.
+     */
+    private void bursts(int count, int segmentsPerBurst, long gapMs) {
+        for (int b = 0; b < count; b++) {
+            advanceMs(gapMs);
+            for (int s = 0; s < segmentsPerBurst; s++) {
+                if (s > 0) {
+                    advanceMs(1);
+                }
+                read(SEGMENT);
+            }
+        }
+    }
+
+    private static void assertNear(long expected, long actual, double tolerance) {
+        assertTrue(Math.abs(actual - expected) <= expected * tolerance,
+            "esperado ~" + expected + ", obtenido " + actual);
+    }
+
+    @Test
+    void noSamplesMeansNoCapacity() {
+        advanceMs(1000);
+        assertEquals(-1, estimator.getCapacityBytesPerSecond());
+        assertFalse(estimator.isCapacityMeasured());
+        assertEquals(-1.0, estimator.getUtilization());
+    }
+
+    @Test
+    void fullLinkMeasuresCapacity() {
+        saturate(2000);
+        assertTrue(estimator.isCapacityMeasured());
+        assertNear(LINK_RATE, estimator.getMeasuredCapacityBytesPerSecond(), 0.02);
+        assertFalse(estimator.isLastSampleAppLimited());
+        assertTrue(estimator.getPipeLimitedSampleCount() > 0);
+        assertTrue(estimator.isSaturated(0.9), "utilización " + estimator.getUtilization());
+    }
+
+    @Test
+    void readClosingAnIdleGapDoesNotInflateTheRate() {
+        // Ráfagas de 10 segmentos cada 60 ms: la primera lectura de cada una cierra un hueco
+        bursts(60, 10, 50);
+        assertFalse(estimator.isCapacityMeasured());
+        assertTrue(estimator.isLastSampleAppLimited());
+        assertNear(LINK_RATE, estimator.getCapacityBytesPerSecond(), 0.02);
+    }
+
+    @Test
+    void appLimitedSamplesNeverBecomeTheMeasuredCapacity() {
+        saturate(2000);
+        long measured = estimator.getMeasuredCapacityBytesPerSecond();
+        // Ráfagas con segmentos el triple de grandes: tasa de ráfaga por encima de la medida
+        for (int b = 0; b < 40; b++) {
+            advanceMs(50);
+            for (int s = 0; s < 10; s++) {
+                advanceMs(1);
+                read(3 * SEGMENT);
+            }
+        }
+        assertTrue(estimator.isLastSampleAppLimited());
+        assertTrue(estimator.getLastSampleBytesPerSecond() > measured);
+        assertEquals(measured, estimator.getMeasuredCapacityBytesPerSecond());
+        assertEquals(measured, estimator.getCapacityBytesPerSecond());
+    }
+
+    @Test
+    void gapAcrossSampleBoundaryLeavesBothSamplesValid() {
+        saturate(500);
+        long samplesBefore = estimator.getSampleCount();
+        // Un hueco de 400 ms que cruza al menos un cierre de muestra
+        advanceMs(400);
+        saturate(1000);
+        assertTrue(estimator.getSampleCount() > samplesBefore);
+        assertNear(LINK_RATE, estimator.getMeasuredCapacityBytesPerSecond(), 0.02);
+        assertNear(LINK_RATE, estimator.getLastSampleBytesPerSecond(), 0.02);
+        assertFalse(estimator.isLastSampleAppLimited());
+    }
+
+    @Test
+    void unmeasuredSeedIsOnlyALowerBound() {
+        estimator.seed(500_000, false, nowMs());
+        assertEquals(500_000, estimator.getCapacityBytesPerSecond());
+        assertFalse(estimator.isCapacityMeasured());
+        assertEquals(-1, estimator.getMeasuredCapacityBytesPerSecond());
+    }
+
+    @Test
+    void measuredSeedExpiresAfterOneWindowOnAnAppLimitedLink() {
+        advanceMs(TICK_MS);
+        estimator.seed(5 * LINK_RATE, true, nowMs());
+        assertTrue(estimator.isCapacityMeasured());
+        assertEquals(5 * LINK_RATE, estimator.getCapacityBytesPerSecond());
+
+        // Solo ráfagas: ninguna muestra llena el enlace para confirmar la semilla
+        bursts((int) (WINDOW_MS / 60) + 5, 10, 50);
+        assertFalse(estimator.isCapacityMeasured());
+        assertEquals(-1, estimator.getMeasuredCapacityBytesPerSecond());
+        assertNear(LINK_RATE, estimator.getCapacityBytesPerSecond(), 0.02);
+    }
+
+    @Test
+    void sessionCapacityComesOnlyFromOwnSamples() {
+        advanceMs(TICK_MS);
+        estimator.seed(5 * LINK_RATE, true, nowMs());
+        assertEquals(-1, estimator.getSessionCapacityBytesPerSecond());
+        assertFalse(estimator.isSessionCapacityMeasured());
+
+        saturate(2000);
+        assertEquals(5 * LINK_RATE, estimator.getCapacityBytesPerSecond());
+        assertTrue(estimator.isSessionCapacityMeasured());
+        assertNear(LINK_RATE, estimator.getSessionCapacityBytesPerSecond(), 0.02);
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        saturate(2000);
+        estimator.reset();
+        assertEquals(-1, estimator.getCapacityBytesPerSecond());
+        assertFalse(estimator.isCapacityMeasured());
+        assertEquals(0, estimator.getSampleCount());
+        assertEquals(0.0, estimator.getDeliveryRateBytesPerSecond());
+    }
+}
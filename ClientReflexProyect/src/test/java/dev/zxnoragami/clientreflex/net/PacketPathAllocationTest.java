@@ -0,0 +1,245 @@
+package dev.zxnoragami.clientreflex.net;
+
+import dev.zxnoragami.clientreflex.ClientReflexClient;
+import dev.zxnoragami.clientreflex.config.ClientReflexConfig;
+import dev.zxnoragami.clientreflex.ping.PingMetrics;
+import dev.zxnoragami.clientreflex.ping.PriorityWriteHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.c2s.common.KeepAliveC2SPacket;
+import net.minecraft.network.packet.c2s.play.ClientStatusC2SPacket;
+import net.minecraft.network.packet.c2s.play.CommandExecutionC2SPacket;
+import net.minecraft.network.packet.c2s.play.HandSwingC2SPacket;
+import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket;
+import net.minecraft.network.packet.s2c.common.KeepAliveS2CPacket;
+import net.minecraft.util.Hand;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Presupuesto de asignación de los caminos por paquete: las pausas de GC se ven como
+ * picos de ping, así que en estado estable ninguno debe asignar memoria.
+ *
+ * Cada camino pasa paquetes reales por un EmbeddedChannel y se miden los bytes asignados
+ * en el hilo con ThreadMXBean, restando los de un pipeline vacío (solo los sumideros).
+ * Los handlers solo publican en la ingesta de NetworkMonitor; un hilo aparte la drena
+ * como haría el hilo del cliente, así que lo medido es el lado productor.
+ */
+class PacketPathAllocationTest {
+    private static final int WARMUP_PACKETS = 100_000;
+    private static final int MEASURED_PACKETS = 200_000;
+    // Margen para ruido de medición (deoptimizaciones, TLABs), en bytes por paquete
+    private static final double TOLERANCE_BYTES_PER_PACKET = 0.5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static Thread drainer;
+    private static double baselineInbound;
+    private static double baselineOutbound;
+
+    // Se reutilizan entre iteraciones para no medir su construcción
+    private final Packet<?>[] outboundMix = {
+        new PlayerMoveC2SPacket.OnGroundOnly(true),       // MOVEMENT
+        new HandSwingC2SPacket(Hand.MAIN_HAND),           // ATTACK
+        new KeepAliveC2SPacket(42L),                      // KEEPALIVE
+        new CommandExecutionC2SPacket("spawn"),           // CHAT
+        new ClientStatusC2SPacket(ClientStatusC2SPacket.Mode.REQUEST_STATS), // Por defecto
+        new PlayerMoveC2SPacket.OnGroundOnly(false)       // MOVEMENT
+    };
+
+    /**
+     * Instala NetworkMonitor y PingMetrics como ClientReflexClient al iniciar, para que
+     * los handlers recorran el mismo camino que en el juego, y arranca el drenaje.
+     */
+    @BeforeAll
+    static void installClientState() throws ReflectiveOperationException {
+        NetworkMonitor monitor = new NetworkMonitor();
+        PingMetrics pingMetrics = new PingMetrics(ClientReflexConfig.getConfig().pingMetricsHistorySize);
+        monitor.setRttSampleListener(pingMetrics::recordPing);
+        setStatic("networkMonitor", monitor);
+        setStatic("pingMetrics", pingMetrics);
+
+        drainer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                monitor.drainIngestion();
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "allocation-test-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+
+        PacketPathAllocationTest baseline = new PacketPathAllocationTest();
+        baselineInbound = baseline.measureInbound(null);
+        baselineOutbound = baseline.measureOutbound(null);
+    }
+
+    @AfterAll
+    static void uninstallClientState() throws Exception {
+        drainer.interrupt();
+        drainer.join();
+        setStatic("networkMonitor", null);
+        setStatic("pingMetrics", null);
+    }
+
+    private static void setStatic(String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = ClientReflexClient.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(null, value);
+    }
+
+    @Test
+    void keepAliveHandlerDoesNotAllocateForOtherInboundPackets() {
+        // Solo la detección por nombre de clase
+        assertWithinBudget("RobustKeepAliveHandler (otros paquetes)",
+            measureInbound(new RobustKeepAliveHandler()) - baselineInbound);
+    }
+
+    @Test
+    void keepAliveRoundTripDoesNotAllocate() {
+        // Keep-alive del servidor y respuesta del cliente: solo instantes en el seqlock
+        EmbeddedChannel channel = newChannel(new RobustKeepAliveHandler());
+        KeepAliveS2CPacket inbound = new KeepAliveS2CPacket(42L);
+        Packet<?> outbound = outboundMix[2];
+        double bytes = measure(channel, sequence -> {
+            if ((sequence & 1) == 0) {
+                channel.pipeline().fireChannelRead(inbound);
+            } else {
+                channel.write(outbound, channel.voidPromise());
+                channel.flush();
+            }
+        });
+        assertWithinBudget("RobustKeepAliveHandler (ida y vuelta)",
+            bytes - (baselineInbound + baselineOutbound) / 2);
+    }
+
+    @Test
+    void priorityWriteHandlerDoesNotAllocate() {
+        // Escritura priorizada con colas preasignadas
+        PriorityWriteHandler handler = new PriorityWriteHandler();
+        handler.updatePolicy(new PriorityPolicy());
+        assertWithinBudget("PriorityWriteHandler", measureOutbound(handler) - baselineOutbound);
+    }
+
+    @Test
+    void channelRead0HookDoesNotAllocate() {
+        // Instante de llegada a la cola SPSC y contadores del seqlock
+        assertWithinBudget("InboundPacketHook", measureInbound(new ChannelRead0Hook()) - baselineInbound);
+    }
+
+    private static void assertWithinBudget(String path, double bytesPerPacket) {
+        // Con la resta del pipeline vacío el ruido puede dar valores levemente negativos
+        double reported = Math.max(0.0, bytesPerPacket);
+        assertTrue(reported <= TOLERANCE_BYTES_PER_PACKET,
+            String.format("%s asigna %.2f B/paquete", path, reported));
+    }
+
+    /**
+     * Paquetes entrantes que no son keep-alive, como la mayoría del tráfico real.
+     * fireChannelRead no asigna, a diferencia de writeInbound(Object...).
+     */
+    private double measureInbound(ChannelHandler handler) {
+        EmbeddedChannel channel = newChannel(handler);
+        return measure(channel, sequence -> channel.pipeline().fireChannelRead(outboundMix[sequence % outboundMix.length]));
+    }
+
+    /**
+     * Paquetes salientes escritos con voidPromise, como ClientConnection sin callbacks.
+     */
+    private double measureOutbound(ChannelHandler handler) {
+        EmbeddedChannel channel = newChannel(handler);
+        return measure(channel, sequence -> {
+            channel.write(outboundMix[sequence % outboundMix.length], channel.voidPromise());
+            channel.flush();
+        });
+    }
+
+    /**
+     * Calienta el camino y mide los bytes asignados por paquete en el hilo actual.
+     */
+    private static double measure(EmbeddedChannel channel, IntConsumer send) {
+        for (int i = 0; i < WARMUP_PACKETS; i++) {
+            send.accept(i);
+        }
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_PACKETS; i++) {
+            send.accept(i);
+        }
+        long after = THREADS.getCurrentThreadAllocatedBytes();
+        channel.finishAndReleaseAll();
+        return (double) (after - before) / MEASURED_PACKETS;
+    }
+
+    /**
+     * EmbeddedChannel [OutboundSink] -> [handler] -> [InboundSink].
+     */
+    private static EmbeddedChannel newChannel(ChannelHandler handler) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelPipeline pipeline = channel.pipeline();
+        pipeline.addLast("sink_out", new OutboundSink());
+        if (handler != null) {
+            pipeline.addLast("under_test", handler);
+        }
+        pipeline.addLast("sink_in", new InboundSink());
+        return channel;
+    }
+
+    /**
+     * Descarta lo que llega a la cabeza del pipeline: es el último en recibir escrituras.
+     */
+    private static final class OutboundSink extends ChannelOutboundHandlerAdapter {
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            // Descartado: no se acumula en el EmbeddedChannel
+        }
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            // Nada que vaciar
+        }
+    }
+
+    /**
+     * Consume lo que llega al final del pipeline.
+     */
+    private static final class InboundSink extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            // Consumido: no se acumula en el EmbeddedChannel
+        }
+    }
+
+    /**
+     * Reproduce el hook de ClientConnectionMixin.channelRead0 (que no puede aplicarse
+     * fuera del juego) llamando al mismo punto de entrada.
+     */
+    private static final class ChannelRead0Hook extends SimpleChannelInboundHandler<Packet<?>> {
+        ChannelRead0Hook() {
+            super(false); // No liberar: los paquetes se reutilizan
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, Packet<?> packet) {
+            InboundPacketHook.onPacket(packet);
+            ctx.fireChannelRead(packet);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dev.zxnoragami.clientreflex.net;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowedMaxFilterTest {
+    private static final long WINDOW_MS = 10_000;
+
+    @Test
+    void startsEmpty() {
+        WindowedMaxFilter filter = new WindowedMaxFilter(WINDOW_MS);
+        assertTrue(filter.isEmpty());
+        assertEquals(0, filter.get());
+    }
+
+    @Test
+    void higherSampleBecomesMaxImmediately() {
+        WindowedMaxFilter filter = new WindowedMaxFilter(WINDOW_MS);
+        filter.update(100, 0);
+        assertEquals(300, filter.update(300, 1000));
+        assertEquals(1000, filter.getTimeMs());
+        assertFalse(filter.isEmpty());
+    }
+
+    @Test
+    void lowerSamplesDoNotReplaceMaxWithinWindow() {
+        WindowedMaxFilter filter = new WindowedMaxFilter(WINDOW_MS);
+        filter.update(500, 0);
+        for (long t = 1000; t <= WINDOW_MS; t += 1000) {
+            assertEquals(500, filter.update(100, t));
+        }
+    }
+
+    @Test
+    void maxExpiresToBestRecentCandidate() {
+        WindowedMaxFilter filter = new WindowedMaxFilter(WINDOW_MS);
+        filter.update(500, 0);
+        // Candidatos tras un cuarto y media ventana
+        filter.update(300, 3000);
+        filter.update(200, 6000);
+        long max = filter.update(100, WINDOW_MS + 1000);
+        assertEquals(300, max);
+        // Sin muestras mejores, el último candidato acaba dando el máximo
+        max = filter.update(100, 3000 + WINDOW_MS + 1000);
+        assertTrue(max <= 200, "máximo " + max);
+    }
+
+    @Test
+    void maxNeverOutlivesWindowAndAQuarter() {
+        WindowedMaxFilter filter = new WindowedMaxFilter(WINDOW_MS);
+        filter.update(1000, 0);
+        long t = 0;
+        while (filter.get() == 1000) {
+            t += 250;
+            filter.update(10, t);
+        }
+        assertTrue(t > WINDOW_MS, "caducó a los " + t + " ms");
+        assertTrue(t <= WINDOW_MS + WINDOW_MS / 4 + 250, "caducó a los " + t + " ms");
+    }
+
+    @Test
+    void silenceLongerThanWindowRestartsFromNewSample() {
+        WindowedMaxFilter filter = new WindowedMaxFilter(WINDOW_MS);
+        filter.update(1000, 0);
+        assertEquals(50, filter.update(50, 2 * WINDOW_MS));
+    }
+
+    @Test
+    void clearEmptiesFilter() {
+        WindowedMaxFilter filter = new WindowedMaxFilter(WINDOW_MS);
+        filter.update(1000, 0);
+        filter.clear();
+        assertTrue(filter.isEmpty());
+        assertEquals(20, filter.update(20, 1));
+    }
+}